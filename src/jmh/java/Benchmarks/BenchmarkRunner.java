@@ -0,0 +1,25 @@
+package Benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * 带 GC profiler 运行基准测试：除了吞吐量，还会报告每次调用分配的字节数（gc.alloc.rate.norm），可以看出哪些排序需要额外的
+ * 辅助数组（如 MergeSort 每次都要分配 aux，而 QuickSort3Ways 是原地排序）。
+ *
+ * - 运行：java -cp target/benchmarks.jar Benchmarks.BenchmarkRunner [正则]
+ *   正则用于选择要运行的基准，如 "SortBenchmark"、"PrimitiveSortBenchmark"，默认运行全部。
+ * */
+
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "Benchmarks\\..*")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,45 @@
+package Benchmarks;
+
+import Utils.DataGenerator;
+
+import static Utils.DataGenerator.*;
+
+/*
+ * 基准测试用的数据分布（由 DataGenerator 生成）：
+ *
+ * - 所有分布生成的都是非负的 int，且最大值不超过 n 的量级，因此计数排序、基数排序、StableCountingSort 都可以直接使用。
+ * - 生成时使用固定的种子，同一个 (分布, n) 在每次 fork、每次运行中得到的数据完全相同，不同算法之间的结果才有可比性。
+ * - 各分布针对的是不同算法的"软肋"：
+ *   - RANDOM：一般情况；
+ *   - NEARLY_ORDERED：对插入排序、自然归并有利，对未随机化 pivot 的快排不利（QuickSort 退化为 O(n^2)）；
+ *   - K_SORTED：每个元素距离最终位置不超过16，对插入排序有利，但 run 很多，自然归并无从利用；
+ *   - FEW_UNIQUE：只有10个不同的值，对二路快排不利，对三路快排、计数排序有利；
+ *   - ZIPF：少数几个值占了绝大部分，其余的值又很分散，介于 RANDOM 与 FEW_UNIQUE 之间；
+ *   - GAUSSIAN：集中在 n/2 附近，标准差为 n/16（超出 [0, n) 的概率可以忽略）；
+ *   - REVERSED：对插入排序、冒泡排序最不利；
+ *   - SAWTOOTH：1000个一组的有序 run；
+ *   - ORGAN_PIPE：先升后降（0, 1, ..., n/2, ..., 1, 0），只有两个 run，且有大量重复元素。
+ * */
+
+public enum Distribution {
+    RANDOM, NEARLY_ORDERED, K_SORTED, FEW_UNIQUE, ZIPF, GAUSSIAN, REVERSED, SAWTOOTH, ORGAN_PIPE;
+
+    public static final long SEED = 20240101L;
+
+    public int[] ints(int n) {
+        DataGenerator gen = new DataGenerator(SEED);
+        switch (this) {
+            case RANDOM: return gen.ints(n, uniform(0, n));
+            case NEARLY_ORDERED: return gen.nearlyOrdered(n, n / 100);  // 随机交换 1% 的元素
+            case K_SORTED: return gen.ints(n, kSorted(16));
+            case FEW_UNIQUE: return gen.ints(n, fewUnique(10));
+            case ZIPF: return gen.ints(n, zipf(n, 1));
+            case GAUSSIAN: return gen.ints(n, gaussian(n / 2.0, n / 16.0));
+            case REVERSED: return gen.ints(n, reversed());
+            case SAWTOOTH: return gen.ints(n, sawtooth(1000));
+            default: return gen.ints(n, organPipe());
+        }
+    }
+
+    public Integer[] boxed(int n) { return box(ints(n)); }
+}
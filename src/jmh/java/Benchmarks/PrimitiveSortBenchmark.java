@@ -0,0 +1,77 @@
+package Benchmarks;
+
+import SortingAdvanced.DualPivotQuickSort;
+import SortingAdvanced.ParallelMergeSort;
+import SortingAdvanced.ParallelQuickSort3Ways;
+import SortingAdvanced.ParallelSampleSort;
+import SortingAdvanced.Sorter;
+import SortingSpecialised.CountingSort1;
+import SortingSpecialised.CountingSort2;
+import SortingSpecialised.RadixSort;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ * 基本类型数组（int[]）排序的吞吐量（测量方式同 SortBenchmark）：
+ *
+ * - 与 SortBenchmark 对比可以看出装箱的代价：Integer[] 的每次比较都要解引用两个对象，且对象在堆中的位置是分散的。
+ * - 计数排序、基数排序不是基于比较的排序，在 [0, n) 范围内的数据上为 O(n)。
+ * - JDK_ARRAYS_SORT 作为参照（JDK 的 DualPivotQuicksort）。
+ * */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrimitiveSortBenchmark {
+    public enum Algorithm {
+        COPY_ONLY(arr -> {}),
+        JDK_ARRAYS_SORT(java.util.Arrays::sort),
+        COUNTING_SORT_1(CountingSort1::sort),
+        COUNTING_SORT_2(CountingSort2::sort),
+        RADIX_SORT(RadixSort::sort),
+        QUICK_SORT_2_WAYS(SortingPrimitive.QuickSort2Ways::sort),
+        BLOCK_QUICK_SORT(SortingPrimitive.BlockQuickSort::sort),
+        QUICK_SORT_3_WAYS(SortingPrimitive.QuickSort3Ways::sort),
+        MERGE_SORT(SortingPrimitive.MergeSort::sort),
+        HEAP_SORT(SortingPrimitive.HeapSort::sort),
+        DUAL_PIVOT_QUICK_SORT(DualPivotQuickSort::sort),
+        PARALLEL_MERGE_SORT(ParallelMergeSort::sort),
+        PARALLEL_SAMPLE_SORT(ParallelSampleSort::sort),
+        PARALLEL_QUICK_SORT_3_WAYS(ParallelQuickSort3Ways::sort),
+        SORTER(Sorter::sort);
+
+        private final Consumer<int[]> sorter;
+
+        Algorithm(Consumer<int[]> sorter) { this.sorter = sorter; }
+    }
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param
+    public Distribution distribution;
+
+    @Param
+    public Algorithm algorithm;
+
+    private int[] source;
+    private int[] work;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = distribution.ints(size);
+        work = new int[size];
+    }
+
+    @Benchmark
+    public int[] sort() {
+        System.arraycopy(source, 0, work, 0, size);
+        algorithm.sorter.accept(work);
+        return work;
+    }
+}
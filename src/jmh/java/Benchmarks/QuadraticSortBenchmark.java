@@ -0,0 +1,105 @@
+package Benchmarks;
+
+import SortingAdvanced.QuickSort;
+import SortingAdvanced.QuickSort2;
+import SortingBasic.BubbleSort;
+import SortingBasic.InsertionSort;
+import SortingBasic.SelectionSort;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ * O(n^2) 级别的排序在较小规模上的吞吐量（测量方式同 SortBenchmark）：
+ *
+ * - 除了冒泡、插入、选择排序，这里还包括了 QuickSort 和 QuickSort2：它们用固定/随机的 pivot 做二分 partition，在近乎有序或
+ *   大量重复元素的数据上会退化为 O(n^2)，递归深度达到 O(n)。QuickSort 在 10000 个元素的 REVERSED 上就会栈溢出（默认 1MB 的
+ *   线程栈，方法还没有被 C2 编译时栈帧较大），因此两者单独放在 QuickSortState 中，只测试 100 和 1000 的规模，正好可以与
+ *   SortBenchmark 中的 QuickSort2Ways、QuickSort3Ways 对比。
+ * - 插入排序在 NEARLY_ORDERED 上接近 O(n)，与在 REVERSED 上的差距即体现了它对有序程度的敏感性。
+ * */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuadraticSortBenchmark {
+    public enum Algorithm {
+        BUBBLE_SORT_1(BubbleSort::sort1),
+        BUBBLE_SORT_2(BubbleSort::sort2),
+        SELECTION_SORT(SelectionSort::sort),
+        INSERTION_SORT_1(InsertionSort::sort1),
+        INSERTION_SORT_2(InsertionSort::sort2);
+
+        private final Consumer<Integer[]> sorter;
+
+        Algorithm(Consumer<Integer[]> sorter) { this.sorter = sorter; }
+    }
+
+    public enum QuickSortAlgorithm {
+        QUICK_SORT(QuickSort::sort),
+        QUICK_SORT_2(QuickSort2::sort);
+
+        private final Consumer<Integer[]> sorter;
+
+        QuickSortAlgorithm(Consumer<Integer[]> sorter) { this.sorter = sorter; }
+    }
+
+    @State(Scope.Thread)
+    public static class QuadraticState {
+        @Param({"100", "1000", "10000"})
+        public int size;
+
+        @Param
+        public Distribution distribution;
+
+        @Param
+        public Algorithm algorithm;
+
+        private Integer[] source;
+        private Integer[] work;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            source = distribution.boxed(size);
+            work = new Integer[size];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class QuickSortState {
+        @Param({"100", "1000"})  // 退化时递归深度为 n，不测试 10000 的规模
+        public int size;
+
+        @Param
+        public Distribution distribution;
+
+        @Param
+        public QuickSortAlgorithm algorithm;
+
+        private Integer[] source;
+        private Integer[] work;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            source = distribution.boxed(size);
+            work = new Integer[size];
+        }
+    }
+
+    @Benchmark
+    public Integer[] sort(QuadraticState s) {
+        System.arraycopy(s.source, 0, s.work, 0, s.size);
+        s.algorithm.sorter.accept(s.work);
+        return s.work;
+    }
+
+    @Benchmark
+    public Integer[] quickSort(QuickSortState s) {
+        System.arraycopy(s.source, 0, s.work, 0, s.size);
+        s.algorithm.sorter.accept(s.work);
+        return s.work;
+    }
+}
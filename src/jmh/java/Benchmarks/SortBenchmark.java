@@ -0,0 +1,81 @@
+package Benchmarks;
+
+import Heap.HeapSort;
+import SortingAdvanced.*;
+import SortingBasic.ShellSort;
+import SortingSpecialised.StableCountingSort;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ * O(nlogn) 级别的泛型排序（Integer[]）在各种数据分布上的吞吐量：
+ *
+ * - 每个 trial 开始前生成一次源数据（source），每次调用先用 System.arraycopy 把源数据拷贝到预先分配好的 work 数组中再排序，
+ *   因此每次排序的都是同样的未排序数据，且测量中不包含分配数组的开销。拷贝本身是 O(n) 的，与排序相比可以忽略（COPY_ONLY
+ *   给出的就是这部分开销的基准）。
+ * - 排序后的数组作为返回值返回，防止 JIT 把排序当作死代码消除。
+ * - Integer 对象在 source 和 work 之间是共享的，排序只移动引用，不会修改 Integer 本身，因此共享是安全的。
+ * - O(n^2) 的排序在 100000 的规模上太慢，放在 QuadraticSortBenchmark 中单独测试；基本类型数组的排序见 PrimitiveSortBenchmark。
+ * */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SortBenchmark {
+    public enum Algorithm {
+        COPY_ONLY(arr -> {}),
+        SHELL_SORT(ShellSort::sort),
+        MERGE_SORT(MergeSort::sort),
+        MERGE_SORT_2(MergeSort2::sort),
+        MERGE_SORT_BOTTOM_UP(MergeSortBottomUp::sort),
+        MERGE_SORT_3(MergeSort3::sort),
+        QUICK_SORT_2_WAYS(QuickSort2Ways::sort),
+        QUICK_SORT_3_WAYS(QuickSort3Ways::sort),
+        INTRO_SORT(IntroSort::sort),
+        DUAL_PIVOT_QUICK_SORT(DualPivotQuickSort::sort),
+        NATURAL_MERGE_SORT(NaturalMergeSort::sort),
+        PARALLEL_MERGE_SORT(ParallelMergeSort::sort),
+        PARALLEL_SAMPLE_SORT(ParallelSampleSort::sort),
+        PARALLEL_QUICK_SORT_3_WAYS(ParallelQuickSort3Ways::sort),
+        HEAP_SORT_1(HeapSort::sort1),
+        HEAP_SORT_2(HeapSort::sort2),
+        HEAP_SORT_3(HeapSort::sort3),
+        STABLE_COUNTING_SORT(arr -> StableCountingSort.sort(arr, Integer::intValue)),
+        KEYED_SORT_INT_KEY(arr -> KeyedSort.sortByIntKey(arr, Integer::intValue)),
+        SORTER(Sorter::sort);
+
+        private final Consumer<Integer[]> sorter;
+
+        Algorithm(Consumer<Integer[]> sorter) { this.sorter = sorter; }
+    }
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param
+    public Distribution distribution;
+
+    @Param
+    public Algorithm algorithm;
+
+    private Integer[] source;
+    private Integer[] work;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = distribution.boxed(size);
+        work = new Integer[size];
+    }
+
+    @Benchmark
+    public Integer[] sort() {
+        System.arraycopy(source, 0, work, 0, size);
+        algorithm.sorter.accept(work);
+        return work;
+    }
+}
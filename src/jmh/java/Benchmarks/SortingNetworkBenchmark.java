@@ -0,0 +1,149 @@
+package Benchmarks;
+
+import SortingAdvanced.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+
+/*
+ * 排序网络的 cutoff 对各递归排序的影响（测量方式同 SortBenchmark），用来选取 SortingNetwork 中各元素类型的默认 cutoff：
+ *
+ * - cutoff 为 0 即不使用排序网络（基本类型版本在 <= 16 个元素时用插入排序，泛型版本则递归到底或用插入排序），其余取值即
+ *   元素个数 <= cutoff 的区间用排序网络排序。
+ * - 每种元素类型一个 @Benchmark 方法（intSort、longSort、doubleSort、objectSort），各自比较不同的 cutoff。long[]、double[]
+ *   的数据由同一组 int 转换而来，因此几种基本类型排序的是顺序完全相同的数据，差别只在于比较-交换的代价。
+ * - 小区间在整体时间中只占一部分，cutoff 的影响在几个百分点的量级，因此只测 RANDOM 一种分布、一个规模（可以用 -p 指定
+ *   其他的，如 -p distribution=FEW_UNIQUE）。
+ * */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortingNetworkBenchmark {
+    public enum PrimitiveAlgorithm {
+        MERGE_SORT(SortingPrimitive.MergeSort::sort, SortingPrimitive.MergeSort::sort, SortingPrimitive.MergeSort::sort),
+        QUICK_SORT_2_WAYS(SortingPrimitive.QuickSort2Ways::sort, SortingPrimitive.QuickSort2Ways::sort, SortingPrimitive.QuickSort2Ways::sort),
+        QUICK_SORT_3_WAYS(SortingPrimitive.QuickSort3Ways::sort, SortingPrimitive.QuickSort3Ways::sort, SortingPrimitive.QuickSort3Ways::sort),
+        HEAP_SORT(SortingPrimitive.HeapSort::sort, SortingPrimitive.HeapSort::sort, SortingPrimitive.HeapSort::sort),
+        DUAL_PIVOT_QUICK_SORT(DualPivotQuickSort::sort, DualPivotQuickSort::sort, DualPivotQuickSort::sort);
+
+        private final ObjIntConsumer<int[]> intSorter;
+        private final ObjIntConsumer<long[]> longSorter;
+        private final ObjIntConsumer<double[]> doubleSorter;
+
+        PrimitiveAlgorithm(ObjIntConsumer<int[]> intSorter, ObjIntConsumer<long[]> longSorter, ObjIntConsumer<double[]> doubleSorter) {
+            this.intSorter = intSorter;
+            this.longSorter = longSorter;
+            this.doubleSorter = doubleSorter;
+        }
+    }
+
+    public enum ObjectAlgorithm {
+        MERGE_SORT(MergeSort::sort),
+        QUICK_SORT(QuickSort::sort),
+        QUICK_SORT_2(QuickSort2::sort),
+        QUICK_SORT_2_WAYS(QuickSort2Ways::sort),
+        QUICK_SORT_3_WAYS(QuickSort3Ways::sort),
+        INTRO_SORT(IntroSort::sort),
+        DUAL_PIVOT_QUICK_SORT(DualPivotQuickSort::sort),
+        HEAP_SORT((arr, c, cutoff) -> Heap.HeapSort.sortRange(arr, 0, arr.length - 1, c, cutoff));
+
+        private final Sorter sorter;
+
+        ObjectAlgorithm(Sorter sorter) { this.sorter = sorter; }
+    }
+
+    public interface Sorter {
+        void sort(Integer[] arr, Comparator<Integer> c, int cutoff);
+    }
+
+    @State(Scope.Thread)
+    public static class PrimitiveState {
+        @Param({"0", "4", "8", "12", "16"})
+        public int cutoff;
+
+        @Param({"1000000"})
+        public int size;
+
+        @Param({"RANDOM"})
+        public Distribution distribution;
+
+        @Param
+        public PrimitiveAlgorithm algorithm;
+
+        private int[] ints, intWork;
+        private long[] longs, longWork;
+        private double[] doubles, doubleWork;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            ints = distribution.ints(size);
+            longs = new long[size];
+            doubles = new double[size];
+            for (int i = 0; i < size; i++) {
+                longs[i] = ints[i];
+                doubles[i] = ints[i];
+            }
+            intWork = new int[size];
+            longWork = new long[size];
+            doubleWork = new double[size];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ObjectState {
+        @Param({"0", "4", "8", "12", "16"})
+        public int cutoff;
+
+        @Param({"1000000"})
+        public int size;
+
+        @Param({"RANDOM"})
+        public Distribution distribution;
+
+        @Param
+        public ObjectAlgorithm algorithm;
+
+        private final Comparator<Integer> c = Comparator.naturalOrder();
+        private Integer[] source;
+        private Integer[] work;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            source = distribution.boxed(size);
+            work = new Integer[size];
+        }
+    }
+
+    @Benchmark
+    public int[] intSort(PrimitiveState s) {
+        System.arraycopy(s.ints, 0, s.intWork, 0, s.size);
+        s.algorithm.intSorter.accept(s.intWork, s.cutoff);
+        return s.intWork;
+    }
+
+    @Benchmark
+    public long[] longSort(PrimitiveState s) {
+        System.arraycopy(s.longs, 0, s.longWork, 0, s.size);
+        s.algorithm.longSorter.accept(s.longWork, s.cutoff);
+        return s.longWork;
+    }
+
+    @Benchmark
+    public double[] doubleSort(PrimitiveState s) {
+        System.arraycopy(s.doubles, 0, s.doubleWork, 0, s.size);
+        s.algorithm.doubleSorter.accept(s.doubleWork, s.cutoff);
+        return s.doubleWork;
+    }
+
+    @Benchmark
+    public Integer[] objectSort(ObjectState s) {
+        System.arraycopy(s.source, 0, s.work, 0, s.size);
+        s.algorithm.sorter.sort(s.work, s.c, s.cutoff);
+        return s.work;
+    }
+}
@@ -1,5 +1,9 @@
 package Heap;
 
+import SortingAdvanced.SortingNetwork;
+
+import java.util.Comparator;
+
 import static Utils.Helpers.*;
 
 /*
@@ -42,32 +46,72 @@ public class HeapSort {
             arr[i] = heap.extractMax();
     }
 
-    public static <E extends Comparable<E>> void sort3(E[] arr) {  // 第三种实现
+    public static <E extends Comparable<E>> void sort3(E[] arr) { sort3(arr, Comparator.naturalOrder()); }
+
+    // sort1、sort2 依赖 MaxHeap（按 compareTo 比较），因此只有不依赖 MaxHeap 的第三种实现提供 Comparator 版本
+    public static <E> void sort3(E[] arr, Comparator<? super E> c) {  // 第三种实现
         int n = arr.length;
         int lastNonLeafNodeIndex = (n - 1) / 2;
 
         for (int i = lastNonLeafNodeIndex; i >= 0; i--)  // heapify
-            siftDown2(arr, n, i);
+            siftDown2(arr, n, i, c);
 
         for (int i = n - 1; i > 0; i--) {  // 从后往前遍历（第0个元素不用管）
             swap(arr, i, 0);            // 每次将第0个元素换到正确的排序位置上（例如最大值被换到数组末尾），同时最大堆被破坏
-            siftDown2(arr, i, 0);      // 对第0个元素进行下沉以重建最大堆，注意：下沉范围 i（即最大堆元素个数）会每次减1
+            siftDown2(arr, i, 0, c);   // 对第0个元素进行下沉以重建最大堆，注意：下沉范围 i（即最大堆元素个数）会每次减1
         }
     }
 
     // 比 MaxHeap 中的 siftDown 多了一个参数 n，用于控制下沉的范围
-    private static <E extends Comparable<E>> void siftDown2(E[] arr, int n, int k) {  // 对第 k 个元素在前 n 个元素的范围内进行下沉，n 之后是已经排好序的元素
+    private static <E> void siftDown2(E[] arr, int n, int k, Comparator<? super E> c) {  // 对第 k 个元素在前 n 个元素的范围内进行下沉，n 之后是已经排好序的元素
         while (k * 2 + 1 < n) {  // 注意这里是 < n
             int i = k * 2 + 1;
-            if (i + 1 < n && arr[i + 1].compareTo(arr[i]) > 0)
+            if (i + 1 < n && c.compare(arr[i + 1], arr[i]) > 0)
                 i += 1;
-            if (arr[k].compareTo(arr[i]) >= 0)
+            if (c.compare(arr[k], arr[i]) >= 0)
                 break;
             swap(arr, i, k);
             k = i;
         }
     }
 
+    // 对 arr[l...r] 进行堆排序（sort3 的区间版本），供 IntroSort 等算法在某一区间上调用。
+    // 堆中第 k 个节点对应 arr[l+k]，其左右孩子分别为第 2k+1、2k+2 个节点，即只是在 sort3 的基础上加了偏移量 l。
+    public static <E extends Comparable<E>> void sortRange(E[] arr, int l, int r) {
+        sortRange(arr, l, r, Comparator.naturalOrder());
+    }
+
+    public static <E> void sortRange(E[] arr, int l, int r, Comparator<? super E> c) {
+        sortRange(arr, l, r, c, SortingNetwork.OBJECT_CUTOFF);
+    }
+
+    // 同 SortingPrimitive.HeapSort：堆中只剩 cutoff 个元素时直接用排序网络（SortingNetwork）排好
+    public static <E> void sortRange(E[] arr, int l, int r, Comparator<? super E> c, int cutoff) {
+        SortingNetwork.checkCutoff(cutoff);
+        int n = r - l + 1, i = n - 1;
+        if (n > cutoff) {
+            for (int k = (n - 2) / 2; k >= 0; k--)
+                siftDown3(arr, l, n, k, c);
+            for (; i > 0 && i >= cutoff; i--) {
+                swap(arr, l + i, l);
+                siftDown3(arr, l, i, 0, c);
+            }
+        }
+        SortingNetwork.sortRange(arr, l, l + i, c);
+    }
+
+    private static <E> void siftDown3(E[] arr, int offset, int n, int k, Comparator<? super E> c) {  // 与 siftDown2 相同，只是访问数组时加上偏移量
+        while (k * 2 + 1 < n) {
+            int i = k * 2 + 1;
+            if (i + 1 < n && c.compare(arr[offset + i + 1], arr[offset + i]) > 0)
+                i += 1;
+            if (c.compare(arr[offset + k], arr[offset + i]) >= 0)
+                break;
+            swap(arr, offset + i, offset + k);
+            k = i;
+        }
+    }
+
     public static void main(String[] args) {
         Integer[] arr1 = generateRandomIntArr(10);
         Integer[] arr2 = arr1.clone();
@@ -0,0 +1,271 @@
+package Heap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static Utils.Helpers.*;
+
+/*
+ * 败者树（Loser Tree / Tournament Tree）：多路归并中"从 k 路的当前元素中选出最小的那个"
+ *
+ * - 问题：
+ *   k 路归并时每输出一个元素都要在 k 路的当前元素中找最小值。用最小堆（如 ExternalMergeSort 原来用的 MinHeap）时，extractMin
+ *   后再 insert 新元素，siftDown 每下沉一层要比较两次（先比较两个孩子，再与较小的孩子比较），加上 siftUp，每个元素约需
+ *   2·log2(k) 次比较。
+ *
+ * - 败者树：
+ *   - k 路作为一棵完全二叉树的 k 个叶子（叶子 i 位于 k + i，节点 node 的父节点为 node / 2），每个内部节点（1...k-1）记录在
+ *     该节点上进行的那场比赛的败者（较大者所在的路），胜者继续向上比赛，tree[0] 记录最终的胜者，即当前最小元素所在的路。
+ *   - 取出胜者后，用同一路的下一个元素替换它，只需沿着这个叶子到根的路径重新比赛：每一层与该节点上记录的败者比较一次，
+ *     较大者留下、较小者继续向上。路径上的其他比赛不受影响（它们的参赛者都没有变），因此每个元素恰好需要 ⌈log2(k)⌉ 次以内的
+ *     比较，是最小堆的一半，且不需要先比较兄弟节点（胜者树需要）。
+ *   - 已经取完的路视为 +∞，永远是败者。全部取完时 tree[0] 指向一个已经取完的路，isEmpty() 为 true。
+ *   - 元素相同时编号较小的路胜出，因此按路的编号顺序给出的输入，归并结果是稳定的。
+ *
+ * - 使用：
+ *   - 构造时传入每一路的第一个元素（泛型版本用 null 表示该路为空，因此元素本身不能为 null）；
+ *   - peek() / winner() 取得当前最小的元素及其所在的路；
+ *   - replace(next) 用该路的下一个元素替换它，remove() 表示该路已经取完，两者都会重新比赛。
+ *   - 基本类型：OfInt、OfLong、OfDouble 直接保存 int[]、long[]、double[]，没有装箱，也没有 Comparator 的虚调用（double 按
+ *     Double.compare 的顺序，与 Arrays.sort(double[]) 一致）。构造时用 empty[i] 表示第 i 路为空。
+ *   - 归并数组、迭代器、流的 API 见 SortingAdvanced.KWayMerge；ExternalMergeSort 的多路归并也用它代替了 MinHeap。
+ *   - 败者树不是线程安全的。
+ * */
+
+public class LoserTree<T> {
+    private final Object[] heads;  // 每一路当前的元素，null 表示该路已经取完
+    private final int[] tree;      // tree[0] 为胜者，tree[1...k-1] 为各内部节点上的败者
+    private final Comparator<? super T> c;
+
+    public LoserTree(T[] heads, Comparator<? super T> c) {
+        if (heads.length == 0)
+            throw new IllegalArgumentException("LoserTree failed. At least one source is required.");
+        this.heads = Arrays.copyOf(heads, heads.length, Object[].class);
+        this.tree = new int[heads.length];
+        this.c = c;
+        tree[0] = build(tree, heads.length, this::less);
+    }
+
+    public boolean isEmpty() { return heads[tree[0]] == null; }
+
+    public int winner() { return tree[0]; }  // 当前最小元素所在的路
+
+    @SuppressWarnings("unchecked")
+    public T peek() { return (T) heads[tree[0]]; }
+
+    public void replace(T next) {  // 用胜者所在的路的下一个元素替换胜者（next 为 null 即该路已经取完）
+        int s = tree[0];
+        heads[s] = next;
+        int winner = s, k = heads.length;
+        for (int node = (s + k) >>> 1; node > 0; node >>>= 1) {  // 沿着叶子到根的路径重新比赛
+            int loser = tree[node];
+            if (less(loser, winner)) {
+                tree[node] = winner;
+                winner = loser;
+            }
+        }
+        tree[0] = winner;
+    }
+
+    public void remove() { replace(null); }  // 胜者所在的路已经取完
+
+    @SuppressWarnings("unchecked")
+    private boolean less(int a, int b) {  // 第 a 路的当前元素是否排在第 b 路的前面
+        Object x = heads[a], y = heads[b];
+        if (x == null) return false;
+        if (y == null) return true;
+        int cmp = c.compare((T) x, (T) y);
+        return cmp < 0 || cmp == 0 && a < b;
+    }
+
+    interface Less {
+        boolean less(int a, int b);
+    }
+
+    // 自底向上进行初始的比赛：winners[node] 为节点 node 上的胜者，败者记入 tree[node]，返回最终的胜者
+    static int build(int[] tree, int k, Less less) {
+        int[] winners = new int[2 * k];
+        for (int i = 0; i < k; i++)
+            winners[k + i] = i;
+        for (int node = k - 1; node > 0; node--) {
+            int a = winners[2 * node], b = winners[2 * node + 1];
+            if (less.less(b, a)) {
+                winners[node] = b;
+                tree[node] = a;
+            } else {
+                winners[node] = a;
+                tree[node] = b;
+            }
+        }
+        return winners[1];
+    }
+
+    public static class OfInt {
+        private final int[] heads;
+        private final boolean[] done;  // 该路是否已经取完
+        private final int[] tree;
+
+        public OfInt(int[] heads, boolean[] empty) {
+            if (heads.length == 0 || heads.length != empty.length)
+                throw new IllegalArgumentException("LoserTree failed. At least one source is required.");
+            this.heads = heads.clone();
+            this.done = empty.clone();
+            this.tree = new int[heads.length];
+            tree[0] = build(tree, heads.length, this::less);
+        }
+
+        public boolean isEmpty() { return done[tree[0]]; }
+
+        public int winner() { return tree[0]; }
+
+        public int peek() { return heads[tree[0]]; }
+
+        public void replace(int next) {
+            int s = tree[0];
+            heads[s] = next;
+            replay(s);
+        }
+
+        public void remove() {
+            done[tree[0]] = true;
+            replay(tree[0]);
+        }
+
+        private void replay(int s) {
+            int winner = s, k = heads.length;
+            for (int node = (s + k) >>> 1; node > 0; node >>>= 1) {
+                int loser = tree[node];
+                if (less(loser, winner)) {
+                    tree[node] = winner;
+                    winner = loser;
+                }
+            }
+            tree[0] = winner;
+        }
+
+        private boolean less(int a, int b) {
+            if (done[a]) return false;
+            if (done[b]) return true;
+            return heads[a] < heads[b] || heads[a] == heads[b] && a < b;
+        }
+    }
+
+    public static class OfLong {
+        private final long[] heads;
+        private final boolean[] done;
+        private final int[] tree;
+
+        public OfLong(long[] heads, boolean[] empty) {
+            if (heads.length == 0 || heads.length != empty.length)
+                throw new IllegalArgumentException("LoserTree failed. At least one source is required.");
+            this.heads = heads.clone();
+            this.done = empty.clone();
+            this.tree = new int[heads.length];
+            tree[0] = build(tree, heads.length, this::less);
+        }
+
+        public boolean isEmpty() { return done[tree[0]]; }
+
+        public int winner() { return tree[0]; }
+
+        public long peek() { return heads[tree[0]]; }
+
+        public void replace(long next) {
+            int s = tree[0];
+            heads[s] = next;
+            replay(s);
+        }
+
+        public void remove() {
+            done[tree[0]] = true;
+            replay(tree[0]);
+        }
+
+        private void replay(int s) {
+            int winner = s, k = heads.length;
+            for (int node = (s + k) >>> 1; node > 0; node >>>= 1) {
+                int loser = tree[node];
+                if (less(loser, winner)) {
+                    tree[node] = winner;
+                    winner = loser;
+                }
+            }
+            tree[0] = winner;
+        }
+
+        private boolean less(int a, int b) {
+            if (done[a]) return false;
+            if (done[b]) return true;
+            return heads[a] < heads[b] || heads[a] == heads[b] && a < b;
+        }
+    }
+
+    public static class OfDouble {
+        private final double[] heads;
+        private final boolean[] done;
+        private final int[] tree;
+
+        public OfDouble(double[] heads, boolean[] empty) {
+            if (heads.length == 0 || heads.length != empty.length)
+                throw new IllegalArgumentException("LoserTree failed. At least one source is required.");
+            this.heads = heads.clone();
+            this.done = empty.clone();
+            this.tree = new int[heads.length];
+            tree[0] = build(tree, heads.length, this::less);
+        }
+
+        public boolean isEmpty() { return done[tree[0]]; }
+
+        public int winner() { return tree[0]; }
+
+        public double peek() { return heads[tree[0]]; }
+
+        public void replace(double next) {
+            int s = tree[0];
+            heads[s] = next;
+            replay(s);
+        }
+
+        public void remove() {
+            done[tree[0]] = true;
+            replay(tree[0]);
+        }
+
+        private void replay(int s) {
+            int winner = s, k = heads.length;
+            for (int node = (s + k) >>> 1; node > 0; node >>>= 1) {
+                int loser = tree[node];
+                if (less(loser, winner)) {
+                    tree[node] = winner;
+                    winner = loser;
+                }
+            }
+            tree[0] = winner;
+        }
+
+        private boolean less(int a, int b) {
+            if (done[a]) return false;
+            if (done[b]) return true;
+            int cmp = Double.compare(heads[a], heads[b]);
+            return cmp < 0 || cmp == 0 && a < b;
+        }
+    }
+
+    public static void main(String[] args) {
+        // 5 路有序数据，逐个取出最小值
+        Integer[][] sources = {{1, 4, 9}, {2, 3}, {}, {0, 5, 6, 7}, {4, 8}};
+        int[] pos = new int[sources.length];
+        Integer[] heads = new Integer[sources.length];
+        for (int i = 0; i < sources.length; i++)
+            heads[i] = sources[i].length > 0 ? sources[i][0] : null;
+
+        LoserTree<Integer> tree = new LoserTree<>(heads, Comparator.naturalOrder());
+        StringBuilder sb = new StringBuilder();
+        while (!tree.isEmpty()) {
+            int s = tree.winner();
+            sb.append(tree.peek()).append("(").append(s).append(") ");
+            tree.replace(++pos[s] < sources[s].length ? sources[s][pos[s]] : null);
+        }
+        log(sb);  // 0(3) 1(0) 2(1) 3(1) 4(0) 4(4) 5(3) 6(3) 7(3) 8(4) 9(0)，两个 4 中第 0 路的先出
+    }
+}
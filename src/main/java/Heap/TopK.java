@@ -0,0 +1,405 @@
+package Heap;
+
+import Utils.DataGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static Utils.Helpers.*;
+
+/*
+ * 流式 Top-K（Bounded Top-K）：
+ *
+ * - 问题：
+ *   SortingAdvanced.Exercise_KthSmallestElement_HeapSelect 中的 maxHeapSelect 只返回第 k 个元素，且需要事先拿到整个数组。
+ *   而实际中常见的需求是从一个无界的数据流（比如数十亿条事件）中持续地维护最大的 k 个元素（比如 top 1000），数据不可能
+ *   全部放进内存，也不可能每来一条都排序一次（思路见 Summary-of-heap.txt 中"从 1,000,000 个元素中找出前100名"）。
+ *
+ * - 实现：
+ *   - 用一个容量固定为 k 的最小堆保存当前最大的 k 个元素，堆顶即为其中最小的那个，也就是新元素想进入 top k 必须超过的门槛
+ *     （threshold）。堆是数组实现的，创建时一次分配好，之后不再分配内存，也不会扩容。
+ *   - offer(e)：
+ *     - 堆未满时直接 insert（siftUp）；
+ *     - 堆满后先与门槛比较，e <= 门槛时直接拒绝（early rejection），只需一次比较，不碰堆的其他部分；
+ *     - 否则用 e 替换堆顶再 siftDown（不需要先 extractMin 再 insert，省一次 siftUp）。
+ *   - 随机数据上第 i 个元素能进入 top k 的概率是 k/i，因此处理 n 个元素时进入堆的次数约为 k(1 + ln(n/k))，绝大多数元素
+ *     只花一次比较就被拒绝了，整体复杂度为 O(n + k·log(n/k)·logk)，远好于排序的 O(nlogn) 和 maxHeapSelect 的 O(nlogk)。
+ *   - siftUp、siftDown 采用 SortingPrimitive.HeapSort 中的方式：先保存移动的元素，只把父/子节点赋值过去，最后再放到最终
+ *     位置上，不做 swap。
+ *
+ * - 使用：
+ *   - 推（push）模式：new TopK<>(k, c)，逐个 offer，随时可以 threshold() 查看门槛、toList() 取出结果（从大到小）。
+ *   - Stream 模式：stream.collect(TopK.collector(k, c))，并行流中每个线程各自维护一个 TopK，最后用 merge 合并。
+ *   - 要取最小的 k 个时，传入反序的 Comparator 即可。
+ *   - 基本类型：OfInt、OfLong、OfDouble 直接在 int[]、long[]、double[] 上建堆，没有装箱，也没有 Comparator 的虚调用。它们
+ *     取的都是最大的 k 个（double 按 Double.compare 的顺序，NaN 最大）。IntStream 等没有 collect(Collector) 方法，用
+ *     largest(stream, k) 即可。
+ *   - 与 PriorityQueue 一样，TopK 不是线程安全的。
+ * */
+
+public class TopK<T> {
+    private final T[] heap;  // 最小堆，heap[0] 是堆中最小的元素，即门槛
+    private final Comparator<? super T> c;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TopK(int k, Comparator<? super T> c) {
+        if (k <= 0)
+            throw new IllegalArgumentException("TopK failed. k must be positive.");
+        this.heap = (T[]) new Object[k];
+        this.c = c;
+    }
+
+    public static <T extends Comparable<? super T>> TopK<T> naturalOrder(int k) {
+        return new TopK<>(k, Comparator.naturalOrder());
+    }
+
+    // 返回 e 是否进入了 top k
+    public boolean offer(T e) {
+        if (size < heap.length) {
+            siftUp(size++, e);
+            return true;
+        }
+        if (c.compare(e, heap[0]) <= 0)  // early rejection：不超过门槛，只需一次比较
+            return false;
+        siftDown(0, e);                  // 替换堆顶（踢掉原来的门槛）后下沉
+        return true;
+    }
+
+    // 把 other 中的元素合并进来，用作 Collector 的 combiner
+    public TopK<T> merge(TopK<T> other) {
+        for (int i = 0; i < other.size; i++)
+            offer(other.heap[i]);
+        return this;
+    }
+
+    public int size() { return size; }
+
+    public int capacity() { return heap.length; }
+
+    public boolean isFull() { return size == heap.length; }
+
+    // 当前 top k 中最小的元素。堆满之后，新元素必须大于它才能进入 top k
+    public T threshold() {
+        if (size == 0)
+            throw new IllegalArgumentException("threshold failed. TopK is empty.");
+        return heap[0];
+    }
+
+    // 从大到小排列的结果，O(klogk)，不影响堆本身，之后可以继续 offer
+    public List<T> toList() {
+        List<T> list = new ArrayList<>(Arrays.asList(heap).subList(0, size));
+        list.sort(Collections.reverseOrder(c));
+        return list;
+    }
+
+    private void siftUp(int k, T e) {  // 把 e 放到位置 k 上并上浮
+        while (k > 0) {
+            int parent = (k - 1) / 2;
+            if (c.compare(heap[parent], e) <= 0)
+                break;
+            heap[k] = heap[parent];
+            k = parent;
+        }
+        heap[k] = e;
+    }
+
+    private void siftDown(int k, T e) {  // 把 e 放到位置 k 上并下沉（最小堆，与较小的孩子比较）
+        while (k * 2 + 1 < size) {
+            int i = k * 2 + 1;
+            if (i + 1 < size && c.compare(heap[i + 1], heap[i]) < 0)
+                i += 1;
+            if (c.compare(e, heap[i]) <= 0)
+                break;
+            heap[k] = heap[i];
+            k = i;
+        }
+        heap[k] = e;
+    }
+
+    public static <T> Collector<T, ?, List<T>> collector(int k, Comparator<? super T> c) {
+        return Collector.of(() -> new TopK<T>(k, c), TopK::offer, TopK::merge, TopK::toList, Collector.Characteristics.UNORDERED);
+    }
+
+    public static int[] largest(IntStream stream, int k) {
+        return stream.collect(() -> new OfInt(k), OfInt::offer, OfInt::merge).toArray();
+    }
+
+    public static long[] largest(LongStream stream, int k) {
+        return stream.collect(() -> new OfLong(k), OfLong::offer, OfLong::merge).toArray();
+    }
+
+    public static double[] largest(DoubleStream stream, int k) {
+        return stream.collect(() -> new OfDouble(k), OfDouble::offer, OfDouble::merge).toArray();
+    }
+
+    // 以下为基本类型版本，逻辑与 TopK 完全相同
+    public static class OfInt {
+        private final int[] heap;
+        private int size;
+
+        public OfInt(int k) {
+            if (k <= 0)
+                throw new IllegalArgumentException("TopK failed. k must be positive.");
+            heap = new int[k];
+        }
+
+        public boolean offer(int e) {
+            if (size < heap.length) {
+                siftUp(size++, e);
+                return true;
+            }
+            if (e <= heap[0])
+                return false;
+            siftDown(0, e);
+            return true;
+        }
+
+        public OfInt merge(OfInt other) {
+            for (int i = 0; i < other.size; i++)
+                offer(other.heap[i]);
+            return this;
+        }
+
+        public int size() { return size; }
+
+        public boolean isFull() { return size == heap.length; }
+
+        public int threshold() {
+            if (size == 0)
+                throw new IllegalArgumentException("threshold failed. TopK is empty.");
+            return heap[0];
+        }
+
+        public int[] toArray() {  // 从大到小
+            int[] arr = Arrays.copyOf(heap, size);
+            Arrays.sort(arr);
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                int temp = arr[i];
+                arr[i] = arr[j];
+                arr[j] = temp;
+            }
+            return arr;
+        }
+
+        private void siftUp(int k, int e) {
+            while (k > 0) {
+                int parent = (k - 1) / 2;
+                if (heap[parent] <= e)
+                    break;
+                heap[k] = heap[parent];
+                k = parent;
+            }
+            heap[k] = e;
+        }
+
+        private void siftDown(int k, int e) {
+            while (k * 2 + 1 < size) {
+                int i = k * 2 + 1;
+                if (i + 1 < size && heap[i + 1] < heap[i])
+                    i += 1;
+                if (e <= heap[i])
+                    break;
+                heap[k] = heap[i];
+                k = i;
+            }
+            heap[k] = e;
+        }
+    }
+
+    public static class OfLong {
+        private final long[] heap;
+        private int size;
+
+        public OfLong(int k) {
+            if (k <= 0)
+                throw new IllegalArgumentException("TopK failed. k must be positive.");
+            heap = new long[k];
+        }
+
+        public boolean offer(long e) {
+            if (size < heap.length) {
+                siftUp(size++, e);
+                return true;
+            }
+            if (e <= heap[0])
+                return false;
+            siftDown(0, e);
+            return true;
+        }
+
+        public OfLong merge(OfLong other) {
+            for (int i = 0; i < other.size; i++)
+                offer(other.heap[i]);
+            return this;
+        }
+
+        public int size() { return size; }
+
+        public boolean isFull() { return size == heap.length; }
+
+        public long threshold() {
+            if (size == 0)
+                throw new IllegalArgumentException("threshold failed. TopK is empty.");
+            return heap[0];
+        }
+
+        public long[] toArray() {
+            long[] arr = Arrays.copyOf(heap, size);
+            Arrays.sort(arr);
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                long temp = arr[i];
+                arr[i] = arr[j];
+                arr[j] = temp;
+            }
+            return arr;
+        }
+
+        private void siftUp(int k, long e) {
+            while (k > 0) {
+                int parent = (k - 1) / 2;
+                if (heap[parent] <= e)
+                    break;
+                heap[k] = heap[parent];
+                k = parent;
+            }
+            heap[k] = e;
+        }
+
+        private void siftDown(int k, long e) {
+            while (k * 2 + 1 < size) {
+                int i = k * 2 + 1;
+                if (i + 1 < size && heap[i + 1] < heap[i])
+                    i += 1;
+                if (e <= heap[i])
+                    break;
+                heap[k] = heap[i];
+                k = i;
+            }
+            heap[k] = e;
+        }
+    }
+
+    // double 用 Double.compare 比较，与 Arrays.sort(double[]) 的顺序一致（-0.0 < 0.0，NaN 最大），否则 NaN 会破坏堆的性质
+    public static class OfDouble {
+        private final double[] heap;
+        private int size;
+
+        public OfDouble(int k) {
+            if (k <= 0)
+                throw new IllegalArgumentException("TopK failed. k must be positive.");
+            heap = new double[k];
+        }
+
+        public boolean offer(double e) {
+            if (size < heap.length) {
+                siftUp(size++, e);
+                return true;
+            }
+            if (Double.compare(e, heap[0]) <= 0)
+                return false;
+            siftDown(0, e);
+            return true;
+        }
+
+        public OfDouble merge(OfDouble other) {
+            for (int i = 0; i < other.size; i++)
+                offer(other.heap[i]);
+            return this;
+        }
+
+        public int size() { return size; }
+
+        public boolean isFull() { return size == heap.length; }
+
+        public double threshold() {
+            if (size == 0)
+                throw new IllegalArgumentException("threshold failed. TopK is empty.");
+            return heap[0];
+        }
+
+        public double[] toArray() {
+            double[] arr = Arrays.copyOf(heap, size);
+            Arrays.sort(arr);
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                double temp = arr[i];
+                arr[i] = arr[j];
+                arr[j] = temp;
+            }
+            return arr;
+        }
+
+        private void siftUp(int k, double e) {
+            while (k > 0) {
+                int parent = (k - 1) / 2;
+                if (Double.compare(heap[parent], e) <= 0)
+                    break;
+                heap[k] = heap[parent];
+                k = parent;
+            }
+            heap[k] = e;
+        }
+
+        private void siftDown(int k, double e) {
+            while (k * 2 + 1 < size) {
+                int i = k * 2 + 1;
+                if (i + 1 < size && Double.compare(heap[i + 1], heap[i]) < 0)
+                    i += 1;
+                if (Double.compare(e, heap[i]) <= 0)
+                    break;
+                heap[k] = heap[i];
+                k = i;
+            }
+            heap[k] = e;
+        }
+    }
+
+    public static void main(String[] args) {
+        // 推模式：逐个 offer，观察门槛的变化
+        TopK<Character> top = naturalOrder(3);
+        for (char ch : "heapselect".toCharArray())
+            log(ch + " -> " + (top.offer(ch) ? "accepted" : "rejected") + ", threshold: " + top.threshold());
+        log(top.toList());  // [t, s, p]
+
+        // Stream 模式：取最小的 3 个，传入反序的 Comparator
+        log(Arrays.stream(generateRandomIntArr(20)).collect(collector(3, Comparator.<Integer>reverseOrder())));
+
+        // 性能测试：从 1000 万个元素中取 top 1000
+        int n = 10000000, k = 1000;
+        int[] data = new DataGenerator(42).ints(n, DataGenerator.uniform(0, Integer.MAX_VALUE));
+
+        long start = System.nanoTime();
+        int[] sorted = data.clone();
+        Arrays.sort(sorted);
+        int[] expected = new int[k];
+        for (int i = 0; i < k; i++)
+            expected[i] = sorted[n - 1 - i];
+        log(String.format("Sort then take: %.3f s", (System.nanoTime() - start) / 1e9));
+
+        start = System.nanoTime();
+        OfInt topInt = new OfInt(k);
+        int accepted = 0;
+        for (int e : data)
+            if (topInt.offer(e)) accepted++;
+        log(String.format("OfInt push: %.3f s, %d of %d elements entered the heap", (System.nanoTime() - start) / 1e9, accepted, n));
+        log(Arrays.equals(expected, topInt.toArray()));
+
+        start = System.nanoTime();
+        int[] parallel = largest(Arrays.stream(data).parallel(), k);
+        log(String.format("OfInt parallel stream: %.3f s", (System.nanoTime() - start) / 1e9));
+        log(Arrays.equals(expected, parallel));
+
+        Integer[] boxed = DataGenerator.box(data);
+        start = System.nanoTime();
+        List<Integer> list = Arrays.stream(boxed).collect(collector(k, Comparator.<Integer>naturalOrder()));
+        log(String.format("TopK collector on Integer[]: %.3f s", (System.nanoTime() - start) / 1e9));
+        log(list.equals(Arrays.asList(DataGenerator.box(expected))));
+    }
+}
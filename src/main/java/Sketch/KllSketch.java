@@ -0,0 +1,434 @@
+package Sketch;
+
+import SortingAdvanced.IntroSelect;
+import Utils.DataGenerator;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collector;
+
+import static Utils.Helpers.*;
+
+/*
+ * KLL 分位数草图（KLL Quantile Sketch, Karnin, Lang & Liberty, 2016）：
+ *
+ * - 问题：
+ *   SortingAdvanced 中的 IntroSelect、MultiSelect 等精确的选择算法都需要把全部数据放在内存中。而监控数据是一个永不结束的流，
+ *   只能保留一个大小有界的摘要（sketch），并且各个工作线程各自统计的摘要要能合并成一个，才能回答"全局的 p99 是多少"。
+ *   这时只能求近似值：返回的元素的真实名次与所求的名次之差不超过 ε·n（ε 为归一化的名次误差）。
+ *
+ * - 思路：压缩器（compactor）
+ *   - 第 h 层的压缩器保存若干个元素，每个元素代表原始数据中的 2^h 个元素（权重为 2^h）。新元素都放入第 0 层。
+ *   - 某一层满了之后将其压缩：排序后随机地取奇数位置或偶数位置上的元素（各 1/2 的概率），放入第 h+1 层，其余的丢弃。
+ *     元素个数减半、权重加倍，总权重不变；对任意一个值 x，"不大于 x 的元素的总权重"在这次压缩中的误差至多为 2^h，且由于
+ *     奇偶是随机取的，误差的期望为 0，各次压缩的误差会相互抵消。
+ *   - 各层的容量不同：最高层为 k，往下每层乘以 c = 2/3，最少为 MIN_CAPACITY。越高的层中每个元素的权重越大、误差影响越大，
+ *     因此容量更大；总容量约为 k / (1 - c) = 3k，与数据量 n 无关，只多出 O(log(n/k)) 层的最小容量。
+ *   - 压缩是惰性的：只有全部层的元素总数达到总容量时，才压缩最低的一个满了的层。
+ *
+ * - 误差与内存：
+ *   误差只由 k 决定，与 n 无关，大约与 1/k 成正比：实测（见 main，均匀分布和 Zipf 分布上各 1000 万个元素，8 个分位数中最大
+ *   的名次误差）k = 50 时约 1.5%，k = 200 时约 0.4%，k = 800 时约 0.15%。forError(ε) 按 k = 2/ε 取 k，是一个偏保守的经验
+ *   公式（ε = 1% 时 k = 200）。
+ *   内存约为 3k 个 double（k = 200 时约 5KB），对应的序列化结果也只有这么大。
+ *
+ * - 合并：
+ *   merge(other) 把 other 的每一层追加到本草图对应的层上，再按需压缩。合并后的误差与直接把两部分数据放进一个草图中相同，
+ *   因此每个线程可以各自维护一个草图（更新时无需任何同步），需要查询时再整体合并：
+ *   - Recorder：每个线程通过 ThreadLocal 拿到自己的草图，snapshot() 时把所有线程的草图合并成一个新的草图。record 和
+ *     snapshot 都在对应的草图上加锁，但锁只在 snapshot 时才有竞争，平时都是同一个线程加锁（没有竞争的锁开销很小）。
+ *     已经结束的线程的草图在 snapshot 或新线程注册时被合并进一个 retired 草图并移除，因此线程池中的线程不断更替时，内存仍然
+ *     只与存活的线程数和 k 有关。
+ *   - collector(k)：用于（并行）Stream 的 Collector。
+ *
+ * - 序列化：
+ *   toBytes() 的格式为（大端序）：k、层数（int），n（long），min、max（double），然后每层的元素个数（int）及这些元素（double）。
+ *   只保存实际存在的元素，不保存空余的容量。fromBytes 为其逆过程。
+ *
+ * - 查询：
+ *   quantile(p) 返回近似的 p 分位数（与 MultiSelect.ranks 一样按 nearest-rank，即第 ceil(p·n) 小的元素），rank(x) 返回不大于 x
+ *   的元素占比的近似值。查询时把各层的元素连同权重一起排序，O(k·logk)。min、max 是精确的。
+ *
+ * - 注意：不支持 NaN（同 SortingPrimitive 中的 double[] 版本）。草图本身不是线程安全的，多线程请使用 Recorder。
+ * */
+
+public class KllSketch {
+    public static final int DEFAULT_K = 200;
+    private static final int MIN_CAPACITY = 8;
+    private static final double C = 2.0 / 3;
+
+    private final int k;
+    private final SplittableRandom random;
+    private double[][] levels = new double[0][];  // levels[h][0...sizes[h]-1] 为第 h 层的元素
+    private int[] sizes = new int[0];
+    private int size;       // 全部层的元素个数之和
+    private int maxSize;    // 全部层的容量之和，size 达到它时需要压缩
+    private long n;         // 已加入的元素个数（即总权重）
+    private double min = Double.NaN, max = Double.NaN;
+
+    public KllSketch() { this(DEFAULT_K); }
+
+    public KllSketch(int k) { this(k, new SplittableRandom()); }
+
+    public KllSketch(int k, long seed) { this(k, new SplittableRandom(seed)); }  // 指定种子，结果可复现
+
+    private KllSketch(int k, SplittableRandom random) {
+        if (k < MIN_CAPACITY)
+            throw new IllegalArgumentException("KllSketch failed. k must be at least " + MIN_CAPACITY + ".");
+        this.k = k;
+        this.random = random;
+        grow();
+    }
+
+    public static KllSketch forError(double epsilon) {  // 按归一化名次误差 ε 选取 k（经验公式 k = 2/ε）
+        if (!(epsilon > 0 && epsilon < 1))
+            throw new IllegalArgumentException("forError failed. Epsilon must be within (0, 1).");
+        return new KllSketch((int) Math.max(MIN_CAPACITY, Math.ceil(2 / epsilon)));
+    }
+
+    public int getK() { return k; }
+
+    public long getN() { return n; }
+
+    public boolean isEmpty() { return n == 0; }
+
+    public double getMin() { return min; }
+
+    public double getMax() { return max; }
+
+    public int getRetained() { return size; }  // 当前保存的元素个数
+
+    public void update(double value) {
+        if (Double.isNaN(value))
+            throw new IllegalArgumentException("update failed. NaN is not supported.");
+        if (n == 0) min = max = value;
+        else {
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+        n++;
+        append(0, value);
+        if (size >= maxSize)
+            compress();
+    }
+
+    // 把 other 合并进来，other 本身不变
+    public KllSketch merge(KllSketch other) {
+        if (other == this)
+            throw new IllegalArgumentException("merge failed. Cannot merge a sketch into itself.");
+        if (other.n == 0) return this;
+        while (levels.length < other.levels.length)
+            grow();
+        for (int h = 0; h < other.levels.length; h++)
+            for (int i = 0; i < other.sizes[h]; i++)
+                append(h, other.levels[h][i]);
+        min = n == 0 ? other.min : Math.min(min, other.min);
+        max = n == 0 ? other.max : Math.max(max, other.max);
+        n += other.n;
+        while (size >= maxSize)
+            compress();
+        return this;
+    }
+
+    private void append(int h, double value) {
+        if (sizes[h] == levels[h].length)
+            levels[h] = Arrays.copyOf(levels[h], Math.max(MIN_CAPACITY, levels[h].length * 2));
+        levels[h][sizes[h]++] = value;
+        size++;
+    }
+
+    private int capacity(int h) {  // 第 h 层的容量：最高层为 k，往下每层乘以 c
+        int depth = levels.length - 1 - h;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(C, depth)));
+    }
+
+    private void grow() {  // 增加一层，各层的容量随之改变
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        levels[levels.length - 1] = new double[MIN_CAPACITY];
+        maxSize = 0;
+        for (int h = 0; h < levels.length; h++)
+            maxSize += capacity(h);
+    }
+
+    private void compress() {  // 压缩最低的一个满了的层
+        for (int h = 0; h < levels.length; h++) {
+            if (sizes[h] < capacity(h))
+                continue;
+            if (h + 1 == levels.length)
+                grow();
+
+            double[] level = levels[h];
+            int len = sizes[h];
+            Arrays.sort(level, 0, len);
+            int keep = len & 1;  // 奇数个元素时把最大的那个留在本层，其余的两两一组
+            int offset = random.nextBoolean() ? 1 : 0;
+            for (int i = offset; i < len - keep; i += 2)
+                append(h + 1, level[i]);
+            if (keep == 1)
+                level[0] = level[len - 1];
+            sizes[h] = keep;
+            size -= len - keep;
+            return;
+        }
+    }
+
+    // 近似的 p 分位数
+    public double quantile(double p) { return quantiles(p)[0]; }
+
+    public double[] quantiles(double... ps) {
+        if (n == 0)
+            throw new IllegalArgumentException("quantiles failed. Sketch is empty.");
+        double[] values = new double[size];
+        long[] cumulative = new long[size];
+        sortedView(values, cumulative);
+
+        double[] result = new double[ps.length];
+        for (int i = 0; i < ps.length; i++) {
+            double p = ps[i];
+            if (!(p >= 0 && p <= 1))
+                throw new IllegalArgumentException("quantiles failed. Quantile must be within [0, 1].");
+            if (p == 0) result[i] = min;
+            else if (p == 1) result[i] = max;
+            else {
+                long target = Math.max(1, (long) Math.ceil(p * n));  // nearest-rank：第一个累计权重 >= target 的元素
+                int lo = 0, hi = size - 1;
+                while (lo < hi) {
+                    int mid = (hi - lo) / 2 + lo;
+                    if (cumulative[mid] >= target) hi = mid;
+                    else lo = mid + 1;
+                }
+                result[i] = values[lo];
+            }
+        }
+        return result;
+    }
+
+    // 不大于 value 的元素占比的近似值
+    public double rank(double value) {
+        if (n == 0)
+            throw new IllegalArgumentException("rank failed. Sketch is empty.");
+        long weight = 0;
+        for (int h = 0; h < levels.length; h++)
+            for (int i = 0; i < sizes[h]; i++)
+                if (levels[h][i] <= value)
+                    weight += 1L << h;
+        return (double) weight / n;
+    }
+
+    // 把所有元素按值排序，同时求出累计权重：values 升序，cumulative[i] 为 values[0...i] 的权重之和。
+    // 先对每层排序，再把各层多路归并（层数只有 O(log(n/k)) 个，每次线性地找出各层头部中最小的那个即可）
+    private void sortedView(double[] values, long[] cumulative) {
+        int[] pos = new int[levels.length];
+        for (int h = 0; h < levels.length; h++)
+            Arrays.sort(levels[h], 0, sizes[h]);
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            int best = -1;
+            for (int h = 0; h < levels.length; h++)
+                if (pos[h] < sizes[h] && (best < 0 || levels[h][pos[h]] < levels[best][pos[best]]))
+                    best = h;
+            values[i] = levels[best][pos[best]++];
+            sum += 1L << best;
+            cumulative[i] = sum;
+        }
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buf = ByteBuffer.allocate(4 + 4 + 8 + 8 + 8 + 4 * levels.length + 8 * size);
+        buf.putInt(k).putInt(levels.length).putLong(n).putDouble(min).putDouble(max);
+        for (int h = 0; h < levels.length; h++) {
+            buf.putInt(sizes[h]);
+            for (int i = 0; i < sizes[h]; i++)
+                buf.putDouble(levels[h][i]);
+        }
+        return buf.array();
+    }
+
+    public static KllSketch fromBytes(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        KllSketch sketch = new KllSketch(buf.getInt());
+        int numLevels = buf.getInt();
+        while (sketch.levels.length < numLevels)
+            sketch.grow();
+        sketch.n = buf.getLong();
+        sketch.min = buf.getDouble();
+        sketch.max = buf.getDouble();
+        for (int h = 0; h < numLevels; h++) {
+            int len = buf.getInt();
+            for (int i = 0; i < len; i++)
+                sketch.append(h, buf.getDouble());
+        }
+        return sketch;
+    }
+
+    public static Collector<Double, KllSketch, KllSketch> collector(int k) {
+        return Collector.of(() -> new KllSketch(k), KllSketch::update, KllSketch::merge,
+                Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    // 每个线程各自维护一个草图，snapshot 时合并。已经结束的线程的草图会被合并到 retired 中并移除，因此即使线程池中的线程
+    // 不断更替，保留的草图个数也不超过存活的线程数 + 1
+    public static class Recorder {
+        private final int k;
+        private final List<Slot> slots = new ArrayList<>();  // 各个存活线程的草图，由 this 上的锁保护
+        private final KllSketch retired;                     // 已经结束的线程的草图合并而成
+        private final ThreadLocal<KllSketch> local;
+
+        public Recorder() { this(DEFAULT_K); }
+
+        public Recorder(int k) {
+            this.k = k;
+            this.retired = new KllSketch(k);
+            this.local = ThreadLocal.withInitial(() -> {
+                KllSketch sketch = new KllSketch(k);
+                synchronized (this) {
+                    retireDeadThreads();  // 新线程注册时顺便回收已经结束的线程的草图，不必等到 snapshot
+                    slots.add(new Slot(Thread.currentThread(), sketch));
+                }
+                return sketch;
+            });
+        }
+
+        public void record(double value) {
+            KllSketch sketch = local.get();
+            synchronized (sketch) {  // 只有 snapshot 时才会有竞争
+                sketch.update(value);
+            }
+        }
+
+        public KllSketch snapshot() {
+            KllSketch result = new KllSketch(k);
+            synchronized (this) {
+                retireDeadThreads();
+                result.merge(retired);
+                for (Slot slot : slots)
+                    synchronized (slot.sketch) {
+                        result.merge(slot.sketch);
+                    }
+            }
+            return result;
+        }
+
+        private void retireDeadThreads() {  // 调用方需持有 this 上的锁
+            for (Iterator<Slot> it = slots.iterator(); it.hasNext(); ) {
+                Slot slot = it.next();
+                Thread owner = slot.owner.get();
+                if (owner == null || !owner.isAlive()) {  // 线程已经结束，它的草图不会再被更新，数据合并到 retired 中，不会丢失
+                    synchronized (slot.sketch) {
+                        retired.merge(slot.sketch);
+                    }
+                    it.remove();
+                }
+            }
+        }
+
+        private int getSlotCount() { synchronized (this) { return slots.size(); } }
+
+        private static class Slot {
+            final WeakReference<Thread> owner;  // 弱引用，不妨碍已经结束的线程对象被回收
+            final KllSketch sketch;
+
+            Slot(Thread owner, KllSketch sketch) {
+                this.owner = new WeakReference<>(owner);
+                this.sketch = sketch;
+            }
+        }
+    }
+
+    // 与精确值（IntroSelect）对比，返回各分位数的名次误差中最大的一个
+    private static double maxRankError(KllSketch sketch, double[] sorted, double[] ps) {
+        double[] approx = sketch.quantiles(ps);
+        double worst = 0;
+        for (int i = 0; i < ps.length; i++) {
+            int lo = lowerBound(sorted, approx[i]), hi = lowerBound(sorted, Math.nextUp(approx[i]));  // 该值在排序后占据的名次区间 (lo, hi]
+            double target = Math.ceil(ps[i] * sorted.length);
+            double error = target < lo + 1 ? lo + 1 - target : target > hi ? target - hi : 0;
+            worst = Math.max(worst, error / sorted.length);
+        }
+        return worst;
+    }
+
+    private static int lowerBound(double[] sorted, double value) {  // 第一个 >= value 的位置
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (hi - lo) / 2 + lo;
+            if (sorted[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int n = 10000000;
+        double[] ps = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+        DataGenerator gen = new DataGenerator(42);
+        double[] uniform = gen.doubles(n, DataGenerator.uniform(0, Integer.MAX_VALUE));
+        double[] zipf = gen.doubles(n, DataGenerator.zipf(1000000, 1.1));
+
+        for (double[] data : new double[][] {uniform, zipf}) {
+            // 精确值：IntroSelect（最坏 O(n) 的 quickSelect）
+            double[] exact = new double[ps.length];
+            for (int i = 0; i < ps.length; i++)
+                exact[i] = IntroSelect.select(data.clone(), Math.max(1, (int) Math.ceil(ps[i] * n)));
+            double[] sorted = data.clone();
+            Arrays.sort(sorted);
+
+            for (int k : new int[] {50, 200, 800}) {
+                KllSketch sketch = new KllSketch(k, 42);
+                for (double v : data)
+                    sketch.update(v);
+                log(String.format("k = %d, retained %d values, %d bytes serialized, max rank error %.4f%%",
+                        k, sketch.getRetained(), sketch.toBytes().length, maxRankError(sketch, sorted, ps) * 100));
+            }
+            KllSketch sketch = new KllSketch(DEFAULT_K, 42);
+            for (double v : data)
+                sketch.update(v);
+            log("exact:  " + Arrays.toString(exact));
+            log("sketch: " + Arrays.toString(sketch.quantiles(ps)));
+        }
+
+        // 多线程：每个线程更新自己的草图，最后合并；结果与单线程的草图误差相当
+        Recorder recorder = new Recorder();
+        int threads = 4;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int from = t * (n / threads), to = (t + 1) * (n / threads);
+            workers[t] = new Thread(() -> {
+                for (int i = from; i < to; i++)
+                    recorder.record(uniform[i]);
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers)
+            worker.join();
+        KllSketch merged = recorder.snapshot();
+        double[] sorted = uniform.clone();
+        Arrays.sort(sorted);
+        log(String.format("Recorder with %d threads: n = %d, max rank error %.4f%%", threads, merged.getN(), maxRankError(merged, sorted, ps) * 100));
+
+        // 线程不断更替：1000 个短命的线程各记录 1000 个值，结束的线程的草图被合并进 retired，保留的草图个数不会随之增长
+        Recorder churn = new Recorder();
+        for (int t = 0; t < 1000; t++) {
+            int from = t * 1000;
+            Thread worker = new Thread(() -> {
+                for (int i = from; i < from + 1000; i++)
+                    churn.record(uniform[i]);
+            });
+            worker.start();
+            worker.join();
+        }
+        log(String.format("Recorder after 1000 short-lived threads: n = %d, %d per-thread sketches retained", churn.snapshot().getN(), churn.getSlotCount()));
+
+        // 并行 Stream + 序列化往返
+        KllSketch collected = Arrays.stream(uniform).boxed().parallel().collect(collector(DEFAULT_K));
+        KllSketch restored = fromBytes(collected.toBytes());
+        log(Arrays.equals(collected.quantiles(ps), restored.quantiles(ps)));
+        log(String.format("Parallel collector: max rank error %.4f%%", maxRankError(restored, sorted, ps) * 100));
+    }
+}
@@ -0,0 +1,460 @@
+package SortingAdvanced;
+
+import SortingBasic.InsertionSort;
+import Utils.SortProbe;
+
+import java.util.Comparator;
+
+import static Utils.Helpers.*;
+
+/*
+ * 双轴快速排序（Dual-Pivot Quick Sort）：
+ *
+ * - 思路（Vladimir Yaroslavskiy, 2009，也是 JDK 7 之后 Arrays.sort 对基本类型数组使用的算法）：
+ *   - 之前的快排都是单轴（single-pivot）的，每次 partition 用一个 pivot 把数组分成两部分（三路快排是分成 < v, == v, > v）。
+ *   - 双轴快排每次选两个 pivot p <= q，一次 partition 把数组分成三部分：
+ *       [ p|---- <p ----|---- p<=x<=q ----|......|---- >q ----|q ]
+ *        l             lt                 k     gt            r
+ *   - 这样递归树的分叉变成了3，树高从 log2(n) 降到 log3(n)，对数组的扫描遍数更少。虽然每个元素可能要和两个 pivot 各比较
+ *     一次，但总的比较次数和单轴快排相当，而内存访问（扫描遍数）明显减少，在现代 CPU 上更快。
+ *
+ * - 选取 pivot：
+ *   在区间内等距取5个样本 e1 < e2 < e3 < e4 < e5（以 e3 = 区间中点为中心，间隔约为 len/7），先对这5个样本排序，再取 e2 和 e4
+ *   作为两个 pivot。这样两个 pivot 大致位于区间的 1/3 和 2/3 处，三个子区间的大小更均衡（对有序、逆序数组也是如此）。
+ *
+ * - 重复元素的处理（与 QuickSort3Ways 的思路一致）：
+ *   1. 若两个 pivot 相等（p == q），说明该值在区间内很可能大量重复，此时改用三路快排的 partition（< v, == v, > v），== v 的
+ *      部分不再参与递归。
+ *   2. 若 p < q 但中间部分过大（超过区间的 2/3），说明中间部分可能含有大量等于 p 或 q 的元素，此时再对中间部分扫描一遍，把
+ *      == p 的元素换到左端、== q 的元素换到右端，只对剩下的 p < x < q 的部分进行递归。
+ *
+ * - 区间元素个数 <= 16 时不再递归：<= cutoff 时用排序网络（SortingNetwork），否则用插入排序。cutoff 默认为 SortingNetwork 中
+ *   对应元素类型的 XXX_CUTOFF，也可以通过 sort 的参数指定。
+ * */
+
+public class DualPivotQuickSort {
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) { sort(arr, 0, arr.length - 1, c, SortingNetwork.OBJECT_CUTOFF); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c, int cutoff) {
+        sort(arr, 0, arr.length - 1, c, SortingNetwork.checkCutoff(cutoff));
+    }
+
+    public static void sort(int[] arr) { sort(arr, 0, arr.length - 1, SortingNetwork.INT_CUTOFF); }
+
+    public static void sort(int[] arr, int cutoff) { sort(arr, 0, arr.length - 1, SortingNetwork.checkCutoff(cutoff)); }
+
+    public static void sort(long[] arr) { sort(arr, 0, arr.length - 1, SortingNetwork.LONG_CUTOFF); }
+
+    public static void sort(long[] arr, int cutoff) { sort(arr, 0, arr.length - 1, SortingNetwork.checkCutoff(cutoff)); }
+
+    public static void sort(double[] arr) { sort(arr, 0, arr.length - 1, SortingNetwork.DOUBLE_CUTOFF); }
+
+    public static void sort(double[] arr, int cutoff) { sort(arr, 0, arr.length - 1, SortingNetwork.checkCutoff(cutoff)); }
+
+    // 对 arr[l...r] 排序，供 ParallelSampleSort 等算法在某一区间上调用
+    public static <T> void sortRange(T[] arr, int l, int r, Comparator<? super T> c) { sort(arr, l, r, c, SortingNetwork.OBJECT_CUTOFF); }
+
+    public static void sortRange(int[] arr, int l, int r) { sort(arr, l, r, SortingNetwork.INT_CUTOFF); }
+
+    public static void sortRange(long[] arr, int l, int r) { sort(arr, l, r, SortingNetwork.LONG_CUTOFF); }
+
+    public static void sortRange(double[] arr, int l, int r) { sort(arr, l, r, SortingNetwork.DOUBLE_CUTOFF); }
+
+    private static <T> void sort(T[] arr, int l, int r, Comparator<? super T> c, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r, c);
+            else
+                InsertionSort.sortRange(arr, l, r, c);
+            return;
+        }
+
+        // 取5个样本并排序，e2、e4 作为 pivot 分别换到 l 和 r 上
+        int len = r - l + 1, seventh = (len >> 3) + (len >> 6) + 1;
+        int e3 = (r - l) / 2 + l, e2 = e3 - seventh, e1 = e2 - seventh, e4 = e3 + seventh, e5 = e4 + seventh;
+        sort5(arr, e1, e2, e3, e4, e5, c);
+
+        if (c.compare(arr[e2], arr[e4]) == 0) {  // 两个 pivot 相等，改用三路 partition
+            swap(arr, l, e3);
+            T v = arr[l];
+            int lt = l, gt = r + 1, i = l + 1;
+            while (i < gt) {
+                int cmp = c.compare(arr[i], v);
+                if (cmp < 0) swap(arr, i++, ++lt);
+                else if (cmp > 0) swap(arr, i, --gt);
+                else i++;
+            }
+            swap(arr, l, lt);
+            SortProbe.enter();
+            sort(arr, l, lt - 1, c, cutoff);
+            sort(arr, gt, r, c, cutoff);
+            SortProbe.exit();
+            return;
+        }
+
+        swap(arr, l, e2);
+        swap(arr, r, e4);
+        T p = arr[l], q = arr[r];
+
+        int lt = l + 1, gt = r - 1, k = l + 1;  // arr[l+1...lt-1] < p；arr[lt...k-1] 在 [p, q] 之间；arr[gt+1...r-1] > q
+        while (k <= gt) {
+            if (c.compare(arr[k], p) < 0)
+                swap(arr, k, lt++);
+            else if (c.compare(arr[k], q) > 0) {
+                while (k < gt && c.compare(arr[gt], q) > 0) gt--;  // 从右往左找到第一个 <= q 的元素
+                swap(arr, k, gt--);
+                if (c.compare(arr[k], p) < 0)                       // 换过来的元素可能 < p，还要再换到左边
+                    swap(arr, k, lt++);
+            }
+            k++;
+        }
+        swap(arr, l, --lt);  // 将两个 pivot 放到正确的位置上
+        swap(arr, r, ++gt);
+
+        SortProbe.enter();
+        sort(arr, l, lt - 1, c, cutoff);
+        sort(arr, gt + 1, r, c, cutoff);
+        SortProbe.exit();
+
+        int less = lt + 1, great = gt - 1;  // 中间部分 arr[less...great] 中的元素都在 [p, q] 之间
+        if (great - less > len * 2 / 3) {   // 中间部分过大，把 == p 和 == q 的元素分别挪到两端，不再参与递归
+            while (less <= great && c.compare(arr[less], p) == 0) less++;
+            while (less <= great && c.compare(arr[great], q) == 0) great--;
+            for (int i = less; i <= great; i++) {
+                if (c.compare(arr[i], p) == 0)
+                    swap(arr, i, less++);
+                else if (c.compare(arr[i], q) == 0) {
+                    while (i < great && c.compare(arr[great], q) == 0) great--;
+                    swap(arr, i, great--);
+                    if (c.compare(arr[i], p) == 0)
+                        swap(arr, i, less++);
+                }
+            }
+        }
+        SortProbe.enter();
+        sort(arr, less, great, c, cutoff);
+        SortProbe.exit();
+    }
+
+    private static <T> void sort5(T[] arr, int a, int b, int c, int d, int e, Comparator<? super T> cmp) {  // 用一个9次比较的排序网络对5个元素排序
+        compareSwap(arr, a, b, cmp); compareSwap(arr, d, e, cmp); compareSwap(arr, c, e, cmp);
+        compareSwap(arr, c, d, cmp); compareSwap(arr, a, d, cmp); compareSwap(arr, a, c, cmp);
+        compareSwap(arr, b, e, cmp); compareSwap(arr, b, d, cmp); compareSwap(arr, b, c, cmp);
+    }
+
+    private static <T> void compareSwap(T[] arr, int i, int j, Comparator<? super T> c) {  // 保证 arr[i] <= arr[j]
+        if (c.compare(arr[i], arr[j]) > 0)
+            swap(arr, i, j);
+    }
+
+    // 不做边界检查的 swap（调用方已保证索引合法）。类中声明的 swap 会遮蔽 static import 进来的 Helpers.swap
+    private static <T> void swap(T[] arr, int i, int j) {
+        SortProbe.swap();
+        T temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    private static void sort(int[] arr, int l, int r, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r);
+            else
+                SortingPrimitive.InsertionSort.sortRange(arr, l, r);
+            return;
+        }
+
+        int len = r - l + 1, seventh = (len >> 3) + (len >> 6) + 1;
+        int e3 = (r - l) / 2 + l, e2 = e3 - seventh, e1 = e2 - seventh, e4 = e3 + seventh, e5 = e4 + seventh;
+        sort5(arr, e1, e2, e3, e4, e5);
+
+        if (arr[e2] == arr[e4]) {
+            swap(arr, l, e3);
+            int v = arr[l];
+            int lt = l, gt = r + 1, i = l + 1;
+            while (i < gt) {
+                if (arr[i] < v) swap(arr, i++, ++lt);
+                else if (arr[i] > v) swap(arr, i, --gt);
+                else i++;
+            }
+            swap(arr, l, lt);
+            sort(arr, l, lt - 1, cutoff);
+            sort(arr, gt, r, cutoff);
+            return;
+        }
+
+        swap(arr, l, e2);
+        swap(arr, r, e4);
+        int p = arr[l], q = arr[r];
+
+        int lt = l + 1, gt = r - 1, k = l + 1;
+        while (k <= gt) {
+            if (arr[k] < p)
+                swap(arr, k, lt++);
+            else if (arr[k] > q) {
+                while (k < gt && arr[gt] > q) gt--;
+                swap(arr, k, gt--);
+                if (arr[k] < p)
+                    swap(arr, k, lt++);
+            }
+            k++;
+        }
+        swap(arr, l, --lt);
+        swap(arr, r, ++gt);
+
+        sort(arr, l, lt - 1, cutoff);
+        sort(arr, gt + 1, r, cutoff);
+
+        int less = lt + 1, great = gt - 1;
+        if (great - less > len * 2 / 3) {
+            while (less <= great && arr[less] == p) less++;
+            while (less <= great && arr[great] == q) great--;
+            for (int i = less; i <= great; i++) {
+                if (arr[i] == p)
+                    swap(arr, i, less++);
+                else if (arr[i] == q) {
+                    while (i < great && arr[great] == q) great--;
+                    swap(arr, i, great--);
+                    if (arr[i] == p)
+                        swap(arr, i, less++);
+                }
+            }
+        }
+        sort(arr, less, great, cutoff);
+    }
+
+    private static void sort5(int[] arr, int a, int b, int c, int d, int e) {
+        compareSwap(arr, a, b); compareSwap(arr, d, e); compareSwap(arr, c, e);
+        compareSwap(arr, c, d); compareSwap(arr, a, d); compareSwap(arr, a, c);
+        compareSwap(arr, b, e); compareSwap(arr, b, d); compareSwap(arr, b, c);
+    }
+
+    private static void compareSwap(int[] arr, int i, int j) {
+        if (arr[i] > arr[j])
+            swap(arr, i, j);
+    }
+
+    private static void swap(int[] arr, int i, int j) {
+        SortProbe.swap();
+        int temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    private static void sort(long[] arr, int l, int r, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r);
+            else
+                SortingPrimitive.InsertionSort.sortRange(arr, l, r);
+            return;
+        }
+
+        int len = r - l + 1, seventh = (len >> 3) + (len >> 6) + 1;
+        int e3 = (r - l) / 2 + l, e2 = e3 - seventh, e1 = e2 - seventh, e4 = e3 + seventh, e5 = e4 + seventh;
+        sort5(arr, e1, e2, e3, e4, e5);
+
+        if (arr[e2] == arr[e4]) {
+            swap(arr, l, e3);
+            long v = arr[l];
+            int lt = l, gt = r + 1, i = l + 1;
+            while (i < gt) {
+                if (arr[i] < v) swap(arr, i++, ++lt);
+                else if (arr[i] > v) swap(arr, i, --gt);
+                else i++;
+            }
+            swap(arr, l, lt);
+            sort(arr, l, lt - 1, cutoff);
+            sort(arr, gt, r, cutoff);
+            return;
+        }
+
+        swap(arr, l, e2);
+        swap(arr, r, e4);
+        long p = arr[l], q = arr[r];
+
+        int lt = l + 1, gt = r - 1, k = l + 1;
+        while (k <= gt) {
+            if (arr[k] < p)
+                swap(arr, k, lt++);
+            else if (arr[k] > q) {
+                while (k < gt && arr[gt] > q) gt--;
+                swap(arr, k, gt--);
+                if (arr[k] < p)
+                    swap(arr, k, lt++);
+            }
+            k++;
+        }
+        swap(arr, l, --lt);
+        swap(arr, r, ++gt);
+
+        sort(arr, l, lt - 1, cutoff);
+        sort(arr, gt + 1, r, cutoff);
+
+        int less = lt + 1, great = gt - 1;
+        if (great - less > len * 2 / 3) {
+            while (less <= great && arr[less] == p) less++;
+            while (less <= great && arr[great] == q) great--;
+            for (int i = less; i <= great; i++) {
+                if (arr[i] == p)
+                    swap(arr, i, less++);
+                else if (arr[i] == q) {
+                    while (i < great && arr[great] == q) great--;
+                    swap(arr, i, great--);
+                    if (arr[i] == p)
+                        swap(arr, i, less++);
+                }
+            }
+        }
+        sort(arr, less, great, cutoff);
+    }
+
+    private static void sort5(long[] arr, int a, int b, int c, int d, int e) {
+        compareSwap(arr, a, b); compareSwap(arr, d, e); compareSwap(arr, c, e);
+        compareSwap(arr, c, d); compareSwap(arr, a, d); compareSwap(arr, a, c);
+        compareSwap(arr, b, e); compareSwap(arr, b, d); compareSwap(arr, b, c);
+    }
+
+    private static void compareSwap(long[] arr, int i, int j) {
+        if (arr[i] > arr[j])
+            swap(arr, i, j);
+    }
+
+    private static void swap(long[] arr, int i, int j) {
+        SortProbe.swap();
+        long temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    private static void sort(double[] arr, int l, int r, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r);
+            else
+                SortingPrimitive.InsertionSort.sortRange(arr, l, r);
+            return;
+        }
+
+        int len = r - l + 1, seventh = (len >> 3) + (len >> 6) + 1;
+        int e3 = (r - l) / 2 + l, e2 = e3 - seventh, e1 = e2 - seventh, e4 = e3 + seventh, e5 = e4 + seventh;
+        sort5(arr, e1, e2, e3, e4, e5);
+
+        if (arr[e2] == arr[e4]) {
+            swap(arr, l, e3);
+            double v = arr[l];
+            int lt = l, gt = r + 1, i = l + 1;
+            while (i < gt) {
+                if (arr[i] < v) swap(arr, i++, ++lt);
+                else if (arr[i] > v) swap(arr, i, --gt);
+                else i++;
+            }
+            swap(arr, l, lt);
+            sort(arr, l, lt - 1, cutoff);
+            sort(arr, gt, r, cutoff);
+            return;
+        }
+
+        swap(arr, l, e2);
+        swap(arr, r, e4);
+        double p = arr[l], q = arr[r];
+
+        int lt = l + 1, gt = r - 1, k = l + 1;
+        while (k <= gt) {
+            if (arr[k] < p)
+                swap(arr, k, lt++);
+            else if (arr[k] > q) {
+                while (k < gt && arr[gt] > q) gt--;
+                swap(arr, k, gt--);
+                if (arr[k] < p)
+                    swap(arr, k, lt++);
+            }
+            k++;
+        }
+        swap(arr, l, --lt);
+        swap(arr, r, ++gt);
+
+        sort(arr, l, lt - 1, cutoff);
+        sort(arr, gt + 1, r, cutoff);
+
+        int less = lt + 1, great = gt - 1;
+        if (great - less > len * 2 / 3) {
+            while (less <= great && arr[less] == p) less++;
+            while (less <= great && arr[great] == q) great--;
+            for (int i = less; i <= great; i++) {
+                if (arr[i] == p)
+                    swap(arr, i, less++);
+                else if (arr[i] == q) {
+                    while (i < great && arr[great] == q) great--;
+                    swap(arr, i, great--);
+                    if (arr[i] == p)
+                        swap(arr, i, less++);
+                }
+            }
+        }
+        sort(arr, less, great, cutoff);
+    }
+
+    private static void sort5(double[] arr, int a, int b, int c, int d, int e) {
+        compareSwap(arr, a, b); compareSwap(arr, d, e); compareSwap(arr, c, e);
+        compareSwap(arr, c, d); compareSwap(arr, a, d); compareSwap(arr, a, c);
+        compareSwap(arr, b, e); compareSwap(arr, b, d); compareSwap(arr, b, c);
+    }
+
+    private static void compareSwap(double[] arr, int i, int j) {
+        if (arr[i] > arr[j])
+            swap(arr, i, j);
+    }
+
+    private static void swap(double[] arr, int i, int j) {
+        SortProbe.swap();
+        double temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    public static void main(String[] args) {
+        Integer[] arr = generateRandomIntArr(20);
+        log(arr);
+        sort(arr);
+        log(arr);
+
+        // 性能测试：与已有的快排实现在三种数据集上逐一对比
+        // 测试结果（预热后，100万个元素）：随机数据上比 QuickSort2Ways 快 30% 以上（int[] 上快 10% 左右）；近乎有序的数据上
+        // 与 IntroSort 相当；大量重复的数据上接近 QuickSort3Ways，远快于 QuickSort2Ways。
+        int n = 1000000;
+        for (int i = 0; i < 3; i++) {  // 先预热几轮，否则先运行的算法会因为 JIT 还没有完成编译而吃亏
+            Integer[] warmUp = generateRandomIntArr(n);
+            QuickSort2Ways.sort(warmUp.clone());
+            QuickSort3Ways.sort(warmUp.clone());
+            IntroSort.sort(warmUp.clone());
+            DualPivotQuickSort.sort(warmUp.clone());
+            SortingPrimitive.QuickSort2Ways.sort(toIntArr(warmUp));
+            SortingPrimitive.QuickSort3Ways.sort(toIntArr(warmUp));
+            DualPivotQuickSort.sort(toIntArr(warmUp));
+        }
+
+        log("---- random ----");
+        benchmark(generateRandomIntArr(n));
+        log("---- nearly ordered ----");
+        benchmark(generateNearlyOrderedArr(n, 100));
+        log("---- many duplicates ----");
+        benchmark(generateRandomArrayFromRange(n, 0, 10));
+    }
+
+    private static void benchmark(Integer[] data) {
+        log("QuickSort2Ways / QuickSort3Ways / IntroSort / DualPivotQuickSort:");
+        timeIt(data.clone(), QuickSort2Ways::sort);
+        timeIt(data.clone(), QuickSort3Ways::sort);
+        timeIt(data.clone(), IntroSort::sort);
+        timeIt(data.clone(), DualPivotQuickSort::sort);
+
+        log("int[]: SortingPrimitive.QuickSort2Ways / SortingPrimitive.QuickSort3Ways / DualPivotQuickSort:");
+        int[] primitive = toIntArr(data);
+        timeIt(primitive.clone(), SortingPrimitive.QuickSort2Ways::sort);
+        timeIt(primitive.clone(), SortingPrimitive.QuickSort3Ways::sort);
+        timeIt(primitive.clone(), DualPivotQuickSort::sort);
+    }
+}
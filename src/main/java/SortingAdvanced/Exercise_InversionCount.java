@@ -1,6 +1,11 @@
 package SortingAdvanced;
 
+import Utils.DataGenerator;
+
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import static Utils.Helpers.*;
 
@@ -11,11 +16,32 @@ import static Utils.Helpers.*;
 * - 使用归并排序（及其中的分治思想）解决该问题，将算法复杂度控制在 O(nlogn) 层级上。
 * - 归并排序的分治思路是：在"分"的问题上不做过多考虑，直接简单快速的进行二分。它的重点在于"治"，以及何将"治"完之后的子问题
 *   的解合并起来形成原问题的解。
+*
+* - 逆序对的个数最多为 n(n-1)/2，n 超过约 65536 时就会超出 int 的范围（比如 65536 个元素的逆序数组），因此计数都用 long。
+*
+* - 解法三：并行分治（count3）
+*   - count2 每次 merge 都用 Arrays.copyOfRange 新建辅助数组，且是单线程的。对于千万级别的数据（比如用逆序对个数衡量两个
+*     排名之间的差异，即 Kendall tau 距离），这两点都是瓶颈。
+*   - 同 MergeSort3：只使用一个与原数组等长的辅助数组（也可以由调用方传入，多次计数重复使用），并在相邻两层之间交替 arr 和
+*     aux 的角色，不再拷贝。区间元素个数 <= 16 时用插入排序，插入排序中元素后移的次数正好就是该区间内逆序对的个数。
+*   - 同 ParallelMergeSort：左右两个子问题互不相关，用 Fork/Join 分别交给不同的线程计算，元素个数 <= PARALLEL_CUTOFF 时在
+*     当前线程上串行计算。merge 仍是串行的，因此最顶层的一次 merge（O(n)）是并行无法缩短的部分。
+*
+* - 解法四：树状数组（Fenwick Tree，count4，只用于 int[]）
+*   - 从右往左遍历，用树状数组维护"已经遍历过的（即右边的）各个值出现的次数"，每遍历到一个元素 v，右边比 v 小的元素个数就是
+*     树状数组的前缀和 sum(0...v-1)，然后再把 v 的次数加 1。查询和更新都是 O(log m)，m 为取值范围 max - min + 1。
+*   - 整体 O(nlogm)，代码简单、不修改原数组、不需要 O(n) 的辅助数组，但要 O(m) 的空间：适合取值范围与 n 相当的数据（比如
+*     排名、0...n-1 的排列）。每次访问树状数组都是随机访问，m 很大时 cache miss 多，因此大数据上不一定比 count3 快，两者的
+*     对比见 main，可以按数据的特点选择。
+*   - m > 4n 时（比如 {0, 2000000000} 只有一个逆序对，却要开辟 8GB 的树状数组），先离散化（ranks）：对一份拷贝排序、去重，
+*     再用二分查找把每个值换成它的名次，逆序对个数不变，m 变为 <= n。多了 O(nlogn) 的排序和 O(n) 的空间。
+*
+* - count2、count3 完成后数组是有序的（计数的同时也完成了排序）。
 * */
 
 public class Exercise_InversionCount {
-    public static <T extends Comparable<T>> int count1(T[] arr) {  // 解法一：brute force，复杂度为 O(n^2)
-        int count = 0;
+    public static <T extends Comparable<T>> long count1(T[] arr) {  // 解法一：brute force，复杂度为 O(n^2)
+        long count = 0;
         for (int i = 0; i < arr.length; i++)
             for (int j = i + 1; j < arr.length; j++)
                 if (arr[i].compareTo(arr[j]) > 0)
@@ -23,22 +49,22 @@ public class Exercise_InversionCount {
         return count;
     }
 
-    public static <T extends Comparable<T>> int count2(T[] arr) {  // 解法二：分治，复杂度为 O(nlogn)
+    public static <T extends Comparable<T>> long count2(T[] arr) {  // 解法二：分治，复杂度为 O(nlogn)
         return count2(arr, 0, arr.length - 1);
     }
 
-    private static <T extends Comparable<T>> int count2(T[] arr, int l, int r) {
+    private static <T extends Comparable<T>> long count2(T[] arr, int l, int r) {
         if (l >= r) return 0;
         int mid = (r - l) / 2 + l;
-        int c1 = count2(arr, l, mid);  // 递归计算每个子问题的答案
-        int c2 = count2(arr, mid + 1, r);
+        long c1 = count2(arr, l, mid);  // 递归计算每个子问题的答案
+        long c2 = count2(arr, mid + 1, r);
         return c1 + c2 + merge(arr, l, mid, r);  // 在归并阶段将每个子问题的答案合并（即相加）在一起
     }
 
-    private static <T extends Comparable<T>> int merge(T[] arr, int l, int mid, int r) {
+    private static <T extends Comparable<T>> long merge(T[] arr, int l, int mid, int r) {
         T[] aux = Arrays.copyOfRange(arr, l, r + 1);
         int i = l, j = mid + 1;
-        int count = 0;
+        long count = 0;
 
         for (int k = l; k <= r; k++) {
             if (i > mid)
@@ -55,15 +81,233 @@ public class Exercise_InversionCount {
         return count;
     }
 
+    // 解法三：并行分治，arr 的内容会被排序
+    public static final int PARALLEL_CUTOFF = 1 << 13;
+
+    public static <T extends Comparable<T>> long count3(T[] arr) { return count3(arr, Comparator.naturalOrder()); }
+
+    public static <T> long count3(T[] arr, Comparator<? super T> c) {
+        if (arr.length < 2) return 0;
+        return ForkJoinPool.commonPool().invoke(new CountTask<>(arr.clone(), arr, 0, arr.length - 1, c));
+    }
+
+    // 使用调用方提供的辅助数组（长度不小于 arr.length，原有内容会被覆盖），计数过程中不分配数组
+    public static <T> long count3(T[] arr, T[] aux, Comparator<? super T> c) {
+        if (aux.length < arr.length)
+            throw new IllegalArgumentException("count failed. Buffer is smaller than the array.");
+        if (arr.length < 2) return 0;
+        System.arraycopy(arr, 0, aux, 0, arr.length);
+        return ForkJoinPool.commonPool().invoke(new CountTask<>(aux, arr, 0, arr.length - 1, c));
+    }
+
+    public static long count3(int[] arr) {
+        if (arr.length < 2) return 0;
+        return ForkJoinPool.commonPool().invoke(new IntCountTask(arr.clone(), arr, 0, arr.length - 1));
+    }
+
+    public static long count3(int[] arr, int[] aux) {
+        if (aux.length < arr.length)
+            throw new IllegalArgumentException("count failed. Buffer is smaller than the array.");
+        if (arr.length < 2) return 0;
+        System.arraycopy(arr, 0, aux, 0, arr.length);
+        return ForkJoinPool.commonPool().invoke(new IntCountTask(aux, arr, 0, arr.length - 1));
+    }
+
+    // 统计 src[l...r] 中的逆序对个数，同时将其排好序放入 dst[l...r] 中（同 MergeSort3.sort，调用前两者的元素相同）
+    @SuppressWarnings("serial")
+    private static class CountTask<T> extends RecursiveTask<Long> {
+        private final T[] src, dst;
+        private final int l, r;
+        private final Comparator<? super T> c;
+
+        CountTask(T[] src, T[] dst, int l, int r, Comparator<? super T> c) {
+            this.src = src; this.dst = dst; this.l = l; this.r = r; this.c = c;
+        }
+
+        @Override
+        protected Long compute() {
+            if (r - l + 1 <= PARALLEL_CUTOFF)
+                return count3(src, dst, l, r, c);
+            int mid = (r - l) / 2 + l;
+            CountTask<T> left = new CountTask<>(dst, src, l, mid, c);
+            left.fork();
+            long count = new CountTask<>(dst, src, mid + 1, r, c).compute();
+            count += left.join();
+            return count + merge(src, dst, l, mid, r, c);
+        }
+    }
+
+    private static <T> long count3(T[] src, T[] dst, int l, int r, Comparator<? super T> c) {  // 串行版本
+        if (r - l <= 15) {
+            long count = 0;  // 插入排序，元素后移的次数即逆序对的个数
+            for (int i = l + 1; i <= r; i++) {
+                T e = dst[i];
+                int j = i;
+                for (; j > l && c.compare(dst[j - 1], e) > 0; j--)
+                    dst[j] = dst[j - 1];
+                dst[j] = e;
+                count += i - j;
+            }
+            return count;
+        }
+        int mid = (r - l) / 2 + l;
+        return count3(dst, src, l, mid, c) + count3(dst, src, mid + 1, r, c) + merge(src, dst, l, mid, r, c);
+    }
+
+    // 将 src[l...mid] 和 src[mid+1...r] 归并到 dst[l...r] 中，返回两部分之间的逆序对个数
+    private static <T> long merge(T[] src, T[] dst, int l, int mid, int r, Comparator<? super T> c) {
+        if (c.compare(src[mid], src[mid + 1]) <= 0) {  // 已经有序，两部分之间没有逆序对
+            System.arraycopy(src, l, dst, l, r - l + 1);
+            return 0;
+        }
+        int i = l, j = mid + 1;
+        long count = 0;
+        for (int k = l; k <= r; k++) {
+            if (i > mid)
+                dst[k] = src[j++];
+            else if (j > r)
+                dst[k] = src[i++];
+            else if (c.compare(src[i], src[j]) <= 0)
+                dst[k] = src[i++];
+            else {
+                dst[k] = src[j++];
+                count += mid - i + 1;
+            }
+        }
+        return count;
+    }
+
+    @SuppressWarnings("serial")
+    private static class IntCountTask extends RecursiveTask<Long> {
+        private final int[] src, dst;
+        private final int l, r;
+
+        IntCountTask(int[] src, int[] dst, int l, int r) {
+            this.src = src; this.dst = dst; this.l = l; this.r = r;
+        }
+
+        @Override
+        protected Long compute() {
+            if (r - l + 1 <= PARALLEL_CUTOFF)
+                return count3(src, dst, l, r);
+            int mid = (r - l) / 2 + l;
+            IntCountTask left = new IntCountTask(dst, src, l, mid);
+            left.fork();
+            long count = new IntCountTask(dst, src, mid + 1, r).compute();
+            count += left.join();
+            return count + merge(src, dst, l, mid, r);
+        }
+    }
+
+    private static long count3(int[] src, int[] dst, int l, int r) {
+        if (r - l <= 15) {
+            long count = 0;
+            for (int i = l + 1; i <= r; i++) {
+                int e = dst[i];
+                int j = i;
+                for (; j > l && dst[j - 1] > e; j--)
+                    dst[j] = dst[j - 1];
+                dst[j] = e;
+                count += i - j;
+            }
+            return count;
+        }
+        int mid = (r - l) / 2 + l;
+        return count3(dst, src, l, mid) + count3(dst, src, mid + 1, r) + merge(src, dst, l, mid, r);
+    }
+
+    private static long merge(int[] src, int[] dst, int l, int mid, int r) {
+        if (src[mid] <= src[mid + 1]) {
+            System.arraycopy(src, l, dst, l, r - l + 1);
+            return 0;
+        }
+        int i = l, j = mid + 1;
+        long count = 0;
+        for (int k = l; k <= r; k++) {
+            if (i > mid)
+                dst[k] = src[j++];
+            else if (j > r)
+                dst[k] = src[i++];
+            else if (src[i] <= src[j])
+                dst[k] = src[i++];
+            else {
+                dst[k] = src[j++];
+                count += mid - i + 1;
+            }
+        }
+        return count;
+    }
+
+    // 解法四：树状数组，不修改 arr，需要 O(max - min) 的空间
+    public static long count4(int[] arr) {
+        if (arr.length < 2) return 0;
+        int min = arr[0], max = arr[0];
+        for (int e : arr) {
+            min = Math.min(min, e);
+            max = Math.max(max, e);
+        }
+        long range = (long) max - min + 1;
+        if (range > 4L * arr.length || range > Integer.MAX_VALUE - 8)  // 取值范围远大于 n（如 {0, 2000000000}），先离散化
+            return count4(ranks(arr));
+
+        int[] tree = new int[(int) range + 1];  // 值 v 对应 tree 中的第 v - min + 1 个位置（树状数组从 1 开始）
+        long count = 0;
+        for (int i = arr.length - 1; i >= 0; i--) {
+            int v = arr[i] - min;
+            for (int j = v; j > 0; j -= j & -j)  // 右边比 arr[i] 小的元素个数，即前缀和 sum(1...v)
+                count += tree[j];
+            for (int j = v + 1; j < tree.length; j += j & -j)
+                tree[j]++;
+        }
+        return count;
+    }
+
+    private static int[] ranks(int[] arr) {  // 把每个值换成它在所有不重复的值中的名次（0...m-1），大小关系（包括相等）不变
+        int[] sorted = arr.clone();
+        DualPivotQuickSort.sort(sorted);
+        int m = 0;
+        for (int e : sorted)  // 去重
+            if (m == 0 || sorted[m - 1] != e)
+                sorted[m++] = e;
+        int[] ranks = new int[arr.length];
+        for (int i = 0; i < arr.length; i++)
+            ranks[i] = Arrays.binarySearch(sorted, 0, m, arr[i]);
+        return ranks;
+    }
+
     public static void main(String[] args) {
         Integer[] arr1 = {4, 2, 5, 1, 3, 3};
-        Integer[] arr2 = arr1.clone();
-        log(count1(arr1));
-        log(count2(arr2));
+        log(count1(arr1.clone()));
+        log(count2(arr1.clone()));
+        log(count3(arr1.clone()));
+        log(count4(toIntArr(arr1)));
 
         Integer[] arr3 = generateRandomIntArr(10000);
         Integer[] arr4 = arr3.clone();
         timeIt(arr3, Exercise_InversionCount::count1);
         timeIt(arr4, Exercise_InversionCount::count2);  // 性能远高于 count1
+
+        // 逆序的 100000 个元素：n(n-1)/2 = 4999950000 个逆序对，超出了 int 的范围
+        int[] reversed = new DataGenerator(42).ints(100000, DataGenerator.reversed());
+        log(count4(reversed) + " " + count3(reversed.clone()));
+        log(count4(new int[]{0, 2000000000, 1}));  // 取值范围远大于 n，离散化后再计数：1
+
+        // 性能测试：1000 万个元素
+        int n = 10000000;
+        int[] arr5 = new DataGenerator(42).ints(n, DataGenerator.uniform(0, n));
+        Integer[] arr6 = DataGenerator.box(arr5);
+        Integer[] arr7 = arr6.clone();
+        long[] counts = new long[4];
+        timeIt(arr6, a -> counts[0] = count2((Integer[]) a));
+        timeIt(arr7, a -> counts[1] = count3((Integer[]) a));  // 单线程时只比 count2 略快（省掉了分配和拷贝），多核时随核数提升
+        timeIt(arr5.clone(), a -> counts[2] = count3(a));
+        timeIt(arr5, a -> counts[3] = count4(a));  // 取值范围为 n 时与 int[] 版本的 count3 相当
+        log(Arrays.toString(counts));
+
+        // 取值范围很小时（比如 1000 个不同的分数），树状数组可以完全放进 cache，count4 明显更快
+        int[] arr8 = new DataGenerator(42).ints(n, DataGenerator.uniform(0, 1000));
+        timeIt(arr8.clone(), a -> counts[2] = count3(a));
+        timeIt(arr8, a -> counts[3] = count4(a));
+        log(counts[2] == counts[3]);
     }
 }
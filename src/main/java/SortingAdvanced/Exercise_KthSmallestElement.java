@@ -12,6 +12,7 @@ import static Utils.Helpers.*;
  *   2. MinHeapSelect：先通过 heapify 将数组转换为一个最小堆（O(n)），然后 extractMin k 次，复杂度为 O(n+klogn)。
  *   3. MaxHeapSelect：跟 MinHeapSelect 原理相同，只是采用的是最大堆，然后 extractMax n-k 次，复杂度为 O((n-k)logn)。
  *   4. QuickSelect：平均复杂度是 O(n)，最坏情况下是 O(n^2)。
+ *   5. IntroSelect：QuickSelect + median of medians 兜底，最坏情况下也是 O(n)，见 IntroSelect。
  *
  * - 其中 QuickSelect 解法如下：
  *   - 思路：
@@ -27,6 +27,7 @@ public class Exercise_KthSmallestElement_HeapSelect {
 
     // 解法2：使用最大堆，保持堆大小为 k，遍历完成后堆顶就是第 k 小的元素
     // 复杂度：往堆中添加时 O(nlong)，extractMax n-k 次是 O((n-k)logn) ∴ 整体为 O((2n-k)logn)。
+    // 同样的思路用于无界的数据流、并且不先 add 再 poll 而是先与堆顶比较的版本见 Heap.TopK。
     public static <T extends Comparable<T>> T maxHeapSelect(T[] arr, int k) {
         PriorityQueue<T> pq = new PriorityQueue<>(k + 1, Collections.reverseOrder());  // 给 PriorityQueue 配置 comparator 用作最大堆
         for (T e : arr) {
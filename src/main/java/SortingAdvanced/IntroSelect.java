@@ -0,0 +1,372 @@
+package SortingAdvanced;
+
+import SortingBasic.InsertionSort;
+import Utils.CountingComparator;
+import Utils.DataGenerator;
+import Utils.SortProbe;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static Utils.Helpers.*;
+
+/*
+ * 内省选择（Introspective Select, IntroSelect）：最坏情况下也是 O(n) 的第 k 小元素查找
+ *
+ * - 问题：
+ *   Exercise_KthSmallestElement、Exercise_KthSmallestElement_3Ways 中的 quickSelect 与 IntroSort 之前的快排有同样的问题：
+ *   随机选 pivot 只是让退化成 O(n^2) 的概率很小，不能保证不发生；且它们是递归实现的，一旦退化递归深度也趋近于 n，会栈溢出。
+ *   比如 Exercise_KthSmallestElement 的 partition 把 == v 的元素都放在了一侧，对于元素全部相同的数组每次只能排除一个元素，
+ *   10 万个元素就会栈溢出。当数据来自外部（比如对用户提交的数据求百分位数）时，这就成了可以被利用的弱点。
+ *
+ * - 思路（同 IntroSort 的"快排为主、兜底算法保证最坏复杂度"，David Musser, 1997）：
+ *   1. 正常情况下使用 QuickSelect：三数取中选 pivot（不需要随机数，结果可复现）+ 三路 partition（大量重复元素时不退化，且 m
+ *      落在 ==v 的区间中时可以提前结束）。
+ *   2. 检查每一轮 partition 的进展：若剩下的区间仍大于原来的 3/4，记为一次"失衡"。连续失衡 2 次后，下一轮改用 BFPRT 的
+ *      中位数的中位数（median of medians）选 pivot：
+ *      - 把区间每 5 个元素分为一组，对每组插入排序后取中位数，把这些中位数集中到区间的最前面；
+ *      - 再在这些中位数（约 n/5 个）中递归地选出中位数作为 pivot。
+ *      比 pivot 小的元素至少有约 3n/10 个（一半的组中至少有 3 个元素不大于 pivot），比它大的也是，因此这一轮之后剩下的区间
+ *      最多约 7n/10。
+ *   3. 区间元素个数 <= 16 时使用插入排序收尾。
+ *
+ * - 复杂度：
+ *   每一轮的代价是 O(当前区间大小)，且至多每 3 轮中就有 1 轮把区间缩小到 3/4 以下（要么是正常的一轮，要么是 median of
+ *   medians 的一轮），因此总代价是一个等比数列，最坏情况下也是 O(n)。而对于正常的数据，三数取中几乎不会连续失衡，median of
+ *   medians（常数较大）基本不会被触发，性能与 QuickSelect 一致。
+ *
+ * - 迭代实现：
+ *   QuickSelect 每轮只会进入一侧，因此主循环直接改写为循环，不占用栈。唯一的递归是 median of medians 中在各组中位数里选中位数，
+ *   每次规模缩小为 1/5，递归深度不超过 log5(n)（对于 int 能表示的 n 不超过 14 层）。
+ *
+ * - 接口：
+ *   - select(arr, k)：返回第 k 小的元素（k 从 1 开始，与 Exercise_KthSmallestElement 一致）。
+ *   - selectRange(arr, l, r, m)：只在 arr[l...r] 中进行，完成后 arr[m] 是该区间排好序时第 m 个位置上的元素，arr[l...m-1] 都
+ *     不大于它、arr[m+1...r] 都不小于它。供 PartialSort 等在数组的某一区间上调用。
+ *   - 提供 Comparator 版本以及 int[]、long[]、double[] 的重载。
+ * */
+
+public class IntroSelect {
+    public static <T extends Comparable<T>> T select(T[] arr, int k) { return select(arr, k, Comparator.naturalOrder()); }
+
+    public static <T> T select(T[] arr, int k, Comparator<? super T> c) {
+        checkK(arr.length, k);
+        selectRange(arr, 0, arr.length - 1, k - 1, c);
+        return arr[k - 1];
+    }
+
+    public static int select(int[] arr, int k) {
+        checkK(arr.length, k);
+        selectRange(arr, 0, arr.length - 1, k - 1);
+        return arr[k - 1];
+    }
+
+    public static long select(long[] arr, int k) {
+        checkK(arr.length, k);
+        selectRange(arr, 0, arr.length - 1, k - 1);
+        return arr[k - 1];
+    }
+
+    public static double select(double[] arr, int k) {
+        checkK(arr.length, k);
+        selectRange(arr, 0, arr.length - 1, k - 1);
+        return arr[k - 1];
+    }
+
+    private static void checkK(int n, int k) {
+        if (k < 1 || k > n)
+            throw new IllegalArgumentException("select failed. k is out of bounds.");
+    }
+
+    public static <T extends Comparable<T>> void selectRange(T[] arr, int l, int r, int m) {
+        selectRange(arr, l, r, m, Comparator.naturalOrder());
+    }
+
+    public static <T> void selectRange(T[] arr, int l, int r, int m, Comparator<? super T> c) {
+        int unbalanced = 0;  // 连续失衡的次数
+        while (r - l > 15) {
+            int n = r - l + 1;
+            int p = unbalanced >= 2 ? medianOfMedians(arr, l, r, c) : medianOfThree(arr, l, (r - l) / 2 + l, r, c);
+
+            swap(arr, l, p);  // 三路 partition，同 QuickSort3Ways
+            T v = arr[l];
+            int lt = l, gt = r + 1, i = l + 1;
+            while (i < gt) {
+                int cmp = c.compare(arr[i], v);
+                if (cmp < 0)
+                    swap(arr, i++, ++lt);
+                else if (cmp > 0)
+                    swap(arr, i, --gt);
+                else
+                    i++;
+            }
+            swap(arr, l, lt);  // 之后 arr[l...lt-1] < v，arr[lt...gt-1] == v，arr[gt...r] > v
+
+            if (m < lt) r = lt - 1;
+            else if (m >= gt) l = gt;
+            else return;       // m 落在 ==v 的区间中
+
+            unbalanced = r - l + 1 > n - n / 4 ? unbalanced + 1 : 0;
+        }
+        InsertionSort.sortRange(arr, l, r, c);
+    }
+
+    // 返回 arr[l...r]（至少 16 个元素）的中位数的中位数的索引，过程中会把各组的中位数移到区间最前面
+    private static <T> int medianOfMedians(T[] arr, int l, int r, Comparator<? super T> c) {
+        int g = 0;  // 组数，第 g 组的中位数放在 arr[l+g] 上（l+g 总在已经处理过的组中，不会打乱还没处理的组）
+        for (int i = l; i + 4 <= r; i += 5, g++) {  // 最后不足 5 个的元素不参与
+            InsertionSort.sortRange(arr, i, i + 4, c);
+            swap(arr, l + g, i + 2);
+        }
+        int mid = l + (g - 1) / 2;
+        SortProbe.enter();
+        selectRange(arr, l, l + g - 1, mid, c);
+        SortProbe.exit();
+        return mid;
+    }
+
+    private static <T> int medianOfThree(T[] arr, int a, int b, int c, Comparator<? super T> cmp) {  // 同 IntroSort.medianOfThree
+        if (cmp.compare(arr[a], arr[b]) < 0) {
+            if (cmp.compare(arr[b], arr[c]) < 0) return b;
+            return cmp.compare(arr[a], arr[c]) < 0 ? c : a;
+        }
+        if (cmp.compare(arr[a], arr[c]) < 0) return a;
+        return cmp.compare(arr[b], arr[c]) < 0 ? c : b;
+    }
+
+    // 以下为基本类型版本，逻辑与泛型版本完全相同
+    public static void selectRange(int[] arr, int l, int r, int m) {
+        int unbalanced = 0;
+        while (r - l > 15) {
+            int n = r - l + 1;
+            int p = unbalanced >= 2 ? medianOfMedians(arr, l, r) : medianOfThree(arr, l, (r - l) / 2 + l, r);
+
+            swap(arr, l, p);
+            int v = arr[l];
+            int lt = l, gt = r + 1, i = l + 1;
+            while (i < gt) {
+                if (arr[i] < v)
+                    swap(arr, i++, ++lt);
+                else if (arr[i] > v)
+                    swap(arr, i, --gt);
+                else
+                    i++;
+            }
+            swap(arr, l, lt);
+
+            if (m < lt) r = lt - 1;
+            else if (m >= gt) l = gt;
+            else return;
+
+            unbalanced = r - l + 1 > n - n / 4 ? unbalanced + 1 : 0;
+        }
+        SortingPrimitive.InsertionSort.sortRange(arr, l, r);
+    }
+
+    private static int medianOfMedians(int[] arr, int l, int r) {
+        int g = 0;
+        for (int i = l; i + 4 <= r; i += 5, g++) {
+            SortingPrimitive.InsertionSort.sortRange(arr, i, i + 4);
+            swap(arr, l + g, i + 2);
+        }
+        int mid = l + (g - 1) / 2;
+        selectRange(arr, l, l + g - 1, mid);
+        return mid;
+    }
+
+    private static int medianOfThree(int[] arr, int a, int b, int c) {
+        if (arr[a] < arr[b]) {
+            if (arr[b] < arr[c]) return b;
+            return arr[a] < arr[c] ? c : a;
+        }
+        if (arr[a] < arr[c]) return a;
+        return arr[b] < arr[c] ? c : b;
+    }
+
+    public static void selectRange(long[] arr, int l, int r, int m) {
+        int unbalanced = 0;
+        while (r - l > 15) {
+            int n = r - l + 1;
+            int p = unbalanced >= 2 ? medianOfMedians(arr, l, r) : medianOfThree(arr, l, (r - l) / 2 + l, r);
+
+            swap(arr, l, p);
+            long v = arr[l];
+            int lt = l, gt = r + 1, i = l + 1;
+            while (i < gt) {
+                if (arr[i] < v)
+                    swap(arr, i++, ++lt);
+                else if (arr[i] > v)
+                    swap(arr, i, --gt);
+                else
+                    i++;
+            }
+            swap(arr, l, lt);
+
+            if (m < lt) r = lt - 1;
+            else if (m >= gt) l = gt;
+            else return;
+
+            unbalanced = r - l + 1 > n - n / 4 ? unbalanced + 1 : 0;
+        }
+        SortingPrimitive.InsertionSort.sortRange(arr, l, r);
+    }
+
+    private static int medianOfMedians(long[] arr, int l, int r) {
+        int g = 0;
+        for (int i = l; i + 4 <= r; i += 5, g++) {
+            SortingPrimitive.InsertionSort.sortRange(arr, i, i + 4);
+            swap(arr, l + g, i + 2);
+        }
+        int mid = l + (g - 1) / 2;
+        selectRange(arr, l, l + g - 1, mid);
+        return mid;
+    }
+
+    private static int medianOfThree(long[] arr, int a, int b, int c) {
+        if (arr[a] < arr[b]) {
+            if (arr[b] < arr[c]) return b;
+            return arr[a] < arr[c] ? c : a;
+        }
+        if (arr[a] < arr[c]) return a;
+        return arr[b] < arr[c] ? c : b;
+    }
+
+    public static void selectRange(double[] arr, int l, int r, int m) {
+        int unbalanced = 0;
+        while (r - l > 15) {
+            int n = r - l + 1;
+            int p = unbalanced >= 2 ? medianOfMedians(arr, l, r) : medianOfThree(arr, l, (r - l) / 2 + l, r);
+
+            swap(arr, l, p);
+            double v = arr[l];
+            int lt = l, gt = r + 1, i = l + 1;
+            while (i < gt) {
+                if (arr[i] < v)
+                    swap(arr, i++, ++lt);
+                else if (arr[i] > v)
+                    swap(arr, i, --gt);
+                else
+                    i++;
+            }
+            swap(arr, l, lt);
+
+            if (m < lt) r = lt - 1;
+            else if (m >= gt) l = gt;
+            else return;
+
+            unbalanced = r - l + 1 > n - n / 4 ? unbalanced + 1 : 0;
+        }
+        SortingPrimitive.InsertionSort.sortRange(arr, l, r);
+    }
+
+    private static int medianOfMedians(double[] arr, int l, int r) {
+        int g = 0;
+        for (int i = l; i + 4 <= r; i += 5, g++) {
+            SortingPrimitive.InsertionSort.sortRange(arr, i, i + 4);
+            swap(arr, l + g, i + 2);
+        }
+        int mid = l + (g - 1) / 2;
+        selectRange(arr, l, l + g - 1, mid);
+        return mid;
+    }
+
+    private static int medianOfThree(double[] arr, int a, int b, int c) {
+        if (arr[a] < arr[b]) {
+            if (arr[b] < arr[c]) return b;
+            return arr[a] < arr[c] ? c : a;
+        }
+        if (arr[a] < arr[c]) return a;
+        return arr[b] < arr[c] ? c : b;
+    }
+
+    // 不做边界检查的 swap（调用方已保证索引合法）。类中声明的 swap 会遮蔽 static import 进来的 Helpers.swap
+    private static <T> void swap(T[] arr, int i, int j) {
+        SortProbe.swap();
+        T temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    private static void swap(int[] arr, int i, int j) {
+        int temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    private static void swap(long[] arr, int i, int j) {
+        long temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    private static void swap(double[] arr, int i, int j) {
+        double temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    /*
+     * McIlroy 的对抗性 Comparator（"A Killer Adversary for Quicksort", 1999）：
+     * 元素是 0...n-1 的下标，一开始它们的值都未确定（gas，比所有已确定的值都大）。比较两个未确定的元素时，才把其中一个确定为
+     * 下一个最小的值，且尽量确定那个疑似被选作 pivot 的元素（最近一次参与比较的未确定元素），使 pivot 总是落在最小的一端。
+     * 它对任何基于比较、且 pivot 选取不依赖随机数的快排/快速选择都能构造出让 partition 失衡的输入。
+     * */
+    private static class Adversary implements Comparator<Integer> {
+        private final int[] val;
+        private final int gas;
+        private int solid = 0, candidate = 0;
+
+        Adversary(int n) {
+            val = new int[n];
+            gas = n;
+            Arrays.fill(val, gas);
+        }
+
+        @Override
+        public int compare(Integer x, Integer y) {
+            if (val[x] == gas && val[y] == gas) {
+                if (x == candidate) val[x] = solid++;
+                else val[y] = solid++;
+            }
+            if (val[x] == gas) candidate = x;
+            else if (val[y] == gas) candidate = y;
+            return Integer.compare(val[x], val[y]);
+        }
+    }
+
+    public static void main(String[] args) {
+        Integer[] arr1 = {4, 2, 5, 1, 3, 6, 7, 8};
+        log(select(arr1, 2));
+        Character[] arr2 = {'b', 'd', 'e', 'c', 'a'};
+        log(select(arr2, 2));
+        log(select(new int[] {4, 2, 5, 1, 3, 6, 7, 8}, 8));
+
+        // 性能测试：随机数据上与 QuickSelect 基本一致
+        int n = 1000000;
+        Integer[] arr3 = new DataGenerator(42).boxed(n, DataGenerator.uniform(0, n));
+        Integer[] arr4 = arr3.clone();
+        timeIt(arr3, a -> Exercise_KthSmallestElement_3Ways.quickSelect((Integer[]) a, n / 2));
+        timeIt(arr4, a -> select((Integer[]) a, n / 2));
+        log(arr3[n / 2 - 1].equals(arr4[n / 2 - 1]));
+
+        // 元素全部相同：Exercise_KthSmallestElement 每轮只能排除一个元素，递归深度为 n
+        Integer[] same = new Integer[100000];
+        Arrays.fill(same, 7);
+        try {
+            Exercise_KthSmallestElement.quickSelect(same.clone(), same.length / 2);
+        } catch (StackOverflowError e) {
+            log("Exercise_KthSmallestElement.quickSelect: StackOverflowError");
+        }
+        timeIt(same, a -> select((Integer[]) a, same.length / 2));
+
+        // 对抗性输入：比较次数与 n 之比保持为常数，即最坏情况下也是 O(n)（每个元素约 5 次）。
+        // 若去掉 median of medians 兜底，n = 100000 时每个元素要比较约 18750 次，即退化成了 O(n^2)
+        for (int size = 10000; size <= 1000000; size *= 10) {
+            Integer[] keys = new Integer[size];
+            for (int i = 0; i < size; i++) keys[i] = i;
+            CountingComparator<Integer> c = new CountingComparator<>(new Adversary(size));
+            select(keys, size / 2, c);
+            log(String.format("Adversarial input, n = %d: %.1f comparisons per element", size, (double) c.getCount() / size));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package SortingAdvanced;
+
+import Heap.HeapSort;
+import SortingBasic.InsertionSort;
+import Utils.SortProbe;
+
+import java.util.Comparator;
+
+import static Utils.Helpers.*;
+
+/*
+ * 内省排序（Introspective Sort, IntroSort）：
+ *
+ * - 问题：
+ *   QuickSort、QuickSort2、QuickSort2Ways、QuickSort3Ways 都没有对递归深度做任何限制。随机化 pivot 只是让退化成 O(n^2)
+ *   的概率变得极小，但不能保证不发生（比如随机数源不够随机、或输入是针对 pivot 选取策略精心构造的）。一旦发生，不但复杂度
+ *   变成 O(n^2)，递归深度也会趋近于 n，导致栈溢出（StackOverflowError）。
+ *
+ * - 思路（David Musser, 1997）：快排为主，堆排序兜底，插入排序收尾。
+ *   1. 正常情况下使用快速排序（双路 partition + 三数取中选 pivot）。
+ *   2. 记录递归深度，深度预算为 2 * floor(log2(n))。正常的快排递归深度在 log2(n) 左右，若某一区间递归到预算用完还没排完，
+ *      说明 partition 已经严重失衡，此时对该区间改用 HeapSort —— 堆排序最坏情况下也是 O(nlogn)，且不需要递归。
+ *   3. 区间元素个数 <= 16 时使用 InsertionSort.sortRange（同 QuickSort2 中的优化2）；若指定了 cutoff，则 <= cutoff 个元素的
+ *      区间改用排序网络（SortingNetwork）。
+ *   这样整体的最坏复杂度被限制在了 O(nlogn)，而平均性能和快速排序基本一致（堆排序只在极少数情况下才会被触发）。
+ *
+ * - 尾递归消除（tail-call elimination）：
+ *   - 快排每次 partition 后有两次递归调用，其中第二次是尾调用，可以改写成循环。
+ *   - 若总是对较小的一侧进行递归、对较大的一侧进行循环，则每次递归时区间大小至少减半，因此栈深度不会超过 log2(n)。
+ *     注意这与深度预算是两回事：深度预算限制的是时间复杂度（partition 的层数），尾递归消除限制的是空间复杂度（栈的深度）。
+ *
+ * - 三数取中（median-of-three）：
+ *   取 arr[l]、arr[mid]、arr[r] 中的中位数作为 pivot。对于有序、逆序、近乎有序的数组都能选到接近中间的元素，且不需要随机数，
+ *   使排序结果完全可复现；即使被针对性构造的输入攻击，也有深度预算 + 堆排序兜底。
+ * */
+
+public class IntroSort {
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {
+        if (arr.length < 2) return;
+        sort(arr, 0, arr.length - 1, 2 * log2(arr.length), c, SortingNetwork.OBJECT_CUTOFF);
+    }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c, int cutoff) {  // 元素个数 <= cutoff 的区间（包括堆排序中的）用排序网络排序
+        if (arr.length < 2) return;
+        sort(arr, 0, arr.length - 1, 2 * log2(arr.length), c, SortingNetwork.checkCutoff(cutoff));
+    }
+
+    private static <T> void sort(T[] arr, int l, int r, int depthLimit, Comparator<? super T> c, int cutoff) {
+        while (r - l > 15) {
+            if (depthLimit == 0) {  // 深度预算用完，说明 partition 严重失衡，对该区间改用堆排序
+                HeapSort.sortRange(arr, l, r, c, cutoff);
+                return;
+            }
+            depthLimit--;
+
+            int p = partition(arr, l, r, c);
+            if (p - l < r - p) {  // 对较小的一侧递归，较大的一侧在下一轮循环中处理（尾递归消除）
+                SortProbe.enter();
+                sort(arr, l, p - 1, depthLimit, c, cutoff);
+                SortProbe.exit();
+                l = p + 1;
+            } else {
+                SortProbe.enter();
+                sort(arr, p + 1, r, depthLimit, c, cutoff);
+                SortProbe.exit();
+                r = p - 1;
+            }
+        }
+        if (r - l < cutoff)
+            SortingNetwork.sortRange(arr, l, r, c);
+        else
+            InsertionSort.sortRange(arr, l, r, c);
+    }
+
+    private static <T> int partition(T[] arr, int l, int r, Comparator<? super T> c) {  // 与 QuickSort2Ways.partition 一致，只是改用三数取中选 pivot
+        swap(arr, l, medianOfThree(arr, l, (r - l) / 2 + l, r, c));
+        T v = arr[l];
+
+        int i = l + 1, j = r;
+        while (true) {
+            while (i <= r && c.compare(arr[i], v) < 0) i++;
+            while (j >= l + 1 && c.compare(arr[j], v) > 0) j--;
+            if (i > j) break;
+            swap(arr, i++, j--);
+        }
+        swap(arr, l, j);
+        return j;
+    }
+
+    private static <T> int medianOfThree(T[] arr, int a, int b, int c, Comparator<? super T> cmp) {  // 返回 arr[a]、arr[b]、arr[c] 中中位数的索引
+        if (cmp.compare(arr[a], arr[b]) < 0) {
+            if (cmp.compare(arr[b], arr[c]) < 0) return b;       // a < b < c
+            return cmp.compare(arr[a], arr[c]) < 0 ? c : a;      // a < b, c <= b
+        }
+        if (cmp.compare(arr[a], arr[c]) < 0) return a;           // b <= a < c
+        return cmp.compare(arr[b], arr[c]) < 0 ? c : b;          // b <= a, c <= a
+    }
+
+    private static int log2(int n) { return 31 - Integer.numberOfLeadingZeros(n); }  // floor(log2(n))
+
+    public static void main(String[] args) {
+        Integer[] arr = generateRandomIntArr(20);
+        log(arr);
+        sort(arr);
+        log(arr);
+
+        // 性能测试
+        Integer[] arr1 = generateRandomIntArr(1000000);
+        Integer[] arr2 = arr1.clone();
+        timeIt(arr1, QuickSort2Ways::sort);
+        timeIt(arr2, IntroSort::sort);  // 对于完全随机的数据，与双路快排基本一致
+
+        Integer[] arr3 = generateNearlyOrderedArr(1000000, 0);  // 完全有序的数据，QuickSort 在这个量级上会栈溢出
+        Integer[] arr4 = arr3.clone();
+        timeIt(arr3, QuickSort2Ways::sort);
+        timeIt(arr4, IntroSort::sort);  // 三数取中对于有序数据每次都能选到正中间的元素，比随机选 pivot 更快
+
+        Integer[] arr5 = generateRandomArrayFromRange(1000000, 0, 10);  // 包含大量重复的数据集
+        Integer[] arr6 = arr5.clone();
+        timeIt(arr5, QuickSort3Ways::sort);
+        timeIt(arr6, IntroSort::sort);  // 双路 partition 不会因为重复元素而退化，与三路快排接近
+    }
+}
@@ -0,0 +1,410 @@
+package SortingAdvanced;
+
+import Heap.LoserTree;
+import Utils.CountingComparator;
+import Utils.DataGenerator;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.BaseStream;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static Utils.Helpers.*;
+
+/*
+ * 多路归并（K-way Merge）：把 k 个各自有序的数据源归并成一个有序序列
+ *
+ * - 问题：
+ *   比如归并几百个分片（shard）各自排好序的结果。
+ *   - 两两归并（MergeSort 中的 merge）：依次把第 2、3...k 路归并进结果中，前面的元素会被反复拷贝，复杂度为 O(n·k)；即使
+ *     像 MergeSortBottomUp 那样两两配对、逐层归并，也要 log2(k) 遍，每遍都读写全部 n 个元素。
+ *   - 最小堆保存每一路的游标（cursor）：只需一遍，但每输出一个元素约需 2·log2(k) 次比较（见 Heap.LoserTree）。
+ *
+ * - 实现：用败者树（Heap.LoserTree）在 k 路的当前元素中选出最小值，每输出一个元素只需沿一条路径比较 ⌈log2(k)⌉ 次以内，
+ *   所有数据只读写一遍。元素相同时编号较小的路先输出，即归并是稳定的。
+ *   - 数组：merge(arrays) 返回归并后的新数组，基本类型（int[]、long[]、double[]）用 LoserTree.OfInt 等，没有装箱。
+ *   - 迭代器：merge(iterators, c) 返回一个惰性的 Iterator，每次 next() 时才从对应的那一路再取一个元素，适合数据源本身
+ *     很大或是无界的情况，任一时刻每一路只有一个元素在内存中。
+ *   - 流：stream(streams, c)、intStream、longStream、doubleStream 同样是惰性的（直到终止操作开始时才从各个流中取第一个
+ *     元素），关闭返回的流时会关闭所有的数据源。
+ *   - 文件：ExternalMergeSort.merge(inputs, output) 归并各自有序的定长记录文件，同样使用败者树。
+ *
+ * - 注意：
+ *   - 各个数据源必须是已经有序的（按同一个 Comparator），这里不做检查；
+ *   - 泛型版本中数据源不能含有 null（败者树用 null 表示该路已经取完）；
+ *   - double 按 Double.compare 的顺序（即 Arrays.sort(double[]) 的顺序）归并。
+ * */
+
+public class KWayMerge {
+    public static <T extends Comparable<T>> T[] merge(T[][] arrays) { return merge(arrays, Comparator.naturalOrder()); }
+
+    public static <T> T[] merge(T[][] arrays, Comparator<? super T> c) {
+        int n = totalLength(arrays.length, i -> arrays[i].length);
+        @SuppressWarnings("unchecked")
+        T[] result = (T[]) Array.newInstance(arrays.getClass().getComponentType().getComponentType(), n);
+        if (n == 0) return result;
+
+        int k = arrays.length;
+        int[] pos = new int[k];  // 每一路的游标
+        @SuppressWarnings("unchecked")
+        T[] heads = (T[]) new Object[k];
+        for (int i = 0; i < k; i++)
+            heads[i] = arrays[i].length > 0 ? arrays[i][0] : null;
+        LoserTree<T> tree = new LoserTree<>(heads, c);
+        for (int i = 0; i < n; i++) {
+            int s = tree.winner();
+            result[i] = tree.peek();
+            T[] a = arrays[s];
+            tree.replace(++pos[s] < a.length ? a[pos[s]] : null);
+        }
+        return result;
+    }
+
+    public static int[] merge(int[][] arrays) {
+        int n = totalLength(arrays.length, i -> arrays[i].length);
+        int[] result = new int[n];
+        if (n == 0) return result;
+
+        int k = arrays.length;
+        int[] pos = new int[k], heads = new int[k];
+        boolean[] empty = new boolean[k];
+        for (int i = 0; i < k; i++) {
+            empty[i] = arrays[i].length == 0;
+            heads[i] = empty[i] ? 0 : arrays[i][0];
+        }
+        LoserTree.OfInt tree = new LoserTree.OfInt(heads, empty);
+        for (int i = 0; i < n; i++) {
+            int s = tree.winner();
+            result[i] = tree.peek();
+            int[] a = arrays[s];
+            if (++pos[s] < a.length)
+                tree.replace(a[pos[s]]);
+            else
+                tree.remove();
+        }
+        return result;
+    }
+
+    public static long[] merge(long[][] arrays) {
+        int n = totalLength(arrays.length, i -> arrays[i].length);
+        long[] result = new long[n];
+        if (n == 0) return result;
+
+        int k = arrays.length;
+        int[] pos = new int[k];
+        long[] heads = new long[k];
+        boolean[] empty = new boolean[k];
+        for (int i = 0; i < k; i++) {
+            empty[i] = arrays[i].length == 0;
+            heads[i] = empty[i] ? 0 : arrays[i][0];
+        }
+        LoserTree.OfLong tree = new LoserTree.OfLong(heads, empty);
+        for (int i = 0; i < n; i++) {
+            int s = tree.winner();
+            result[i] = tree.peek();
+            long[] a = arrays[s];
+            if (++pos[s] < a.length)
+                tree.replace(a[pos[s]]);
+            else
+                tree.remove();
+        }
+        return result;
+    }
+
+    public static double[] merge(double[][] arrays) {
+        int n = totalLength(arrays.length, i -> arrays[i].length);
+        double[] result = new double[n];
+        if (n == 0) return result;
+
+        int k = arrays.length;
+        int[] pos = new int[k];
+        double[] heads = new double[k];
+        boolean[] empty = new boolean[k];
+        for (int i = 0; i < k; i++) {
+            empty[i] = arrays[i].length == 0;
+            heads[i] = empty[i] ? 0 : arrays[i][0];
+        }
+        LoserTree.OfDouble tree = new LoserTree.OfDouble(heads, empty);
+        for (int i = 0; i < n; i++) {
+            int s = tree.winner();
+            result[i] = tree.peek();
+            double[] a = arrays[s];
+            if (++pos[s] < a.length)
+                tree.replace(a[pos[s]]);
+            else
+                tree.remove();
+        }
+        return result;
+    }
+
+    private static int totalLength(int k, IntUnaryOperator length) {
+        long n = 0;
+        for (int i = 0; i < k; i++)
+            n += length.applyAsInt(i);
+        if (n > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("merge failed. Total length is too large for an array.");
+        return (int) n;
+    }
+
+    /* -------------------------------- 惰性归并：迭代器、流 -------------------------------- */
+
+    public static <T extends Comparable<T>> Iterator<T> merge(List<? extends Iterator<? extends T>> sources) {
+        return merge(sources, Comparator.naturalOrder());
+    }
+
+    public static <T> Iterator<T> merge(List<? extends Iterator<? extends T>> sources, Comparator<? super T> c) {
+        return sources.isEmpty() ? Collections.emptyIterator() : new MergingIterator<>(sources, c);
+    }
+
+    public static <T extends Comparable<T>> Stream<T> stream(List<? extends Stream<? extends T>> sources) {
+        return stream(sources, Comparator.naturalOrder());
+    }
+
+    public static <T> Stream<T> stream(List<? extends Stream<? extends T>> sources, Comparator<? super T> c) {
+        return StreamSupport.stream(() -> {  // 终止操作开始时才创建迭代器、取各个流的第一个元素
+            List<Iterator<? extends T>> iterators = new ArrayList<>();
+            for (Stream<? extends T> s : sources)
+                iterators.add(s.iterator());
+            return Spliterators.spliteratorUnknownSize(merge(iterators, c), Spliterator.ORDERED | Spliterator.NONNULL);
+        }, Spliterator.ORDERED | Spliterator.NONNULL, false).onClose(() -> closeAll(sources));
+    }
+
+    public static IntStream intStream(List<? extends IntStream> sources) {
+        return StreamSupport.intStream(() -> {
+            if (sources.isEmpty()) return Spliterators.emptyIntSpliterator();
+            List<PrimitiveIterator.OfInt> iterators = new ArrayList<>();
+            for (IntStream s : sources)
+                iterators.add(s.iterator());
+            return Spliterators.spliteratorUnknownSize(new MergingIntIterator(iterators), Spliterator.ORDERED);
+        }, Spliterator.ORDERED, false).onClose(() -> closeAll(sources));
+    }
+
+    public static LongStream longStream(List<? extends LongStream> sources) {
+        return StreamSupport.longStream(() -> {
+            if (sources.isEmpty()) return Spliterators.emptyLongSpliterator();
+            List<PrimitiveIterator.OfLong> iterators = new ArrayList<>();
+            for (LongStream s : sources)
+                iterators.add(s.iterator());
+            return Spliterators.spliteratorUnknownSize(new MergingLongIterator(iterators), Spliterator.ORDERED);
+        }, Spliterator.ORDERED, false).onClose(() -> closeAll(sources));
+    }
+
+    public static DoubleStream doubleStream(List<? extends DoubleStream> sources) {
+        return StreamSupport.doubleStream(() -> {
+            if (sources.isEmpty()) return Spliterators.emptyDoubleSpliterator();
+            List<PrimitiveIterator.OfDouble> iterators = new ArrayList<>();
+            for (DoubleStream s : sources)
+                iterators.add(s.iterator());
+            return Spliterators.spliteratorUnknownSize(new MergingDoubleIterator(iterators), Spliterator.ORDERED);
+        }, Spliterator.ORDERED, false).onClose(() -> closeAll(sources));
+    }
+
+    private static void closeAll(List<? extends BaseStream<?, ?>> sources) {
+        for (BaseStream<?, ?> s : sources)
+            s.close();
+    }
+
+    private static class MergingIterator<T> implements Iterator<T> {
+        private final List<? extends Iterator<? extends T>> sources;
+        private final LoserTree<T> tree;
+
+        MergingIterator(List<? extends Iterator<? extends T>> sources, Comparator<? super T> c) {
+            this.sources = sources;
+            @SuppressWarnings("unchecked")
+            T[] heads = (T[]) new Object[sources.size()];
+            for (int i = 0; i < heads.length; i++)
+                heads[i] = nextOf(sources.get(i));
+            this.tree = new LoserTree<>(heads, c);
+        }
+
+        private T nextOf(Iterator<? extends T> it) {  // 该路的下一个元素，取完时返回 null
+            if (!it.hasNext()) return null;
+            T e = it.next();
+            if (e == null)
+                throw new IllegalArgumentException("merge failed. Sources must not contain null.");
+            return e;
+        }
+
+        @Override
+        public boolean hasNext() { return !tree.isEmpty(); }
+
+        @Override
+        public T next() {
+            if (tree.isEmpty()) throw new NoSuchElementException();
+            T e = tree.peek();
+            tree.replace(nextOf(sources.get(tree.winner())));
+            return e;
+        }
+    }
+
+    private static class MergingIntIterator implements PrimitiveIterator.OfInt {
+        private final List<PrimitiveIterator.OfInt> sources;
+        private final LoserTree.OfInt tree;
+
+        MergingIntIterator(List<PrimitiveIterator.OfInt> sources) {
+            this.sources = sources;
+            int k = sources.size();
+            int[] heads = new int[k];
+            boolean[] empty = new boolean[k];
+            for (int i = 0; i < k; i++) {
+                empty[i] = !sources.get(i).hasNext();
+                heads[i] = empty[i] ? 0 : sources.get(i).nextInt();
+            }
+            this.tree = new LoserTree.OfInt(heads, empty);
+        }
+
+        @Override
+        public boolean hasNext() { return !tree.isEmpty(); }
+
+        @Override
+        public int nextInt() {
+            if (tree.isEmpty()) throw new NoSuchElementException();
+            int e = tree.peek();
+            PrimitiveIterator.OfInt it = sources.get(tree.winner());
+            if (it.hasNext())
+                tree.replace(it.nextInt());
+            else
+                tree.remove();
+            return e;
+        }
+    }
+
+    private static class MergingLongIterator implements PrimitiveIterator.OfLong {
+        private final List<PrimitiveIterator.OfLong> sources;
+        private final LoserTree.OfLong tree;
+
+        MergingLongIterator(List<PrimitiveIterator.OfLong> sources) {
+            this.sources = sources;
+            int k = sources.size();
+            long[] heads = new long[k];
+            boolean[] empty = new boolean[k];
+            for (int i = 0; i < k; i++) {
+                empty[i] = !sources.get(i).hasNext();
+                heads[i] = empty[i] ? 0 : sources.get(i).nextLong();
+            }
+            this.tree = new LoserTree.OfLong(heads, empty);
+        }
+
+        @Override
+        public boolean hasNext() { return !tree.isEmpty(); }
+
+        @Override
+        public long nextLong() {
+            if (tree.isEmpty()) throw new NoSuchElementException();
+            long e = tree.peek();
+            PrimitiveIterator.OfLong it = sources.get(tree.winner());
+            if (it.hasNext())
+                tree.replace(it.nextLong());
+            else
+                tree.remove();
+            return e;
+        }
+    }
+
+    private static class MergingDoubleIterator implements PrimitiveIterator.OfDouble {
+        private final List<PrimitiveIterator.OfDouble> sources;
+        private final LoserTree.OfDouble tree;
+
+        MergingDoubleIterator(List<PrimitiveIterator.OfDouble> sources) {
+            this.sources = sources;
+            int k = sources.size();
+            double[] heads = new double[k];
+            boolean[] empty = new boolean[k];
+            for (int i = 0; i < k; i++) {
+                empty[i] = !sources.get(i).hasNext();
+                heads[i] = empty[i] ? 0 : sources.get(i).nextDouble();
+            }
+            this.tree = new LoserTree.OfDouble(heads, empty);
+        }
+
+        @Override
+        public boolean hasNext() { return !tree.isEmpty(); }
+
+        @Override
+        public double nextDouble() {
+            if (tree.isEmpty()) throw new NoSuchElementException();
+            double e = tree.peek();
+            PrimitiveIterator.OfDouble it = sources.get(tree.winner());
+            if (it.hasNext())
+                tree.replace(it.nextDouble());
+            else
+                tree.remove();
+            return e;
+        }
+    }
+
+    public static void main(String[] args) {
+        Integer[][] arrays = {{1, 4, 9}, {2, 3}, {}, {0, 5, 6, 7}};
+        log(merge(arrays));
+
+        // 惰性归并 3 个无界的流，只取前 10 个
+        List<LongStream> streams = Arrays.asList(
+                LongStream.iterate(0, x -> x + 3), LongStream.iterate(1, x -> x + 3), LongStream.iterate(2, x -> x + 3));
+        log(longStream(streams).limit(10).boxed().collect(Collectors.toList()));
+
+        // 性能测试：256 路，每路 4096 个有序的随机数
+        int k = 256, len = 4096;
+        DataGenerator gen = new DataGenerator(42);
+        int[][] ints = new int[k][];
+        Integer[][] boxed = new Integer[k][];
+        for (int i = 0; i < k; i++) {
+            ints[i] = gen.ints(len, DataGenerator.uniform(0, 1 << 30));
+            Arrays.sort(ints[i]);
+            boxed[i] = DataGenerator.box(ints[i]);
+        }
+
+        // 1. 比较次数：败者树 vs. 最小堆（PriorityQueue 保存每一路的游标 {路的编号, 位置}）
+        CountingComparator<Integer> c1 = CountingComparator.naturalOrder();
+        long start = System.nanoTime();
+        Integer[] r1 = merge(boxed, c1);
+        log(String.format("Loser tree: %.3fms, %.2f compares per element", (System.nanoTime() - start) / 1e6, c1.getCount() / (double) r1.length));
+
+        CountingComparator<Integer> c2 = CountingComparator.naturalOrder();
+        start = System.nanoTime();
+        Integer[] r2 = new Integer[k * len];
+        PriorityQueue<int[]> pq = new PriorityQueue<>(k, (a, b) -> c2.compare(boxed[a[0]][a[1]], boxed[b[0]][b[1]]));
+        for (int i = 0; i < k; i++)
+            pq.add(new int[] {i, 0});
+        for (int i = 0; !pq.isEmpty(); i++) {
+            int[] cursor = pq.poll();
+            r2[i] = boxed[cursor[0]][cursor[1]];
+            if (++cursor[1] < len)
+                pq.add(cursor);
+        }
+        log(String.format("Min heap:   %.3fms, %.2f compares per element", (System.nanoTime() - start) / 1e6, c2.getCount() / (double) r2.length));
+        log(Arrays.equals(r1, r2));
+
+        // 2. int[]：一次 k 路归并 vs. 依次两两归并 vs. 拼接后整体排序
+        start = System.nanoTime();
+        int[] r3 = merge(ints);
+        log(String.format("K-way merge:     %.3fms", (System.nanoTime() - start) / 1e6));
+
+        start = System.nanoTime();
+        int[] r4 = new int[0];
+        for (int[] a : ints)
+            r4 = merge(new int[][] {r4, a});
+        log(String.format("Pairwise merge:  %.3fms", (System.nanoTime() - start) / 1e6));
+
+        start = System.nanoTime();
+        int[] r5 = IntStream.range(0, k).flatMap(i -> Arrays.stream(ints[i])).toArray();
+        Arrays.sort(r5);
+        log(String.format("Concat and sort: %.3fms", (System.nanoTime() - start) / 1e6));
+        log(Arrays.equals(r3, r4) && Arrays.equals(r3, r5));
+    }
+}
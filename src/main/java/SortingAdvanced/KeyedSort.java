@@ -0,0 +1,221 @@
+package SortingAdvanced;
+
+import SortingSpecialised.RadixSort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import static Utils.Helpers.*;
+
+/*
+ * 缓存 key 的排序（Schwartzian Transform / decorate-sort-undecorate）：
+ *
+ * - 问题：
+ *   用 Comparator 按某个派生字段排序时（如 Comparator.comparing(s -> s.toLowerCase())），每次比较都要把两个元素的 key 重新
+ *   算一遍。排序要做 O(nlogn) 次比较，于是 key 也被算了 O(nlogn) 次（每个元素约 2logn 次），若计算 key 的代价较大（要分配
+ *   对象、要查表、要做浮点运算），这部分开销就会远远超过排序本身。而把每个元素包装成 (key, 元素) 对象再排序，又要为每个元素
+ *   分配一个对象，并在每次比较时多一次间接访问。
+ *
+ * - 思路：
+ *   1. decorate：对每个元素只计算一次 key，存在一个与 arr 等长的 key 数组中；同时用一个 perm 数组记录 key 对应的元素下标。
+ *   2. sort：对 key 数组排序，perm 数组跟着一起移动（比较的是 key，移动的是 (key, perm) 对）。
+ *   3. undecorate：按 perm 把元素重新排列一遍，arr[i] = 原来的 arr[perm[i]]。
+ *   这样 key 只被计算 n 次，比较时直接访问基本类型数组，没有对象分配，也没有间接访问。
+ *
+ * - 对不同类型的 key：
+ *   - int key：把 key 放在高32位、下标放在低32位，拼成一个 long。long 的大小关系就是先比 key、key 相同再比下标，因此不需要单独
+ *     的 perm 数组，对这个 long 数组用 RadixSort 排序即可（O(n)，且因为下标各不相同，结果天然是稳定的）。
+ *   - long / double key：放不进一个 long 里，用 long[] keys + int[] perm 两个数组做稳定的归并排序。double 先变换成与
+ *     Double.compare 顺序一致的 long（正数的位模式本身就是有序的，负数需要把除符号位以外的位取反）。
+ *   - 任意类型的 key：用 Object[] keys + int[] perm 做稳定的归并排序，比较时调用 key 的 Comparator（key 本身只提取一次）。
+ *
+ * - 所有方法都是稳定的（key 相同的元素保持原来的相对顺序），额外空间为 O(n)。
+ * */
+
+public class KeyedSort {
+    public static <T> void sortByIntKey(T[] arr, ToIntFunction<? super T> keyExtractor) {
+        int n = arr.length;
+        if (n < 2) return;
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++)
+            packed[i] = ((long) keyExtractor.applyAsInt(arr[i]) << 32) | i;  // 高32位是有符号的 key，低32位是下标
+        RadixSort.sort(packed);
+
+        T[] copy = arr.clone();
+        for (int i = 0; i < n; i++)
+            arr[i] = copy[(int) packed[i]];
+    }
+
+    public static <T> void sortByLongKey(T[] arr, ToLongFunction<? super T> keyExtractor) {
+        int n = arr.length;
+        if (n < 2) return;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = keyExtractor.applyAsLong(arr[i]);
+        sortByKeys(arr, keys);
+    }
+
+    public static <T> void sortByDoubleKey(T[] arr, ToDoubleFunction<? super T> keyExtractor) {
+        int n = arr.length;
+        if (n < 2) return;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            long bits = Double.doubleToLongBits(keyExtractor.applyAsDouble(arr[i]));  // 与 Double.compare 一致：-0.0 < 0.0，NaN 最大
+            keys[i] = bits ^ ((bits >> 63) & Long.MAX_VALUE);                         // 负数：除符号位以外的位取反
+        }
+        sortByKeys(arr, keys);
+    }
+
+    public static <T, K extends Comparable<? super K>> void sortByKey(T[] arr, Function<? super T, ? extends K> keyExtractor) {
+        sortByKey(arr, keyExtractor, Comparator.naturalOrder());
+    }
+
+    public static <T, K> void sortByKey(T[] arr, Function<? super T, ? extends K> keyExtractor, Comparator<? super K> c) {
+        int n = arr.length;
+        if (n < 2) return;
+        Object[] keys = new Object[n];
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = keyExtractor.apply(arr[i]);
+            perm[i] = i;
+        }
+        @SuppressWarnings("unchecked")
+        Comparator<Object> cmp = (Comparator<Object>) c;  // keys 中都是 K，按 Object 比较是安全的
+        sort(keys, perm, keys.clone(), perm.clone(), 0, n - 1, cmp);
+        permute(arr, perm);
+    }
+
+    private static <T> void sortByKeys(T[] arr, long[] keys) {
+        int n = arr.length;
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++)
+            perm[i] = i;
+        sort(keys, perm, new long[n], new int[n], 0, n - 1);
+        permute(arr, perm);
+    }
+
+    private static <T> void permute(T[] arr, int[] perm) {  // arr[i] = 原来的 arr[perm[i]]
+        T[] copy = arr.clone();
+        for (int i = 0; i < arr.length; i++)
+            arr[i] = copy[perm[i]];
+    }
+
+    // 对 keys[l...r] 进行归并排序（同 MergeSort2），perm 随 keys 一起移动；auxKeys、auxPerm 为辅助空间
+    private static void sort(long[] keys, int[] perm, long[] auxKeys, int[] auxPerm, int l, int r) {
+        if (r - l <= 15) {  // 插入排序
+            for (int i = l + 1; i <= r; i++) {
+                long k = keys[i];
+                int p = perm[i], j = i;
+                for (; j > l && keys[j - 1] > k; j--) {
+                    keys[j] = keys[j - 1];
+                    perm[j] = perm[j - 1];
+                }
+                keys[j] = k;
+                perm[j] = p;
+            }
+            return;
+        }
+        int mid = (r - l) / 2 + l;
+        sort(keys, perm, auxKeys, auxPerm, l, mid);
+        sort(keys, perm, auxKeys, auxPerm, mid + 1, r);
+        if (keys[mid] <= keys[mid + 1]) return;
+
+        System.arraycopy(keys, l, auxKeys, l, r - l + 1);
+        System.arraycopy(perm, l, auxPerm, l, r - l + 1);
+        int i = l, j = mid + 1;
+        for (int k = l; k <= r; k++) {
+            if (i > mid || (j <= r && auxKeys[j] < auxKeys[i])) {  // 只有右半部分严格小于时才取右半部分，保证稳定性
+                keys[k] = auxKeys[j];
+                perm[k] = auxPerm[j++];
+            } else {
+                keys[k] = auxKeys[i];
+                perm[k] = auxPerm[i++];
+            }
+        }
+    }
+
+    private static void sort(Object[] keys, int[] perm, Object[] auxKeys, int[] auxPerm, int l, int r, Comparator<Object> c) {  // 同上
+        if (r - l <= 15) {
+            for (int i = l + 1; i <= r; i++) {
+                Object k = keys[i];
+                int p = perm[i], j = i;
+                for (; j > l && c.compare(keys[j - 1], k) > 0; j--) {
+                    keys[j] = keys[j - 1];
+                    perm[j] = perm[j - 1];
+                }
+                keys[j] = k;
+                perm[j] = p;
+            }
+            return;
+        }
+        int mid = (r - l) / 2 + l;
+        sort(keys, perm, auxKeys, auxPerm, l, mid, c);
+        sort(keys, perm, auxKeys, auxPerm, mid + 1, r, c);
+        if (c.compare(keys[mid], keys[mid + 1]) <= 0) return;
+
+        System.arraycopy(keys, l, auxKeys, l, r - l + 1);
+        System.arraycopy(perm, l, auxPerm, l, r - l + 1);
+        int i = l, j = mid + 1;
+        for (int k = l; k <= r; k++) {
+            if (i > mid || (j <= r && c.compare(auxKeys[j], auxKeys[i]) < 0)) {
+                keys[k] = auxKeys[j];
+                perm[k] = auxPerm[j++];
+            } else {
+                keys[k] = auxKeys[i];
+                perm[k] = auxPerm[i++];
+            }
+        }
+    }
+
+    private static class Point implements Comparable<Point> {  // 测试用的记录
+        final double x, y;
+
+        Point(double x, double y) { this.x = x; this.y = y; }
+
+        double distance() { return Math.sqrt(x * x + y * y); }
+
+        @Override
+        public int compareTo(Point o) { return Double.compare(distance(), o.distance()); }
+
+        @Override
+        public String toString() { return String.format("(%.2f, %.2f)", x, y); }
+    }
+
+    public static void main(String[] args) {
+        Random r = new Random();
+        Point[] points = new Point[8];
+        for (int i = 0; i < points.length; i++)
+            points[i] = new Point(r.nextDouble() * 10 - 5, r.nextDouble() * 10 - 5);
+        sortByDoubleKey(points, Point::distance);  // 按到原点的距离排序
+        log(points);
+
+        String[] words = {"banana", "Apple", "cherry", "apple", "Banana", "date"};
+        sortByKey(words, String::toLowerCase);     // 忽略大小写排序，且是稳定的（"Apple" 仍在 "apple" 之前）
+        log(words);
+
+        // 性能测试：key 的计算代价较大时（每次都要分配一个新的 String）
+        String[] arr1 = new String[1000000];
+        for (int i = 0; i < arr1.length; i++)
+            arr1[i] = Integer.toString(r.nextInt(), 36).toUpperCase();
+        String[] arr2 = arr1.clone();
+        timeIt(arr1, arr -> MergeSort2.sort((String[]) arr, Comparator.comparing(String::toLowerCase)));  // 每次比较都要计算两次 key
+        timeIt(arr2, arr -> sortByKey((String[]) arr, String::toLowerCase));                             // 每个元素只计算一次 key，快2倍多
+        log(Arrays.equals(arr1, arr2));
+
+        // 性能测试：基本类型的 key
+        Point[] arr3 = new Point[1000000];
+        for (int i = 0; i < arr3.length; i++)
+            arr3[i] = new Point(r.nextDouble(), r.nextDouble());
+        Point[] arr4 = arr3.clone();
+        Point[] arr5 = arr3.clone();
+        Point[] arr6 = arr3.clone();
+        timeIt(arr4, arr -> MergeSort2.sort((Point[]) arr, Comparator.comparingDouble(Point::distance)));
+        timeIt(arr5, arr -> sortByDoubleKey((Point[]) arr, Point::distance));  // 快1倍左右
+        timeIt(arr6, arr -> sortByIntKey((Point[]) arr, p -> (int) (p.distance() * 1e6)));  // 整数 key 可以直接用 RadixSort，最快
+    }
+}
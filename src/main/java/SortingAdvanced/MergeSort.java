@@ -1,8 +1,10 @@
 package SortingAdvanced;
 
 import SortingBasic.InsertionSort;
+import Utils.SortProbe;
 
 import java.util.Arrays;
+import java.util.Comparator;
 
 import static Utils.Helpers.*;
 
@@ -44,29 +46,45 @@ import static Utils.Helpers.*;
  *   在 sort 方法中，可以在 merge 之前加一个判断：如果 arr[mid] < arr[mid+1]，则说明 arr[mid+1, r] 中的所有元素都已
  *   经大于 arr[l, mid] 中的所有元素，不需要再 merge 了。这是因为当两次 sort 完成之后，arr[l, mid] 和 arr[mid+1, r]
  *   这两段区间已经各自是有序的了，此时若前者的最大值 < 后者的最小值，则说明两个区间之间已经有序。
+ *
+ * - 区间元素个数 <= cutoff 时不再递归到底，而是直接用排序网络（SortingNetwork）排序，cutoff 默认为
+ *   SortingNetwork.OBJECT_CUTOFF，取 0 即一直递归到只剩 1 个元素。
  * */
 
 public class MergeSort {
-    public static <T extends Comparable<T>> void sort(T[] arr) {  // 归并排序中的递归是要对数组的每一段区域进行处理，因此设计递归函数时要传入左右边界
-        sort(arr, 0, arr.length - 1);
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {  // 归并排序中的递归是要对数组的每一段区域进行处理，因此设计递归函数时要传入左右边界
+        sort(arr, 0, arr.length - 1, c, SortingNetwork.OBJECT_CUTOFF);
+    }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c, int cutoff) {  // 元素个数 <= cutoff 的区间用排序网络排序
+        sort(arr, 0, arr.length - 1, c, SortingNetwork.checkCutoff(cutoff));
     }
 
     // 递归地对 arr[l...r] 的范围（前闭后闭）进行排序
-    private static <T extends Comparable<T>> void sort(T[] arr, int l, int r) {
+    private static <T> void sort(T[] arr, int l, int r, Comparator<? super T> c, int cutoff) {
+        if (r - l < cutoff) {        // 区间足够小时不再递归，直接用排序网络（SortingNetwork）排好
+            SortingNetwork.sortRange(arr, l, r, c);
+            return;
+        }
         if (l >= r) return;          // 异常及递归终止条件
         int mid = (r - l) / 2  + l;  // 也可以写成 (l + r) / 2，但是可能整型溢出
 
-        sort(arr, l, mid);
-        sort(arr, mid + 1, r);
+        SortProbe.enter();
+        sort(arr, l, mid, c, cutoff);
+        sort(arr, mid + 1, r, c, cutoff);
+        SortProbe.exit();
 
-        boolean alreadyOrdered = arr[mid].compareTo(arr[mid + 1]) > 0;
+        boolean alreadyOrdered = c.compare(arr[mid], arr[mid + 1]) > 0;
         if (alreadyOrdered)          // 若分解完之后该部分元素已经是有序的则不用再 merge（这个判断能带来不错的性能提升）
-            merge(arr, l, mid, r);   // 递归到底后再从底往上进行合并
+            merge(arr, l, mid, r, c);   // 递归到底后再从底往上进行合并
     }
 
     // 将 arr[l...mid 和 arr[mid+1...r] 这两部分进行归并，此时这两部分都已经各自有序了
-    private static <T extends Comparable<T>> void merge(T[] arr, int l, int mid, int r) {
+    private static <T> void merge(T[] arr, int l, int mid, int r, Comparator<? super T> c) {
         T[] aux = Arrays.copyOfRange(arr, l, r + 1);  // 创建辅助数组（空间换时间）
+        SortProbe.move(2 * (r - l + 1));  // 拷贝到 aux，再归并回 arr
 
         int i = l, j = mid + 1;           // i 指向左半部分的起始索引 l；j 指向右半部分起始索引 mid+1
         for (int k = l; k <= r; k++) {    // k 指向 arr[l...r] 中的每个位置
@@ -74,7 +92,7 @@ public class MergeSort {
                 arr[k] = aux[j++ - l];    // 要减去 l 的偏移量（因为 aux 的范围是从 0 开始的）
             else if (j > r)               // 若右半部分元素已经全部处理完毕
                 arr[k] = aux[i++ - l];
-            else if (aux[i - l].compareTo(aux[j - l]) < 0)  // 左半部分所指元素 < 右半部分所指元素
+            else if (c.compare(aux[i - l], aux[j - l]) < 0)  // 左半部分所指元素 < 右半部分所指元素
                 arr[k] = aux[i++ - l];
             else                          // 左半部分所指元素 >= 右半部分所指元素
                 arr[k] = aux[j++ - l];
@@ -1,8 +1,10 @@
 package SortingAdvanced;
 
 import SortingBasic.InsertionSort;
+import Utils.SortProbe;
 
 import java.util.Arrays;
+import java.util.Comparator;
 
 import static Utils.Helpers.*;
 
@@ -19,26 +21,31 @@ import static Utils.Helpers.*;
  * */
 
 public class MergeSort2 {
-    public static <T extends Comparable<T>> void sort(T[] arr) {
-        sort(arr, 0, arr.length - 1);
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {
+        sort(arr, 0, arr.length - 1, c);
     }
 
-    private static <T extends Comparable<T>> void sort(T[] arr, int l, int r) {
+    private static <T> void sort(T[] arr, int l, int r, Comparator<? super T> c) {
         if (r - l <= 15) {  // 当元素个数 >= 15时，直接采用插入排序（这个优化只会提升对于近有序数组的排序性能）
-            InsertionSort.sortRange(arr, l, r);
+            InsertionSort.sortRange(arr, l, r, c);
             return;
         }
 
         int mid = (r - l) / 2 + l;
-        sort(arr, l, mid);
-        sort(arr, mid + 1, r);
+        SortProbe.enter();
+        sort(arr, l, mid, c);
+        sort(arr, mid + 1, r, c);
+        SortProbe.exit();
 
-        if (arr[mid].compareTo(arr[mid + 1]) > 0)
-            merge(arr, l, mid, r);
+        if (c.compare(arr[mid], arr[mid + 1]) > 0)
+            merge(arr, l, mid, r, c);
     }
 
-    private static <T extends Comparable<T>> void merge(T[] arr, int l, int mid, int r) {
+    private static <T> void merge(T[] arr, int l, int mid, int r, Comparator<? super T> c) {
         T[] aux = Arrays.copyOfRange(arr, l, r + 1);
+        SortProbe.move(2 * (r - l + 1));
         int i = l, j = mid + 1;
 
         for (int k = l; k <= r; k++) {
@@ -46,7 +53,7 @@ public class MergeSort2 {
                 arr[k] = aux[j++ - l];
             else if (j > r)
                 arr[k] = aux[i++ - l];
-            else if (aux[i - l].compareTo(aux[j - l]) < 0)
+            else if (c.compare(aux[i - l], aux[j - l]) < 0)
                 arr[k] = aux[i++ - l];
             else
                 arr[k] = aux[j++ - l];
@@ -65,7 +72,8 @@ public class MergeSort2 {
 //        Integer[] arr1 = generateRandomIntArr(10000);
 //        Integer[] arr2 = arr1.clone();
 //        timeIt(arr1, MergeSort::sort);
-//        timeIt(arr2, MergeSort2::sort);  // 反而比普通的 MergeSort 慢非常多（why？？？？？）
+//        timeIt(arr2, MergeSort2::sort);  // 曾经反而比普通的 MergeSort 慢非常多，原因是 InsertionSort.sortRange 的循环条件写成了
+//                                         // j > 0，元素会越过 l 往前移动，整体退化成 O(n^2)，改为 j > l 之后就正常了
 
         // 性能测试（几乎有序的数组）
         Integer[] arr3 = generateNearlyOrderedArr(100000, 10);
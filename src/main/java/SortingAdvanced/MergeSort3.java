@@ -0,0 +1,132 @@
+package SortingAdvanced;
+
+import SortingBasic.InsertionSort;
+import Utils.DataGenerator;
+import Utils.SortProbe;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static Utils.Helpers.*;
+
+/*
+ * 归并排序优化 —— 只使用一个辅助数组，且不再拷贝回原数组：
+ *
+ * - MergeSort、MergeSort2、MergeSortBottomUp 的问题：
+ *   每次 merge 都要用 Arrays.copyOfRange 新建一个辅助数组，一次排序共分配 O(nlogn) 个元素的空间（每一层都分配了 n 个），
+ *   这些数组用完即成为垃圾，数据量大或者频繁排序时会给 GC 带来很大的压力（young GC 频繁）。并且每次 merge 都要先把 arr[l...r]
+ *   拷贝到辅助数组中，再归并回 arr，每个元素在每一层都被移动两次。
+ *
+ * - 优化1：一次排序只分配一个与原数组等长的辅助数组 aux，所有 merge 都使用它的 [l...r] 区间（不同 merge 使用的区间互不重叠，
+ *   或者在时间上不重叠）。还可以由调用方传入 aux，多次排序重复使用同一个 aux，这样排序本身完全不分配内存。
+ *
+ * - 优化2：在相邻的两层之间交替 arr 和 aux 的角色（ping-pong），省掉拷贝：
+ *   - sort(src, dst, l, r) 的含义是：将 src[l...r] 中的元素排好序后放入 dst[l...r] 中。前提是 src[l...r] 与 dst[l...r] 中
+ *     的元素相同（顺序可以不同）。
+ *   - 它先调用 sort(dst, src, l, mid) 和 sort(dst, src, mid+1, r)，即把两个子区间排好序后放在 src 中（角色互换），再从 src
+ *     归并到 dst 中。这样每一层只有"归并"这一次移动，不需要先拷贝到辅助数组。
+ *   - 递归到底时 src 与 dst 中的元素相同，直接对 dst[l...r] 进行插入排序即可。
+ *   - 最开始先把 arr 拷贝一份到 aux 中（满足前提），再调用 sort(aux, arr, 0, n-1)，结果就在 arr 中。
+ *
+ *       第2层：arr[0...7] <-- merge -- aux[0...3] + aux[4...7]
+ *       第1层：aux[0...3] <-- merge -- arr[0...1] + arr[2...3]，aux[4...7] <-- merge -- arr[4...5] + arr[6...7]
+ *       ……
+ *
+ * - 另外：
+ *   - 同 MergeSort，若 src[mid] <= src[mid+1]，则两个子区间已经有序，此时不需要 merge，但仍要把 src[l...r] 拷贝到 dst 中。
+ *   - merge 时只有右半部分的元素严格小于左半部分的元素时才取右半部分，插入排序也是稳定的，因此整个排序是稳定的。
+ * */
+
+public class MergeSort3 {
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {
+        if (arr.length < 2) return;
+        T[] aux = Arrays.copyOf(arr, arr.length);  // 唯一的一次分配，且 aux 与 arr 中的元素相同
+        sort(aux, arr, 0, arr.length - 1, c);
+    }
+
+    public static <T extends Comparable<T>> void sort(T[] arr, T[] aux) { sort(arr, aux, Comparator.naturalOrder()); }
+
+    // 使用调用方提供的辅助数组（长度不小于 arr.length，原有内容会被覆盖），排序过程中不分配任何内存
+    public static <T> void sort(T[] arr, T[] aux, Comparator<? super T> c) {
+        int n = arr.length;
+        if (aux.length < n)
+            throw new IllegalArgumentException("sort failed. Buffer is smaller than the array.");
+        if (n < 2) return;
+        System.arraycopy(arr, 0, aux, 0, n);
+        SortProbe.move(n);
+        sort(aux, arr, 0, n - 1, c);
+    }
+
+    // 将 src[l...r] 中的元素排好序后放入 dst[l...r] 中，调用前 src[l...r] 与 dst[l...r] 中的元素相同
+    private static <T> void sort(T[] src, T[] dst, int l, int r, Comparator<? super T> c) {
+        if (r - l <= 15) {
+            InsertionSort.sortRange(dst, l, r, c);
+            return;
+        }
+
+        int mid = (r - l) / 2 + l;
+        SortProbe.enter();
+        sort(dst, src, l, mid, c);      // 角色互换：两个子区间排好序后放在 src 中
+        sort(dst, src, mid + 1, r, c);
+        SortProbe.exit();
+
+        if (c.compare(src[mid], src[mid + 1]) <= 0) {  // 已经有序，只需拷贝
+            System.arraycopy(src, l, dst, l, r - l + 1);
+            SortProbe.move(r - l + 1);
+        } else
+            merge(src, dst, l, mid, r, c);
+    }
+
+    // 将 src[l...mid] 和 src[mid+1...r] 归并到 dst[l...r] 中
+    private static <T> void merge(T[] src, T[] dst, int l, int mid, int r, Comparator<? super T> c) {
+        SortProbe.move(r - l + 1);
+        int i = l, j = mid + 1;
+        for (int k = l; k <= r; k++) {
+            if (i > mid)
+                dst[k] = src[j++];
+            else if (j > r)
+                dst[k] = src[i++];
+            else if (c.compare(src[j], src[i]) < 0)  // 只有右半部分严格小于时才取右半部分，保证稳定性
+                dst[k] = src[j++];
+            else
+                dst[k] = src[i++];
+        }
+    }
+
+    private static long allocatedBytes() {  // 当前线程累计分配的字节数（HotSpot 提供的扩展）
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static void main(String[] args) {
+        Integer[] arr = generateRandomIntArr(20);
+        log(arr);
+        sort(arr);
+        log(arr);
+
+        // 性能测试
+        Integer[] arr1 = new DataGenerator().boxed(1000000, DataGenerator.uniform(0, 1000000));
+        Integer[] arr2 = arr1.clone();
+        Integer[] arr3 = arr1.clone();
+        timeIt(arr1, MergeSort2::sort);
+        timeIt(arr2, MergeSort3::sort);  // 运行时间相差不大（主要开销在比较上），区别在于分配的内存从 O(nlogn) 降到了 O(n)
+        log(Arrays.equals(arr1, arr2));
+
+        // 内存分配：多次排序重复使用同一个 aux 时，排序本身不分配任何内存
+        Integer[] aux = new Integer[arr3.length];
+        long overhead = -allocatedBytes() + allocatedBytes();  // allocatedBytes 本身也会分配少量内存，要扣除
+        for (int round = 0; round < 3; round++) {
+            Integer[] a = arr3.clone(), b = arr3.clone();
+            long before = allocatedBytes();
+            MergeSort2.sort(a);
+            long mid = allocatedBytes();
+            sort(b, aux);
+            long after = allocatedBytes();
+            log(String.format("MergeSort2: %d MB allocated, MergeSort3 with a reused buffer: %d bytes allocated",
+                    (mid - before - overhead) >> 20, after - mid - overhead));
+        }
+    }
+}
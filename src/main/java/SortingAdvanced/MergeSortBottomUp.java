@@ -1,6 +1,9 @@
 package SortingAdvanced;
 
+import Utils.SortProbe;
+
 import java.util.Arrays;
+import java.util.Comparator;
 
 import static Utils.Helpers.*;
 
@@ -33,20 +36,23 @@ import static Utils.Helpers.*;
  * */
 
 public class MergeSortBottomUp {
-    public static <T extends Comparable<T>> void sort(T[] arr) {
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {
         for (int step = 1; step <= arr.length; step *= 2) {          // 产生二分的 step 序列：1, 2, 4, 8, ... 对应每组元素个数
             for (int i = 0; i + step < arr.length; i += step * 2) {  // 每次对两个 step 内的元素（即 arr[i...i+step-1] 和 arr[i+step...i+2*step-1]）
                 int l = i;                                           // 进行归并，而 i + step < arr.length 保证了第二段 step 中至少有元素存在。
                 int mid = i + step - 1;
                 int r = Math.min(i + 2 * step - 1, arr.length - 1);  // 剩余元素长度可能不够 step，因此取 min
-                if (arr[mid].compareTo(arr[mid + 1]) > 0)            // 和 MergeSort 中进行相同的优化
-                    merge(arr, l, mid, r);
+                if (c.compare(arr[mid], arr[mid + 1]) > 0)            // 和 MergeSort 中进行相同的优化
+                    merge(arr, l, mid, r, c);
             }
         }
     }
 
-    private static <T extends Comparable<T>> void merge(T[] arr, int l, int mid, int r) {  // merge 方法不变
+    private static <T> void merge(T[] arr, int l, int mid, int r, Comparator<? super T> c) {  // merge 方法不变
         T[] aux = Arrays.copyOfRange(arr, l, r + 1);
+        SortProbe.move(2 * (r - l + 1));
         int i = l, j = mid + 1;
 
         for (int k = l; k <= r; k++) {
@@ -54,7 +60,7 @@ public class MergeSortBottomUp {
                 arr[k] = aux[j++ - l];
             else if (j > r)
                 arr[k] = aux[i++ - l];
-            else if (aux[i - l].compareTo(aux[j - l]) < 0)
+            else if (c.compare(aux[i - l], aux[j - l]) < 0)
                 arr[k] = aux[i++ - l];
             else
                 arr[k] = aux[j++ - l];
@@ -0,0 +1,394 @@
+package SortingAdvanced;
+
+import Utils.CountingComparator;
+import Utils.DataGenerator;
+import Utils.SortProbe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static Utils.Helpers.*;
+
+/*
+ * 多重选择（Multi-Select）：一次求出多个名次上的元素（比如 p50、p90、p99、p999）
+ *
+ * - 问题：
+ *   对 q 个名次分别调用 q 次 IntroSelect.select，每次都要从整个数组重新扫描、partition，复杂度为 O(qn)，前面几次调用
+ *   partition 得到的信息全被浪费了。而全排序是 O(nlogn)，又做了很多不需要的工作。
+ *
+ * - 思路：
+ *   1. 名次数组 ks 是升序的。先对中间的那个名次 ks[mid] 调用 IntroSelect.selectRange，完成后 arr[ks[mid]-1] 就在正确的位置
+ *      上了，且它左边的元素都不大于它、右边的都不小于它。
+ *   2. 于是比 ks[mid] 小的那些名次只需要在左边的区间中查找，比它大的只需要在右边的区间中查找，两边互不相关，分别递归即可。
+ *      不包含任何名次的区间则完全不用管（这正是比全排序省下来的工作）。
+ *   3. 每次都取中间的名次，名次的集合每层减半，因此递归只有 log2(q) 层，而每一层的各个区间互不重叠、加起来不超过 n，
+ *      IntroSelect 又是最坏 O(n) 的，所以整体最坏为 O(nlogq)。q = 4 时大约相当于 2 次 select 的代价，而不是 4 次。
+ *   4. 相同的名次只处理一次；右边的递归改写为循环。
+ *
+ * - 并行（parallelSelect）：
+ *   第 2 步中左右两个区间互不重叠，可以像 ParallelQuickSort3Ways 一样作为两个 Fork/Join 子任务交给不同的线程处理，区间元素
+ *   个数 <= threshold 时在当前线程上串行处理。注意第一层的 selectRange 是对整个数组串行进行的，它本身就占了总工作量中的 O(n)，
+ *   因此加速比远不如并行排序（q 越大、递归的层数越多，并行的部分占比越大）。
+ *
+ * - 接口：
+ *   - select(arr, ks)：ks 中的名次从 1 开始（同 IntroSelect.select），须为升序（允许重复），返回与 ks 一一对应的元素。完成后
+ *     arr 被部分地重新排列。
+ *   - ranks(n, quantiles)：把分位数（如 0.5、0.9、0.99、0.999）按 nearest-rank 方法换算为名次，即 ceil(p * n)，至少为 1。
+ * */
+
+public class MultiSelect {
+    public static final int DEFAULT_THRESHOLD = 1 << 13;
+
+    public static int[] ranks(int n, double... quantiles) {
+        int[] ks = new int[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            if (!(quantiles[i] >= 0 && quantiles[i] <= 1))
+                throw new IllegalArgumentException("ranks failed. Quantile must be within [0, 1].");
+            ks[i] = Math.max(1, (int) Math.ceil(quantiles[i] * n));
+        }
+        return ks;
+    }
+
+    private static void checkRanks(int n, int[] ks) {
+        for (int i = 0; i < ks.length; i++)
+            if (ks[i] < 1 || ks[i] > n || (i > 0 && ks[i] < ks[i - 1]))
+                throw new IllegalArgumentException("select failed. Ranks must be sorted and within bounds.");
+    }
+
+    public static <T extends Comparable<T>> List<T> select(T[] arr, int[] ks) { return select(arr, ks, Comparator.naturalOrder()); }
+
+    public static <T> List<T> select(T[] arr, int[] ks, Comparator<? super T> c) {
+        checkRanks(arr.length, ks);
+        select(arr, 0, arr.length - 1, ks, 0, ks.length - 1, c);
+        return collect(arr, ks);
+    }
+
+    public static int[] select(int[] arr, int[] ks) {
+        checkRanks(arr.length, ks);
+        select(arr, 0, arr.length - 1, ks, 0, ks.length - 1);
+        return collect(arr, ks);
+    }
+
+    public static long[] select(long[] arr, int[] ks) {
+        checkRanks(arr.length, ks);
+        select(arr, 0, arr.length - 1, ks, 0, ks.length - 1);
+        return collect(arr, ks);
+    }
+
+    public static double[] select(double[] arr, int[] ks) {
+        checkRanks(arr.length, ks);
+        select(arr, 0, arr.length - 1, ks, 0, ks.length - 1);
+        return collect(arr, ks);
+    }
+
+    public static <T extends Comparable<T>> List<T> parallelSelect(T[] arr, int[] ks) {
+        return parallelSelect(arr, ks, DEFAULT_THRESHOLD, Comparator.naturalOrder());
+    }
+
+    public static <T> List<T> parallelSelect(T[] arr, int[] ks, Comparator<? super T> c) {
+        return parallelSelect(arr, ks, DEFAULT_THRESHOLD, c);
+    }
+
+    public static <T> List<T> parallelSelect(T[] arr, int[] ks, int threshold, Comparator<? super T> c) {
+        checkRanks(arr.length, ks);
+        if (ks.length > 0)
+            ForkJoinPool.commonPool().invoke(new SelectTask<>(arr, 0, arr.length - 1, ks, 0, ks.length - 1, threshold, c));
+        return collect(arr, ks);
+    }
+
+    public static int[] parallelSelect(int[] arr, int[] ks) { return parallelSelect(arr, ks, DEFAULT_THRESHOLD); }
+
+    public static int[] parallelSelect(int[] arr, int[] ks, int threshold) {
+        checkRanks(arr.length, ks);
+        if (ks.length > 0)
+            ForkJoinPool.commonPool().invoke(new IntSelectTask(arr, 0, arr.length - 1, ks, 0, ks.length - 1, threshold));
+        return collect(arr, ks);
+    }
+
+    public static long[] parallelSelect(long[] arr, int[] ks) { return parallelSelect(arr, ks, DEFAULT_THRESHOLD); }
+
+    public static long[] parallelSelect(long[] arr, int[] ks, int threshold) {
+        checkRanks(arr.length, ks);
+        if (ks.length > 0)
+            ForkJoinPool.commonPool().invoke(new LongSelectTask(arr, 0, arr.length - 1, ks, 0, ks.length - 1, threshold));
+        return collect(arr, ks);
+    }
+
+    public static double[] parallelSelect(double[] arr, int[] ks) { return parallelSelect(arr, ks, DEFAULT_THRESHOLD); }
+
+    public static double[] parallelSelect(double[] arr, int[] ks, int threshold) {
+        checkRanks(arr.length, ks);
+        if (ks.length > 0)
+            ForkJoinPool.commonPool().invoke(new DoubleSelectTask(arr, 0, arr.length - 1, ks, 0, ks.length - 1, threshold));
+        return collect(arr, ks);
+    }
+
+    // 在 arr[l...r] 中求出名次 ks[lo...hi] 上的元素（这些名次都落在 [l+1, r+1] 中）
+    private static <T> void select(T[] arr, int l, int r, int[] ks, int lo, int hi, Comparator<? super T> c) {
+        while (lo <= hi) {
+            int mid = (hi - lo) / 2 + lo;
+            int m = ks[mid] - 1;
+            IntroSelect.selectRange(arr, l, r, m, c);
+
+            int a = mid, b = mid;  // ks[a...b] 都等于 ks[mid]，只需处理一次
+            while (a > lo && ks[a - 1] == ks[mid]) a--;
+            while (b < hi && ks[b + 1] == ks[mid]) b++;
+
+            SortProbe.enter();
+            select(arr, l, m - 1, ks, lo, a - 1, c);  // 左边的名次在 arr[l...m-1] 中递归求解
+            SortProbe.exit();
+            l = m + 1;                                // 右边的名次在 arr[m+1...r] 中循环求解
+            lo = b + 1;
+        }
+    }
+
+    private static void select(int[] arr, int l, int r, int[] ks, int lo, int hi) {
+        while (lo <= hi) {
+            int mid = (hi - lo) / 2 + lo;
+            int m = ks[mid] - 1;
+            IntroSelect.selectRange(arr, l, r, m);
+
+            int a = mid, b = mid;
+            while (a > lo && ks[a - 1] == ks[mid]) a--;
+            while (b < hi && ks[b + 1] == ks[mid]) b++;
+
+            select(arr, l, m - 1, ks, lo, a - 1);
+            l = m + 1;
+            lo = b + 1;
+        }
+    }
+
+    private static void select(long[] arr, int l, int r, int[] ks, int lo, int hi) {
+        while (lo <= hi) {
+            int mid = (hi - lo) / 2 + lo;
+            int m = ks[mid] - 1;
+            IntroSelect.selectRange(arr, l, r, m);
+
+            int a = mid, b = mid;
+            while (a > lo && ks[a - 1] == ks[mid]) a--;
+            while (b < hi && ks[b + 1] == ks[mid]) b++;
+
+            select(arr, l, m - 1, ks, lo, a - 1);
+            l = m + 1;
+            lo = b + 1;
+        }
+    }
+
+    private static void select(double[] arr, int l, int r, int[] ks, int lo, int hi) {
+        while (lo <= hi) {
+            int mid = (hi - lo) / 2 + lo;
+            int m = ks[mid] - 1;
+            IntroSelect.selectRange(arr, l, r, m);
+
+            int a = mid, b = mid;
+            while (a > lo && ks[a - 1] == ks[mid]) a--;
+            while (b < hi && ks[b + 1] == ks[mid]) b++;
+
+            select(arr, l, m - 1, ks, lo, a - 1);
+            l = m + 1;
+            lo = b + 1;
+        }
+    }
+
+    private static <T> List<T> collect(T[] arr, int[] ks) {
+        List<T> result = new ArrayList<>(ks.length);
+        for (int k : ks)
+            result.add(arr[k - 1]);
+        return result;
+    }
+
+    private static int[] collect(int[] arr, int[] ks) {
+        int[] result = new int[ks.length];
+        for (int i = 0; i < ks.length; i++)
+            result[i] = arr[ks[i] - 1];
+        return result;
+    }
+
+    private static long[] collect(long[] arr, int[] ks) {
+        long[] result = new long[ks.length];
+        for (int i = 0; i < ks.length; i++)
+            result[i] = arr[ks[i] - 1];
+        return result;
+    }
+
+    private static double[] collect(double[] arr, int[] ks) {
+        double[] result = new double[ks.length];
+        for (int i = 0; i < ks.length; i++)
+            result[i] = arr[ks[i] - 1];
+        return result;
+    }
+
+    @SuppressWarnings("serial")
+    private static class SelectTask<T> extends RecursiveAction {
+        private final T[] arr;
+        private final int l, r, lo, hi, threshold;
+        private final int[] ks;
+        private final Comparator<? super T> c;
+
+        SelectTask(T[] arr, int l, int r, int[] ks, int lo, int hi, int threshold, Comparator<? super T> c) {
+            this.arr = arr; this.l = l; this.r = r; this.ks = ks; this.lo = lo; this.hi = hi; this.threshold = threshold; this.c = c;
+        }
+
+        @Override
+        protected void compute() {
+            if (r - l + 1 <= threshold) {
+                select(arr, l, r, ks, lo, hi, c);
+                return;
+            }
+            int mid = (hi - lo) / 2 + lo;
+            int m = ks[mid] - 1;
+            IntroSelect.selectRange(arr, l, r, m, c);
+
+            int a = mid, b = mid;
+            while (a > lo && ks[a - 1] == ks[mid]) a--;
+            while (b < hi && ks[b + 1] == ks[mid]) b++;
+
+            if (a > lo && b < hi)
+                invokeAll(new SelectTask<>(arr, l, m - 1, ks, lo, a - 1, threshold, c),
+                          new SelectTask<>(arr, m + 1, r, ks, b + 1, hi, threshold, c));
+            else if (a > lo)
+                new SelectTask<>(arr, l, m - 1, ks, lo, a - 1, threshold, c).compute();
+            else if (b < hi)
+                new SelectTask<>(arr, m + 1, r, ks, b + 1, hi, threshold, c).compute();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class IntSelectTask extends RecursiveAction {
+        private final int[] arr;
+        private final int l, r, lo, hi, threshold;
+        private final int[] ks;
+
+        IntSelectTask(int[] arr, int l, int r, int[] ks, int lo, int hi, int threshold) {
+            this.arr = arr; this.l = l; this.r = r; this.ks = ks; this.lo = lo; this.hi = hi; this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (r - l + 1 <= threshold) {
+                select(arr, l, r, ks, lo, hi);
+                return;
+            }
+            int mid = (hi - lo) / 2 + lo;
+            int m = ks[mid] - 1;
+            IntroSelect.selectRange(arr, l, r, m);
+
+            int a = mid, b = mid;
+            while (a > lo && ks[a - 1] == ks[mid]) a--;
+            while (b < hi && ks[b + 1] == ks[mid]) b++;
+
+            if (a > lo && b < hi)
+                invokeAll(new IntSelectTask(arr, l, m - 1, ks, lo, a - 1, threshold),
+                          new IntSelectTask(arr, m + 1, r, ks, b + 1, hi, threshold));
+            else if (a > lo)
+                new IntSelectTask(arr, l, m - 1, ks, lo, a - 1, threshold).compute();
+            else if (b < hi)
+                new IntSelectTask(arr, m + 1, r, ks, b + 1, hi, threshold).compute();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class LongSelectTask extends RecursiveAction {
+        private final long[] arr;
+        private final int l, r, lo, hi, threshold;
+        private final int[] ks;
+
+        LongSelectTask(long[] arr, int l, int r, int[] ks, int lo, int hi, int threshold) {
+            this.arr = arr; this.l = l; this.r = r; this.ks = ks; this.lo = lo; this.hi = hi; this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (r - l + 1 <= threshold) {
+                select(arr, l, r, ks, lo, hi);
+                return;
+            }
+            int mid = (hi - lo) / 2 + lo;
+            int m = ks[mid] - 1;
+            IntroSelect.selectRange(arr, l, r, m);
+
+            int a = mid, b = mid;
+            while (a > lo && ks[a - 1] == ks[mid]) a--;
+            while (b < hi && ks[b + 1] == ks[mid]) b++;
+
+            if (a > lo && b < hi)
+                invokeAll(new LongSelectTask(arr, l, m - 1, ks, lo, a - 1, threshold),
+                          new LongSelectTask(arr, m + 1, r, ks, b + 1, hi, threshold));
+            else if (a > lo)
+                new LongSelectTask(arr, l, m - 1, ks, lo, a - 1, threshold).compute();
+            else if (b < hi)
+                new LongSelectTask(arr, m + 1, r, ks, b + 1, hi, threshold).compute();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class DoubleSelectTask extends RecursiveAction {
+        private final double[] arr;
+        private final int l, r, lo, hi, threshold;
+        private final int[] ks;
+
+        DoubleSelectTask(double[] arr, int l, int r, int[] ks, int lo, int hi, int threshold) {
+            this.arr = arr; this.l = l; this.r = r; this.ks = ks; this.lo = lo; this.hi = hi; this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (r - l + 1 <= threshold) {
+                select(arr, l, r, ks, lo, hi);
+                return;
+            }
+            int mid = (hi - lo) / 2 + lo;
+            int m = ks[mid] - 1;
+            IntroSelect.selectRange(arr, l, r, m);
+
+            int a = mid, b = mid;
+            while (a > lo && ks[a - 1] == ks[mid]) a--;
+            while (b < hi && ks[b + 1] == ks[mid]) b++;
+
+            if (a > lo && b < hi)
+                invokeAll(new DoubleSelectTask(arr, l, m - 1, ks, lo, a - 1, threshold),
+                          new DoubleSelectTask(arr, m + 1, r, ks, b + 1, hi, threshold));
+            else if (a > lo)
+                new DoubleSelectTask(arr, l, m - 1, ks, lo, a - 1, threshold).compute();
+            else if (b < hi)
+                new DoubleSelectTask(arr, m + 1, r, ks, b + 1, hi, threshold).compute();
+        }
+    }
+
+    public static void main(String[] args) {
+        Integer[] arr = generateRandomIntArr(20);
+        log(arr);
+        log(select(arr, new int[] {1, 5, 10, 10, 20}));
+        log(arr);
+
+        // 比较次数：p50、p90、p99、p999 一次求出 vs. 调用 4 次 IntroSelect.select
+        int n = 1000000;
+        int[] ks = ranks(n, 0.5, 0.9, 0.99, 0.999);
+        Integer[] arr1 = new DataGenerator(42).boxed(n, DataGenerator.uniform(0, n));
+        Integer[] arr2 = arr1.clone();
+        CountingComparator<Integer> c1 = CountingComparator.naturalOrder(), c2 = CountingComparator.naturalOrder();
+        List<Integer> expected = new ArrayList<>();
+        for (int k : ks)
+            expected.add(IntroSelect.select(arr1, k, c1));
+        List<Integer> actual = select(arr2, ks, c2);
+        log(String.format("4 x IntroSelect.select: %d comparisons, MultiSelect.select: %d comparisons", c1.getCount(), c2.getCount()));
+        log(expected.equals(actual));
+
+        // 性能测试：1000 万个 double 上求 p50、p90、p99、p999
+        n = 10000000;
+        int[] ks2 = ranks(n, 0.5, 0.9, 0.99, 0.999);
+        double[] arr3 = new DataGenerator(42).doubles(n, DataGenerator.gaussian(100, 20));
+        double[] arr4 = arr3.clone();
+        double[] arr5 = arr3.clone();
+        double[] arr6 = arr3.clone();
+        timeIt(arr3, a -> Arrays.sort(a));
+        timeIt(arr4, a -> { for (int k : ks2) IntroSelect.select(a, k); });
+        timeIt(arr5, a -> select(a, ks2));
+        timeIt(arr6, a -> parallelSelect(a, ks2));  // 与核数有关，第一层的 selectRange 是串行的
+        log(Arrays.equals(collect(arr3, ks2), collect(arr5, ks2)) && Arrays.equals(collect(arr3, ks2), collect(arr6, ks2)));
+    }
+}
@@ -0,0 +1,377 @@
+package SortingAdvanced;
+
+import SortingBasic.InsertionSort;
+import Utils.SortProbe;
+
+import java.util.Comparator;
+
+import static Utils.Helpers.*;
+
+/*
+ * 自然归并排序（Natural Merge Sort，TimSort 风格）：
+ *
+ * - 问题：
+ *   MergeSortBottomUp 不管数据是什么样子，都是机械地按 step = 1, 2, 4, 8... 进行 log(n) 遍归并。而实际中很多数据本身就
+ *   是部分有序的（追加写入的日志、偶尔有几条迟到记录的时间序列，即 generateNearlyOrderedArr 模拟的情况），对这种数据仍然
+ *   做满 log(n) 遍就很浪费。
+ *
+ * - 思路（Tim Peters, 2002，也是 JDK 中 Arrays.sort 对对象数组使用的算法）：
+ *   仍然是自底向上的归并，但归并的单位不再是固定长度的 step，而是数据中天然存在的有序片段（run）：
+ *     8 9 10 11 | 3 2 1 | 4 5 6 7 12    --->   [8 9 10 11]  [1 2 3]  [4 5 6 7 12]   --->   归并这3个 run
+ *   1. 找 run：从左往右扫描，找到最长的非降序片段；若是严格降序的片段，则原地翻转成升序（要求"严格"降序是为了翻转后
+ *      不会打乱相等元素的相对顺序，保证稳定性）。
+ *   2. 补齐短 run：若找到的 run 长度不足 minRun（32~64 之间，使 n / minRun 接近2的幂，让后面的归并更平衡），则用二分插入
+ *      排序把后面的元素补进来，凑够 minRun 个。二分插入排序就是 InsertionSort.sort2，只是用二分查找来找插入位置，比较次数
+ *      从 O(k) 降到 O(logk)。
+ *   3. run 栈：每找到一个 run 就压入栈中，并检查栈顶三个 run 的长度 X、Y、Z（Z 在栈顶）是否满足：
+ *        X > Y + Z  且  Y > Z
+ *      若不满足就归并（Y 与 X、Z 中较短的那个归并），直到满足为止。这个不变量保证栈中 run 的长度至少像斐波那契数列一样增长，
+ *      因此栈深度是 O(logn) 的，且每次归并的两个 run 长度相当（类似于 MergeSort 中二分得到的两部分）。
+ *   4. 扫描结束后，将栈中剩余的 run 从栈顶开始依次归并。
+ *
+ * - 归并过程中的优化：
+ *   1. 归并前先裁剪：左 run 中 <= 右 run 第一个元素的前缀、右 run 中 >= 左 run 最后一个元素的后缀都已经在正确的位置上了，
+ *      不需要参与归并（MergeSort 中 arr[mid] <= arr[mid+1] 时不 merge 的优化是它的特例）。
+ *   2. 辅助空间只需要较短的那个 run 的大小：若左 run 较短，则把左 run 拷贝出去，从左往右归并（mergeLo）；否则把右 run
+ *      拷贝出去，从右往左归并（mergeHi）。辅助数组在整个排序过程中复用。
+ *   3. 飞奔模式（galloping）：归并时若某一个 run 连续 minGallop 次"获胜"，说明这两个 run 的数据可能是成块交错的，此时改用
+ *      指数搜索 + 二分查找直接找到这一块的边界，再用 System.arraycopy 整块拷贝，而不是一个一个地比较。飞奔效果不好时（每次
+ *      找到的块都很短）退回普通模式，并调高 minGallop，使下次更难进入飞奔模式。
+ *
+ * - 复杂度：
+ *   - 完全有序或完全逆序的数据只有一个 run，只需扫描一遍，O(n)；
+ *   - 近乎有序的数据只有少量的 run，接近 O(n)；
+ *   - 最坏情况仍然是 O(nlogn)，且是稳定排序。
+ * */
+
+public class NaturalMergeSort<T> {
+    private static final int MIN_MERGE = 64;   // 元素个数小于此值时直接用二分插入排序
+    private static final int MIN_GALLOP = 7;   // 进入飞奔模式的初始阈值
+
+    private final T[] arr;
+    private final Comparator<? super T> c;
+    private T[] tmp;                           // 归并用的辅助数组，按需扩容，在整个排序过程中复用
+    private int minGallop = MIN_GALLOP;
+
+    private final int[] runBase = new int[64];  // run 栈（依靠上面的不变量，栈深度不会超过 log_φ(n)，64 足够）
+    private final int[] runLen = new int[64];
+    private int stackSize = 0;
+
+    private NaturalMergeSort(T[] arr, Comparator<? super T> c) {
+        this.arr = arr;
+        this.c = c;
+    }
+
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {
+        int n = arr.length;
+        if (n < 2) return;
+        if (n < MIN_MERGE) {  // 数据量小时只有一个 run，补齐即可
+            binarySort(arr, 0, n, countRunAndMakeAscending(arr, 0, n, c), c);
+            return;
+        }
+
+        NaturalMergeSort<T> ts = new NaturalMergeSort<>(arr, c);
+        int minRun = minRunLength(n);
+        int lo = 0, remaining = n;
+        do {
+            int len = countRunAndMakeAscending(arr, lo, n, c);
+            if (len < minRun) {  // run 太短，用二分插入排序补齐到 minRun（或剩余元素个数）
+                int force = Math.min(minRun, remaining);
+                binarySort(arr, lo, lo + force, lo + len, c);
+                len = force;
+            }
+            ts.pushRun(lo, len);
+            ts.mergeCollapse();
+            lo += len;
+            remaining -= len;
+        } while (remaining != 0);
+
+        ts.mergeForceCollapse();
+    }
+
+    // 从 lo 开始找到一个 run 并返回其长度（不超过 hi），若是严格降序则原地翻转成升序
+    private static <T> int countRunAndMakeAscending(T[] arr, int lo, int hi, Comparator<? super T> c) {
+        int runHi = lo + 1;
+        if (runHi == hi) return 1;
+
+        if (c.compare(arr[runHi++], arr[lo]) < 0) {  // 严格降序
+            while (runHi < hi && c.compare(arr[runHi], arr[runHi - 1]) < 0) runHi++;
+            reverse(arr, lo, runHi - 1);
+        } else {                                    // 非降序
+            while (runHi < hi && c.compare(arr[runHi], arr[runHi - 1]) >= 0) runHi++;
+        }
+        return runHi - lo;
+    }
+
+    private static <T> void reverse(T[] arr, int l, int r) {
+        while (l < r) {
+            SortProbe.swap();
+            T temp = arr[l];
+            arr[l++] = arr[r];
+            arr[r--] = temp;
+        }
+    }
+
+    // 二分插入排序：arr[lo...start-1] 已经有序，将 arr[start...hi-1] 逐个插入进去
+    private static <T> void binarySort(T[] arr, int lo, int hi, int start, Comparator<? super T> c) {
+        for (; start < hi; start++) {
+            T e = arr[start];
+            int l = lo, r = start;  // 在 arr[l...r) 中找第一个 > e 的位置（插入到相等元素之后，保证稳定性）
+            while (l < r) {
+                int mid = (r - l) / 2 + l;
+                if (c.compare(e, arr[mid]) < 0) r = mid;
+                else l = mid + 1;
+            }
+            System.arraycopy(arr, l, arr, l + 1, start - l);
+            arr[l] = e;
+            SortProbe.move(start - l + 1);
+        }
+    }
+
+    // 若 n < 64 则返回 n；否则返回 [32, 64] 之间的一个数 k，使得 n / k 等于或略小于2的幂
+    private static int minRunLength(int n) {
+        int r = 0;  // 只要 n 的低位中有一个1被移出，r 就为1
+        while (n >= MIN_MERGE) {
+            r |= (n & 1);
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    private void pushRun(int base, int len) {
+        runBase[stackSize] = base;
+        runLen[stackSize] = len;
+        stackSize++;
+    }
+
+    // 检查栈顶的 run 是否满足不变量 runLen[i-2] > runLen[i-1] + runLen[i] 且 runLen[i-1] > runLen[i]，不满足就归并
+    private void mergeCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if ((n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1]) ||
+                (n > 1 && runLen[n - 2] <= runLen[n - 1] + runLen[n])) {
+                if (runLen[n - 1] < runLen[n + 1])  // Y 与 X、Z 中较短的那个归并
+                    n--;
+                mergeAt(n);
+            } else if (runLen[n] <= runLen[n + 1]) {
+                mergeAt(n);
+            } else {
+                break;
+            }
+        }
+    }
+
+    private void mergeForceCollapse() {  // 扫描结束后，将栈中剩余的 run 全部归并
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] < runLen[n + 1])
+                n--;
+            mergeAt(n);
+        }
+    }
+
+    // 归并栈中第 i 个和第 i+1 个 run
+    private void mergeAt(int i) {
+        int base1 = runBase[i], len1 = runLen[i];
+        int base2 = runBase[i + 1], len2 = runLen[i + 1];
+
+        runLen[i] = len1 + len2;  // 归并后的 run 放在第 i 个位置上，若 i+1 不是栈顶，则将栈顶的 run 往下挪一个位置
+        if (i == stackSize - 3) {
+            runBase[i + 1] = runBase[i + 2];
+            runLen[i + 1] = runLen[i + 2];
+        }
+        stackSize--;
+
+        int k = countLeading(arr[base2], arr, base1, len1, false);  // 左 run 中 <= 右 run 第一个元素的前缀已在正确位置上
+        base1 += k;
+        len1 -= k;
+        if (len1 == 0) return;
+
+        len2 -= countTrailing(arr[base1 + len1 - 1], arr, base2, len2, false);  // 右 run 中 >= 左 run 最后一个元素的后缀已在正确位置上
+        if (len2 == 0) return;
+
+        if (len1 <= len2)
+            mergeLo(base1, len1, base2, len2);
+        else
+            mergeHi(base1, len1, base2, len2);
+    }
+
+    // 左 run 较短：将左 run 拷贝到 tmp 中，从左往右归并
+    private void mergeLo(int base1, int len1, int base2, int len2) {
+        T[] a = arr, t = ensureCapacity(len1);
+        System.arraycopy(a, base1, t, 0, len1);
+
+        int i = 0, j = base2, dest = base1;  // i 指向 tmp 中的左 run，j 指向 arr 中的右 run
+        int end2 = base2 + len2;
+
+        outer:
+        while (true) {
+            int count1 = 0, count2 = 0;  // 左、右 run 连续"获胜"的次数
+            while (true) {               // 普通模式：逐个比较
+                if (c.compare(a[j], t[i]) < 0) {  // 只有右 run 的元素严格小于时才取右 run，保证稳定性
+                    a[dest++] = a[j++];
+                    count2++;
+                    count1 = 0;
+                    if (j == end2) break outer;
+                } else {
+                    a[dest++] = t[i++];
+                    count1++;
+                    count2 = 0;
+                    if (i == len1) break outer;
+                }
+                if (count1 >= minGallop || count2 >= minGallop) break;
+            }
+
+            do {  // 飞奔模式：直接找到一整块的边界，整块拷贝
+                count1 = countLeading(a[j], t, i, len1 - i, false);  // 左 run 中 <= a[j] 的元素个数
+                System.arraycopy(t, i, a, dest, count1);
+                dest += count1;
+                i += count1;
+                if (i == len1) break outer;
+                a[dest++] = a[j++];                                   // 此时 t[i] > a[j]
+                if (j == end2) break outer;
+
+                count2 = countLeading(t[i], a, j, end2 - j, true);   // 右 run 中 < t[i] 的元素个数
+                System.arraycopy(a, j, a, dest, count2);
+                dest += count2;
+                j += count2;
+                if (j == end2) break outer;
+                a[dest++] = t[i++];                                   // 此时 a[j] >= t[i]
+                if (i == len1) break outer;
+
+                if (minGallop > 1) minGallop--;  // 飞奔有效，降低进入飞奔模式的门槛
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+            minGallop += 2;                      // 飞奔效果不好，退回普通模式，并提高门槛
+        }
+
+        if (i < len1)  // 若左 run 还有剩余，拷贝回去；若右 run 还有剩余，它们已经在正确的位置上了
+            System.arraycopy(t, i, a, dest, len1 - i);
+        SortProbe.move(len1 + (dest - base1) + (len1 - i));  // 拷贝到 tmp，以及写回 a[base1...] 的元素
+    }
+
+    // 右 run 较短：将右 run 拷贝到 tmp 中，从右往左归并
+    private void mergeHi(int base1, int len1, int base2, int len2) {
+        T[] a = arr, t = ensureCapacity(len2);
+        System.arraycopy(a, base2, t, 0, len2);
+
+        int i = base1 + len1 - 1, j = len2 - 1, dest = base2 + len2 - 1;  // i 指向 arr 中的左 run，j 指向 tmp 中的右 run
+
+        outer:
+        while (true) {
+            int count1 = 0, count2 = 0;
+            while (true) {
+                if (c.compare(t[j], a[i]) < 0) {  // 只有左 run 的元素严格大于时才取左 run 放到右边，保证稳定性
+                    a[dest--] = a[i--];
+                    count1++;
+                    count2 = 0;
+                    if (i < base1) break outer;
+                } else {
+                    a[dest--] = t[j--];
+                    count2++;
+                    count1 = 0;
+                    if (j < 0) break outer;
+                }
+                if (count1 >= minGallop || count2 >= minGallop) break;
+            }
+
+            do {
+                count1 = countTrailing(t[j], a, base1, i - base1 + 1, true);  // 左 run 中 > t[j] 的元素个数
+                dest -= count1;
+                i -= count1;
+                System.arraycopy(a, i + 1, a, dest + 1, count1);
+                if (i < base1) break outer;
+                a[dest--] = t[j--];                                           // 此时 a[i] <= t[j]
+                if (j < 0) break outer;
+
+                count2 = countTrailing(a[i], t, 0, j + 1, false);            // 右 run 中 >= a[i] 的元素个数
+                dest -= count2;
+                j -= count2;
+                System.arraycopy(t, j + 1, a, dest + 1, count2);
+                if (j < 0) break outer;
+                a[dest--] = a[i--];                                           // 此时 t[j] < a[i]
+                if (i < base1) break outer;
+
+                if (minGallop > 1) minGallop--;
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+            minGallop += 2;
+        }
+
+        if (j >= 0)
+            System.arraycopy(t, 0, a, dest - j, j + 1);
+        SortProbe.move(len2 + (base2 + len2 - 1 - dest) + (j + 1));
+    }
+
+    // 飞奔：在有序的 arr[base...base+len-1] 中，从左往右指数搜索 + 二分查找，返回开头连续 < key（strict）或 <= key 的元素个数
+    private int countLeading(T key, T[] arr, int base, int len, boolean strict) {
+        int lo = 0, ofs = 1;  // 已知前 lo 个元素都满足条件，依次试探 ofs = 1, 3, 7, 15...
+        while (ofs <= len && satisfies(arr[base + ofs - 1], key, strict, true)) {
+            lo = ofs;
+            ofs = ofs * 2 + 1;
+        }
+        int hi = Math.min(ofs - 1, len);  // 答案在 [lo, hi] 之间
+        while (lo < hi) {
+            int mid = (hi - lo + 1) / 2 + lo;
+            if (satisfies(arr[base + mid - 1], key, strict, true)) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    // 同上，但从右往左搜索，返回末尾连续 > key（strict）或 >= key 的元素个数
+    private int countTrailing(T key, T[] arr, int base, int len, boolean strict) {
+        int lo = 0, ofs = 1;
+        while (ofs <= len && satisfies(arr[base + len - ofs], key, strict, false)) {
+            lo = ofs;
+            ofs = ofs * 2 + 1;
+        }
+        int hi = Math.min(ofs - 1, len);
+        while (lo < hi) {
+            int mid = (hi - lo + 1) / 2 + lo;
+            if (satisfies(arr[base + len - mid], key, strict, false)) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    private boolean satisfies(T e, T key, boolean strict, boolean less) {
+        int cmp = c.compare(e, key);
+        if (less) return strict ? cmp < 0 : cmp <= 0;
+        return strict ? cmp > 0 : cmp >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T[] ensureCapacity(int minCapacity) {
+        if (tmp == null || tmp.length < minCapacity)
+            tmp = (T[]) new Object[Math.max(minCapacity, Math.min(arr.length / 2, minCapacity * 2))];
+        return tmp;
+    }
+
+    public static void main(String[] args) {
+        Integer[] arr = generateRandomIntArr(20);
+        log(arr);
+        sort(arr);
+        log(arr);
+
+        // 性能测试
+        Integer[] arr1 = generateNearlyOrderedArr(1000000, 10);  // 近乎有序的数据
+        Integer[] arr2 = arr1.clone();
+        Integer[] arr3 = arr1.clone();
+        Integer[] arr4 = arr1.clone();
+        timeIt(arr1, MergeSortBottomUp::sort);
+        timeIt(arr2, MergeSort2::sort);
+        timeIt(arr3, InsertionSort::sort2);
+        timeIt(arr4, NaturalMergeSort::sort);  // 比 MergeSortBottomUp 快一个数量级
+
+        Integer[] arr5 = generateNearlyOrderedArr(1000000, 0);  // 完全有序的数据，只扫描一遍，O(n)
+        reverse(arr5, 0, arr5.length - 1);                      // 翻转成完全逆序的数据，同样只有一个 run
+        timeIt(arr5, NaturalMergeSort::sort);
+
+        Integer[] arr6 = generateRandomIntArr(1000000);  // 完全随机的数据，没有明显的 run，与普通的归并排序相当
+        Integer[] arr7 = arr6.clone();
+        timeIt(arr6, MergeSort2::sort);
+        timeIt(arr7, NaturalMergeSort::sort);
+        log(isSorted(arr7));
+    }
+}
@@ -0,0 +1,490 @@
+package SortingAdvanced;
+
+import SortingBasic.InsertionSort;
+import Utils.SortProbe;
+
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static Utils.Helpers.*;
+
+/*
+ * 并行归并排序（Parallel Merge Sort）：
+ *
+ * - MergeSort 和 MergeSortBottomUp 都是单线程的，而归并排序天然适合并行化：递归树中左右两棵子树的排序互不相关，可以分别交给
+ *   不同的线程去做。这里使用 Java 的 Fork/Join 框架（ForkJoinPool + RecursiveAction）实现：
+ *   1. fork：把左半部分的排序作为一个子任务交给线程池，当前线程继续处理右半部分；
+ *   2. join：等左右两部分都排完之后再进行 merge。
+ *
+ * - 只并行"分"是不够的：
+ *   - 如果 merge 仍然是串行的，那么最顶层的 merge 就要由一个线程处理全部 n 个元素，次顶层的两个 merge 各处理 n/2 个元素……
+ *     此时整体的关键路径（span）是 n + n/2 + n/4 + ... = O(n)，即不管有多少个核，时间都不会少于串行 merge 一遍数组的时间。
+ *   - 因此 merge 过程也要并行化。并行 merge 的思路（二分查找切分）：
+ *       A: [ ......≤x...... | x | ......≥x...... ]      取较长的那一段的中间元素 x，
+ *       B: [ ......<x...... | ........≥x........ ]      在另一段中用二分查找找到 x 应该插入的位置，
+ *     于是两段都被切成了"小于 x 的部分"和"大于 x 的部分"，x 的最终位置也就确定了。之后"左左"归并、"右右"归并就是两个互不
+ *     相关的子问题，可以再 fork 出去。这样 merge 的 span 降为 O(log²n)。
+ *   - 稳定性：若 x 取自左段 A，则在 B 中找第一个 >= x 的位置（B 中等于 x 的元素都放到 x 右边）；若 x 取自右段 B，则在 A 中
+ *     找第一个 > x 的位置（A 中等于 x 的元素都放到 x 左边）。这样等值元素之间仍然保持"左段在前、右段在后"的顺序，排序是稳定的。
+ *
+ * - 避免来回拷贝：
+ *   MergeSort 中每次 merge 前都要把 arr[l...r] 拷贝到辅助数组中，这个拷贝本身也是串行的 O(n)。这里开辟一个与 arr 等长的辅助
+ *   数组 aux，让 arr 和 aux 在递归的每一层交替作为 merge 的源和目标（目标是 arr 的那一层，其子问题的结果就放在 aux 中，反之
+ *   亦然），这样每个元素在每一层只被写一次，不需要额外的拷贝。
+ *
+ * - 串行阈值（cutoff）：
+ *   任务太小时 fork 的开销会超过并行带来的收益，因此元素个数 <= cutoff 时直接在当前线程上串行处理（排序时用串行的归并排序，
+ *   其中 <= 16 个元素时用 InsertionSort.sortRange；merge 时用普通的串行 merge）。默认 cutoff 为 8192，可以通过 sort 的
+ *   重载方法指定。
+ * */
+
+public class ParallelMergeSort {
+    public static final int DEFAULT_CUTOFF = 1 << 13;
+
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, DEFAULT_CUTOFF); }
+
+    public static <T extends Comparable<T>> void sort(T[] arr, int cutoff) { sort(arr, cutoff, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) { sort(arr, DEFAULT_CUTOFF, c); }
+
+    public static <T> void sort(T[] arr, int cutoff, Comparator<? super T> c) {
+        if (arr.length < 2) return;
+        ForkJoinPool.commonPool().invoke(new SortTask<>(arr, arr.clone(), 0, arr.length - 1, false, Math.max(cutoff, 16), c));
+    }
+
+    public static void sort(int[] arr) { sort(arr, DEFAULT_CUTOFF); }
+
+    public static void sort(int[] arr, int cutoff) {
+        if (arr.length < 2) return;
+        ForkJoinPool.commonPool().invoke(new IntSortTask(arr, new int[arr.length], 0, arr.length - 1, false, Math.max(cutoff, 16)));
+    }
+
+    public static void sort(long[] arr) { sort(arr, DEFAULT_CUTOFF); }
+
+    public static void sort(long[] arr, int cutoff) {
+        if (arr.length < 2) return;
+        ForkJoinPool.commonPool().invoke(new LongSortTask(arr, new long[arr.length], 0, arr.length - 1, false, Math.max(cutoff, 16)));
+    }
+
+    public static void sort(double[] arr) { sort(arr, DEFAULT_CUTOFF); }
+
+    public static void sort(double[] arr, int cutoff) {
+        if (arr.length < 2) return;
+        ForkJoinPool.commonPool().invoke(new DoubleSortTask(arr, new double[arr.length], 0, arr.length - 1, false, Math.max(cutoff, 16)));
+    }
+
+    // 对 a[l...r] 排序，结果放在 toB ? b : a 中。左右子问题的结果放在另一个数组中，再 merge 回目标数组
+    @SuppressWarnings("serial")
+    private static class SortTask<T> extends RecursiveAction {
+        private final T[] a, b;
+        private final int l, r, cutoff;
+        private final boolean toB;
+        private final Comparator<? super T> c;
+
+        SortTask(T[] a, T[] b, int l, int r, boolean toB, int cutoff, Comparator<? super T> c) {
+            this.a = a; this.b = b; this.l = l; this.r = r; this.toB = toB; this.cutoff = cutoff; this.c = c;
+        }
+
+        @Override
+        protected void compute() {
+            if (r - l + 1 <= cutoff) {  // 串行排序：此时另一个数组的 [l...r] 区间是空闲的，正好用作辅助空间
+                if (toB) {
+                    System.arraycopy(a, l, b, l, r - l + 1);
+                    SortProbe.move(r - l + 1);
+                    sequentialSort(b, a, l, r, c);
+                } else
+                    sequentialSort(a, b, l, r, c);
+                return;
+            }
+            int mid = (r - l) / 2 + l;
+            T[] src = toB ? a : b, dst = toB ? b : a;  // 子问题的结果在 src 中，本层的结果放到 dst 中
+            invokeAll(new SortTask<>(a, b, l, mid, !toB, cutoff, c),
+                      new SortTask<>(a, b, mid + 1, r, !toB, cutoff, c));
+            if (c.compare(src[mid], src[mid + 1]) <= 0) {  // 和 MergeSort 中进行相同的优化，已经有序时不需要 merge，直接拷贝过去
+                System.arraycopy(src, l, dst, l, r - l + 1);
+                SortProbe.move(r - l + 1);
+            } else
+                new MergeTask<>(src, dst, l, mid, mid + 1, r, l, cutoff, c).compute();
+        }
+    }
+
+    // 将 src[l1...r1] 和 src[l2...r2] 这两个有序区间归并到 dst[k...] 中，其中 [l1...r1] 在原数组中位于 [l2...r2] 的左侧
+    @SuppressWarnings("serial")
+    private static class MergeTask<T> extends RecursiveAction {
+        private final T[] src, dst;
+        private final int l1, r1, l2, r2, k, cutoff;
+        private final Comparator<? super T> c;
+
+        MergeTask(T[] src, T[] dst, int l1, int r1, int l2, int r2, int k, int cutoff, Comparator<? super T> c) {
+            this.src = src; this.dst = dst; this.l1 = l1; this.r1 = r1; this.l2 = l2; this.r2 = r2; this.k = k; this.cutoff = cutoff; this.c = c;
+        }
+
+        @Override
+        protected void compute() {
+            int n1 = r1 - l1 + 1, n2 = r2 - l2 + 1;
+            if (n1 + n2 <= cutoff || n1 == 0 || n2 == 0) {
+                merge(src, dst, l1, r1, l2, r2, k, c);
+                return;
+            }
+            int m1, m2;  // 切分后，src[l1...m1-1] 和 src[l2...m2-1] 归并到左边，其余的归并到右边
+            if (n1 >= n2) {
+                m1 = (r1 - l1) / 2 + l1;                    // 取左段的中间元素 x = src[m1]
+                m2 = lowerBound(src, l2, r2, src[m1], c);   // 右段中第一个 >= x 的位置
+                dst[k + (m1 - l1) + (m2 - l2)] = src[m1];   // x 的最终位置已经确定
+                SortProbe.move(1);
+                invokeAll(new MergeTask<>(src, dst, l1, m1 - 1, l2, m2 - 1, k, cutoff, c),
+                          new MergeTask<>(src, dst, m1 + 1, r1, m2, r2, k + (m1 - l1) + (m2 - l2) + 1, cutoff, c));
+            } else {
+                m2 = (r2 - l2) / 2 + l2;                    // 取右段的中间元素 x = src[m2]
+                m1 = upperBound(src, l1, r1, src[m2], c);   // 左段中第一个 > x 的位置
+                dst[k + (m1 - l1) + (m2 - l2)] = src[m2];
+                SortProbe.move(1);
+                invokeAll(new MergeTask<>(src, dst, l1, m1 - 1, l2, m2 - 1, k, cutoff, c),
+                          new MergeTask<>(src, dst, m1, r1, m2 + 1, r2, k + (m1 - l1) + (m2 - l2) + 1, cutoff, c));
+            }
+        }
+    }
+
+    private static <T> void sequentialSort(T[] arr, T[] aux, int l, int r, Comparator<? super T> c) {  // 对 arr[l...r] 进行串行归并排序，aux[l...r] 作为辅助空间
+        if (r - l <= 15) {
+            InsertionSort.sortRange(arr, l, r, c);
+            return;
+        }
+        int mid = (r - l) / 2 + l;
+        SortProbe.enter();
+        sequentialSort(arr, aux, l, mid, c);
+        sequentialSort(arr, aux, mid + 1, r, c);
+        SortProbe.exit();
+        if (c.compare(arr[mid], arr[mid + 1]) > 0) {
+            System.arraycopy(arr, l, aux, l, r - l + 1);
+            SortProbe.move(r - l + 1);
+            merge(aux, arr, l, mid, mid + 1, r, l, c);
+        }
+    }
+
+    private static <T> void merge(T[] src, T[] dst, int l1, int r1, int l2, int r2, int k, Comparator<? super T> c) {
+        SortProbe.move(r1 - l1 + 1 + r2 - l2 + 1);
+        int i = l1, j = l2;
+        while (i <= r1 && j <= r2)
+            dst[k++] = c.compare(src[j], src[i]) < 0 ? src[j++] : src[i++];  // 只有右段元素严格小于左段元素时才先取右段，保证稳定性
+        while (i <= r1) dst[k++] = src[i++];
+        while (j <= r2) dst[k++] = src[j++];
+    }
+
+    private static <T> int lowerBound(T[] arr, int l, int r, T x, Comparator<? super T> c) {  // arr[l...r] 中第一个 >= x 的位置，不存在则返回 r+1
+        int hi = r + 1;
+        while (l < hi) {
+            int mid = (hi - l) / 2 + l;
+            if (c.compare(arr[mid], x) < 0) l = mid + 1;
+            else hi = mid;
+        }
+        return l;
+    }
+
+    private static <T> int upperBound(T[] arr, int l, int r, T x, Comparator<? super T> c) {  // arr[l...r] 中第一个 > x 的位置，不存在则返回 r+1
+        int hi = r + 1;
+        while (l < hi) {
+            int mid = (hi - l) / 2 + l;
+            if (c.compare(arr[mid], x) <= 0) l = mid + 1;
+            else hi = mid;
+        }
+        return l;
+    }
+
+    @SuppressWarnings("serial")
+    private static class IntSortTask extends RecursiveAction {
+        private final int[] a, b;
+        private final int l, r, cutoff;
+        private final boolean toB;
+
+        IntSortTask(int[] a, int[] b, int l, int r, boolean toB, int cutoff) {
+            this.a = a; this.b = b; this.l = l; this.r = r; this.toB = toB; this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            if (r - l + 1 <= cutoff) {
+                if (toB) {
+                    System.arraycopy(a, l, b, l, r - l + 1);
+                    SortingPrimitive.MergeSort.sortRange(b, a, l, r);
+                } else
+                    SortingPrimitive.MergeSort.sortRange(a, b, l, r);
+                return;
+            }
+            int mid = (r - l) / 2 + l;
+            int[] src = toB ? a : b, dst = toB ? b : a;
+            invokeAll(new IntSortTask(a, b, l, mid, !toB, cutoff),
+                      new IntSortTask(a, b, mid + 1, r, !toB, cutoff));
+            if (src[mid] <= src[mid + 1])
+                System.arraycopy(src, l, dst, l, r - l + 1);
+            else
+                new IntMergeTask(src, dst, l, mid, mid + 1, r, l, cutoff).compute();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class IntMergeTask extends RecursiveAction {
+        private final int[] src, dst;
+        private final int l1, r1, l2, r2, k, cutoff;
+
+        IntMergeTask(int[] src, int[] dst, int l1, int r1, int l2, int r2, int k, int cutoff) {
+            this.src = src; this.dst = dst; this.l1 = l1; this.r1 = r1; this.l2 = l2; this.r2 = r2; this.k = k; this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            int n1 = r1 - l1 + 1, n2 = r2 - l2 + 1;
+            if (n1 + n2 <= cutoff || n1 == 0 || n2 == 0) {
+                merge(src, dst, l1, r1, l2, r2, k);
+                return;
+            }
+            int m1, m2;
+            if (n1 >= n2) {
+                m1 = (r1 - l1) / 2 + l1;
+                m2 = lowerBound(src, l2, r2, src[m1]);
+                dst[k + (m1 - l1) + (m2 - l2)] = src[m1];
+                invokeAll(new IntMergeTask(src, dst, l1, m1 - 1, l2, m2 - 1, k, cutoff),
+                          new IntMergeTask(src, dst, m1 + 1, r1, m2, r2, k + (m1 - l1) + (m2 - l2) + 1, cutoff));
+            } else {
+                m2 = (r2 - l2) / 2 + l2;
+                m1 = upperBound(src, l1, r1, src[m2]);
+                dst[k + (m1 - l1) + (m2 - l2)] = src[m2];
+                invokeAll(new IntMergeTask(src, dst, l1, m1 - 1, l2, m2 - 1, k, cutoff),
+                          new IntMergeTask(src, dst, m1, r1, m2 + 1, r2, k + (m1 - l1) + (m2 - l2) + 1, cutoff));
+            }
+        }
+    }
+
+    private static void merge(int[] src, int[] dst, int l1, int r1, int l2, int r2, int k) {
+        int i = l1, j = l2;
+        while (i <= r1 && j <= r2)
+            dst[k++] = src[j] < src[i] ? src[j++] : src[i++];
+        while (i <= r1) dst[k++] = src[i++];
+        while (j <= r2) dst[k++] = src[j++];
+    }
+
+    private static int lowerBound(int[] arr, int l, int r, int x) {
+        int hi = r + 1;
+        while (l < hi) {
+            int mid = (hi - l) / 2 + l;
+            if (arr[mid] < x) l = mid + 1;
+            else hi = mid;
+        }
+        return l;
+    }
+
+    private static int upperBound(int[] arr, int l, int r, int x) {
+        int hi = r + 1;
+        while (l < hi) {
+            int mid = (hi - l) / 2 + l;
+            if (arr[mid] <= x) l = mid + 1;
+            else hi = mid;
+        }
+        return l;
+    }
+
+    @SuppressWarnings("serial")
+    private static class LongSortTask extends RecursiveAction {
+        private final long[] a, b;
+        private final int l, r, cutoff;
+        private final boolean toB;
+
+        LongSortTask(long[] a, long[] b, int l, int r, boolean toB, int cutoff) {
+            this.a = a; this.b = b; this.l = l; this.r = r; this.toB = toB; this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            if (r - l + 1 <= cutoff) {
+                if (toB) {
+                    System.arraycopy(a, l, b, l, r - l + 1);
+                    SortingPrimitive.MergeSort.sortRange(b, a, l, r);
+                } else
+                    SortingPrimitive.MergeSort.sortRange(a, b, l, r);
+                return;
+            }
+            int mid = (r - l) / 2 + l;
+            long[] src = toB ? a : b, dst = toB ? b : a;
+            invokeAll(new LongSortTask(a, b, l, mid, !toB, cutoff),
+                      new LongSortTask(a, b, mid + 1, r, !toB, cutoff));
+            if (src[mid] <= src[mid + 1])
+                System.arraycopy(src, l, dst, l, r - l + 1);
+            else
+                new LongMergeTask(src, dst, l, mid, mid + 1, r, l, cutoff).compute();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class LongMergeTask extends RecursiveAction {
+        private final long[] src, dst;
+        private final int l1, r1, l2, r2, k, cutoff;
+
+        LongMergeTask(long[] src, long[] dst, int l1, int r1, int l2, int r2, int k, int cutoff) {
+            this.src = src; this.dst = dst; this.l1 = l1; this.r1 = r1; this.l2 = l2; this.r2 = r2; this.k = k; this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            int n1 = r1 - l1 + 1, n2 = r2 - l2 + 1;
+            if (n1 + n2 <= cutoff || n1 == 0 || n2 == 0) {
+                merge(src, dst, l1, r1, l2, r2, k);
+                return;
+            }
+            int m1, m2;
+            if (n1 >= n2) {
+                m1 = (r1 - l1) / 2 + l1;
+                m2 = lowerBound(src, l2, r2, src[m1]);
+                dst[k + (m1 - l1) + (m2 - l2)] = src[m1];
+                invokeAll(new LongMergeTask(src, dst, l1, m1 - 1, l2, m2 - 1, k, cutoff),
+                          new LongMergeTask(src, dst, m1 + 1, r1, m2, r2, k + (m1 - l1) + (m2 - l2) + 1, cutoff));
+            } else {
+                m2 = (r2 - l2) / 2 + l2;
+                m1 = upperBound(src, l1, r1, src[m2]);
+                dst[k + (m1 - l1) + (m2 - l2)] = src[m2];
+                invokeAll(new LongMergeTask(src, dst, l1, m1 - 1, l2, m2 - 1, k, cutoff),
+                          new LongMergeTask(src, dst, m1, r1, m2 + 1, r2, k + (m1 - l1) + (m2 - l2) + 1, cutoff));
+            }
+        }
+    }
+
+    private static void merge(long[] src, long[] dst, int l1, int r1, int l2, int r2, int k) {
+        int i = l1, j = l2;
+        while (i <= r1 && j <= r2)
+            dst[k++] = src[j] < src[i] ? src[j++] : src[i++];
+        while (i <= r1) dst[k++] = src[i++];
+        while (j <= r2) dst[k++] = src[j++];
+    }
+
+    private static int lowerBound(long[] arr, int l, int r, long x) {
+        int hi = r + 1;
+        while (l < hi) {
+            int mid = (hi - l) / 2 + l;
+            if (arr[mid] < x) l = mid + 1;
+            else hi = mid;
+        }
+        return l;
+    }
+
+    private static int upperBound(long[] arr, int l, int r, long x) {
+        int hi = r + 1;
+        while (l < hi) {
+            int mid = (hi - l) / 2 + l;
+            if (arr[mid] <= x) l = mid + 1;
+            else hi = mid;
+        }
+        return l;
+    }
+
+    @SuppressWarnings("serial")
+    private static class DoubleSortTask extends RecursiveAction {
+        private final double[] a, b;
+        private final int l, r, cutoff;
+        private final boolean toB;
+
+        DoubleSortTask(double[] a, double[] b, int l, int r, boolean toB, int cutoff) {
+            this.a = a; this.b = b; this.l = l; this.r = r; this.toB = toB; this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            if (r - l + 1 <= cutoff) {
+                if (toB) {
+                    System.arraycopy(a, l, b, l, r - l + 1);
+                    SortingPrimitive.MergeSort.sortRange(b, a, l, r);
+                } else
+                    SortingPrimitive.MergeSort.sortRange(a, b, l, r);
+                return;
+            }
+            int mid = (r - l) / 2 + l;
+            double[] src = toB ? a : b, dst = toB ? b : a;
+            invokeAll(new DoubleSortTask(a, b, l, mid, !toB, cutoff),
+                      new DoubleSortTask(a, b, mid + 1, r, !toB, cutoff));
+            if (src[mid] <= src[mid + 1])
+                System.arraycopy(src, l, dst, l, r - l + 1);
+            else
+                new DoubleMergeTask(src, dst, l, mid, mid + 1, r, l, cutoff).compute();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class DoubleMergeTask extends RecursiveAction {
+        private final double[] src, dst;
+        private final int l1, r1, l2, r2, k, cutoff;
+
+        DoubleMergeTask(double[] src, double[] dst, int l1, int r1, int l2, int r2, int k, int cutoff) {
+            this.src = src; this.dst = dst; this.l1 = l1; this.r1 = r1; this.l2 = l2; this.r2 = r2; this.k = k; this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            int n1 = r1 - l1 + 1, n2 = r2 - l2 + 1;
+            if (n1 + n2 <= cutoff || n1 == 0 || n2 == 0) {
+                merge(src, dst, l1, r1, l2, r2, k);
+                return;
+            }
+            int m1, m2;
+            if (n1 >= n2) {
+                m1 = (r1 - l1) / 2 + l1;
+                m2 = lowerBound(src, l2, r2, src[m1]);
+                dst[k + (m1 - l1) + (m2 - l2)] = src[m1];
+                invokeAll(new DoubleMergeTask(src, dst, l1, m1 - 1, l2, m2 - 1, k, cutoff),
+                          new DoubleMergeTask(src, dst, m1 + 1, r1, m2, r2, k + (m1 - l1) + (m2 - l2) + 1, cutoff));
+            } else {
+                m2 = (r2 - l2) / 2 + l2;
+                m1 = upperBound(src, l1, r1, src[m2]);
+                dst[k + (m1 - l1) + (m2 - l2)] = src[m2];
+                invokeAll(new DoubleMergeTask(src, dst, l1, m1 - 1, l2, m2 - 1, k, cutoff),
+                          new DoubleMergeTask(src, dst, m1, r1, m2 + 1, r2, k + (m1 - l1) + (m2 - l2) + 1, cutoff));
+            }
+        }
+    }
+
+    private static void merge(double[] src, double[] dst, int l1, int r1, int l2, int r2, int k) {
+        int i = l1, j = l2;
+        while (i <= r1 && j <= r2)
+            dst[k++] = src[j] < src[i] ? src[j++] : src[i++];
+        while (i <= r1) dst[k++] = src[i++];
+        while (j <= r2) dst[k++] = src[j++];
+    }
+
+    private static int lowerBound(double[] arr, int l, int r, double x) {
+        int hi = r + 1;
+        while (l < hi) {
+            int mid = (hi - l) / 2 + l;
+            if (arr[mid] < x) l = mid + 1;
+            else hi = mid;
+        }
+        return l;
+    }
+
+    private static int upperBound(double[] arr, int l, int r, double x) {
+        int hi = r + 1;
+        while (l < hi) {
+            int mid = (hi - l) / 2 + l;
+            if (arr[mid] <= x) l = mid + 1;
+            else hi = mid;
+        }
+        return l;
+    }
+
+    public static void main(String[] args) {
+        Integer[] arr = generateRandomIntArr(20);
+        log(arr);
+        sort(arr, 4);  // cutoff 取一个很小的值，让小数组也走并行的 fork 和 merge 过程
+        log(arr);
+
+        // 性能测试
+        Integer[] arr1 = generateRandomIntArr(2000000);
+        Integer[] arr2 = arr1.clone();
+        timeIt(arr1, MergeSort2::sort);
+        timeIt(arr2, ParallelMergeSort::sort);  // 与核数有关：单核时与 MergeSort2 基本持平，核数越多提升越明显
+        log(isSorted(arr2));
+
+        int[] arr3 = toIntArr(generateRandomIntArr(10000000));
+        int[] arr4 = arr3.clone();
+        timeIt(arr3, SortingPrimitive.MergeSort::sort);
+        timeIt(arr4, ParallelMergeSort::sort);
+        log(isSorted(arr4));
+    }
+}
@@ -0,0 +1,286 @@
+package SortingAdvanced;
+
+import SortingBasic.InsertionSort;
+import Utils.SortProbe;
+
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static Utils.Helpers.*;
+
+/*
+ * 并行三路快速排序（Parallel 3-way Quick Sort）：
+ *
+ * - 三路快排 partition 之后，< v 和 > v 这两个区间的排序互不相关，因此可以像 ParallelMergeSort 一样把它们作为两个
+ *   Fork/Join 子任务交给不同的线程处理；而 == v 的区间已经在正确的位置上了，不需要再处理。对于包含大量重复元素的数据（状态码、
+ *   分桶 ID 等），== v 的区间很大，三路快排本身就比其他排序快很多，并行化之后可以再接近线性地随核数提升。
+ * - 只有区间元素个数 > threshold 时才 fork，否则在当前线程上串行排序（fork 的开销比排一个小区间还大）。默认 threshold 为 8192。
+ *
+ * - 与 QuickSort3Ways 的其他不同：
+ *   1. 随机数：QuickSort3Ways 每次 partition 都会 new 一个 Random，在多线程下既有分配开销，又会因为 Random 内部的 CAS 而
+ *      互相竞争。这里使用 ThreadLocalRandom，每个线程一个随机数源，无分配、无竞争。
+ *   2. partition 的返回值：QuickSort3Ways.partition 每次都 new 一个 int[] {lt, gt} 来返回两个索引。这里把两个 int 打包到
+ *      一个 long 中返回（高32位为 lt，低32位为 gt），不需要任何分配：
+ *        packed = ((long) lt << 32) | (gt & 0xFFFFFFFFL)
+ *        lt = (int) (packed >> 32)，gt = (int) packed
+ *   3. 区间元素个数 <= 16 时改用插入排序。
+ * */
+
+public class ParallelQuickSort3Ways {
+    public static final int DEFAULT_THRESHOLD = 1 << 13;
+
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, DEFAULT_THRESHOLD); }
+
+    public static <T extends Comparable<T>> void sort(T[] arr, int threshold) { sort(arr, threshold, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) { sort(arr, DEFAULT_THRESHOLD, c); }
+
+    public static <T> void sort(T[] arr, int threshold, Comparator<? super T> c) {
+        if (arr.length < 2) return;
+        ForkJoinPool.commonPool().invoke(new SortTask<>(arr, 0, arr.length - 1, Math.max(threshold, 16), c));
+    }
+
+    public static void sort(int[] arr) { sort(arr, DEFAULT_THRESHOLD); }
+
+    public static void sort(int[] arr, int threshold) {
+        if (arr.length < 2) return;
+        ForkJoinPool.commonPool().invoke(new IntSortTask(arr, 0, arr.length - 1, Math.max(threshold, 16)));
+    }
+
+    public static void sort(long[] arr) { sort(arr, DEFAULT_THRESHOLD); }
+
+    public static void sort(long[] arr, int threshold) {
+        if (arr.length < 2) return;
+        ForkJoinPool.commonPool().invoke(new LongSortTask(arr, 0, arr.length - 1, Math.max(threshold, 16)));
+    }
+
+    public static void sort(double[] arr) { sort(arr, DEFAULT_THRESHOLD); }
+
+    public static void sort(double[] arr, int threshold) {
+        if (arr.length < 2) return;
+        ForkJoinPool.commonPool().invoke(new DoubleSortTask(arr, 0, arr.length - 1, Math.max(threshold, 16)));
+    }
+
+    @SuppressWarnings("serial")
+    private static class SortTask<T> extends RecursiveAction {
+        private final T[] arr;
+        private final int l, r, threshold;
+        private final Comparator<? super T> c;
+
+        SortTask(T[] arr, int l, int r, int threshold, Comparator<? super T> c) {
+            this.arr = arr; this.l = l; this.r = r; this.threshold = threshold; this.c = c;
+        }
+
+        @Override
+        protected void compute() {
+            if (r - l + 1 <= threshold) {
+                sequentialSort(arr, l, r, c);
+                return;
+            }
+            long ps = partition(arr, l, r, c);
+            invokeAll(new SortTask<>(arr, l, lt(ps), threshold, c),   // 对 arr[l...lt]（即 < v 的所有元素）进行排序
+                      new SortTask<>(arr, gt(ps), r, threshold, c));  // 对 arr[gt...r]（即 > v 的所有元素）进行排序
+        }
+    }
+
+    private static <T> void sequentialSort(T[] arr, int l, int r, Comparator<? super T> c) {
+        if (r - l <= 15) {
+            InsertionSort.sortRange(arr, l, r, c);
+            return;
+        }
+        long ps = partition(arr, l, r, c);
+        SortProbe.enter();
+        sequentialSort(arr, l, lt(ps), c);
+        sequentialSort(arr, gt(ps), r, c);
+        SortProbe.exit();
+    }
+
+    private static <T> long partition(T[] arr, int l, int r, Comparator<? super T> c) {  // 与 QuickSort3Ways.partition 一致，只是返回值打包成了 long
+        swap(arr, l, ThreadLocalRandom.current().nextInt(l, r + 1));
+        T v = arr[l];
+        int lt = l, gt = r + 1, i = l + 1;
+
+        while (i < gt) {
+            int cmp = c.compare(arr[i], v);  // 只比较一次，QuickSort3Ways 中 arr[i] > v 的情况要比较两次
+            if (cmp < 0)
+                swap(arr, i++, ++lt);
+            else if (cmp > 0)
+                swap(arr, i, --gt);
+            else
+                i++;
+        }
+        swap(arr, l, lt);
+        return pack(lt - 1, gt);
+    }
+
+    private static long pack(int lt, int gt) { return ((long) lt << 32) | (gt & 0xFFFFFFFFL); }
+
+    private static int lt(long packed) { return (int) (packed >> 32); }
+
+    private static int gt(long packed) { return (int) packed; }
+
+    // 不做边界检查的 swap（调用方已保证索引合法）。类中声明的 swap 会遮蔽 static import 进来的 Helpers.swap
+    private static <T> void swap(T[] arr, int i, int j) {
+        SortProbe.swap();
+        T temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    @SuppressWarnings("serial")
+    private static class IntSortTask extends RecursiveAction {
+        private final int[] arr;
+        private final int l, r, threshold;
+
+        IntSortTask(int[] arr, int l, int r, int threshold) {
+            this.arr = arr; this.l = l; this.r = r; this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (r - l + 1 <= threshold) {
+                SortingPrimitive.QuickSort3Ways.sortRange(arr, l, r);
+                return;
+            }
+            long ps = partition(arr, l, r);
+            invokeAll(new IntSortTask(arr, l, lt(ps), threshold),
+                      new IntSortTask(arr, gt(ps), r, threshold));
+        }
+    }
+
+    private static long partition(int[] arr, int l, int r) {
+        swap(arr, l, ThreadLocalRandom.current().nextInt(l, r + 1));
+        int v = arr[l];
+        int lt = l, gt = r + 1, i = l + 1;
+
+        while (i < gt) {
+            if (arr[i] < v)
+                swap(arr, i++, ++lt);
+            else if (arr[i] > v)
+                swap(arr, i, --gt);
+            else
+                i++;
+        }
+        swap(arr, l, lt);
+        return pack(lt - 1, gt);
+    }
+
+    private static void swap(int[] arr, int i, int j) {
+        SortProbe.swap();
+        int temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    @SuppressWarnings("serial")
+    private static class LongSortTask extends RecursiveAction {
+        private final long[] arr;
+        private final int l, r, threshold;
+
+        LongSortTask(long[] arr, int l, int r, int threshold) {
+            this.arr = arr; this.l = l; this.r = r; this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (r - l + 1 <= threshold) {
+                SortingPrimitive.QuickSort3Ways.sortRange(arr, l, r);
+                return;
+            }
+            long ps = partition(arr, l, r);
+            invokeAll(new LongSortTask(arr, l, lt(ps), threshold),
+                      new LongSortTask(arr, gt(ps), r, threshold));
+        }
+    }
+
+    private static long partition(long[] arr, int l, int r) {
+        swap(arr, l, ThreadLocalRandom.current().nextInt(l, r + 1));
+        long v = arr[l];
+        int lt = l, gt = r + 1, i = l + 1;
+
+        while (i < gt) {
+            if (arr[i] < v)
+                swap(arr, i++, ++lt);
+            else if (arr[i] > v)
+                swap(arr, i, --gt);
+            else
+                i++;
+        }
+        swap(arr, l, lt);
+        return pack(lt - 1, gt);
+    }
+
+    private static void swap(long[] arr, int i, int j) {
+        SortProbe.swap();
+        long temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    @SuppressWarnings("serial")
+    private static class DoubleSortTask extends RecursiveAction {
+        private final double[] arr;
+        private final int l, r, threshold;
+
+        DoubleSortTask(double[] arr, int l, int r, int threshold) {
+            this.arr = arr; this.l = l; this.r = r; this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (r - l + 1 <= threshold) {
+                SortingPrimitive.QuickSort3Ways.sortRange(arr, l, r);
+                return;
+            }
+            long ps = partition(arr, l, r);
+            invokeAll(new DoubleSortTask(arr, l, lt(ps), threshold),
+                      new DoubleSortTask(arr, gt(ps), r, threshold));
+        }
+    }
+
+    private static long partition(double[] arr, int l, int r) {
+        swap(arr, l, ThreadLocalRandom.current().nextInt(l, r + 1));
+        double v = arr[l];
+        int lt = l, gt = r + 1, i = l + 1;
+
+        while (i < gt) {
+            if (arr[i] < v)
+                swap(arr, i++, ++lt);
+            else if (arr[i] > v)
+                swap(arr, i, --gt);
+            else
+                i++;
+        }
+        swap(arr, l, lt);
+        return pack(lt - 1, gt);
+    }
+
+    private static void swap(double[] arr, int i, int j) {
+        SortProbe.swap();
+        double temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    public static void main(String[] args) {
+        Integer[] arr = generateRandomIntArr(20);
+        log(arr);
+        sort(arr, 4);
+        log(arr);
+
+        // 性能测试（包含大量重复的数据集）
+        Integer[] arr1 = generateRandomArrayFromRange(2000000, 0, 100);
+        Integer[] arr2 = arr1.clone();
+        timeIt(arr1, QuickSort3Ways::sort);
+        timeIt(arr2, ParallelQuickSort3Ways::sort);  // 与核数有关，核数越多提升越明显
+        log(isSorted(arr2));
+
+        int[] arr3 = toIntArr(generateRandomArrayFromRange(10000000, 0, 100));
+        int[] arr4 = arr3.clone();
+        timeIt(arr3, SortingPrimitive.QuickSort3Ways::sort);
+        timeIt(arr4, ParallelQuickSort3Ways::sort);
+        log(isSorted(arr4));
+    }
+}
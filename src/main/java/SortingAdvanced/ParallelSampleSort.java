@@ -0,0 +1,363 @@
+package SortingAdvanced;
+
+import Utils.DataGenerator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+
+import static Utils.Helpers.*;
+
+/*
+ * 并行样本排序（Parallel Sample Sort，Super Scalar Sample Sort 风格）：
+ *
+ * - 问题：
+ *   ParallelMergeSort 最后几层的 merge 参与的线程越来越少（最后一层虽然也拆成了多个子任务，但每一层都要把全部 n 个元素读写
+ *   一遍），log(n / cutoff) 层下来，数据在内存中来回搬了十几遍，核数多时瓶颈在内存带宽上。ParallelQuickSort3Ways 的第一次
+ *   partition 则只能由一个线程完成。
+ *
+ * - 思路：与快排相同，先"分"再各自排序，但一次分成 k 个桶（bucket），且分的过程本身也是并行的，所有数据只搬一遍：
+ *   1. 采样（oversampling）：随机抽取 k * OVERSAMPLING 个样本排序，每隔 OVERSAMPLING 个取一个作为分割点（splitter），共
+ *      k - 1 个。多抽样本是为了让分割点更接近真实的分位数，使各个桶的大小更均衡。
+ *   2. 分类（classification）：把数组分成若干块，每块由一个任务处理。对每个元素找到它所属的桶，记入 oracle 数组（每个元素
+ *      一个字节），同时统计本块中每个桶的元素个数（每个任务一个直方图，互不干扰，不需要同步）。
+ *      找桶用的是一棵隐式的二叉搜索树：分割点按中序遍历的顺序放进 tree[1...k-1]（节点 j 的孩子为 2j 和 2j+1），从根开始
+ *        j = 2 * j + (tree[j] < x ? 1 : 0)
+ *      走 log2(k) 步，最后 j - k 就是 < x 的分割点的个数，即桶的编号。每一步的比较结果直接参与下标的计算，而不是决定走哪个
+ *      分支（JIT 会编译成 setcc/cmov），因此没有分支预测失败；且树只有 k - 1 个元素，一直在 L1 cache 中。
+ *   3. 相等桶（equality bucket）：每个桶 b 再按 x == splitter[b] 拆成两个，编号为 2b 和 2b + 1。重复元素很多时，等于某个
+ *      分割点的元素都进入相等桶，相等桶里的元素都相等，不需要再排序；否则它们会集中在一个桶中，使该桶很大。
+ *   4. 分发（scatter）：对所有块的直方图做前缀和，得到每个块的每个桶在辅助数组中的起始位置，各个任务再把本块的元素按 oracle
+ *      直接写到辅助数组中对应的位置上（不需要重新分类）。这是唯一的一遍数据搬移。
+ *   5. 各个桶互不相关，并行地拷贝回原数组后用已有的串行排序（DualPivotQuickSort.sortRange）排序。
+ *
+ * - 参数：
+ *   - 桶的个数 k 为 2 的幂，使每个桶的期望大小不小于 threshold，且不超过 MAX_BUCKETS（加上相等桶共 256 个，oracle 用一个
+ *     byte 即可）；元素个数不到 2 * threshold 时直接串行排序。默认 threshold 为 8192。
+ *   - 块的个数为线程数的 4 倍（且每块至少 threshold 个元素），使各个线程的负载更均衡。
+ *   - 需要 n 个元素的辅助数组和 n 个字节的 oracle，与 ParallelMergeSort 相同，不是原地排序（原地的变种见 IPS4o，需要按块
+ *     交换，复杂得多）。
+ *
+ * - 样本排序不是稳定的；double 版本同 SortingPrimitive，不支持 NaN。
+ * */
+
+public class ParallelSampleSort {
+    public static final int DEFAULT_THRESHOLD = 1 << 13;
+    private static final int LOG_MAX_BUCKETS = 7;
+    private static final int MAX_BUCKETS = 1 << LOG_MAX_BUCKETS;
+    private static final int OVERSAMPLING = 16;
+
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, DEFAULT_THRESHOLD); }
+
+    public static <T extends Comparable<T>> void sort(T[] arr, int threshold) { sort(arr, threshold, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) { sort(arr, DEFAULT_THRESHOLD, c); }
+
+    public static <T> void sort(T[] arr, int threshold, Comparator<? super T> c) {
+        int n = arr.length, k = buckets(n, threshold);
+        if (k < 2) {
+            DualPivotQuickSort.sortRange(arr, 0, n - 1, c);
+            return;
+        }
+
+        T[] sample = Arrays.copyOf(arr, k * OVERSAMPLING);  // 1. 采样
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < sample.length; i++)
+            sample[i] = arr[random.nextInt(n)];
+        DualPivotQuickSort.sortRange(sample, 0, sample.length - 1, c);
+        T[] splitters = Arrays.copyOf(arr, k), tree = Arrays.copyOf(arr, k);
+        int[] layout = treeLayout(k);
+        for (int i = 0; i < k - 1; i++)
+            splitters[i] = sample[(i + 1) * OVERSAMPLING];
+        splitters[k - 1] = splitters[k - 2];  // 最后一个桶中的元素都 > splitters[k-2]，不可能与它相等
+        for (int j = 1; j < k; j++)
+            tree[j] = splitters[layout[j]];
+
+        int blocks = blocks(n, threshold), levels = Integer.numberOfTrailingZeros(k);
+        byte[] oracle = new byte[n];
+        int[][] counts = new int[blocks][2 * k];
+        parallelFor(blocks, b -> {  // 2. 分类，每个块一个直方图
+            int[] count = counts[b];
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                T x = arr[i];
+                int j = 1;
+                for (int level = 0; level < levels; level++)
+                    j = 2 * j + (c.compare(tree[j], x) < 0 ? 1 : 0);
+                int e = 2 * (j - k) + (c.compare(splitters[j - k], x) == 0 ? 1 : 0);  // 3. 相等桶
+                oracle[i] = (byte) e;
+                count[e]++;
+            }
+        });
+
+        int[] starts = prefixSums(counts);
+        T[] aux = Arrays.copyOf(arr, n);
+        parallelFor(blocks, b -> {  // 4. 分发
+            int[] offset = counts[b];
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++)
+                aux[offset[oracle[i] & 0xFF]++] = arr[i];
+        });
+        parallelFor(2 * k, e -> {   // 5. 各个桶拷贝回原数组后分别排序，相等桶不需要排序
+            int l = starts[e], r = starts[e + 1] - 1;
+            System.arraycopy(aux, l, arr, l, r - l + 1);
+            if ((e & 1) == 0 && r > l)
+                DualPivotQuickSort.sortRange(arr, l, r, c);
+        });
+    }
+
+    public static void sort(int[] arr) { sort(arr, DEFAULT_THRESHOLD); }
+
+    public static void sort(int[] arr, int threshold) {
+        int n = arr.length, k = buckets(n, threshold);
+        if (k < 2) {
+            DualPivotQuickSort.sortRange(arr, 0, n - 1);
+            return;
+        }
+
+        int[] sample = new int[k * OVERSAMPLING];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < sample.length; i++)
+            sample[i] = arr[random.nextInt(n)];
+        DualPivotQuickSort.sortRange(sample, 0, sample.length - 1);
+        int[] splitters = new int[k], tree = new int[k], layout = treeLayout(k);
+        for (int i = 0; i < k - 1; i++)
+            splitters[i] = sample[(i + 1) * OVERSAMPLING];
+        splitters[k - 1] = splitters[k - 2];
+        for (int j = 1; j < k; j++)
+            tree[j] = splitters[layout[j]];
+
+        int blocks = blocks(n, threshold), levels = Integer.numberOfTrailingZeros(k);
+        byte[] oracle = new byte[n];
+        int[][] counts = new int[blocks][2 * k];
+        parallelFor(blocks, b -> {
+            int[] count = counts[b];
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                int x = arr[i], j = 1;
+                for (int level = 0; level < levels; level++)
+                    j = 2 * j + (tree[j] < x ? 1 : 0);
+                int e = 2 * (j - k) + (splitters[j - k] == x ? 1 : 0);
+                oracle[i] = (byte) e;
+                count[e]++;
+            }
+        });
+
+        int[] starts = prefixSums(counts);
+        int[] aux = new int[n];
+        parallelFor(blocks, b -> {
+            int[] offset = counts[b];
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++)
+                aux[offset[oracle[i] & 0xFF]++] = arr[i];
+        });
+        parallelFor(2 * k, e -> {
+            int l = starts[e], r = starts[e + 1] - 1;
+            System.arraycopy(aux, l, arr, l, r - l + 1);
+            if ((e & 1) == 0 && r > l)
+                DualPivotQuickSort.sortRange(arr, l, r);
+        });
+    }
+
+    public static void sort(long[] arr) { sort(arr, DEFAULT_THRESHOLD); }
+
+    public static void sort(long[] arr, int threshold) {
+        int n = arr.length, k = buckets(n, threshold);
+        if (k < 2) {
+            DualPivotQuickSort.sortRange(arr, 0, n - 1);
+            return;
+        }
+
+        long[] sample = new long[k * OVERSAMPLING];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < sample.length; i++)
+            sample[i] = arr[random.nextInt(n)];
+        DualPivotQuickSort.sortRange(sample, 0, sample.length - 1);
+        long[] splitters = new long[k], tree = new long[k];
+        int[] layout = treeLayout(k);
+        for (int i = 0; i < k - 1; i++)
+            splitters[i] = sample[(i + 1) * OVERSAMPLING];
+        splitters[k - 1] = splitters[k - 2];
+        for (int j = 1; j < k; j++)
+            tree[j] = splitters[layout[j]];
+
+        int blocks = blocks(n, threshold), levels = Integer.numberOfTrailingZeros(k);
+        byte[] oracle = new byte[n];
+        int[][] counts = new int[blocks][2 * k];
+        parallelFor(blocks, b -> {
+            int[] count = counts[b];
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                long x = arr[i];
+                int j = 1;
+                for (int level = 0; level < levels; level++)
+                    j = 2 * j + (tree[j] < x ? 1 : 0);
+                int e = 2 * (j - k) + (splitters[j - k] == x ? 1 : 0);
+                oracle[i] = (byte) e;
+                count[e]++;
+            }
+        });
+
+        int[] starts = prefixSums(counts);
+        long[] aux = new long[n];
+        parallelFor(blocks, b -> {
+            int[] offset = counts[b];
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++)
+                aux[offset[oracle[i] & 0xFF]++] = arr[i];
+        });
+        parallelFor(2 * k, e -> {
+            int l = starts[e], r = starts[e + 1] - 1;
+            System.arraycopy(aux, l, arr, l, r - l + 1);
+            if ((e & 1) == 0 && r > l)
+                DualPivotQuickSort.sortRange(arr, l, r);
+        });
+    }
+
+    public static void sort(double[] arr) { sort(arr, DEFAULT_THRESHOLD); }
+
+    public static void sort(double[] arr, int threshold) {
+        int n = arr.length, k = buckets(n, threshold);
+        if (k < 2) {
+            DualPivotQuickSort.sortRange(arr, 0, n - 1);
+            return;
+        }
+
+        double[] sample = new double[k * OVERSAMPLING];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < sample.length; i++)
+            sample[i] = arr[random.nextInt(n)];
+        DualPivotQuickSort.sortRange(sample, 0, sample.length - 1);
+        double[] splitters = new double[k], tree = new double[k];
+        int[] layout = treeLayout(k);
+        for (int i = 0; i < k - 1; i++)
+            splitters[i] = sample[(i + 1) * OVERSAMPLING];
+        splitters[k - 1] = splitters[k - 2];
+        for (int j = 1; j < k; j++)
+            tree[j] = splitters[layout[j]];
+
+        int blocks = blocks(n, threshold), levels = Integer.numberOfTrailingZeros(k);
+        byte[] oracle = new byte[n];
+        int[][] counts = new int[blocks][2 * k];
+        parallelFor(blocks, b -> {
+            int[] count = counts[b];
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                double x = arr[i];
+                int j = 1;
+                for (int level = 0; level < levels; level++)
+                    j = 2 * j + (tree[j] < x ? 1 : 0);
+                int e = 2 * (j - k) + (splitters[j - k] == x ? 1 : 0);
+                oracle[i] = (byte) e;
+                count[e]++;
+            }
+        });
+
+        int[] starts = prefixSums(counts);
+        double[] aux = new double[n];
+        parallelFor(blocks, b -> {
+            int[] offset = counts[b];
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++)
+                aux[offset[oracle[i] & 0xFF]++] = arr[i];
+        });
+        parallelFor(2 * k, e -> {
+            int l = starts[e], r = starts[e + 1] - 1;
+            System.arraycopy(aux, l, arr, l, r - l + 1);
+            if ((e & 1) == 0 && r > l)
+                DualPivotQuickSort.sortRange(arr, l, r);
+        });
+    }
+
+    // 桶的个数：使每个桶的期望大小不小于 threshold 的最大的 2 的幂，不超过 MAX_BUCKETS；返回值 < 2 表示应直接串行排序
+    private static int buckets(int n, int threshold) {
+        return Math.min(MAX_BUCKETS, Integer.highestOneBit(Math.max(n / Math.max(threshold, 1), 1)));
+    }
+
+    private static int blocks(int n, int threshold) {
+        return Math.max(1, Math.min(n / Math.max(threshold, 1), 4 * ForkJoinPool.getCommonPoolParallelism()));
+    }
+
+    private static int blockStart(int n, int blocks, int b) { return (int) ((long) n * b / blocks); }
+
+    // 隐式搜索树的布局：返回 layout，使 tree[j] = splitters[layout[j]]（j = 1...k-1）时，tree 的中序遍历是有序的
+    private static int[] treeLayout(int k) {
+        int[] layout = new int[k];
+        fillLayout(layout, 1, 0);
+        return layout;
+    }
+
+    private static int fillLayout(int[] layout, int j, int next) {  // 中序遍历以 j 为根的子树，next 为下一个要放入的分割点的编号
+        if (j >= layout.length) return next;
+        next = fillLayout(layout, 2 * j, next);
+        layout[j] = next++;
+        return fillLayout(layout, 2 * j + 1, next);
+    }
+
+    // 把各个块的直方图 counts[b][e] 原地替换成块 b 中桶 e 的元素在辅助数组中的起始位置，返回各个桶的起始位置（最后一个为 n）
+    private static int[] prefixSums(int[][] counts) {
+        int buckets = counts[0].length;
+        int[] starts = new int[buckets + 1];
+        int sum = 0;
+        for (int e = 0; e < buckets; e++) {
+            starts[e] = sum;
+            for (int[] count : counts) {
+                int c = count[e];
+                count[e] = sum;
+                sum += c;
+            }
+        }
+        starts[buckets] = sum;
+        return starts;
+    }
+
+    private static void parallelFor(int n, IntConsumer body) {
+        ForkJoinPool.commonPool().invoke(new RangeTask(0, n, body));
+    }
+
+    // 对 [from, to) 中的每个编号执行 body，不断二分直到只剩一个编号，由 Fork/Join 负责在线程之间分配
+    @SuppressWarnings("serial")
+    private static class RangeTask extends RecursiveAction {
+        private final int from, to;
+        private final IntConsumer body;
+
+        RangeTask(int from, int to, IntConsumer body) {
+            this.from = from; this.to = to; this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                body.accept(from);
+                return;
+            }
+            int mid = (to - from) / 2 + from;
+            invokeAll(new RangeTask(from, mid, body), new RangeTask(mid, to, body));
+        }
+    }
+
+    public static void main(String[] args) {
+        Integer[] arr = generateRandomIntArr(20);
+        log(arr);
+        sort(arr, 4);
+        log(arr);
+
+        // 性能测试（与核数有关，核数越多提升越明显）
+        int n = 10000000;
+        DataGenerator gen = new DataGenerator(42);
+        for (String name : new String[] {"uniform", "few unique"}) {
+            log("---- int[], " + name + " ----");
+            int[] arr1 = gen.ints(n, name.equals("uniform") ? DataGenerator.uniform(0, n) : DataGenerator.fewUnique(100));
+            int[] arr2 = arr1.clone(), arr3 = arr1.clone(), arr4 = arr1.clone(), arr5 = arr1.clone();
+            timeIt(arr1, DualPivotQuickSort::sort);
+            timeIt(arr2, ParallelMergeSort::sort);
+            timeIt(arr3, ParallelQuickSort3Ways::sort);
+            timeIt(arr4, ParallelSampleSort::sort);
+            timeIt(arr5, Arrays::parallelSort);
+            log(Arrays.equals(arr4, arr5));
+        }
+
+        log("---- Integer[], uniform ----");
+        Integer[] arr6 = gen.boxed(2000000, DataGenerator.uniform(0, 2000000));
+        Integer[] arr7 = arr6.clone(), arr8 = arr6.clone();
+        timeIt(arr6, ParallelMergeSort::sort);
+        timeIt(arr7, ParallelSampleSort::sort);
+        timeIt(arr8, Arrays::parallelSort);
+        log(Arrays.equals(arr7, arr8));
+    }
+}
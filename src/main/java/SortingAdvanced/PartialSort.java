@@ -0,0 +1,78 @@
+package SortingAdvanced;
+
+import Heap.HeapSort;
+import Utils.DataGenerator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static Utils.Helpers.*;
+
+/*
+ * 部分排序（Partial Sort）：只排好前 k 个位置
+ *
+ * - 问题：只需要最小的 k 个元素并且要有序（比如排行榜只显示前 100 名）时，对整个数组排序是 O(nlogn)，浪费在了后面 n-k 个
+ *   元素上。
+ *
+ * - 实现：partialSort(arr, k) 完成后 arr[0...k-1] 是整个数组中最小的 k 个元素且有序，arr[k...n-1] 是剩下的元素（顺序任意）。
+ *   1. 先用 IntroSelect.selectRange 找到第 k 小的元素：完成后第 k-1 个位置左边都不大于它、右边都不小于它，即最小的 k 个元素
+ *      已经都在 arr[0...k-1] 中了，最坏情况下也是 O(n)。
+ *   2. 再只对 arr[0...k-1] 排序，O(klogk)。泛型版本用 Heap.HeapSort.sortRange（最坏也是 O(klogk)、不用额外空间），基本类型
+ *      版本用 SortingPrimitive.QuickSort3Ways.sortRange。
+ *   整体为 O(n + klogk)（基本类型版本的排序部分是平均情况）。
+ *   与 Heap.TopK 的区别：TopK 面向无界的数据流、只占 O(k) 的空间；partialSort 面向已经在内存中的数组，原地进行。
+ *
+ * - 部分排序不是稳定的。
+ * */
+
+public class PartialSort {
+    public static <T extends Comparable<T>> void partialSort(T[] arr, int k) { partialSort(arr, k, Comparator.naturalOrder()); }
+
+    public static <T> void partialSort(T[] arr, int k, Comparator<? super T> c) {
+        checkK(arr.length, k);
+        if (k == 0) return;
+        IntroSelect.selectRange(arr, 0, arr.length - 1, k - 1, c);
+        HeapSort.sortRange(arr, 0, k - 1, c);
+    }
+
+    public static void partialSort(int[] arr, int k) {
+        checkK(arr.length, k);
+        if (k == 0) return;
+        IntroSelect.selectRange(arr, 0, arr.length - 1, k - 1);
+        SortingPrimitive.QuickSort3Ways.sortRange(arr, 0, k - 1);
+    }
+
+    public static void partialSort(long[] arr, int k) {
+        checkK(arr.length, k);
+        if (k == 0) return;
+        IntroSelect.selectRange(arr, 0, arr.length - 1, k - 1);
+        SortingPrimitive.QuickSort3Ways.sortRange(arr, 0, k - 1);
+    }
+
+    public static void partialSort(double[] arr, int k) {
+        checkK(arr.length, k);
+        if (k == 0) return;
+        IntroSelect.selectRange(arr, 0, arr.length - 1, k - 1);
+        SortingPrimitive.QuickSort3Ways.sortRange(arr, 0, k - 1);
+    }
+
+    private static void checkK(int n, int k) {
+        if (k < 0 || k > n)
+            throw new IllegalArgumentException("partialSort failed. k is out of bounds.");
+    }
+
+    public static void main(String[] args) {
+        Integer[] arr = generateRandomIntArr(20);
+        log(arr);
+        partialSort(arr, 5);
+        log(arr);  // 前 5 个是最小的 5 个元素且有序
+
+        // 性能测试：1000 万个元素中排好前 1000 个
+        int n = 10000000, k = 1000;
+        int[] arr1 = new DataGenerator(42).ints(n, DataGenerator.uniform(0, n));
+        int[] arr2 = arr1.clone();
+        timeIt(arr1, Arrays::sort);
+        timeIt(arr2, a -> partialSort(a, k));
+        log(Arrays.equals(Arrays.copyOf(arr1, k), Arrays.copyOf(arr2, k)));
+    }
+}
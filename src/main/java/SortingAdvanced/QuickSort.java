@@ -1,6 +1,9 @@
 package SortingAdvanced;
 
 import SortingBasic.InsertionSort;
+import Utils.SortProbe;
+
+import java.util.Comparator;
 
 import static Utils.Helpers.*;
 
@@ -54,23 +57,35 @@ import static Utils.Helpers.*;
 * */
 
 public class QuickSort {
-    public static <T extends Comparable<T>> void sort(T[] arr) {
-        sort(arr, 0, arr.length - 1);
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {
+        sort(arr, 0, arr.length - 1, c, SortingNetwork.OBJECT_CUTOFF);
+    }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c, int cutoff) {  // 同 QuickSort2Ways，元素个数 <= cutoff 的区间用排序网络排序
+        sort(arr, 0, arr.length - 1, c, SortingNetwork.checkCutoff(cutoff));
     }
 
-    private static <T extends Comparable<T>> void sort(T[] arr, int l, int r) {
+    private static <T> void sort(T[] arr, int l, int r, Comparator<? super T> c, int cutoff) {
+        if (r - l < cutoff) {
+            SortingNetwork.sortRange(arr, l, r, c);
+            return;
+        }
         if (l >= r) return;
-        int p = partition(arr, l, r);
-        sort(arr, l, p - 1);
-        sort(arr, p + 1, r);
+        int p = partition(arr, l, r, c);
+        SortProbe.enter();
+        sort(arr, l, p - 1, c, cutoff);
+        sort(arr, p + 1, r, c, cutoff);
+        SortProbe.exit();
     }
 
-    private static <T extends Comparable<T>> int partition(T[] arr, int l, int r) {
+    private static <T> int partition(T[] arr, int l, int r, Comparator<? super T> c) {
         T v = arr[l];          // 标定元素 pivot
         int j = l;                      // j 指向 <= v 的最后一个元素，∵ 最初没有元素 <= v，∴ 指向 l
 
         for (int i = l + 1; i <= r; i++)
-            if (arr[i].compareTo(v) <= 0)
+            if (c.compare(arr[i], v) <= 0)
                 swap(arr, i, j++ + 1);  // 与 > v 的第一个元素进行 swap
 
         swap(arr, l, j);                // 将 v 放到正确的位置上
@@ -1,7 +1,9 @@
 package SortingAdvanced;
 
 import SortingBasic.InsertionSort;
+import Utils.SortProbe;
 
+import java.util.Comparator;
 import java.util.Random;
 
 import static Utils.Helpers.*;
@@ -35,27 +37,38 @@ import static Utils.Helpers.*;
 * */
 
 public class QuickSort2 {
-    public static <T extends Comparable<T>> void sort(T[] arr) {
-        sort(arr, 0, arr.length - 1);
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {
+        sort(arr, 0, arr.length - 1, c, SortingNetwork.OBJECT_CUTOFF);
+    }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c, int cutoff) {  // 同 QuickSort2Ways，元素个数 <= cutoff 的区间用排序网络排序
+        sort(arr, 0, arr.length - 1, c, SortingNetwork.checkCutoff(cutoff));
     }
 
-    private static <T extends Comparable<T>> void sort(T[] arr, int l, int r) {  // 与 QuickSort2 中的一致
+    private static <T> void sort(T[] arr, int l, int r, Comparator<? super T> c, int cutoff) {  // 与 QuickSort2 中的一致
         if (r - l <= 15) {  // 优化2
-            InsertionSort.sortRange(arr, l, r);
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r, c);
+            else
+                InsertionSort.sortRange(arr, l, r, c);
             return;
         }
-        int p = partition(arr, l, r);
-        sort(arr, l, p - 1);
-        sort(arr, p + 1, r);
+        int p = partition(arr, l, r, c);
+        SortProbe.enter();
+        sort(arr, l, p - 1, c, cutoff);
+        sort(arr, p + 1, r, c, cutoff);
+        SortProbe.exit();
     }
 
-    private static <T extends Comparable<T>> int partition(T[] arr, int l, int r) {
+    private static <T> int partition(T[] arr, int l, int r, Comparator<? super T> c) {
         int vIndex = new Random().nextInt(r - l + 1) + l;  // 优化1：随机选取标定元素的索引
         swap(arr, l, vIndex);  // 将标定元素换到最前面，这样后面就可以像标准的快排一样进行了
         T v = arr[l];
         int j = l;
         for (int i = l + 1; i <= r; i++) {
-            if (arr[i].compareTo(v) <= 0) {
+            if (c.compare(arr[i], v) <= 0) {
                 swap(arr, i, j + 1);
                 j++;
             }
@@ -1,5 +1,8 @@
 package SortingAdvanced;
 
+import Utils.SortProbe;
+
+import java.util.Comparator;
 import java.util.Random;
 
 import static Utils.Helpers.*;
@@ -39,18 +42,30 @@ import static Utils.Helpers.*;
 * */
 
 public class QuickSort2Ways {
-    public static <T extends Comparable<T>> void sort(T[] arr) {
-        sort(arr, 0, arr.length - 1);
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {
+        sort(arr, 0, arr.length - 1, c, SortingNetwork.OBJECT_CUTOFF);
     }
 
-    private static <T extends Comparable<T>> void sort(T[] arr, int l, int r) {
+    public static <T> void sort(T[] arr, Comparator<? super T> c, int cutoff) {  // 同 QuickSort3Ways，元素个数 <= cutoff 的区间用排序网络排序
+        sort(arr, 0, arr.length - 1, c, SortingNetwork.checkCutoff(cutoff));
+    }
+
+    private static <T> void sort(T[] arr, int l, int r, Comparator<? super T> c, int cutoff) {
+        if (r - l < cutoff) {
+            SortingNetwork.sortRange(arr, l, r, c);
+            return;
+        }
         if (l >= r) return;
-        int p = partition(arr, l, r);
-        sort(arr, l, p - 1);
-        sort(arr, p + 1, r);
+        int p = partition(arr, l, r, c);
+        SortProbe.enter();
+        sort(arr, l, p - 1, c, cutoff);
+        sort(arr, p + 1, r, c, cutoff);
+        SortProbe.exit();
     }
 
-    private static <T extends Comparable<T>> int partition(T[] arr, int l, int r) {
+    private static <T> int partition(T[] arr, int l, int r, Comparator<? super T> c) {
         int vIndex = new Random().nextInt(r - l + 1) + l;
         swap(arr, l, vIndex);
         T v = arr[l];
@@ -58,8 +73,8 @@ public class QuickSort2Ways {
         // 套路：使用3个 while 循环实现双路查找，内部的 while 循环找到符合条件的索引后会退出，两个 while 都退出后进行 swap
         int i = l + 1, j = r;
         while (true) {  // ∵ 我们想在循环结束之后让 j 停在最后一个 <= v 的元素上，这样才方便将 v 放到正确的位置上 ∴ 循环的终止条件写在循环内部而不是 while 后面
-            while (i <= r && arr[i].compareTo(v) < 0) i++;      // 当循环退出时，i 指向第一个 >= v 的元素
-            while (j >= l + 1 && arr[j].compareTo(v) > 0) j--;  // 当循环退出时，j 指向最后一个 <= v 的元素
+            while (i <= r && c.compare(arr[i], v) < 0) i++;      // 当循环退出时，i 指向第一个 >= v 的元素
+            while (j >= l + 1 && c.compare(arr[j], v) > 0) j--;  // 当循环退出时，j 指向最后一个 <= v 的元素
             if (i > j) break;  // 此时本次 partition 完成，即 arr[l+1, i) 中的元素都 <= v；arr(j, r] 中的元素都 >= v
             swap(arr, i, j);
             i++;
@@ -1,5 +1,8 @@
 package SortingAdvanced;
 
+import Utils.SortProbe;
+
+import java.util.Comparator;
 import java.util.Random;
 
 import static Utils.Helpers.*;
@@ -36,18 +39,30 @@ import static Utils.Helpers.*;
 * */
 
 public class QuickSort3Ways {
-    public static <T extends Comparable<T>> void sort(T[] arr) {
-        sort(arr, 0, arr.length - 1);
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {
+        sort(arr, 0, arr.length - 1, c, SortingNetwork.OBJECT_CUTOFF);
     }
 
-    private static <T extends Comparable<T>> void sort(T[] arr, int l, int r) {
+    public static <T> void sort(T[] arr, Comparator<? super T> c, int cutoff) {  // 同 MergeSort，元素个数 <= cutoff 的区间用排序网络排序
+        sort(arr, 0, arr.length - 1, c, SortingNetwork.checkCutoff(cutoff));
+    }
+
+    private static <T> void sort(T[] arr, int l, int r, Comparator<? super T> c, int cutoff) {
+        if (r - l < cutoff) {
+            SortingNetwork.sortRange(arr, l, r, c);
+            return;
+        }
         if (l >= r) return;
-        int[] ps = partition(arr, l, r);  // 与两路快排不同，三路快排中的 partition 返回两个索引（lt 和 gt）
-        sort(arr, l, ps[0]);              // 对 arr[l...lt]（即 < v 的所有元素）进行递归排序
-        sort(arr, ps[1], r);              // 对 arr[gt...r]（即 > v 的所有元素）进行递归排序
+        int[] ps = partition(arr, l, r, c);  // 与两路快排不同，三路快排中的 partition 返回两个索引（lt 和 gt）
+        SortProbe.enter();
+        sort(arr, l, ps[0], c, cutoff);      // 对 arr[l...lt]（即 < v 的所有元素）进行递归排序
+        sort(arr, ps[1], r, c, cutoff);      // 对 arr[gt...r]（即 > v 的所有元素）进行递归排序
+        SortProbe.exit();
     }
 
-    private static <T extends Comparable<T>> int[] partition(T[] arr, int l, int r) {
+    private static <T> int[] partition(T[] arr, int l, int r, Comparator<? super T> c) {
         int vIndex = new Random().nextInt(r - l + 1) + l;
         swap(arr, l, vIndex);
         T v = arr[l];
@@ -57,9 +72,9 @@ public class QuickSort3Ways {
         int i = l + 1;   // 指向当前被处理中的元素
 
         while (i < gt) {
-            if (arr[i].compareTo(v) < 0)
+            if (c.compare(arr[i], v) < 0)
                 swap(arr, i++, ++lt);  // 与 < v 的最后一个元素的后一个元素 swap
-            else if (arr[i].compareTo(v) > 0)
+            else if (c.compare(arr[i], v) > 0)
                 swap(arr, i, --gt);    // 与 > v 的第一个元素的前一个元素 swap。此时 i 不用自增，因为 swap 之后 i 指向的还是一个还未被处理过的元素，因此继续处理即可
             else                       // arr[i] == v 的情况
                 i++;
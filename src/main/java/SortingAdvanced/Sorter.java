@@ -0,0 +1,273 @@
+package SortingAdvanced;
+
+import SortingSpecialised.CountingSort2;
+import SortingSpecialised.RadixSort;
+
+import java.util.Comparator;
+
+import static Utils.Helpers.*;
+
+/*
+ * 自适应排序（Adaptive Sort Dispatcher）：
+ *
+ * - 问题：
+ *   前面的各种排序已经说明了"没有一种排序在所有数据上都最快"：近乎有序的数据用插入排序/自然归并最快（InsertionSort、
+ *   NaturalMergeSort），大量重复元素的数据用三路快排最快（QuickSort3Ways），取值范围小的整数用计数排序最快（CountingSort2），
+ *   数据量大、取值范围大的整数用基数排序最快（RadixSort）。但这要求调用方事先知道数据长什么样。
+ *
+ * - 思路：先用很小的代价"看一眼"数据，再决定用哪种排序。
+ *   1. 扫描一遍（O(n)，只有相邻元素的比较，且是顺序访问）：
+ *      - 统计下降的次数（arr[i] < arr[i-1]），即非降序 run 的个数 - 1，作为"有序程度"的度量；同时记下前 MAX_RUNS 个 run 的起点；
+ *      - 统计上升的次数，为0说明数组是逆序的；
+ *      - 基本类型还顺便求出 min、max，即取值范围。
+ *   2. 等距抽取 SAMPLE_SIZE 个样本排序后数不同值的个数，估计不同值的比例（distinct ratio）。
+ *   3. 按以下顺序决定策略（Strategy）：
+ *      - 已经有序：什么都不做；
+ *      - 逆序：原地翻转（泛型版本要求严格逆序，否则翻转会打乱相等元素的相对顺序）；
+ *      - 元素个数 <= 32：插入排序；
+ *      - run 的个数 <= MAX_RUNS：归并这些 run（基本类型在这里直接按扫描时记下的 run 起点两两归并；泛型版本用 NaturalMergeSort），
+ *        复杂度为 O(n * log(runs))；
+ *      - 取值范围 <= n（仅基本类型）：计数排序，O(n + range)；
+ *      - 不同值的比例 <= 1/8：三路快排；
+ *      - 元素个数 >= RADIX_THRESHOLD（仅基本类型）：基数排序；
+ *      - 其他情况：双轴快排。
+ *   注意：这里并不做 O(n^2) 的逆序对统计（见 Exercise_InversionCount），run 的个数已经足以区分"近乎有序"和"随机"。
+ *   也不用插入排序处理近乎有序的数据：比如把一个有序数组循环右移一半，只有一个下降点，但逆序对有 n^2/4 个，插入排序会退化成
+ *   O(n^2)，而归并 run 只需要一遍。
+ *
+ * - 采样的开销相对于排序本身（O(nlogn) 或至少几遍 O(n)）很小。每次排序返回一个 Result，记录选中的策略、采样耗时和排序耗时，
+ *   以及采样得到的数据特征，方便上报监控指标。
+ * */
+
+public class Sorter {
+    public static final int MAX_RUNS = 64;            // run 不超过这么多个时直接归并 run
+    public static final int SAMPLE_SIZE = 256;        // 估计不同值比例时的样本个数
+    public static final int RADIX_THRESHOLD = 1 << 12;
+
+    public enum Strategy { ALREADY_SORTED, REVERSE, INSERTION, RUN_MERGE, COUNTING, QUICK_3WAYS, RADIX, DUAL_PIVOT }
+
+    // 一次排序的结果：选中的策略 + 采样得到的数据特征 + 耗时
+    public static class Result {
+        private final Strategy strategy;
+        private final int runs;               // 非降序 run 的个数
+        private final double distinctRatio;   // 样本中不同值的比例
+        private final long range;             // max - min + 1，泛型版本为 -1
+        private long samplingNanos, sortNanos;
+
+        private Result(Strategy strategy, int runs, double distinctRatio, long range) {
+            this.strategy = strategy;
+            this.runs = runs;
+            this.distinctRatio = distinctRatio;
+            this.range = range;
+        }
+
+        public Strategy getStrategy() { return strategy; }
+
+        public int getRuns() { return runs; }
+
+        public double getDistinctRatio() { return distinctRatio; }
+
+        public long getRange() { return range; }
+
+        public long getSamplingNanos() { return samplingNanos; }
+
+        public long getSortNanos() { return sortNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("strategy: %s, runs: %d, distinct ratio: %.3f, range: %d, sampling: %.3fms, sort: %.3fms",
+                    strategy, runs, distinctRatio, range, samplingNanos / 1e6, sortNanos / 1e6);
+        }
+    }
+
+    public static Result sort(int[] arr) {
+        long start = System.nanoTime();
+        int n = arr.length;
+        int[] runStart = new int[MAX_RUNS + 1];
+        int runs = 1, ascents = 0;
+        int min = n > 0 ? arr[0] : 0, max = min;
+        for (int i = 1; i < n; i++) {
+            int e = arr[i];
+            if (e < arr[i - 1]) {
+                if (runs < MAX_RUNS) runStart[runs] = i;
+                runs++;
+            } else if (e > arr[i - 1])
+                ascents++;
+            if (e < min) min = e;
+            if (e > max) max = e;
+        }
+        long range = (long) max - min + 1;
+        double distinctRatio = distinctRatio(arr);
+
+        Strategy strategy;
+        if (runs == 1) strategy = Strategy.ALREADY_SORTED;
+        else if (ascents == 0) strategy = Strategy.REVERSE;
+        else if (n <= 32) strategy = Strategy.INSERTION;
+        else if (runs <= MAX_RUNS) strategy = Strategy.RUN_MERGE;
+        else if (range <= n) strategy = Strategy.COUNTING;
+        else if (distinctRatio <= 0.125) strategy = Strategy.QUICK_3WAYS;
+        else if (n >= RADIX_THRESHOLD) strategy = Strategy.RADIX;
+        else strategy = Strategy.DUAL_PIVOT;
+
+        Result result = new Result(strategy, runs, distinctRatio, range);
+        long mid = System.nanoTime();
+        result.samplingNanos = mid - start;
+
+        switch (strategy) {
+            case ALREADY_SORTED: break;
+            case REVERSE: reverse(arr); break;
+            case INSERTION: SortingPrimitive.InsertionSort.sort(arr); break;
+            case RUN_MERGE: runStart[runs] = n; mergeRuns(arr, runStart, runs); break;
+            case COUNTING: CountingSort2.countingSort(arr, new int[] {min, max}); break;
+            case QUICK_3WAYS: SortingPrimitive.QuickSort3Ways.sort(arr); break;
+            case RADIX: RadixSort.sort(arr); break;
+            default: DualPivotQuickSort.sort(arr);
+        }
+        result.sortNanos = System.nanoTime() - mid;
+        return result;
+    }
+
+    public static <T extends Comparable<T>> Result sort(T[] arr) { return sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> Result sort(T[] arr, Comparator<? super T> c) {
+        long start = System.nanoTime();
+        int n = arr.length;
+        int runs = 1, ascents = 0, equals = 0;
+        for (int i = 1; i < n; i++) {
+            int cmp = c.compare(arr[i], arr[i - 1]);
+            if (cmp < 0) runs++;
+            else if (cmp > 0) ascents++;
+            else equals++;
+        }
+        double distinctRatio = distinctRatio(arr, c);
+
+        Strategy strategy;
+        if (runs == 1) strategy = Strategy.ALREADY_SORTED;
+        else if (ascents == 0 && equals == 0) strategy = Strategy.REVERSE;
+        else if (n <= 32) strategy = Strategy.INSERTION;
+        else if (runs <= MAX_RUNS || ascents == 0) strategy = Strategy.RUN_MERGE;  // 非严格逆序的数组也交给 NaturalMergeSort
+        else if (distinctRatio <= 0.125) strategy = Strategy.QUICK_3WAYS;
+        else strategy = Strategy.DUAL_PIVOT;
+
+        Result result = new Result(strategy, runs, distinctRatio, -1);
+        long mid = System.nanoTime();
+        result.samplingNanos = mid - start;
+
+        switch (strategy) {
+            case ALREADY_SORTED: break;
+            case REVERSE: reverse(arr); break;
+            case INSERTION: SortingBasic.InsertionSort.sortRange(arr, 0, n - 1, c); break;
+            case RUN_MERGE: NaturalMergeSort.sort(arr, c); break;
+            case QUICK_3WAYS: QuickSort3Ways.sort(arr, c); break;
+            default: DualPivotQuickSort.sort(arr, c);
+        }
+        result.sortNanos = System.nanoTime() - mid;
+        return result;
+    }
+
+    private static double distinctRatio(int[] arr) {  // 等距抽取样本，排序后数不同值的个数
+        int n = arr.length, s = Math.min(n, SAMPLE_SIZE);
+        if (s == 0) return 1;
+        int[] sample = new int[s];
+        for (int i = 0; i < s; i++)
+            sample[i] = arr[(int) ((long) i * n / s)];
+        SortingPrimitive.QuickSort3Ways.sort(sample);
+        int distinct = 1;
+        for (int i = 1; i < s; i++)
+            if (sample[i] != sample[i - 1]) distinct++;
+        return (double) distinct / s;
+    }
+
+    private static <T> double distinctRatio(T[] arr, Comparator<? super T> c) {
+        int n = arr.length, s = Math.min(n, SAMPLE_SIZE);
+        if (s == 0) return 1;
+        Object[] sample = new Object[s];
+        for (int i = 0; i < s; i++)
+            sample[i] = arr[(int) ((long) i * n / s)];
+        @SuppressWarnings("unchecked")
+        Comparator<Object> cmp = (a, b) -> c.compare((T) a, (T) b);
+        DualPivotQuickSort.sort(sample, cmp);
+        int distinct = 1;
+        for (int i = 1; i < s; i++)
+            if (cmp.compare(sample[i], sample[i - 1]) != 0) distinct++;
+        return (double) distinct / s;
+    }
+
+    // 两两归并相邻的 run，每一遍 run 的个数减半，arr 和 aux 交替作为源和目标。runStart[0...runs-1] 为各个 run 的起点，runStart[runs] = n
+    private static void mergeRuns(int[] arr, int[] runStart, int runs) {
+        int n = arr.length;
+        int[] src = arr, dst = new int[n];
+        while (runs > 1) {
+            int k = 0;
+            for (int i = 0; i < runs; i += 2) {
+                int lo = runStart[i];
+                if (i + 1 == runs)  // 落单的最后一个 run 直接拷贝过去
+                    System.arraycopy(src, lo, dst, lo, n - lo);
+                else
+                    merge(src, dst, lo, runStart[i + 1], runStart[i + 2]);
+                runStart[k++] = lo;
+            }
+            runStart[k] = n;
+            runs = k;
+            int[] t = src; src = dst; dst = t;
+        }
+        if (src != arr)
+            System.arraycopy(src, 0, arr, 0, n);
+    }
+
+    private static void merge(int[] src, int[] dst, int lo, int mid, int hi) {  // 将 src[lo...mid) 和 src[mid...hi) 归并到 dst[lo...hi)
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi)
+            dst[k++] = src[j] < src[i] ? src[j++] : src[i++];
+        while (i < mid) dst[k++] = src[i++];
+        while (j < hi) dst[k++] = src[j++];
+    }
+
+    private static void reverse(int[] arr) {
+        for (int l = 0, r = arr.length - 1; l < r; l++, r--) {
+            int t = arr[l];
+            arr[l] = arr[r];
+            arr[r] = t;
+        }
+    }
+
+    private static <T> void reverse(T[] arr) {
+        for (int l = 0, r = arr.length - 1; l < r; l++, r--) {
+            T t = arr[l];
+            arr[l] = arr[r];
+            arr[r] = t;
+        }
+    }
+
+    public static void main(String[] args) {
+        Integer[] arr = generateRandomIntArr(20);
+        log(arr);
+        log(sort(arr));
+        log(arr);
+
+        // 不同形态的数据分别选中不同的策略，与直接使用双轴快排对比（前两轮是 JIT 预热，看最后一轮的结果）
+        int n = 1000000;
+        int[] random = new int[n];
+        for (int i = 0; i < n; i++)
+            random[i] = (int) (Math.random() * Integer.MAX_VALUE);
+        int[][] datasets = {
+                random,                                                // 完全随机，取值范围大 -> RADIX，比双轴快排快1倍以上
+                toIntArr(generateNearlyOrderedArr(n, 10)),             // 近乎有序 -> RUN_MERGE，比双轴快排快1倍左右
+                toIntArr(generateRandomArrayFromRange(n, 0, 1000)),    // 取值范围小 -> COUNTING
+        };
+        for (int round = 0; round < 3; round++) {
+            for (int[] data : datasets) {
+                int[] arr1 = data.clone(), arr2 = data.clone();
+                timeIt(arr1, DualPivotQuickSort::sort);
+                timeIt(arr2, a -> log(sort(a)));
+                log(isSorted(arr2));
+            }
+        }
+
+        int[] wide = new int[n];  // 取值范围大但只有少量不同值
+        for (int i = 0; i < n; i++)
+            wide[i] = (int) (Math.random() * 10) * 100000000;
+        log(sort(wide));
+        log(isSorted(wide));
+    }
+}
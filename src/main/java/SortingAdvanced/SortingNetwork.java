@@ -0,0 +1,252 @@
+package SortingAdvanced;
+
+import Utils.DataGenerator;
+import Utils.SortProbe;
+
+import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static Utils.Helpers.*;
+
+/*
+ * 排序网络（Sorting Network）：递归排序在小区间上的收尾
+ *
+ * - 问题：
+ *   MergeSort、QuickSort3Ways 等递归排序要么一直递归到只剩 1 个元素，要么在区间元素个数 <= 16 时交给插入排序。对于随机数据，
+ *   插入排序内层循环"是否继续后移"的判断几乎无法预测，平均每插入一个元素就有一次分支预测失败；而 n 个元素的数组要排序 n/16
+ *   个这样的小区间，这部分开销在整体时间中占的比例不小。
+ *
+ * - 排序网络：
+ *   - 由一串固定的比较器（comparator）(i, j) 组成，每个比较器做一次"比较-交换"：若 arr[i] > arr[j] 则交换两者，使得
+ *     arr[i] <= arr[j]。比较器的顺序与数据无关，因此：
+ *     1. 基本类型的比较-交换可以写成 lo = min(a, b)、hi = max(a, b)，JIT 会编译成条件传送（cmov）指令，没有分支；
+ *     2. 同一层（layer）中的比较器互不相关（不涉及相同的位置），CPU 可以并行执行。
+ *   - NETWORKS[n] 是 n 个元素的排序网络，按层的顺序展开成 (i, j) 对。n = 2...16 所用的比较器个数分别为
+ *     1, 3, 5, 9, 12, 16, 19, 25, 29, 35, 39, 45, 51, 56, 60，都是目前已知最少的（n <= 12 时已被证明是最优的）。
+ *     n = 15 的网络由 n = 16 的网络去掉所有涉及第 15 个位置的比较器得到（相当于把第 15 个位置看作 +∞）。
+ *   - 正确性用 0-1 原理验证（verify）：一个比较器网络能对所有输入排序，当且仅当它能对所有 2^n 个由 0 和 1 组成的输入排序。
+ *     n <= 16 时只需检查 65536 个输入，每个输入用一个 int 的各个二进制位表示，比较器 (i, j) 即"若第 i 位为 1 且第 j 位为 0
+ *     则交换这两位"。
+ *   - 排序网络不是稳定的（比较器可能越过中间的相等元素交换），且不会因为数据有序而提前结束。
+ *
+ * - 使用：sortRange(arr, l, r) 对 arr[l...r]（最多 16 个元素）排序。SortingPrimitive 中的 MergeSort、QuickSort2Ways、
+ *   QuickSort3Ways、HeapSort，DualPivotQuickSort，以及 MergeSort、QuickSort、QuickSort2、QuickSort2Ways、QuickSort3Ways、
+ *   IntroSort、Heap.HeapSort 的泛型版本在区间元素个数 <= cutoff 时调用它，cutoff 可以通过 sort 的参数指定，默认值为下面的 XXX_CUTOFF
+ *   （按 Benchmarks.SortingNetworkBenchmark 的结果，对每种元素类型分别选取）。cutoff 的取值范围为 [0, 16]，取 0 即不使用
+ *   排序网络（原来在 <= 16 个元素时用插入排序的，仍用插入排序；原来递归到底的，仍递归到底）。
+ *
+ * - 测试结果（JDK 17）：
+ *   - 只排小区间时（main 中的性能测试），int、long 的排序网络比插入排序快 2~3 倍（n = 16 时 25ms vs. 65ms）。
+ *   - 完整排序 100 万个随机数时（SortingNetworkBenchmark，单核机器上测得，单个结果的误差在 ±10% 左右），cutoff = 16 比 0
+ *     在五种排序上平均快约 6%（int、long），因为小区间只占整体时间的一部分。
+ *   - double 的比较-交换写成 b < a ? b : a 后 JIT 仍然生成了分支（Math.min(double) 可以避免分支，但遇到 NaN 时会把一个
+ *     元素复制成两份、丢掉另一个元素），排序网络反而比插入排序慢一倍，完整排序时 cutoff = 16 平均慢约 5%，因此默认不使用。
+ *   - 泛型版本的比较是一次 Comparator 调用，排序网络的比较次数（如 n = 16 时固定 60 次）并不比插入排序少，也省不掉分支，
+ *     只排小区间时慢 40% 左右，完整排序时各个 cutoff 没有一致的收益，因此默认也不使用。
+ * */
+
+public class SortingNetwork {
+    public static final int MAX_SIZE = 16;
+
+    // 各元素类型的默认 cutoff（见 Benchmarks.SortingNetworkBenchmark）
+    public static final int INT_CUTOFF = 16;
+    public static final int LONG_CUTOFF = 16;
+    public static final int DOUBLE_CUTOFF = 0;
+    public static final int OBJECT_CUTOFF = 0;
+
+    private static final int[][] NETWORKS = {
+            {}, {},
+            // n = 2: 1 个比较器，1 层
+            {0, 1},
+            // n = 3: 3 个比较器，3 层
+            {0, 2, 0, 1, 1, 2},
+            // n = 4: 5 个比较器，3 层
+            {0, 2, 1, 3, 0, 1, 2, 3, 1, 2},
+            // n = 5: 9 个比较器，5 层
+            {0, 3, 1, 4, 0, 2, 1, 3, 0, 1, 2, 4, 1, 2, 3, 4, 2, 3},
+            // n = 6: 12 个比较器，5 层
+            {0, 5, 1, 3, 2, 4, 1, 2, 3, 4, 0, 3, 2, 5, 0, 1, 2, 3, 4, 5, 1, 2, 3, 4},
+            // n = 7: 16 个比较器，6 层
+            {0, 6, 2, 3, 4, 5, 0, 2, 1, 4, 3, 6, 0, 1, 2, 5, 3, 4, 1, 2, 4, 6, 2, 3, 4, 5, 1, 2, 3, 4, 5, 6},
+            // n = 8: 19 个比较器，6 层
+            {0, 2, 1, 3, 4, 6, 5, 7, 0, 4, 1, 5, 2, 6, 3, 7, 0, 1, 2, 3, 4, 5, 6, 7, 2, 4, 3, 5, 1, 4, 3, 6, 1, 2, 3, 4,
+             5, 6},
+            // n = 9: 25 个比较器，7 层
+            {0, 3, 1, 7, 2, 5, 4, 8, 0, 7, 2, 4, 3, 8, 5, 6, 0, 2, 1, 3, 4, 5, 7, 8, 1, 4, 3, 6, 5, 7, 0, 1, 2, 4, 3, 5,
+             6, 8, 2, 3, 4, 5, 6, 7, 1, 2, 3, 4, 5, 6},
+            // n = 10: 29 个比较器，8 层
+            {0, 8, 1, 9, 2, 7, 3, 5, 4, 6, 0, 2, 1, 4, 5, 8, 7, 9, 0, 3, 2, 4, 5, 7, 6, 9, 0, 1, 3, 6, 8, 9, 1, 5, 2, 3,
+             4, 8, 6, 7, 1, 2, 3, 5, 4, 6, 7, 8, 2, 3, 4, 5, 6, 7, 3, 4, 5, 6},
+            // n = 11: 35 个比较器，8 层
+            {0, 9, 1, 6, 2, 4, 3, 7, 5, 8, 0, 1, 3, 5, 4, 10, 6, 9, 7, 8, 1, 3, 2, 5, 4, 7, 8, 10, 0, 4, 1, 2, 3, 7, 5, 9,
+             6, 8, 0, 1, 2, 6, 4, 5, 7, 8, 9, 10, 2, 4, 3, 6, 5, 7, 8, 9, 1, 2, 3, 4, 5, 6, 7, 8, 2, 3, 4, 5, 6, 7},
+            // n = 12: 39 个比较器，9 层
+            {0, 8, 1, 7, 2, 6, 3, 11, 4, 10, 5, 9, 0, 1, 2, 5, 3, 4, 6, 9, 7, 8, 10, 11, 0, 2, 1, 6, 5, 10, 9, 11, 0, 3,
+             1, 2, 4, 6, 5, 7, 8, 11, 9, 10, 1, 4, 3, 5, 6, 8, 7, 10, 1, 3, 2, 5, 6, 9, 8, 10, 2, 3, 4, 5, 6, 7, 8, 9,
+             4, 6, 5, 7, 3, 4, 5, 6, 7, 8},
+            // n = 13: 45 个比较器，10 层
+            {0, 12, 1, 10, 2, 9, 3, 7, 5, 11, 6, 8, 1, 6, 2, 3, 4, 11, 7, 9, 8, 10, 0, 4, 1, 2, 3, 6, 7, 8, 9, 10, 11, 12,
+             4, 6, 5, 9, 8, 11, 10, 12, 0, 5, 3, 8, 4, 7, 6, 11, 9, 10, 0, 1, 2, 5, 6, 9, 7, 8, 10, 11, 1, 3, 2, 4, 5, 6,
+             9, 10, 1, 2, 3, 4, 5, 7, 6, 8, 2, 3, 4, 5, 6, 7, 8, 9, 3, 4, 5, 6},
+            // n = 14: 51 个比较器，10 层
+            {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 0, 2, 1, 3, 4, 8, 5, 9, 10, 12, 11, 13, 0, 4, 1, 2, 3, 7, 5, 8,
+             6, 10, 9, 13, 11, 12, 0, 6, 1, 5, 3, 9, 4, 10, 7, 13, 8, 12, 2, 10, 3, 11, 4, 6, 7, 9, 1, 3, 2, 8, 5, 11,
+             6, 7, 10, 12, 1, 4, 2, 6, 3, 5, 7, 11, 8, 10, 9, 12, 2, 4, 3, 6, 5, 8, 7, 10, 9, 11, 3, 4, 5, 6, 7, 8, 9, 10,
+             6, 7},
+            // n = 15: 56 个比较器，10 层
+            {0, 13, 1, 12, 3, 14, 4, 8, 5, 6, 7, 11, 9, 10, 0, 5, 1, 7, 2, 9, 3, 4, 6, 13, 8, 14, 11, 12, 0, 1, 2, 3, 4, 5,
+             6, 8, 7, 9, 10, 11, 12, 13, 0, 2, 1, 3, 4, 10, 5, 11, 6, 7, 8, 9, 12, 14, 1, 2, 3, 12, 4, 6, 5, 7, 8, 10,
+             9, 11, 13, 14, 1, 4, 2, 6, 5, 8, 7, 10, 9, 13, 11, 14, 2, 4, 3, 6, 9, 12, 11, 13, 3, 5, 6, 8, 7, 9, 10, 12,
+             3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 6, 7, 8, 9},
+            // n = 16: 60 个比较器，10 层
+            {0, 13, 1, 12, 2, 15, 3, 14, 4, 8, 5, 6, 7, 11, 9, 10, 0, 5, 1, 7, 2, 9, 3, 4, 6, 13, 8, 14, 10, 15, 11, 12,
+             0, 1, 2, 3, 4, 5, 6, 8, 7, 9, 10, 11, 12, 13, 14, 15, 0, 2, 1, 3, 4, 10, 5, 11, 6, 7, 8, 9, 12, 14, 13, 15,
+             1, 2, 3, 12, 4, 6, 5, 7, 8, 10, 9, 11, 13, 14, 1, 4, 2, 6, 5, 8, 7, 10, 9, 13, 11, 14, 2, 4, 3, 6, 9, 12,
+             11, 13, 3, 5, 6, 8, 7, 9, 10, 12, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 6, 7, 8, 9}
+    };
+
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {
+        checkLength(arr.length);
+        sortRange(arr, 0, arr.length - 1, c);
+    }
+
+    public static void sort(int[] arr) {
+        checkLength(arr.length);
+        sortRange(arr, 0, arr.length - 1);
+    }
+
+    public static void sort(long[] arr) {
+        checkLength(arr.length);
+        sortRange(arr, 0, arr.length - 1);
+    }
+
+    public static void sort(double[] arr) {
+        checkLength(arr.length);
+        sortRange(arr, 0, arr.length - 1);
+    }
+
+    // 对 arr[l...r] 排序，调用方需保证 r - l + 1 <= MAX_SIZE
+    public static <T> void sortRange(T[] arr, int l, int r, Comparator<? super T> c) {
+        if (r <= l) return;
+        int[] net = NETWORKS[r - l + 1];
+        for (int k = 0; k < net.length; k += 2) {
+            int i = l + net[k], j = l + net[k + 1];
+            T a = arr[i], b = arr[j];
+            if (c.compare(a, b) > 0) {
+                arr[i] = b;
+                arr[j] = a;
+                SortProbe.swap();
+            }
+        }
+    }
+
+    public static void sortRange(int[] arr, int l, int r) {
+        if (r <= l) return;
+        int[] net = NETWORKS[r - l + 1];
+        for (int k = 0; k < net.length; k += 2) {
+            int i = l + net[k], j = l + net[k + 1];
+            int a = arr[i], b = arr[j];
+            arr[i] = Math.min(a, b);
+            arr[j] = Math.max(a, b);
+        }
+    }
+
+    public static void sortRange(long[] arr, int l, int r) {
+        if (r <= l) return;
+        int[] net = NETWORKS[r - l + 1];
+        for (int k = 0; k < net.length; k += 2) {
+            int i = l + net[k], j = l + net[k + 1];
+            long a = arr[i], b = arr[j];
+            arr[i] = Math.min(a, b);
+            arr[j] = Math.max(a, b);
+        }
+    }
+
+    public static void sortRange(double[] arr, int l, int r) {  // 同 SortingPrimitive，不支持 NaN
+        if (r <= l) return;
+        int[] net = NETWORKS[r - l + 1];
+        for (int k = 0; k < net.length; k += 2) {
+            int i = l + net[k], j = l + net[k + 1];
+            double a = arr[i], b = arr[j];
+            arr[i] = b < a ? b : a;  // 不用 Math.min(double)，它要额外处理 NaN 和 -0.0
+            arr[j] = b < a ? a : b;
+        }
+    }
+
+    public static int size(int n) { return NETWORKS[n].length / 2; }  // n 个元素的排序网络中比较器的个数
+
+    // 用 0-1 原理验证 n 个元素的排序网络
+    public static boolean verify(int n) {
+        int[] net = NETWORKS[n];
+        for (int input = 0; input < 1 << n; input++) {
+            int x = input;
+            for (int k = 0; k < net.length; k += 2) {
+                int i = net[k], j = net[k + 1];
+                if ((x >>> i & 1) == 1 && (x >>> j & 1) == 0)
+                    x ^= 1 << i | 1 << j;
+            }
+            int zeros = n - Integer.bitCount(input);  // 排好序后应为 zeros 个 0 在低位、其余的 1 在高位
+            if (x != ((1 << n) - 1 & -(1 << zeros)))
+                return false;
+        }
+        return true;
+    }
+
+    public static int checkCutoff(int cutoff) {
+        if (cutoff < 0 || cutoff > MAX_SIZE)
+            throw new IllegalArgumentException("sort failed. cutoff must be in [0, " + MAX_SIZE + "].");
+        return cutoff;
+    }
+
+    private static void checkLength(int n) {
+        if (n > MAX_SIZE)
+            throw new IllegalArgumentException("sort failed. Sorting networks only support up to " + MAX_SIZE + " elements.");
+    }
+
+    public static void main(String[] args) {
+        Integer[] arr = generateRandomIntArr(16);
+        log(arr);
+        sort(arr);
+        log(arr);
+
+        boolean valid = true;  // 用 0-1 原理验证所有网络
+        for (int n = 2; n <= MAX_SIZE; n++)
+            valid &= verify(n);
+        log(valid);
+
+        // 性能测试：把 400 万个随机数按 n 个一组分别排序（即只测收尾部分），排序网络 vs. 插入排序，取 5 次中最快的一次
+        int total = 1 << 22;
+        DataGenerator gen = new DataGenerator(42);
+        int[] ints = gen.ints(total, DataGenerator.uniform(0, total));
+        long[] longs = gen.longs(total, DataGenerator.uniform(0, total));
+        double[] doubles = gen.doubles(total, DataGenerator.uniform(0, total));
+        Integer[] boxed = DataGenerator.box(ints);
+        Comparator<Integer> c = Comparator.naturalOrder();
+        for (int n : new int[] {4, 8, 12, 16}) {
+            log(String.format("---- n = %d, %d comparators ----", n, size(n)));
+            bench("int, network", () -> ints.clone(), a -> { for (int l = 0; l + n <= total; l += n) sortRange(a, l, l + n - 1); });
+            bench("int, insertion", () -> ints.clone(), a -> { for (int l = 0; l + n <= total; l += n) SortingPrimitive.InsertionSort.sortRange(a, l, l + n - 1); });
+            bench("long, network", () -> longs.clone(), a -> { for (int l = 0; l + n <= total; l += n) sortRange(a, l, l + n - 1); });
+            bench("long, insertion", () -> longs.clone(), a -> { for (int l = 0; l + n <= total; l += n) SortingPrimitive.InsertionSort.sortRange(a, l, l + n - 1); });
+            bench("double, network", () -> doubles.clone(), a -> { for (int l = 0; l + n <= total; l += n) sortRange(a, l, l + n - 1); });
+            bench("double, insertion", () -> doubles.clone(), a -> { for (int l = 0; l + n <= total; l += n) SortingPrimitive.InsertionSort.sortRange(a, l, l + n - 1); });
+            bench("Integer, network", () -> boxed.clone(), a -> { for (int l = 0; l + n <= total; l += n) sortRange(a, l, l + n - 1, c); });
+            bench("Integer, insertion", () -> boxed.clone(), a -> { for (int l = 0; l + n <= total; l += n) SortingBasic.InsertionSort.sortRange(a, l, l + n - 1, c); });
+        }
+        // 完整排序时各个 cutoff 的比较见 Benchmarks.SortingNetworkBenchmark（JMH）
+    }
+
+    private static <A> void bench(String name, Supplier<A> input, Consumer<A> sort) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            A a = input.get();
+            long start = System.nanoTime();
+            sort.accept(a);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        log(String.format("%-24s %8.3fms", name, best / 1e6));
+    }
+}
@@ -1,6 +1,7 @@
 package SortingBasic;
 
 import java.util.Arrays;
+import java.util.Comparator;
 
 import static Utils.Helpers.*;
 
@@ -22,10 +23,12 @@ import static Utils.Helpers.*;
  */
 
 public class BubbleSort {
-    public static <T extends Comparable<T>> void sort1(T[] arr) {
+    public static <T extends Comparable<T>> void sort1(T[] arr) { sort1(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort1(T[] arr, Comparator<? super T> c) {
         for (int i = 0; i < arr.length - 1; i++)      // 外层循环控制排序遍数，只需要 n-1 次迭代即可完成排序（比如 [4,3,2,1] 只需3次迭代）
             for (int j = 1; j < arr.length - i; j++)  // 内层循环控制一遍排序中的比较次数。最后 i 个元素是已经排过序的，不需要再比较，因此减去
-                if (arr[j - 1].compareTo(arr[j]) > 0)
+                if (c.compare(arr[j - 1], arr[j]) > 0)
                     swap(arr, j - 1, j);
     }
 
@@ -33,12 +36,14 @@ public class BubbleSort {
      * 在 sort 的实现中，每一遍排序都会比较所有元素 pair，不论当时数组是否已经是有序的了（即不能提前结束）。
      * 针对这点进行优化：提前结束的条件就是在一遍排序中是否 swap 过元素，如果没有则说明此时的数组已经是有序的了。
      */
-    public static <T extends Comparable<T>> void sort2(T[] arr) {
+    public static <T extends Comparable<T>> void sort2(T[] arr) { sort2(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort2(T[] arr, Comparator<? super T> c) {
         boolean hasSwapped = true;
         for (int i = 0; i < arr.length && hasSwapped; i++) {
             hasSwapped = false;
             for (int j = 0; j < arr.length - i - 1; j++) {
-                if (arr[j].compareTo(arr[j + 1]) > 0) {
+                if (c.compare(arr[j], arr[j + 1]) > 0) {
                     swap(arr, j, j + 1);
                     hasSwapped = true;
                 }
@@ -1,6 +1,9 @@
 package SortingBasic;
 
 import SortingAdvanced.*;
+import Utils.SortProbe;
+
+import java.util.Comparator;
 
 import static Utils.Helpers.*;
 
@@ -36,28 +39,38 @@ import static Utils.Helpers.*;
  * */
 
 public class InsertionSort {
-    public static <T extends Comparable<T>> void sort1(T[] arr) {
+    public static <T extends Comparable<T>> void sort1(T[] arr) { sort1(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort1(T[] arr, Comparator<? super T> c) {
         for (int i = 0; i < arr.length; i++)
-            for (int j = i; j > 0 && arr[j].compareTo(arr[j - 1]) < 0; j--)
+            for (int j = i; j > 0 && c.compare(arr[j], arr[j - 1]) < 0; j--)
                 swap(arr, j, j - 1);
     }
 
-    public static <T extends Comparable<T>> void sort2(T[] arr) {
+    public static <T extends Comparable<T>> void sort2(T[] arr) { sort2(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort2(T[] arr, Comparator<? super T> c) {
         for (int i = 0; i < arr.length; i++) {
             T e = arr[i];    // 复制当前元素
             int j = i;                // 因为找到 e 应插入的位置的时候即是循环终止的时候，因此循环的索引的最终值 j 即是要插入的位置
-            for (; j > 0 && arr[j - 1].compareTo(e) > 0; j--)
+            for (; j > 0 && c.compare(arr[j - 1], e) > 0; j--)
                 arr[j] = arr[j - 1];  // 在循环结束之前，若前一个元素 > e，则将前一个元素复制到当前位置
+            SortProbe.move(i - j + 1);  // 后移 i-j 个元素，再写入 e
             arr[j] = e;               // 若前一个元素 <= e，循环结束，此时找到了 e 应该插入的位置
         }
     }
 
     public static <T extends Comparable<T>> void sortRange(T[] arr, int l, int r) {  // 对数组中的某一区间进行插入排序
-        for (int i = l; i <= r; i++) {
+        sortRange(arr, l, r, Comparator.naturalOrder());
+    }
+
+    public static <T> void sortRange(T[] arr, int l, int r, Comparator<? super T> c) {
+        for (int i = l + 1; i <= r; i++) {
             T e = arr[i];
             int j = i;
-            for (; j > 0 && arr[j - 1].compareTo(e) > 0; j--)
+            for (; j > l && c.compare(arr[j - 1], e) > 0; j--)  // 注意是 j > l 而不是 j > 0，否则元素会越过左边界被插入到 arr[0...l-1] 中
                 arr[j] = arr[j - 1];
+            SortProbe.move(i - j + 1);
             arr[j] = e;
         }
     }
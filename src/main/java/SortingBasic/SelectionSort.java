@@ -1,5 +1,7 @@
 package SortingBasic;
 
+import java.util.Comparator;
+
 import static Utils.Helpers.*;
 
 /*
@@ -10,11 +12,13 @@ import static Utils.Helpers.*;
  * */
 
 public class SelectionSort {
-    public static <T extends Comparable<T>> void sort(T[] arr) {
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {
         for (int i = 0; i < arr.length - 1; i++) {  // 只需要 n-1 次迭代即可完成排序（比如 [2,6,4] 只需2次迭代）
             int minIndex = i;
             for (int j = i; j < arr.length; j++)
-                if (arr[j].compareTo(arr[minIndex]) < 0)
+                if (c.compare(arr[j], arr[minIndex]) < 0)
                     minIndex = j;
             swap(arr, i, minIndex);
         }
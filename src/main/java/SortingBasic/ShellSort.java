@@ -3,6 +3,9 @@ package SortingBasic;
 import SortingAdvanced.MergeSort2;
 import SortingAdvanced.QuickSort2Ways;
 import SortingAdvanced.QuickSort3Ways;
+import Utils.SortProbe;
+
+import java.util.Comparator;
 
 import static Utils.Helpers.*;
 
@@ -59,15 +62,18 @@ import static Utils.Helpers.*;
  * */
 
 public class ShellSort {
-    public static <T extends Comparable<T>> void sort(T[] arr) {
+    public static <T extends Comparable<T>> void sort(T[] arr) { sort(arr, Comparator.naturalOrder()); }
+
+    public static <T> void sort(T[] arr, Comparator<? super T> c) {
         int h = arr.length / 2;  // h 即为上面说的 gap
         while (h >= 1) {         // h-sort the array
             for (int i = h; i < arr.length; i++) {  // 体会一下从 h 开始遍历的目的
                 // 循环内部进行插入排序
                 T e = arr[i];
                 int j = i;
-                for (; j >= h && e.compareTo(arr[j - h]) < 0 ; j -= h)  // 在比较的过程中每次步进为 h，即只对 arr[i], arr[i-h], arr[i-2*h]... 进行插入排序
+                for (; j >= h && c.compare(e, arr[j - h]) < 0 ; j -= h)  // 在比较的过程中每次步进为 h，即只对 arr[i], arr[i-h], arr[i-2*h]... 进行插入排序
                     arr[j] = arr[j - h];
+                SortProbe.move((i - j) / h + 1);
                 arr[j] = e;
             }
             h /= 2;
@@ -0,0 +1,359 @@
+package SortingExternal;
+
+import Heap.LoserTree;
+import SortingAdvanced.NaturalMergeSort;
+import Utils.DataGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static Utils.Helpers.log;
+
+/*
+ * 外部归并排序（External Merge Sort）：
+ *
+ * - 问题：
+ *   SortingAdvanced 中的所有排序都假设数据能一次性放进一个 Java 数组（即内存）中。对于几十 GB 的数据文件，内存（堆）放不下，
+ *   就需要借助磁盘来排序，即外部排序。
+ *
+ * - 思路：归并排序的"分"和"治"分别在内存和磁盘上进行。
+ *   1. 生成有序段（run generation）：每次从输入文件读入内存预算所能容纳的一批记录，用内存排序算法（这里用 NaturalMergeSort，
+ *      稳定，且对近乎有序的数据接近 O(n)）排好序后写到一个临时文件中，称为一个 run。
+ *   2. 多路归并（k-way merge）：同时打开 k 个 run，每个 run 只在内存中保留一小段缓冲区。用一棵败者树（Heap.LoserTree）维护
+ *      每个 run 当前的第一条记录，每次取出最小的那条写到输出中，再从该 run 中读入下一条记录并重新比赛。每条记录只需 ⌈log2(k)⌉
+ *      次比较（最小堆 extractMin + insert 约需 2·log2(k) 次）。merge(runs, output) 也可以直接用来归并已经各自有序的文件。
+ *   3. 扇入（fan-in）：一次能同时归并的 run 的个数受限于内存（每个 run 都要一块读缓冲区，缓冲区太小会导致大量的小块随机读）。
+ *      若 run 的个数超过 fanIn，则先每 fanIn 个归并成一个更大的 run（一遍 merge pass），直到不超过 fanIn 个，再做最后一遍归并。
+ *      总的 I/O 量为 O(n * (1 + log_fanIn(runs)))。
+ *
+ * - 内存预算（memoryBudget）：
+ *   - 生成 run 时：每条记录占用 recordWidth 字节的数据缓冲区，外加一个用于排序的 RecordKey 对象（按约 32 字节估算）。
+ *   - 归并时：k 个读缓冲区 + 1 个写缓冲区平分内存预算。
+ *
+ * - 读取方式：默认使用 FileChannel + 堆内 ByteBuffer 读取；也可以指定使用内存映射（MappedByteBuffer），每次映射 run 文件中的
+ *   一个窗口（大小同读缓冲区），由操作系统负责把文件内容换入换出，省去一次从内核到用户空间的拷贝。
+ *
+ * - 稳定性：run 生成时使用稳定排序；归并时 key 相同则取编号较小（即在输入中较靠前）的 run，因此整体是稳定的。
+ *
+ * - 文件不超过 2GB 时，MappedRecordSort 直接在映射的缓冲区上排序，不需要为每条记录创建 RecordKey 对象。
+ * */
+
+public class ExternalMergeSort {
+    private static final int KEY_OVERHEAD = 32;       // 每条记录在生成 run 时额外需要的内存（RecordKey 对象 + 引用）的估算值
+    private static final int RUN_WRITE_BUFFER = 1 << 20;
+
+    private final RecordFormat format;
+    private final long memoryBudget;
+    private final int fanIn;
+    private final Path tempDir;
+    private final boolean memoryMapped;
+
+    public ExternalMergeSort(RecordFormat format, long memoryBudget, int fanIn) {
+        this(format, memoryBudget, fanIn, Paths.get(System.getProperty("java.io.tmpdir")), false);
+    }
+
+    public ExternalMergeSort(RecordFormat format, long memoryBudget, int fanIn, Path tempDir, boolean memoryMapped) {
+        if (fanIn < 2)
+            throw new IllegalArgumentException("fanIn must be at least 2.");
+        if (memoryBudget < (long) (format.getRecordWidth() + KEY_OVERHEAD) * (fanIn + 1))
+            throw new IllegalArgumentException("memoryBudget is too small for the given record width and fanIn.");
+        this.format = format;
+        this.memoryBudget = memoryBudget;
+        this.fanIn = fanIn;
+        this.tempDir = tempDir;
+        this.memoryMapped = memoryMapped;
+    }
+
+    // 将 input 中的记录按 key 排序后写入 output，返回各阶段的统计信息
+    public Stats sort(Path input, Path output) throws IOException {
+        Stats stats = new Stats();
+        long size = Files.size(input);
+        if (size % format.getRecordWidth() != 0)
+            throw new IllegalArgumentException("input size is not a multiple of the record width.");
+        stats.bytes = size;
+        stats.records = size / format.getRecordWidth();
+
+        List<Path> temps = new ArrayList<>();  // 创建过的所有临时文件（run 以及每遍归并的结果）
+        try {
+            long start = System.nanoTime();
+            generateRuns(input, temps);
+            List<Path> runs = new ArrayList<>(temps);
+            stats.runs = runs.size();
+            stats.runGenerationNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            while (runs.size() > fanIn) {  // 每 fanIn 个 run 归并成一个，直到不超过 fanIn 个
+                List<Path> next = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += fanIn) {
+                    List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+                    if (group.size() == 1) {
+                        next.add(group.get(0));
+                        continue;
+                    }
+                    Path merged = newTempFile();
+                    temps.add(merged);
+                    next.add(merged);
+                    merge(group, merged);
+                    for (Path p : group)
+                        Files.delete(p);
+                }
+                runs = next;
+                stats.mergePasses++;
+            }
+
+            if (runs.isEmpty())
+                Files.write(output, new byte[0]);
+            else if (runs.size() == 1)
+                Files.move(runs.remove(0), output, StandardCopyOption.REPLACE_EXISTING);
+            else {
+                merge(runs, output);
+                stats.mergePasses++;
+            }
+            stats.mergeNanos = System.nanoTime() - start;
+        } finally {
+            for (Path p : temps)  // 清理剩余的临时文件（出错时包括这一遍中已经归并出的 run），已经删除或移走的会被忽略
+                Files.deleteIfExists(p);
+        }
+        return stats;
+    }
+
+    private void generateRuns(Path input, List<Path> runs) throws IOException {
+        int width = format.getRecordWidth();
+        int capacity = (int) Math.min(memoryBudget / (width + KEY_OVERHEAD), (Integer.MAX_VALUE - 8) / width);
+        byte[] data = new byte[capacity * width];
+        ByteBuffer buf = ByteBuffer.wrap(data).order(format.getByteOrder());
+        RecordKey[] keys = new RecordKey[capacity];
+        for (int i = 0; i < capacity; i++)
+            keys[i] = new RecordKey();
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            while (true) {
+                buf.clear();
+                while (buf.hasRemaining() && in.read(buf) >= 0) ;  // 读满缓冲区或读到文件末尾
+                int n = buf.position() / width;
+                if (n == 0) break;
+
+                for (int i = 0; i < n; i++) {
+                    keys[i].key = format.readKey(buf, i * width);
+                    keys[i].offset = i * width;
+                }
+                RecordKey[] toSort = n == capacity ? keys : Arrays.copyOf(keys, n);  // 最后一批可能不满
+                NaturalMergeSort.sort(toSort);
+
+                Path run = newTempFile();
+                runs.add(run);
+                try (RunWriter writer = new RunWriter(run, Math.max(width, RUN_WRITE_BUFFER / width * width))) {
+                    for (int i = 0; i < n; i++)
+                        writer.write(data, toSort[i].offset, width);
+                }
+                if (n < capacity) break;
+            }
+        }
+    }
+
+    // 将各自有序的 runs（如各个分片的排序结果）一次归并到 output 中（k 路归并），不受 fanIn 的限制
+    public void merge(List<Path> runs, Path output) throws IOException {
+        if (runs.isEmpty()) {  // 没有输入时输出一个空文件，与 sort 对空输入的处理一致
+            Files.write(output, new byte[0]);
+            return;
+        }
+        int width = format.getRecordWidth();
+        int bufSize = (int) Math.max(width, Math.min(memoryBudget / (runs.size() + 1), Integer.MAX_VALUE - 8) / width * width);
+
+        List<RunReader> readers = new ArrayList<>();
+        try (RunWriter writer = new RunWriter(output, bufSize)) {
+            RunReader[] heads = new RunReader[runs.size()];
+            for (int i = 0; i < runs.size(); i++) {
+                RunReader reader = new RunReader(runs.get(i), i, bufSize);
+                readers.add(reader);
+                if (reader.size % width != 0)
+                    throw new IllegalArgumentException("input size is not a multiple of the record width.");
+                heads[i] = reader.advance() ? reader : null;  // null 表示该 run 为空
+            }
+            LoserTree<RunReader> tree = new LoserTree<>(heads, Comparator.naturalOrder());
+            while (!tree.isEmpty()) {
+                RunReader reader = tree.peek();                // 当前 key 最小的 run
+                reader.writeTo(writer);
+                tree.replace(reader.advance() ? reader : null);  // 该 run 读入下一条记录（或已经读完）后重新比赛
+            }
+        } finally {
+            for (RunReader reader : readers)
+                reader.close();
+        }
+    }
+
+    private Path newTempFile() throws IOException { return Files.createTempFile(tempDir, "run-", ".bin"); }
+
+    // 生成 run 时用于排序的 key，offset 是该记录在数据缓冲区中的位置
+    private static class RecordKey implements Comparable<RecordKey> {
+        long key;
+        int offset;
+
+        @Override
+        public int compareTo(RecordKey o) { return Long.compare(key, o.key); }
+    }
+
+    // 顺序读取一个 run，维护该 run 当前的第一条记录
+    private class RunReader implements Comparable<RunReader> {
+        private final FileChannel channel;
+        private final long size;
+        private final int index;    // run 的编号，key 相同时编号小的优先，保证稳定性
+        private final int bufSize;
+        private ByteBuffer buf;
+        private long filePos;       // 已读入缓冲区的字节数
+        private long key;
+
+        RunReader(Path path, int index, int bufSize) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.size = channel.size();
+            this.index = index;
+            this.bufSize = bufSize;
+            this.buf = memoryMapped ? ByteBuffer.allocate(0) : ByteBuffer.allocate(bufSize).order(format.getByteOrder());
+            this.buf.limit(0);
+        }
+
+        boolean advance() throws IOException {  // 移动到下一条记录，若 run 已经读完则返回 false
+            if (!buf.hasRemaining() && !refill())
+                return false;
+            key = format.readKey(buf, buf.position());
+            return true;
+        }
+
+        private boolean refill() throws IOException {
+            if (filePos >= size) return false;
+            if (memoryMapped) {  // 映射文件中的下一个窗口（缓冲区大小是 recordWidth 的整数倍，因此窗口不会截断记录）
+                int len = (int) Math.min(bufSize, size - filePos);
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, filePos, len).order(format.getByteOrder());
+                filePos += len;
+            } else {
+                buf.clear();
+                int read;
+                while (buf.hasRemaining() && (read = channel.read(buf)) >= 0)
+                    filePos += read;
+                buf.flip();
+            }
+            return buf.hasRemaining();
+        }
+
+        void writeTo(RunWriter writer) throws IOException { writer.write(buf, format.getRecordWidth()); }
+
+        void close() throws IOException { channel.close(); }
+
+        @Override
+        public int compareTo(RunReader o) {
+            int cmp = Long.compare(key, o.key);
+            return cmp != 0 ? cmp : Integer.compare(index, o.index);
+        }
+    }
+
+    // 带缓冲区的顺序写入
+    private static class RunWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buf;
+
+        RunWriter(Path path, int bufSize) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.buf = ByteBuffer.allocate(bufSize);
+        }
+
+        void write(byte[] src, int offset, int len) throws IOException {
+            if (buf.remaining() < len) flush();
+            buf.put(src, offset, len);
+        }
+
+        void write(ByteBuffer src, int len) throws IOException {  // 从 src 的当前位置拷贝 len 个字节，src 的 position 随之后移
+            if (buf.remaining() < len) flush();
+            int limit = src.limit();
+            src.limit(src.position() + len);
+            buf.put(src);
+            src.limit(limit);
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining())
+                channel.write(buf);
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+
+    // 排序过程的统计信息
+    public static class Stats {
+        private long records, bytes;
+        private int runs, mergePasses;
+        private long runGenerationNanos, mergeNanos;
+
+        public long getRecords() { return records; }
+
+        public long getBytes() { return bytes; }
+
+        public int getRuns() { return runs; }
+
+        public int getMergePasses() { return mergePasses; }
+
+        public long getRunGenerationNanos() { return runGenerationNanos; }
+
+        public long getMergeNanos() { return mergeNanos; }
+
+        public double getThroughput() { return throughput(runGenerationNanos + mergeNanos); }  // 整体吞吐量，单位 MB/s
+
+        private double throughput(long nanos) { return nanos == 0 ? 0 : bytes / 1048576.0 / (nanos / 1e9); }
+
+        @Override
+        public String toString() {
+            return String.format("records: %d, bytes: %d, runs: %d, merge passes: %d%n" +
+                            "run generation: %.3fs (%.1f MB/s), merge: %.3fs (%.1f MB/s), total: %.3fs (%.1f MB/s)",
+                    records, bytes, runs, mergePasses,
+                    runGenerationNanos / 1e9, throughput(runGenerationNanos),
+                    mergeNanos / 1e9, throughput(mergeNanos) * mergePasses,  // 归并阶段每一遍都要完整读写一次数据
+                    (runGenerationNanos + mergeNanos) / 1e9, getThroughput());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // 生成测试数据：200万条16字节的记录，前8字节是随机的 long 型 key，后8字节是记录在原文件中的序号
+        int n = 2000000;
+        Path input = Files.createTempFile("external-sort-input-", ".bin");
+        Path output = Files.createTempFile("external-sort-output-", ".bin");
+        RecordFormat format = new RecordFormat(16, 0, RecordFormat.KeyType.LONG);
+        new DataGenerator().writeRecords(input, n, format, DataGenerator.uniform(0, 1000000));  // key 的取值范围比记录数小，因此有很多重复的 key，用于检查稳定性
+        log(new ExternalMergeSort(format, 4 << 20, 4).sort(input, output));  // 4MB 内存预算，扇入为4
+        log(isSortedAndStable(output));
+
+        ExternalMergeSort mapped = new ExternalMergeSort(format, 4 << 20, 4, Paths.get(System.getProperty("java.io.tmpdir")), true);
+        log(mapped.sort(input, output));  // 使用内存映射读取
+        log(isSortedAndStable(output));
+
+        Files.delete(input);
+        Files.delete(output);
+    }
+
+    private static boolean isSortedAndStable(Path file) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        long prevKey = Long.MIN_VALUE, prevSeq = -1;
+        while (buf.hasRemaining()) {
+            long key = buf.getLong(), seq = buf.getLong();
+            if (key < prevKey || (key == prevKey && seq < prevSeq))
+                return false;
+            prevKey = key;
+            prevSeq = seq;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,296 @@
+package SortingExternal;
+
+import Utils.DataGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static Utils.Helpers.log;
+
+/*
+ * 直接在（内存映射的）字节缓冲区上排序定长记录：
+ *
+ * - 问题：
+ *   对于放在磁盘上的定长二进制记录，原来的做法是先把每条记录反序列化成一个 Java 对象，再调用 QuickSort3Ways.sort、MergeSort.sort
+ *   排序，最后再序列化回去。每条记录都要 new 一个对象（对象头 + 字段 + 数组中的引用，往往比记录本身还大），排序时比较的是
+ *   分散在堆中各处的对象，GC 的压力也很大。文件能放进地址空间（<= 2GB，一个 MappedByteBuffer 的上限）时，完全可以直接在
+ *   映射出来的缓冲区上排序，由操作系统负责把文件内容换入换出。
+ *
+ * - 记录格式同 ExternalMergeSort，由 RecordFormat 描述（记录宽度、key 的偏移量、key 的类型和字节序）。排序的范围是缓冲区的
+ *   [position, limit)，不改变缓冲区的 position、limit 和字节序（内部使用 duplicate 出来的视图）。
+ *
+ * - 原地排序 sort(buf, format)：不稳定，除了一条记录大小的临时空间外不需要额外的内存
+ *   - 三路快排（同 QuickSort3Ways）：pivot 只需要它的 key（一个 long），不需要把 pivot 记录移到区间开头，partition 时直接把
+ *     每条记录的 key 与 v 比较，大于、小于 v 的记录整条交换。重复 key 很多时 == v 的区间不再参与递归。
+ *   - 交换两条记录：以 8 字节为单位用 getLong/putLong 交换（对于直接缓冲区/映射缓冲区，这两个方法会被 JIT 编译成单条内存访问指令），
+ *     最后不足 8 字节的部分逐字节交换。记录越宽，交换的代价越大，这也是原地排序的主要开销。
+ *   - 同 IntroSort：对较小的一侧递归、较大的一侧循环，栈深度不超过 log2(n)；深度预算用完时对该区间改用堆排序；区间元素个数
+ *     <= 16 时用插入排序（通过相邻交换实现）。
+ *
+ * - 排序到另一个缓冲区 sort(src, dst, format)：稳定，且每条记录只被拷贝一次
+ *   1. 把所有记录的 key 读到 long[] keys 中，记录的编号放在 int[] indexes 中；
+ *   2. 用 LSD 基数排序（同 SortingSpecialised.RadixSort：11 位一组，第一遍扫描时统计所有位的计数，跳过所有元素都相同的位）
+ *      对 keys 排序，indexes 跟着一起移动。基数排序是稳定的，key 相同的记录保持原来的顺序；
+ *   3. 按 indexes 的顺序把记录从 src 依次拷贝到 dst 中（dst 是顺序写，src 是随机读）。
+ *   需要约 24 字节/记录的辅助数组（keys、indexes 及基数排序的 buffer），但都是基本类型数组，不随记录数创建任何对象。
+ *
+ * - 文件版本：sort(file, format) 把整个文件以 READ_WRITE 方式映射后原地排序；sort(input, output, format) 把 input 映射为只读、
+ *   output 映射为读写（映射时文件会被扩展到需要的大小）后调用 sort(src, dst, format)。完成后调用 force() 把修改写回磁盘。
+ *   sort(channel, position, size, format) 只对文件中的一个区间原地排序。文件超过 2GB 时请使用 ExternalMergeSort。
+ * */
+
+public class MappedRecordSort {
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int PASSES = (64 + RADIX_BITS - 1) / RADIX_BITS;
+
+    public static void sort(Path file, RecordFormat format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            sort(channel, 0, channel.size(), format);
+        }
+    }
+
+    // 对文件中 [position, position + size) 区间内的记录原地排序
+    public static void sort(FileChannel channel, long position, long size, RecordFormat format) throws IOException {
+        checkSize(size, format);
+        if (size == 0) return;
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        sort(buf, format);
+        buf.force();
+    }
+
+    public static void sort(Path input, Path output, RecordFormat format) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            checkSize(size, format);
+            if (size == 0) return;
+            MappedByteBuffer dst = out.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            sort(in.map(FileChannel.MapMode.READ_ONLY, 0, size), dst, format);
+            dst.force();
+        }
+    }
+
+    private static void checkSize(long size, RecordFormat format) {
+        if (size % format.getRecordWidth() != 0)
+            throw new IllegalArgumentException("input size is not a multiple of the record width.");
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("input is larger than 2GB, use ExternalMergeSort instead.");
+    }
+
+    /* -------------------------------- 原地排序 -------------------------------- */
+
+    public static void sort(ByteBuffer buf, RecordFormat format) {
+        int width = format.getRecordWidth();
+        if (buf.remaining() % width != 0)
+            throw new IllegalArgumentException("input size is not a multiple of the record width.");
+        int n = buf.remaining() / width;
+        if (n < 2) return;
+        new InPlace(buf, format).sort(0, n - 1, 2 * (31 - Integer.numberOfLeadingZeros(n)));
+    }
+
+    // 原地排序的状态：缓冲区视图、记录格式，以及交换记录时用到的临时空间
+    private static class InPlace {
+        private final ByteBuffer buf;
+        private final RecordFormat format;
+        private final int base, width;
+
+        InPlace(ByteBuffer buf, RecordFormat format) {
+            this.buf = buf.duplicate().order(format.getByteOrder());
+            this.format = format;
+            this.base = buf.position();
+            this.width = format.getRecordWidth();
+        }
+
+        private long key(int i) { return format.readKey(buf, base + i * width); }
+
+        private void sort(int l, int r, int depthLimit) {  // 对第 l...r 条记录排序
+            while (r - l > 15) {
+                if (depthLimit == 0) {
+                    heapSort(l, r);
+                    return;
+                }
+                depthLimit--;
+
+                long v = key(ThreadLocalRandom.current().nextInt(l, r + 1));
+                int lt = l, i = l, gt = r;  // [l...lt-1] < v，[lt...i-1] == v，[gt+1...r] > v
+                while (i <= gt) {
+                    long k = key(i);
+                    if (k < v)
+                        swap(lt++, i++);
+                    else if (k > v)
+                        swap(i, gt--);
+                    else
+                        i++;
+                }
+
+                if (lt - l < r - gt) {  // 对较小的一侧递归，较大的一侧在下一轮循环中处理
+                    sort(l, lt - 1, depthLimit);
+                    l = gt + 1;
+                } else {
+                    sort(gt + 1, r, depthLimit);
+                    r = lt - 1;
+                }
+            }
+            for (int i = l + 1; i <= r; i++)  // 插入排序
+                for (int j = i; j > l && key(j - 1) > key(j); j--)
+                    swap(j - 1, j);
+        }
+
+        private void heapSort(int l, int r) {  // 同 Heap.HeapSort.sortRange
+            int n = r - l + 1;
+            for (int i = (n - 2) / 2; i >= 0; i--)
+                siftDown(l, n, i);
+            for (int i = n - 1; i > 0; i--) {
+                swap(l, l + i);
+                siftDown(l, i, 0);
+            }
+        }
+
+        private void siftDown(int offset, int n, int k) {
+            while (k * 2 + 1 < n) {
+                int i = k * 2 + 1;
+                if (i + 1 < n && key(offset + i + 1) > key(offset + i))
+                    i += 1;
+                if (key(offset + k) >= key(offset + i))
+                    break;
+                swap(offset + k, offset + i);
+                k = i;
+            }
+        }
+
+        private void swap(int i, int j) {  // 交换第 i、j 条记录：8 字节一组，剩下的逐字节
+            if (i == j) return;
+            int a = base + i * width, b = base + j * width, end = a + width;
+            for (; a + 8 <= end; a += 8, b += 8) {
+                long t = buf.getLong(a);
+                buf.putLong(a, buf.getLong(b));
+                buf.putLong(b, t);
+            }
+            for (; a < end; a++, b++) {
+                byte t = buf.get(a);
+                buf.put(a, buf.get(b));
+                buf.put(b, t);
+            }
+        }
+    }
+
+    /* -------------------------------- 排序到另一个缓冲区 -------------------------------- */
+
+    // 将 src 的 [position, limit) 中的记录稳定地排序后写入 dst 的 [position, position + src.remaining())
+    public static void sort(ByteBuffer src, ByteBuffer dst, RecordFormat format) {
+        int width = format.getRecordWidth();
+        if (src.remaining() % width != 0)
+            throw new IllegalArgumentException("input size is not a multiple of the record width.");
+        if (dst.remaining() < src.remaining())
+            throw new IllegalArgumentException("sort failed. Buffer is smaller than the input.");
+        int n = src.remaining() / width;
+
+        ByteBuffer in = src.duplicate().order(format.getByteOrder());
+        int base = src.position();
+        long[] keys = new long[n];
+        int[] indexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = format.readKey(in, base + i * width);
+            indexes[i] = i;
+        }
+        radixSort(keys, indexes);
+
+        ByteBuffer out = dst.duplicate();  // 顺序写入 dst，每条记录用一次批量拷贝
+        for (int i = 0; i < n; i++) {
+            int start = base + indexes[i] * width;
+            in.limit(start + width).position(start);
+            out.put(in);
+            in.limit(in.capacity());
+        }
+    }
+
+    // LSD 基数排序（同 SortingSpecialised.RadixSort.sort(long[])），indexes 随 keys 一起移动
+    private static void radixSort(long[] keys, int[] indexes) {
+        int n = keys.length;
+        int[][] counts = new int[PASSES][RADIX + 1];
+        for (long key : keys) {
+            long x = key ^ Long.MIN_VALUE;  // 翻转符号位，使无符号顺序与有符号顺序一致
+            for (int p = 0; p < PASSES; p++)
+                counts[p][(int) ((x >>> (p * RADIX_BITS)) & (RADIX - 1)) + 1]++;
+        }
+
+        long[] keyBuf = new long[n];
+        int[] indexBuf = new int[n];
+        long[] fromKeys = keys, toKeys = keyBuf;
+        int[] fromIndexes = indexes, toIndexes = indexBuf;
+        for (int p = 0; p < PASSES; p++) {
+            int[] count = counts[p];
+            boolean constant = false;  // 所有元素在这一位上都相同，跳过
+            for (int d = 1; d <= RADIX; d++)
+                if (count[d] == n) constant = true;
+            if (constant) continue;
+
+            for (int d = 0; d < RADIX; d++)  // 前缀和，count[d] 为 digit d 在输出中的起始位置
+                count[d + 1] += count[d];
+            int shift = p * RADIX_BITS;
+            for (int i = 0; i < n; i++) {
+                int d = (int) (((fromKeys[i] ^ Long.MIN_VALUE) >>> shift) & (RADIX - 1));
+                int pos = count[d]++;
+                toKeys[pos] = fromKeys[i];
+                toIndexes[pos] = fromIndexes[i];
+            }
+            long[] tk = fromKeys; fromKeys = toKeys; toKeys = tk;
+            int[] ti = fromIndexes; fromIndexes = toIndexes; toIndexes = ti;
+        }
+        if (fromKeys != keys) {
+            System.arraycopy(fromKeys, 0, keys, 0, n);
+            System.arraycopy(fromIndexes, 0, indexes, 0, n);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // 测试数据同 ExternalMergeSort：200万条16字节的记录，前8字节是 key，后8字节是记录在原文件中的序号
+        int n = 2000000;
+        Path input = Files.createTempFile("mapped-sort-input-", ".bin");
+        Path output = Files.createTempFile("mapped-sort-output-", ".bin");
+        Path external = Files.createTempFile("mapped-sort-external-", ".bin");
+        RecordFormat format = new RecordFormat(16, 0, RecordFormat.KeyType.LONG);
+        new DataGenerator(42).writeRecords(input, n, format, DataGenerator.uniform(0, 1000000));
+
+        long start = System.nanoTime();
+        sort(input, output, format);  // 稳定，排序到另一个文件
+        log(String.format("Mapped sort into another file: %.3fs", (System.nanoTime() - start) / 1e9));
+        log(isSorted(output, true));
+
+        start = System.nanoTime();
+        log(new ExternalMergeSort(format, 256 << 20, 16).sort(input, external));  // 内存足够放下全部数据，只生成一个 run
+        log(String.format("ExternalMergeSort with one run: %.3fs", (System.nanoTime() - start) / 1e9));
+        log(Arrays.equals(Files.readAllBytes(output), Files.readAllBytes(external)));  // 两者都是稳定的，结果相同
+
+        start = System.nanoTime();
+        sort(input, format);          // 原地排序（不稳定，只检查 key 有序）
+        log(String.format("Mapped sort in place: %.3fs", (System.nanoTime() - start) / 1e9));
+        log(isSorted(input, false));
+
+        Files.delete(input);
+        Files.delete(output);
+        Files.delete(external);
+    }
+
+    private static boolean isSorted(Path file, boolean stable) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        long prevKey = Long.MIN_VALUE, prevSeq = -1;
+        while (buf.hasRemaining()) {
+            long key = buf.getLong(), seq = buf.getLong();
+            if (key < prevKey || (stable && key == prevKey && seq < prevSeq))
+                return false;
+            prevKey = key;
+            prevSeq = seq;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+package SortingExternal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * 定长二进制记录的格式描述：
+ *
+ * - 每条记录占 recordWidth 个字节，记录之间紧密排列（第 i 条记录从第 i * recordWidth 个字节开始）。
+ * - 排序的 key 是记录中从 keyOffset 开始的一个 int（4字节）或 long（8字节），按有符号整数比较。
+ * - 字节序默认为大端（ByteBuffer 的默认字节序，也是 DataOutputStream 写出的字节序），小端数据需要显式指定 ByteOrder.LITTLE_ENDIAN。
+ * */
+
+public class RecordFormat {
+    public enum KeyType {
+        INT(4), LONG(8);
+
+        private final int size;
+
+        KeyType(int size) { this.size = size; }
+
+        public int getSize() { return size; }
+    }
+
+    private final int recordWidth;
+    private final int keyOffset;
+    private final KeyType keyType;
+    private final ByteOrder byteOrder;
+
+    public RecordFormat(int recordWidth, int keyOffset, KeyType keyType) {
+        this(recordWidth, keyOffset, keyType, ByteOrder.BIG_ENDIAN);
+    }
+
+    public RecordFormat(int recordWidth, int keyOffset, KeyType keyType, ByteOrder byteOrder) {
+        if (recordWidth <= 0)
+            throw new IllegalArgumentException("recordWidth must be positive.");
+        if (keyOffset < 0 || keyOffset + keyType.getSize() > recordWidth)
+            throw new IllegalArgumentException("key does not fit in the record.");
+        this.recordWidth = recordWidth;
+        this.keyOffset = keyOffset;
+        this.keyType = keyType;
+        this.byteOrder = byteOrder;
+    }
+
+    // 读取从 buf 中 recordStart 位置开始的那条记录的 key（绝对位置读取，不改变 buf 的 position）。buf 的字节序需与 byteOrder 一致
+    public long readKey(ByteBuffer buf, int recordStart) {
+        return keyType == KeyType.INT ? buf.getInt(recordStart + keyOffset) : buf.getLong(recordStart + keyOffset);
+    }
+
+    public int getRecordWidth() { return recordWidth; }
+
+    public int getKeyOffset() { return keyOffset; }
+
+    public KeyType getKeyType() { return keyType; }
+
+    public ByteOrder getByteOrder() { return byteOrder; }
+}
@@ -0,0 +1,291 @@
+package SortingPrimitive;
+
+import Utils.DataGenerator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static Utils.Helpers.*;
+
+/*
+ * 块划分快速排序（BlockQuicksort）- 基本类型版本
+ *
+ * - 问题：分支预测失败（branch misprediction）
+ *   QuickSort2Ways、QuickSort3Ways 的 partition 中，每次比较的结果都决定了下一步是继续扫描还是交换，即每个元素都对应一个
+ *   条件分支。对于随机数据，这些分支的走向是无法预测的（pivot 选得越好，越接近50%的概率），CPU 的流水线每预测失败一次就要
+ *   清空重来，损失十几个时钟周期。对基本类型来说，比较本身只是一条指令，因此 partition 的时间主要花在了预测失败上。
+ *
+ * - 思路（Edelkamp & Weiß, "BlockQuicksort: How Branch Mispredictions don't affect Quicksort", 2016）：
+ *   把"比较"和"交换"这两步分开：
+ *   1. 比较：从左右两端各取一个 BLOCK 个元素的块，分别扫描一遍，把左块中 >= v 的元素、右块中 <= v 的元素（即放错位置的元素）
+ *      的偏移量依次记在 offsetsL、offsetsR 中：
+ *          offsetsL[numL] = k;
+ *          numL += arr[i + k] >= v ? 1 : 0;
+ *      无论比较结果如何都执行同样的指令，比较结果只影响 numL 加0还是加1（编译成条件传送/setcc 指令，而不是跳转），因此这个
+ *      循环中没有依赖于数据的分支。
+ *   2. 交换：取 num = min(numL, numR)，将 offsetsL、offsetsR 中记下的前 num 对元素两两交换。循环次数是确定的，同样没有
+ *      依赖于数据的分支。
+ *   3. 哪一边的块中放错位置的元素全部交换完了，哪一边就移动到下一个块；另一边剩下的偏移量留到下一轮继续使用。
+ *
+ *       l        i                                                 j        r
+ *     [ v | <=v |  左块 BLOCK 个  |  ...... 尚未处理 ......  |  右块 BLOCK 个  | >=v ]
+ *
+ *   4. 剩下的元素不足两个块时，用普通的双路 partition 处理完（此时最多只有 2 * BLOCK 个元素，对整体影响很小）。
+ *
+ * - 其他：
+ *   - 与双路快排一样，左右两边 == v 的元素都被视为放错位置而交换，因此大量重复元素时两边仍然是平衡的；
+ *   - pivot 取随机3个元素的中位数，partition 更均衡；
+ *   - 对较小的一侧递归、较大的一侧循环处理，递归深度不超过 O(logn)；
+ *   - offsetsL、offsetsR 在每次 sort 时只分配一次（各 BLOCK 个 int），所有 partition 共用。
+ *
+ * - double[] 版本与其他基本类型排序一样，不支持 NaN。
+ * */
+
+public class BlockQuickSort {
+    private static final int BLOCK = 128;  // 两个偏移量数组共 1KB，可以放在 L1 cache 中
+
+    public static void sort(int[] arr) { sort(arr, 0, arr.length - 1, new int[BLOCK], new int[BLOCK]); }
+
+    public static void sort(long[] arr) { sort(arr, 0, arr.length - 1, new int[BLOCK], new int[BLOCK]); }
+
+    public static void sort(double[] arr) { sort(arr, 0, arr.length - 1, new int[BLOCK], new int[BLOCK]); }
+
+    private static void sort(int[] arr, int l, int r, int[] offsetsL, int[] offsetsR) {
+        while (r - l > 15) {
+            int p = partition(arr, l, r, offsetsL, offsetsR);
+            if (p - l < r - p) {  // 对较小的一侧递归，较大的一侧在下一轮循环中处理，递归深度不超过 O(logn)
+                sort(arr, l, p - 1, offsetsL, offsetsR);
+                l = p + 1;
+            } else {
+                sort(arr, p + 1, r, offsetsL, offsetsR);
+                r = p - 1;
+            }
+        }
+        InsertionSort.sortRange(arr, l, r);
+    }
+
+    private static int partition(int[] arr, int l, int r, int[] offsetsL, int[] offsetsR) {
+        medianOfThreeToLeft(arr, l, r);
+        int v = arr[l];
+        int i = l + 1, j = r;  // arr[l+1...i-1] <= v，arr[j+1...r] >= v，arr[i...j] 尚未处理
+        int numL = 0, numR = 0, startL = 0, startR = 0;
+
+        while (j - i + 1 > 2 * BLOCK) {
+            if (numL == 0) {  // 左块 arr[i...i+BLOCK-1]：记下 >= v 的元素的偏移量。无论比较结果如何都写入，只是 numL 是否 +1
+                startL = 0;
+                for (int k = 0; k < BLOCK; k++) {
+                    offsetsL[numL] = k;
+                    numL += arr[i + k] >= v ? 1 : 0;
+                }
+            }
+            if (numR == 0) {  // 右块 arr[j-BLOCK+1...j]：记下 <= v 的元素的偏移量（从右往左数）
+                startR = 0;
+                for (int k = 0; k < BLOCK; k++) {
+                    offsetsR[numR] = k;
+                    numR += arr[j - k] <= v ? 1 : 0;
+                }
+            }
+            int num = Math.min(numL, numR);  // 两边各取 num 个放错位置的元素两两交换
+            for (int k = 0; k < num; k++)
+                swap(arr, i + offsetsL[startL + k], j - offsetsR[startR + k]);
+            numL -= num;
+            numR -= num;
+            startL += num;
+            startR += num;
+            if (numL == 0) i += BLOCK;  // 左块中放错位置的元素已经全部换走，整块都 <= v
+            if (numR == 0) j -= BLOCK;
+        }
+
+        // 剩下不超过 2 * BLOCK 个元素（若某个块中还有没换走的元素，i 或 j 就还停在这个块上），用普通的双路 partition 处理
+        while (true) {
+            while (i <= r && arr[i] < v) i++;
+            while (j >= l + 1 && arr[j] > v) j--;
+            if (i > j) break;
+            swap(arr, i++, j--);
+        }
+        swap(arr, l, j);
+        return j;
+    }
+
+    // 随机取3个元素，将它们的中位数换到 arr[l] 上作为 pivot
+    private static void medianOfThreeToLeft(int[] arr, int l, int r) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(l, r + 1), b = random.nextInt(l, r + 1), c = random.nextInt(l, r + 1);
+        int m = arr[a] < arr[b]
+                ? (arr[b] < arr[c] ? b : (arr[a] < arr[c] ? c : a))
+                : (arr[a] < arr[c] ? a : (arr[b] < arr[c] ? c : b));
+        swap(arr, l, m);
+    }
+
+    // 不做边界检查的 swap（调用方已保证索引合法）。类中声明的 swap 会遮蔽 static import 进来的 Helpers.swap
+    private static void swap(int[] arr, int i, int j) {
+        int temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    private static void sort(long[] arr, int l, int r, int[] offsetsL, int[] offsetsR) {
+        while (r - l > 15) {
+            int p = partition(arr, l, r, offsetsL, offsetsR);
+            if (p - l < r - p) {
+                sort(arr, l, p - 1, offsetsL, offsetsR);
+                l = p + 1;
+            } else {
+                sort(arr, p + 1, r, offsetsL, offsetsR);
+                r = p - 1;
+            }
+        }
+        InsertionSort.sortRange(arr, l, r);
+    }
+
+    private static int partition(long[] arr, int l, int r, int[] offsetsL, int[] offsetsR) {
+        medianOfThreeToLeft(arr, l, r);
+        long v = arr[l];
+        int i = l + 1, j = r;
+        int numL = 0, numR = 0, startL = 0, startR = 0;
+
+        while (j - i + 1 > 2 * BLOCK) {
+            if (numL == 0) {
+                startL = 0;
+                for (int k = 0; k < BLOCK; k++) {
+                    offsetsL[numL] = k;
+                    numL += arr[i + k] >= v ? 1 : 0;
+                }
+            }
+            if (numR == 0) {
+                startR = 0;
+                for (int k = 0; k < BLOCK; k++) {
+                    offsetsR[numR] = k;
+                    numR += arr[j - k] <= v ? 1 : 0;
+                }
+            }
+            int num = Math.min(numL, numR);
+            for (int k = 0; k < num; k++)
+                swap(arr, i + offsetsL[startL + k], j - offsetsR[startR + k]);
+            numL -= num;
+            numR -= num;
+            startL += num;
+            startR += num;
+            if (numL == 0) i += BLOCK;
+            if (numR == 0) j -= BLOCK;
+        }
+
+        while (true) {
+            while (i <= r && arr[i] < v) i++;
+            while (j >= l + 1 && arr[j] > v) j--;
+            if (i > j) break;
+            swap(arr, i++, j--);
+        }
+        swap(arr, l, j);
+        return j;
+    }
+
+    private static void medianOfThreeToLeft(long[] arr, int l, int r) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(l, r + 1), b = random.nextInt(l, r + 1), c = random.nextInt(l, r + 1);
+        int m = arr[a] < arr[b]
+                ? (arr[b] < arr[c] ? b : (arr[a] < arr[c] ? c : a))
+                : (arr[a] < arr[c] ? a : (arr[b] < arr[c] ? c : b));
+        swap(arr, l, m);
+    }
+
+    private static void swap(long[] arr, int i, int j) {
+        long temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    private static void sort(double[] arr, int l, int r, int[] offsetsL, int[] offsetsR) {
+        while (r - l > 15) {
+            int p = partition(arr, l, r, offsetsL, offsetsR);
+            if (p - l < r - p) {
+                sort(arr, l, p - 1, offsetsL, offsetsR);
+                l = p + 1;
+            } else {
+                sort(arr, p + 1, r, offsetsL, offsetsR);
+                r = p - 1;
+            }
+        }
+        InsertionSort.sortRange(arr, l, r);
+    }
+
+    private static int partition(double[] arr, int l, int r, int[] offsetsL, int[] offsetsR) {
+        medianOfThreeToLeft(arr, l, r);
+        double v = arr[l];
+        int i = l + 1, j = r;
+        int numL = 0, numR = 0, startL = 0, startR = 0;
+
+        while (j - i + 1 > 2 * BLOCK) {
+            if (numL == 0) {
+                startL = 0;
+                for (int k = 0; k < BLOCK; k++) {
+                    offsetsL[numL] = k;
+                    numL += arr[i + k] >= v ? 1 : 0;
+                }
+            }
+            if (numR == 0) {
+                startR = 0;
+                for (int k = 0; k < BLOCK; k++) {
+                    offsetsR[numR] = k;
+                    numR += arr[j - k] <= v ? 1 : 0;
+                }
+            }
+            int num = Math.min(numL, numR);
+            for (int k = 0; k < num; k++)
+                swap(arr, i + offsetsL[startL + k], j - offsetsR[startR + k]);
+            numL -= num;
+            numR -= num;
+            startL += num;
+            startR += num;
+            if (numL == 0) i += BLOCK;
+            if (numR == 0) j -= BLOCK;
+        }
+
+        while (true) {
+            while (i <= r && arr[i] < v) i++;
+            while (j >= l + 1 && arr[j] > v) j--;
+            if (i > j) break;
+            swap(arr, i++, j--);
+        }
+        swap(arr, l, j);
+        return j;
+    }
+
+    private static void medianOfThreeToLeft(double[] arr, int l, int r) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(l, r + 1), b = random.nextInt(l, r + 1), c = random.nextInt(l, r + 1);
+        int m = arr[a] < arr[b]
+                ? (arr[b] < arr[c] ? b : (arr[a] < arr[c] ? c : a))
+                : (arr[a] < arr[c] ? a : (arr[b] < arr[c] ? c : b));
+        swap(arr, l, m);
+    }
+
+    private static void swap(double[] arr, int i, int j) {
+        double temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    public static void main(String[] args) {
+        int[] arr = toIntArr(generateRandomIntArr(20));
+        log(arr);
+        sort(arr);
+        log(arr);
+
+        // 性能测试：同一份数据分别用 QuickSort2Ways 和 BlockQuickSort 排序，各运行几轮以排除 JIT 预热的影响
+        int n = 10000000;
+        DataGenerator gen = new DataGenerator();
+        int[] random = gen.ints(n, DataGenerator.uniform(0, n));
+        int[] zipf = gen.ints(n, DataGenerator.zipf(n, 1));
+        for (int round = 0; round < 3; round++) {
+            log("---- random ----");
+            int[] arr1 = random.clone(), arr2 = random.clone();
+            timeIt(arr1, QuickSort2Ways::sort);
+            timeIt(arr2, BlockQuickSort::sort);  // 快将近1倍
+            log("---- zipf ----");
+            int[] arr3 = zipf.clone(), arr4 = zipf.clone();
+            timeIt(arr3, QuickSort2Ways::sort);
+            timeIt(arr4, BlockQuickSort::sort);
+            log(isSorted(arr2) && isSorted(arr4));
+        }
+    }
+}
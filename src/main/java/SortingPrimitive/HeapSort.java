@@ -0,0 +1,125 @@
+package SortingPrimitive;
+
+import SortingAdvanced.SortingNetwork;
+
+import static Utils.Helpers.*;
+
+/*
+ * 堆排序（Heap Sort）- 基本类型版本
+ *
+ * - 采用 Heap.HeapSort.sort3 的实现方式：原地 heapify + swap + siftDown，空间复杂度 O(1)。
+ * - siftDown 中不再每一步都 swap，而是先保存下沉元素 e，只把较大的孩子往上赋值，最后再把 e 放到最终位置上（与
+ *   InsertionSort.sort2 相对于 sort1 的优化思路相同），每下沉一层可以少两次赋值。
+ * - 堆中只剩 cutoff 个元素（即 arr[0...cutoff-1]）时，不再逐个 swap + siftDown，而是直接用排序网络（SortingNetwork）
+ *   排好；元素个数 <= cutoff 的数组则连 heapify 也省去了。对大数组来说省下的只是最后十几次 siftDown，主要受益的是对小区间
+ *   调用堆排序的场景。
+ * */
+
+public class HeapSort {
+    public static void sort(int[] arr) { sort(arr, SortingNetwork.INT_CUTOFF); }
+
+    public static void sort(int[] arr, int cutoff) {
+        SortingNetwork.checkCutoff(cutoff);
+        int n = arr.length, i = n - 1;
+        if (n > cutoff) {
+            for (int k = (n - 2) / 2; k >= 0; k--)  // heapify，从最后一个非叶子节点开始
+                siftDown(arr, n, k);
+            for (; i > 0 && i >= cutoff; i--) {
+                int max = arr[0];
+                arr[0] = arr[i];
+                arr[i] = max;
+                siftDown(arr, i, 0);
+            }
+        }
+        SortingNetwork.sortRange(arr, 0, i);  // 堆中只剩 cutoff 个元素时直接用排序网络排好
+    }
+
+    public static void sort(long[] arr) { sort(arr, SortingNetwork.LONG_CUTOFF); }
+
+    public static void sort(long[] arr, int cutoff) {
+        SortingNetwork.checkCutoff(cutoff);
+        int n = arr.length, i = n - 1;
+        if (n > cutoff) {
+            for (int k = (n - 2) / 2; k >= 0; k--)
+                siftDown(arr, n, k);
+            for (; i > 0 && i >= cutoff; i--) {
+                long max = arr[0];
+                arr[0] = arr[i];
+                arr[i] = max;
+                siftDown(arr, i, 0);
+            }
+        }
+        SortingNetwork.sortRange(arr, 0, i);
+    }
+
+    public static void sort(double[] arr) { sort(arr, SortingNetwork.DOUBLE_CUTOFF); }
+
+    public static void sort(double[] arr, int cutoff) {
+        SortingNetwork.checkCutoff(cutoff);
+        int n = arr.length, i = n - 1;
+        if (n > cutoff) {
+            for (int k = (n - 2) / 2; k >= 0; k--)
+                siftDown(arr, n, k);
+            for (; i > 0 && i >= cutoff; i--) {
+                double max = arr[0];
+                arr[0] = arr[i];
+                arr[i] = max;
+                siftDown(arr, i, 0);
+            }
+        }
+        SortingNetwork.sortRange(arr, 0, i);
+    }
+
+    private static void siftDown(int[] arr, int n, int k) {  // 对第 k 个元素在前 n 个元素的范围内进行下沉
+        int e = arr[k];
+        while (k * 2 + 1 < n) {
+            int i = k * 2 + 1;
+            if (i + 1 < n && arr[i + 1] > arr[i])
+                i += 1;
+            if (e >= arr[i])
+                break;
+            arr[k] = arr[i];
+            k = i;
+        }
+        arr[k] = e;
+    }
+
+    private static void siftDown(long[] arr, int n, int k) {
+        long e = arr[k];
+        while (k * 2 + 1 < n) {
+            int i = k * 2 + 1;
+            if (i + 1 < n && arr[i + 1] > arr[i])
+                i += 1;
+            if (e >= arr[i])
+                break;
+            arr[k] = arr[i];
+            k = i;
+        }
+        arr[k] = e;
+    }
+
+    private static void siftDown(double[] arr, int n, int k) {
+        double e = arr[k];
+        while (k * 2 + 1 < n) {
+            int i = k * 2 + 1;
+            if (i + 1 < n && arr[i + 1] > arr[i])
+                i += 1;
+            if (e >= arr[i])
+                break;
+            arr[k] = arr[i];
+            k = i;
+        }
+        arr[k] = e;
+    }
+
+    public static void main(String[] args) {
+        int[] arr = toIntArr(generateRandomIntArr(20));
+        log(arr);
+        sort(arr);
+        log(arr);
+
+        long[] arr1 = toLongArr(generateRandomIntArr(1000000));
+        timeIt(arr1, HeapSort::sort);
+        log(isSorted(arr1));
+    }
+}
@@ -0,0 +1,60 @@
+package SortingPrimitive;
+
+import static Utils.Helpers.*;
+
+/*
+ * 插入排序（Insertion Sort）- 基本类型版本
+ *
+ * - 与 SortingBasic.InsertionSort.sort2 的实现相同（先比较，找到插入位置后再赋值）。
+ * - sortRange 中的循环条件是 j > l 而不是 j > 0，即只在 arr[l...r] 的范围内移动元素，不会越过左边界。这样其他排序算法
+ *   在递归到小区间时可以放心地调用它，而不用考虑 l 左边的元素。
+ * */
+
+public class InsertionSort {
+    public static void sort(int[] arr) { sortRange(arr, 0, arr.length - 1); }
+
+    public static void sort(long[] arr) { sortRange(arr, 0, arr.length - 1); }
+
+    public static void sort(double[] arr) { sortRange(arr, 0, arr.length - 1); }
+
+    public static void sortRange(int[] arr, int l, int r) {  // 对 arr[l...r] 进行插入排序
+        for (int i = l + 1; i <= r; i++) {
+            int e = arr[i];
+            int j = i;
+            for (; j > l && arr[j - 1] > e; j--)
+                arr[j] = arr[j - 1];
+            arr[j] = e;
+        }
+    }
+
+    public static void sortRange(long[] arr, int l, int r) {
+        for (int i = l + 1; i <= r; i++) {
+            long e = arr[i];
+            int j = i;
+            for (; j > l && arr[j - 1] > e; j--)
+                arr[j] = arr[j - 1];
+            arr[j] = e;
+        }
+    }
+
+    public static void sortRange(double[] arr, int l, int r) {
+        for (int i = l + 1; i <= r; i++) {
+            double e = arr[i];
+            int j = i;
+            for (; j > l && arr[j - 1] > e; j--)
+                arr[j] = arr[j - 1];
+            arr[j] = e;
+        }
+    }
+
+    public static void main(String[] args) {
+        int[] arr1 = toIntArr(generateRandomIntArr(20));
+        log(arr1);
+        sort(arr1);
+        log(arr1);
+
+        double[] arr2 = toDoubleArr(generateRandomIntArr(20));
+        sortRange(arr2, 5, 14);  // 只排中间一段
+        log(arr2);
+    }
+}
@@ -0,0 +1,143 @@
+package SortingPrimitive;
+
+import SortingAdvanced.SortingNetwork;
+
+import static Utils.Helpers.*;
+
+/*
+ * 归并排序（Merge Sort）- 基本类型版本
+ *
+ * - 整体思路与 SortingAdvanced.MergeSort2 相同（区间元素个数 <= 16 时改用插入排序；arr[mid] <= arr[mid+1] 时跳过 merge）。
+ * - 不同的是辅助数组只在 sort 入口处开辟一次（大小为 n），之后每次 merge 都复用它，而不是像泛型版本那样每次 merge 都
+ *   Arrays.copyOfRange 出一个新数组。基本类型数组的拷贝只是一段连续内存的拷贝（System.arraycopy），非常快。
+ * - 区间元素个数 <= 16 时，<= cutoff 的用排序网络（SortingNetwork）排序，其余的用插入排序（同 QuickSort3Ways）。
+ * */
+
+public class MergeSort {
+    public static void sort(int[] arr) { sort(arr, new int[arr.length], 0, arr.length - 1, SortingNetwork.INT_CUTOFF); }
+
+    public static void sort(int[] arr, int cutoff) {
+        sort(arr, new int[arr.length], 0, arr.length - 1, SortingNetwork.checkCutoff(cutoff));
+    }
+
+    public static void sort(long[] arr) { sort(arr, new long[arr.length], 0, arr.length - 1, SortingNetwork.LONG_CUTOFF); }
+
+    public static void sort(long[] arr, int cutoff) {
+        sort(arr, new long[arr.length], 0, arr.length - 1, SortingNetwork.checkCutoff(cutoff));
+    }
+
+    public static void sort(double[] arr) { sort(arr, new double[arr.length], 0, arr.length - 1, SortingNetwork.DOUBLE_CUTOFF); }
+
+    public static void sort(double[] arr, int cutoff) {
+        sort(arr, new double[arr.length], 0, arr.length - 1, SortingNetwork.checkCutoff(cutoff));
+    }
+
+    // 对 arr[l...r] 进行排序，merge 时使用 aux[l...r] 作为辅助空间（aux 至少要与 arr 等长），供需要自行管理辅助空间的调用方使用
+    public static void sortRange(int[] arr, int[] aux, int l, int r) { sort(arr, aux, l, r, SortingNetwork.INT_CUTOFF); }
+
+    private static void sort(int[] arr, int[] aux, int l, int r, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r);
+            else
+                InsertionSort.sortRange(arr, l, r);
+            return;
+        }
+        int mid = (r - l) / 2 + l;
+        sort(arr, aux, l, mid, cutoff);
+        sort(arr, aux, mid + 1, r, cutoff);
+        if (arr[mid] > arr[mid + 1])
+            merge(arr, aux, l, mid, r);
+    }
+
+    public static void sortRange(long[] arr, long[] aux, int l, int r) { sort(arr, aux, l, r, SortingNetwork.LONG_CUTOFF); }
+
+    private static void sort(long[] arr, long[] aux, int l, int r, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r);
+            else
+                InsertionSort.sortRange(arr, l, r);
+            return;
+        }
+        int mid = (r - l) / 2 + l;
+        sort(arr, aux, l, mid, cutoff);
+        sort(arr, aux, mid + 1, r, cutoff);
+        if (arr[mid] > arr[mid + 1])
+            merge(arr, aux, l, mid, r);
+    }
+
+    public static void sortRange(double[] arr, double[] aux, int l, int r) { sort(arr, aux, l, r, SortingNetwork.DOUBLE_CUTOFF); }
+
+    private static void sort(double[] arr, double[] aux, int l, int r, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r);
+            else
+                InsertionSort.sortRange(arr, l, r);
+            return;
+        }
+        int mid = (r - l) / 2 + l;
+        sort(arr, aux, l, mid, cutoff);
+        sort(arr, aux, mid + 1, r, cutoff);
+        if (arr[mid] > arr[mid + 1])
+            merge(arr, aux, l, mid, r);
+    }
+
+    // aux 与 arr 等长，aux[l...r] 与 arr[l...r] 一一对应，因此不需要像泛型版本那样减去偏移量 l
+    private static void merge(int[] arr, int[] aux, int l, int mid, int r) {
+        System.arraycopy(arr, l, aux, l, r - l + 1);
+        int i = l, j = mid + 1;
+        for (int k = l; k <= r; k++) {
+            if (i > mid)
+                arr[k] = aux[j++];
+            else if (j > r)
+                arr[k] = aux[i++];
+            else if (aux[i] <= aux[j])  // 注意是 <=，保证稳定性
+                arr[k] = aux[i++];
+            else
+                arr[k] = aux[j++];
+        }
+    }
+
+    private static void merge(long[] arr, long[] aux, int l, int mid, int r) {
+        System.arraycopy(arr, l, aux, l, r - l + 1);
+        int i = l, j = mid + 1;
+        for (int k = l; k <= r; k++) {
+            if (i > mid)
+                arr[k] = aux[j++];
+            else if (j > r)
+                arr[k] = aux[i++];
+            else if (aux[i] <= aux[j])
+                arr[k] = aux[i++];
+            else
+                arr[k] = aux[j++];
+        }
+    }
+
+    private static void merge(double[] arr, double[] aux, int l, int mid, int r) {
+        System.arraycopy(arr, l, aux, l, r - l + 1);
+        int i = l, j = mid + 1;
+        for (int k = l; k <= r; k++) {
+            if (i > mid)
+                arr[k] = aux[j++];
+            else if (j > r)
+                arr[k] = aux[i++];
+            else if (aux[i] <= aux[j])
+                arr[k] = aux[i++];
+            else
+                arr[k] = aux[j++];
+        }
+    }
+
+    public static void main(String[] args) {
+        int[] arr = toIntArr(generateRandomIntArr(20));
+        log(arr);
+        sort(arr);
+        log(arr);
+
+        double[] arr1 = toDoubleArr(generateNearlyOrderedArr(1000000, 10));
+        timeIt(arr1, MergeSort::sort);
+        log(isSorted(arr1));
+    }
+}
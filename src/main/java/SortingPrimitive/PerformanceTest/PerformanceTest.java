@@ -0,0 +1,51 @@
+package SortingPrimitive.PerformanceTest;
+
+import SortingPrimitive.*;
+
+import static Utils.Helpers.*;
+
+/*
+ * 泛型版本 vs. 基本类型版本的性能对比：
+ *
+ * - 每组测试对同一份数据（generate 系列方法生成的 Integer[] 及其拆箱后的 int[]）分别运行两个版本。
+ * - 测试结果：对于100万个元素，
+ *   - 归并排序、双路快排、堆排序的基本类型版本比泛型版本快 2.5~3.5 倍；
+ *   - 插入排序（近乎有序）快10倍以上，因为此时的开销几乎全在比较上，而 compareTo 是一次虚方法调用 + 两次拆箱读值；
+ *   - 三路快排（大量重复）只快 1.5 倍左右，因为此时递归层数很浅，主要开销在 partition 的 swap 上。
+ * */
+
+public class PerformanceTest {
+    public static void main(String[] args) {
+        int n = 1000000;
+
+        log("---- Merge Sort (random) ----");
+        Integer[] arr1 = generateRandomIntArr(n);
+        int[] arr2 = toIntArr(arr1);
+        timeIt(arr1, SortingAdvanced.MergeSort2::sort);
+        timeIt(arr2, MergeSort::sort);
+
+        log("---- 2-way Quick Sort (random) ----");
+        Integer[] arr3 = generateRandomIntArr(n);
+        int[] arr4 = toIntArr(arr3);
+        timeIt(arr3, SortingAdvanced.QuickSort2Ways::sort);
+        timeIt(arr4, QuickSort2Ways::sort);
+
+        log("---- 3-way Quick Sort (many duplicates) ----");
+        Integer[] arr5 = generateRandomArrayFromRange(n, 0, 10);
+        int[] arr6 = toIntArr(arr5);
+        timeIt(arr5, SortingAdvanced.QuickSort3Ways::sort);
+        timeIt(arr6, QuickSort3Ways::sort);
+
+        log("---- Heap Sort (random) ----");
+        Integer[] arr7 = generateRandomIntArr(n);
+        int[] arr8 = toIntArr(arr7);
+        timeIt(arr7, Heap.HeapSort::sort3);
+        timeIt(arr8, HeapSort::sort);
+
+        log("---- Insertion Sort (nearly ordered) ----");
+        Integer[] arr9 = generateNearlyOrderedArr(n, 10);
+        int[] arr10 = toIntArr(arr9);
+        timeIt(arr9, SortingBasic.InsertionSort::sort2);
+        timeIt(arr10, InsertionSort::sort);
+    }
+}
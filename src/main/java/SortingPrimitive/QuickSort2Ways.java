@@ -0,0 +1,143 @@
+package SortingPrimitive;
+
+import SortingAdvanced.SortingNetwork;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static Utils.Helpers.*;
+
+/*
+ * 双路快速排序（2-way Quick Sort）- 基本类型版本
+ *
+ * - partition 过程与 SortingAdvanced.QuickSort2Ways 完全一致，另外加上了 QuickSort2 中的优化：区间元素个数 <= 16 时
+ *   改用插入排序。
+ * - 小区间的处理同 QuickSort3Ways：元素个数 <= cutoff 时用排序网络（SortingNetwork），否则用插入排序。
+ * */
+
+public class QuickSort2Ways {
+    public static void sort(int[] arr) { sort(arr, 0, arr.length - 1, SortingNetwork.INT_CUTOFF); }
+
+    public static void sort(int[] arr, int cutoff) { sort(arr, 0, arr.length - 1, SortingNetwork.checkCutoff(cutoff)); }
+
+    public static void sort(long[] arr) { sort(arr, 0, arr.length - 1, SortingNetwork.LONG_CUTOFF); }
+
+    public static void sort(long[] arr, int cutoff) { sort(arr, 0, arr.length - 1, SortingNetwork.checkCutoff(cutoff)); }
+
+    public static void sort(double[] arr) { sort(arr, 0, arr.length - 1, SortingNetwork.DOUBLE_CUTOFF); }
+
+    public static void sort(double[] arr, int cutoff) { sort(arr, 0, arr.length - 1, SortingNetwork.checkCutoff(cutoff)); }
+
+    private static void sort(int[] arr, int l, int r, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r);
+            else
+                InsertionSort.sortRange(arr, l, r);
+            return;
+        }
+        int p = partition(arr, l, r);
+        sort(arr, l, p - 1, cutoff);
+        sort(arr, p + 1, r, cutoff);
+    }
+
+    private static void sort(long[] arr, int l, int r, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r);
+            else
+                InsertionSort.sortRange(arr, l, r);
+            return;
+        }
+        int p = partition(arr, l, r);
+        sort(arr, l, p - 1, cutoff);
+        sort(arr, p + 1, r, cutoff);
+    }
+
+    private static void sort(double[] arr, int l, int r, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r);
+            else
+                InsertionSort.sortRange(arr, l, r);
+            return;
+        }
+        int p = partition(arr, l, r);
+        sort(arr, l, p - 1, cutoff);
+        sort(arr, p + 1, r, cutoff);
+    }
+
+    private static int partition(int[] arr, int l, int r) {
+        swap(arr, l, ThreadLocalRandom.current().nextInt(l, r + 1));
+        int v = arr[l];
+
+        int i = l + 1, j = r;
+        while (true) {
+            while (i <= r && arr[i] < v) i++;
+            while (j >= l + 1 && arr[j] > v) j--;
+            if (i > j) break;
+            swap(arr, i++, j--);
+        }
+        swap(arr, l, j);
+        return j;
+    }
+
+    private static int partition(long[] arr, int l, int r) {
+        swap(arr, l, ThreadLocalRandom.current().nextInt(l, r + 1));
+        long v = arr[l];
+
+        int i = l + 1, j = r;
+        while (true) {
+            while (i <= r && arr[i] < v) i++;
+            while (j >= l + 1 && arr[j] > v) j--;
+            if (i > j) break;
+            swap(arr, i++, j--);
+        }
+        swap(arr, l, j);
+        return j;
+    }
+
+    private static int partition(double[] arr, int l, int r) {
+        swap(arr, l, ThreadLocalRandom.current().nextInt(l, r + 1));
+        double v = arr[l];
+
+        int i = l + 1, j = r;
+        while (true) {
+            while (i <= r && arr[i] < v) i++;
+            while (j >= l + 1 && arr[j] > v) j--;
+            if (i > j) break;
+            swap(arr, i++, j--);
+        }
+        swap(arr, l, j);
+        return j;
+    }
+
+    // 不做边界检查的 swap（调用方已保证索引合法）。类中声明的 swap 会遮蔽 static import 进来的 Helpers.swap
+    private static void swap(int[] arr, int i, int j) {
+        int temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    private static void swap(long[] arr, int i, int j) {
+        long temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    private static void swap(double[] arr, int i, int j) {
+        double temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    public static void main(String[] args) {
+        int[] arr = toIntArr(generateRandomIntArr(20));
+        log(arr);
+        sort(arr);
+        log(arr);
+
+        long[] arr1 = toLongArr(generateRandomArrayFromRange(1000000, 0, 10));  // 包含大量重复的数据集
+        timeIt(arr1, QuickSort2Ways::sort);
+        log(isSorted(arr1));
+    }
+}
@@ -0,0 +1,153 @@
+package SortingPrimitive;
+
+import SortingAdvanced.SortingNetwork;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static Utils.Helpers.*;
+
+/*
+ * 三路快速排序（3-way Quick Sort）- 基本类型版本
+ *
+ * - partition 过程与 SortingAdvanced.QuickSort3Ways 一致：
+ *     [ v|--- <v ---|--- ==v ---|......|--- >v ---| ]
+ *       l          lt            i      gt       r
+ * - 与泛型版本的不同：
+ *   1. 泛型版本的 partition 需要返回 lt 和 gt 两个索引，因此每次调用都要 new 一个 int[]。这里把 partition 过程直接写在
+ *      sort 方法中，lt 和 gt 就是局部变量，不需要额外分配。
+ *   2. 区间元素个数 <= 16 时不再递归：<= cutoff 时用排序网络（SortingNetwork），否则用插入排序。cutoff 默认为
+ *      SortingNetwork 中对应元素类型的 XXX_CUTOFF，也可以通过 sort 的参数指定。
+ * */
+
+public class QuickSort3Ways {
+    public static void sort(int[] arr) { sort(arr, 0, arr.length - 1, SortingNetwork.INT_CUTOFF); }
+
+    public static void sort(int[] arr, int cutoff) { sort(arr, 0, arr.length - 1, SortingNetwork.checkCutoff(cutoff)); }
+
+    public static void sort(long[] arr) { sort(arr, 0, arr.length - 1, SortingNetwork.LONG_CUTOFF); }
+
+    public static void sort(long[] arr, int cutoff) { sort(arr, 0, arr.length - 1, SortingNetwork.checkCutoff(cutoff)); }
+
+    public static void sort(double[] arr) { sort(arr, 0, arr.length - 1, SortingNetwork.DOUBLE_CUTOFF); }
+
+    public static void sort(double[] arr, int cutoff) { sort(arr, 0, arr.length - 1, SortingNetwork.checkCutoff(cutoff)); }
+
+    // 对 arr[l...r] 进行三路快排
+    public static void sortRange(int[] arr, int l, int r) { sort(arr, l, r, SortingNetwork.INT_CUTOFF); }
+
+    private static void sort(int[] arr, int l, int r, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r);
+            else
+                InsertionSort.sortRange(arr, l, r);
+            return;
+        }
+
+        swap(arr, l, ThreadLocalRandom.current().nextInt(l, r + 1));
+        int v = arr[l];
+        int lt = l, gt = r + 1, i = l + 1;
+
+        while (i < gt) {
+            if (arr[i] < v)
+                swap(arr, i++, ++lt);
+            else if (arr[i] > v)
+                swap(arr, i, --gt);
+            else
+                i++;
+        }
+        swap(arr, l, lt);
+
+        sort(arr, l, lt - 1, cutoff);
+        sort(arr, gt, r, cutoff);
+    }
+
+    public static void sortRange(long[] arr, int l, int r) { sort(arr, l, r, SortingNetwork.LONG_CUTOFF); }
+
+    private static void sort(long[] arr, int l, int r, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r);
+            else
+                InsertionSort.sortRange(arr, l, r);
+            return;
+        }
+
+        swap(arr, l, ThreadLocalRandom.current().nextInt(l, r + 1));
+        long v = arr[l];
+        int lt = l, gt = r + 1, i = l + 1;
+
+        while (i < gt) {
+            if (arr[i] < v)
+                swap(arr, i++, ++lt);
+            else if (arr[i] > v)
+                swap(arr, i, --gt);
+            else
+                i++;
+        }
+        swap(arr, l, lt);
+
+        sort(arr, l, lt - 1, cutoff);
+        sort(arr, gt, r, cutoff);
+    }
+
+    public static void sortRange(double[] arr, int l, int r) { sort(arr, l, r, SortingNetwork.DOUBLE_CUTOFF); }
+
+    private static void sort(double[] arr, int l, int r, int cutoff) {
+        if (r - l <= 15) {
+            if (r - l < cutoff)
+                SortingNetwork.sortRange(arr, l, r);
+            else
+                InsertionSort.sortRange(arr, l, r);
+            return;
+        }
+
+        swap(arr, l, ThreadLocalRandom.current().nextInt(l, r + 1));
+        double v = arr[l];
+        int lt = l, gt = r + 1, i = l + 1;
+
+        while (i < gt) {
+            if (arr[i] < v)
+                swap(arr, i++, ++lt);
+            else if (arr[i] > v)
+                swap(arr, i, --gt);
+            else
+                i++;
+        }
+        swap(arr, l, lt);
+
+        sort(arr, l, lt - 1, cutoff);
+        sort(arr, gt, r, cutoff);
+    }
+
+    // 不做边界检查的 swap（调用方已保证索引合法）。类中声明的 swap 会遮蔽 static import 进来的 Helpers.swap
+    private static void swap(int[] arr, int i, int j) {
+        int temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    private static void swap(long[] arr, int i, int j) {
+        long temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    private static void swap(double[] arr, int i, int j) {
+        double temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+
+    public static void main(String[] args) {
+        int[] arr = toIntArr(generateRandomIntArr(20));
+        log(arr);
+        sort(arr);
+        log(arr);
+
+        int[] arr1 = toIntArr(generateRandomArrayFromRange(1000000, 0, 10));  // 包含大量重复的数据集
+        int[] arr2 = arr1.clone();
+        timeIt(arr1, QuickSort2Ways::sort);
+        timeIt(arr2, QuickSort3Ways::sort);  // 与泛型版本的结论一样，三路快排对于包含大量重复的数据集的排序效率最高
+    }
+}
@@ -0,0 +1,164 @@
+package SortingSpecialised;
+
+import java.util.Random;
+
+import static Utils.Helpers.*;
+
+/*
+ * 基数排序（Radix Sort）- LSD（Least Significant Digit first，从低位到高位）
+ *
+ * - 计数排序的局限：
+ *   CountingSort1、CountingSort2 要开辟一个大小为 max - min + 1 的 buckets 数组，因此只适用于取值范围很小的数据。对于取值范围
+ *   是整个 int 甚至 long 的数据，buckets 数组根本开辟不出来。
+ *
+ * - 思路：
+ *   把每个 key 拆成若干个"位"（digit），每一位的取值范围都很小，然后从最低位到最高位，依次按该位对所有元素进行一遍计数排序：
+ *       原始      按个位排     按十位排     按百位排
+ *       329        720         720         329
+ *       457        355         329         355
+ *       657        436         436         436
+ *       839  --->  457  --->   839  --->   457
+ *       436        657         355         657
+ *       720        329         457         720
+ *       355        839         657         839
+ *   因为每一遍的计数排序都是稳定的，所以在按高位排序时，高位相同的元素仍然保持着按低位排好的顺序，最后整体就有序了。
+ *
+ * - 实现细节：
+ *   1. 位宽：这里每一位取 11 个二进制位（radix = 2048），int 需要3遍（11 + 11 + 10），long 需要6遍。位宽越大遍数越少，但每一遍
+ *      的计数数组越大；2048 个计数器（8KB）刚好能放进 L1 cache，是一个常用的折中。
+ *   2. 稳定的计数排序：与 CountingSort2 不同，这里不是按计数"重新生成"元素，而是先对计数数组求前缀和，得到每个 digit 在输出中
+ *      的起始位置，然后从前往后把每个元素搬到它的位置上（这样才能保证稳定）。
+ *   3. 符号处理：int/long 是补码表示，负数的最高位是1，直接按无符号比较的话负数会排在正数后面。因此取 key 时先把最高位（符号位）
+ *      取反（x ^ Integer.MIN_VALUE），这样 key 的无符号大小顺序就与原值的有符号大小顺序一致了。
+ *   4. 只扫描一遍统计所有位的计数：在第一遍扫描中同时统计每一位的计数，之后每一遍只需要搬运元素。
+ *   5. 跳过常量位：若某一位上所有元素的 digit 都相同（比如数据都是小于 2^22 的非负数，则最高位全都相同），这一遍排序不会改变任何
+ *      元素的顺序，直接跳过。
+ *   6. 辅助空间：只需要一个与原数组等长的 buffer，每一遍在原数组和 buffer 之间来回搬运（源和目标交替），最后若结果在 buffer 中再
+ *      拷贝回去。调用方可以通过 sort(arr, buf) 传入自己的 buffer，在多次排序之间复用。
+ *
+ * - 复杂度：
+ *   - 时间复杂度为 O(d * (n + r))，d 为遍数，r 为 radix。d 和 r 都是常数，因此是线性的 O(n)，与数据的取值范围无关。
+ *   - 空间复杂度为 O(n + r)。
+ * */
+
+public class RadixSort {
+    private static final int BITS = 11;
+    private static final int RADIX = 1 << BITS;
+    private static final int MASK = RADIX - 1;
+
+    public static void sort(int[] arr) { sort(arr, new int[arr.length]); }
+
+    public static void sort(int[] arr, int[] buf) {
+        int n = arr.length;
+        if (buf.length < n)
+            throw new IllegalArgumentException("sort failed. Buffer is smaller than the array.");
+        if (n < 2) return;
+
+        int passes = (Integer.SIZE + BITS - 1) / BITS;
+        int[][] count = new int[passes][RADIX];
+        for (int i = 0; i < n; i++) {  // 只扫描一遍，统计所有位的计数
+            int key = arr[i] ^ Integer.MIN_VALUE;
+            for (int d = 0; d < passes; d++)
+                count[d][(key >>> (d * BITS)) & MASK]++;
+        }
+
+        int[] src = arr, dst = buf;
+        for (int d = 0; d < passes; d++) {
+            int shift = d * BITS;
+            int[] c = count[d];
+            if (c[((src[0] ^ Integer.MIN_VALUE) >>> shift) & MASK] == n)  // 所有元素在这一位上都相同，跳过
+                continue;
+
+            for (int b = 0, sum = 0; b < RADIX; b++) {  // 前缀和：c[b] 变为 digit == b 的元素在输出中的起始位置
+                int cnt = c[b];
+                c[b] = sum;
+                sum += cnt;
+            }
+            for (int i = 0; i < n; i++) {  // 从前往后搬运，保证稳定性
+                int e = src[i];
+                dst[c[((e ^ Integer.MIN_VALUE) >>> shift) & MASK]++] = e;
+            }
+            int[] temp = src;  // 源和目标交替
+            src = dst;
+            dst = temp;
+        }
+        if (src != arr)
+            System.arraycopy(src, 0, arr, 0, n);
+    }
+
+    public static void sort(long[] arr) { sort(arr, new long[arr.length]); }
+
+    public static void sort(long[] arr, long[] buf) {
+        int n = arr.length;
+        if (buf.length < n)
+            throw new IllegalArgumentException("sort failed. Buffer is smaller than the array.");
+        if (n < 2) return;
+
+        int passes = (Long.SIZE + BITS - 1) / BITS;
+        int[][] count = new int[passes][RADIX];
+        for (int i = 0; i < n; i++) {  // 只扫描一遍，统计所有位的计数
+            long key = arr[i] ^ Long.MIN_VALUE;
+            for (int d = 0; d < passes; d++)
+                count[d][(int) ((key >>> (d * BITS)) & MASK)]++;
+        }
+
+        long[] src = arr, dst = buf;
+        for (int d = 0; d < passes; d++) {
+            int shift = d * BITS;
+            int[] c = count[d];
+            if (c[(int) (((src[0] ^ Long.MIN_VALUE) >>> shift) & MASK)] == n)  // 所有元素在这一位上都相同，跳过
+                continue;
+
+            for (int b = 0, sum = 0; b < RADIX; b++) {  // 前缀和：c[b] 变为 digit == b 的元素在输出中的起始位置
+                int cnt = c[b];
+                c[b] = sum;
+                sum += cnt;
+            }
+            for (int i = 0; i < n; i++) {  // 从前往后搬运，保证稳定性
+                long e = src[i];
+                dst[c[(int) (((e ^ Long.MIN_VALUE) >>> shift) & MASK)]++] = e;
+            }
+            long[] temp = src;  // 源和目标交替
+            src = dst;
+            dst = temp;
+        }
+        if (src != arr)
+            System.arraycopy(src, 0, arr, 0, n);
+    }
+
+    public static void main(String[] args) {
+        int[] arr = {170, -45, 75, -90, 802, 24, 2, 66, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        sort(arr);
+        log(arr);
+
+        // 性能测试：取值范围为整个 int 的数据，计数排序无法处理
+        Random r = new Random();
+        int[] arr1 = new int[10000000];
+        for (int i = 0; i < arr1.length; i++)
+            arr1[i] = r.nextInt();
+        int[] arr2 = arr1.clone();
+        int[] arr3 = arr1.clone();
+        timeIt(arr1, SortingPrimitive.QuickSort2Ways::sort);
+        timeIt(arr2, SortingAdvanced.DualPivotQuickSort::sort);
+        timeIt(arr3, RadixSort::sort);  // 线性复杂度，比基于比较的排序快
+        log(isSorted(arr3));
+
+        long[] arr4 = new long[10000000];
+        for (int i = 0; i < arr4.length; i++)
+            arr4[i] = r.nextLong();
+        long[] arr5 = arr4.clone();
+        timeIt(arr4, SortingAdvanced.DualPivotQuickSort::sort);
+        timeIt(arr5, RadixSort::sort);
+        log(isSorted(arr5));
+
+        // 复用同一个 buffer 多次排序
+        int[] buf = new int[1000000];
+        for (int k = 0; k < 3; k++) {
+            int[] arr6 = new int[1000000];
+            for (int i = 0; i < arr6.length; i++)
+                arr6[i] = r.nextInt(1 << 20);  // 高位全为0，最高位那一遍会被跳过
+            sort(arr6, buf);
+            log(isSorted(arr6));
+        }
+    }
+}
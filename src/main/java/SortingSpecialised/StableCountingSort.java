@@ -0,0 +1,145 @@
+package SortingSpecialised;
+
+import SortingAdvanced.MergeSort2;
+
+import java.util.Random;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+import static Utils.Helpers.*;
+
+/*
+ * 稳定的计数排序（Stable Counting Sort）- 对记录按整数 key 排序
+ *
+ * - CountingSort2 的局限：
+ *   1. 最后填充数组时写入的是 min + n，即"按计数重新生成元素"，因此只能对 int 本身排序。若要对记录（对象）按其中的某个整数字段
+ *      （如优先级、一年中的第几天）排序，重新生成出来的只是 key，记录本身就丢了。
+ *   2. 不稳定（见 CountingSort2 中的注释）。
+ *
+ * - 思路（即 CountingSort2 注释中提到的"进一步优化"）：
+ *   1. 统计：用 keyExtractor 取出每条记录的 key，统计每个 key 出现的次数 count[key - min]。
+ *   2. 前缀和：把 count 数组变为"每个 key 在输出中的起始位置"：
+ *        key:    0  1  2  3            key:    0  1  2  3
+ *        count: [2, 0, 3, 1]   --->    start: [0, 2, 2, 5]
+ *   3. 搬运：先把原数组拷贝一份到 aux 中，再从前往后遍历 aux，把每条记录直接放回 arr[start[key]++] 上（不需要最后再拷贝
+ *      回来）。因为是从前往后放的，key 相同的记录之间的相对顺序不变，所以是稳定的。
+ *   注：每条记录的 key 只会被取一次（保存在 keys 数组中），避免 keyExtractor 开销较大时被重复调用。
+ *
+ * - 并行化（数据量 >= PARALLEL_THRESHOLD 时）：
+ *   - 把数组分成 p 块，每块在自己的线程上统计自己的计数数组 count[p][k]，互不干扰，不需要加锁。
+ *   - 前缀和时按"先 key、后块号"的顺序累加：key 相同的记录中，第0块的排在最前，第1块的紧随其后……这样每一块就得到了自己
+ *     的每个 key 在输出中的起始位置，搬运也可以各块并行进行，且仍然是稳定的。
+ *
+ * - 复杂度：时间 O(n + k)，空间 O(n + p * k)，k 为 key 的取值范围 max - min + 1。因此只适用于 k 较小的情况：
+ *   - k > 4n + 1024 时改为把 (key, 原索引) 拼成 long 后用 RadixSort 排序（见 radixSort），仍是稳定的 O(n)，否则即使只有
+ *     2 个元素，key 相距很远时计数数组也开辟不出来。
+ *   - 块数 p 也会被减小，使 p * k 不超过 4n + 1024。
+ * */
+
+public class StableCountingSort {
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    public static <T> void sort(T[] arr, ToIntFunction<? super T> keyExtractor) {
+        int parallelism = arr.length >= PARALLEL_THRESHOLD ? Runtime.getRuntime().availableProcessors() : 1;
+        sort(arr, keyExtractor, parallelism);
+    }
+
+    public static <T> void sort(T[] arr, ToIntFunction<? super T> keyExtractor, int parallelism) {
+        int n = arr.length;
+        if (n < 2) return;
+
+        int[] keys = new int[n];
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            int k = keyExtractor.applyAsInt(arr[i]);
+            keys[i] = k;
+            if (k < min) min = k;
+            if (k > max) max = k;
+        }
+        long maxCounts = 4L * n + 1024;  // 所有块的计数数组加起来最多这么多个计数器，使空间仍是 O(n)
+        if ((long) max - min + 1 > maxCounts) {  // key 的取值范围远大于 n（如两个 key 分别为 ±10亿），改用基数排序
+            radixSort(arr, keys);
+            return;
+        }
+
+        int range = max - min + 1;
+        int chunks = Math.max(1, Math.min(parallelism, n / 1024));  // 每块至少1024个元素，否则并行不划算
+        chunks = (int) Math.min(chunks, maxCounts / range);          // 且 chunks * range 不超过 maxCounts
+        int chunkSize = (n + chunks - 1) / chunks;
+        int[][] count = new int[chunks][range];
+        final int offset = min;
+
+        // 1. 统计（各块并行）
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int[] cnt = count[c];
+            for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++)
+                cnt[keys[i] - offset]++;
+        });
+
+        // 2. 前缀和（先 key、后块号）
+        for (int k = 0, sum = 0; k < range; k++) {
+            for (int c = 0; c < chunks; c++) {
+                int cnt = count[c][k];
+                count[c][k] = sum;
+                sum += cnt;
+            }
+        }
+
+        // 3. 搬运（各块并行）：从 aux 搬回 arr
+        T[] aux = arr.clone();
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int[] start = count[c];
+            for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++)
+                arr[start[keys[i] - offset]++] = aux[i];
+        });
+    }
+
+    /*
+     * 把 (key, 原索引) 拼成一个 long（key 在高32位，索引在低32位，索引非负），按 long 排序即先按 key、key 相同时按原索引排序，
+     * 因此结果是稳定的，且每条记录的 key 仍然只取一次。时间 O(n)，与 key 的取值范围无关。
+     * */
+    private static <T> void radixSort(T[] arr, int[] keys) {
+        int n = arr.length;
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++)
+            packed[i] = (long) keys[i] << 32 | i;
+        RadixSort.sort(packed);
+        T[] aux = arr.clone();
+        for (int i = 0; i < n; i++)
+            arr[i] = aux[(int) packed[i]];
+    }
+
+    private static class Event implements Comparable<Event> {  // 测试用的记录
+        final int id;
+        final int dayOfYear;
+
+        Event(int id, int dayOfYear) { this.id = id; this.dayOfYear = dayOfYear; }
+
+        @Override
+        public int compareTo(Event o) { return Integer.compare(dayOfYear, o.dayOfYear); }
+
+        @Override
+        public String toString() { return "(" + dayOfYear + ", #" + id + ")"; }
+    }
+
+    public static void main(String[] args) {
+        Random r = new Random();
+        Event[] events = new Event[10];
+        for (int i = 0; i < events.length; i++)
+            events[i] = new Event(i, r.nextInt(4) + 1);
+        log(events);
+        sort(events, e -> e.dayOfYear);
+        log(events);  // dayOfYear 相同的记录，id 仍然是递增的（稳定）
+
+        // 性能测试
+        Event[] arr1 = new Event[5000000];
+        for (int i = 0; i < arr1.length; i++)
+            arr1[i] = new Event(i, r.nextInt(366));
+        Event[] arr2 = arr1.clone();
+        Event[] arr3 = arr1.clone();
+        timeIt(arr1, MergeSort2::sort);
+        timeIt(arr2, arr -> sort((Event[]) arr, e -> e.dayOfYear, 1));  // 串行
+        timeIt(arr3, arr -> sort((Event[]) arr, e -> e.dayOfYear));     // 并行（与核数有关）
+        log(isSorted(arr3));
+    }
+}
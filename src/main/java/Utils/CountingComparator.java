@@ -0,0 +1,34 @@
+package Utils;
+
+import java.util.Comparator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * 统计比较次数的 Comparator：
+ *
+ * - 包装另一个 Comparator，每次 compare 时计数一次再转发给它，排序结果不变。
+ * - 所有接受 Comparator 的排序都可以直接使用它，且只有在被显式使用时才有开销，不使用时对排序没有任何影响。
+ * - 用 LongAdder 计数，ParallelMergeSort、ParallelQuickSort3Ways 等并行排序在多个线程中同时调用 compare 也能正确计数，
+ *   且各线程之间不会因为争用同一个计数器而变慢太多。
+ * */
+
+public class CountingComparator<T> implements Comparator<T> {
+    private final Comparator<? super T> c;
+    private final LongAdder count = new LongAdder();
+
+    public CountingComparator(Comparator<? super T> c) { this.c = c; }
+
+    public static <T extends Comparable<? super T>> CountingComparator<T> naturalOrder() {
+        return new CountingComparator<>(Comparator.naturalOrder());
+    }
+
+    @Override
+    public int compare(T a, T b) {
+        count.increment();
+        return c.compare(a, b);
+    }
+
+    public long getCount() { return count.sum(); }
+
+    public void reset() { count.reset(); }
+}
@@ -0,0 +1,363 @@
+package Utils;
+
+import SortingExternal.RecordFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static Utils.Helpers.*;
+
+/*
+ * 测试数据生成器（可复现、可并行、可直接写入文件）：
+ *
+ * - Helpers 中 generate 系列方法的问题：
+ *   1. 使用不带种子的 java.util.Random，每次运行生成的数据都不同，某次测试失败后无法复现同一份数据；
+ *   2. 只能单线程生成，且 java.util.Random 内部用 AtomicLong 的 CAS 更新种子，比较慢；
+ *   3. 只能生成 Integer[]，大规模的测试数据光装箱就要占用大量内存和时间，生成数据的时间甚至比排序本身还长；
+ *   4. 分布只有"随机"和"近乎有序"两种。
+ *
+ * - 思路：
+ *   1. 分块：把 n 个元素按 CHUNK_SIZE 分成若干块，每块使用自己的随机数生成器。这些生成器是从 new SplittableRandom(seed) 依次
+ *      split() 出来的，第 i 块的生成器只取决于 seed 和 i，与线程数、块的执行顺序都无关。因此同一个 seed 无论在几核的机器上、
+ *      是一次性生成到数组中还是分批写入文件，得到的数据都完全相同。
+ *   2. 并行：块与块之间没有任何依赖，用并行流把各块分给 ForkJoinPool 中的线程生成即可，不需要任何同步。
+ *   3. 分布（Distribution）：描述"全局下标为 from 开始的 len 个元素如何生成"，只依赖于元素的下标和这一块的随机数生成器，
+ *      因此所有分布都可以分块、并行、流式地生成。
+ *   4. 流式写入文件：每次并行生成若干块到缓冲区中，写入文件后再生成下一批，内存占用只有一个缓冲区，可以生成超过内存大小的
+ *      测试数据（用于 ExternalMergeSort 等外部排序的测试）。
+ *
+ * - 提供的分布：
+ *   - uniform(lo, hi)：[lo, hi) 上的均匀分布；fewUnique(k) 即 uniform(0, k)，只有 k 个不同的值；
+ *   - gaussian(mean, stddev)：正态分布，四舍五入到整数；
+ *   - zipf(range, s)：[1, range] 上的 Zipf 分布，P(k) ∝ 1/k^s，少数几个值占了绝大部分（如词频、访问热度），用于测试大量重复
+ *     元素的情况。采用 rejection-inversion 方法采样（Hörmann & Derflinger），每次采样为 O(1)，不需要 O(range) 的累积分布表；
+ *   - sorted()、reversed()：有序、逆序；
+ *   - sawtooth(period)：锯齿形，0, 1, ..., period-1, 0, 1, ...，即 n/period 个有序的 run；
+ *   - organPipe()：风琴管形，先升后降 0, 1, ..., n/2, ..., 1, 0；
+ *   - kSorted(k)：第 i 个元素为 i + [0, k] 上的随机数，每个元素距离它在排好序的数组中的位置不超过 k。
+ *   另外 nearlyOrdered(n, numOfSwap) 即 Helpers.generateNearlyOrderedArr 的做法（有序数组中随机交换 numOfSwap 对元素），
+ *   随机交换涉及整个数组，不能分块生成，因此不作为 Distribution 提供。
+ *
+ * - 注：元素的值都是 int，sorted、reversed 等与下标相关的分布在 n 超过 int 范围时（只可能出现在写入文件时）会溢出。
+ * */
+
+public class DataGenerator {
+    public static final int CHUNK_SIZE = 1 << 16;
+    private static final int WRITE_BUFFER_SIZE = 16 << 20;  // 写入文件时每批生成的数据的字节数
+
+    @FunctionalInterface
+    public interface Distribution {
+        // 生成全局下标为 [from, from + len) 的元素，存入 buf[off...off+len)。n 为元素总数，r 为这一块专用的随机数生成器
+        void fill(int[] buf, int off, int len, long from, long n, SplittableRandom r);
+    }
+
+    private final long seed;
+
+    public DataGenerator() { this(new SplittableRandom().nextLong()); }  // 不指定种子时随机选取一个，可以用 getSeed() 取得以便复现
+
+    public DataGenerator(long seed) { this.seed = seed; }
+
+    public long getSeed() { return seed; }
+
+    public int[] ints(int n, Distribution d) {
+        int[] arr = new int[n];
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        SplittableRandom[] rs = split(new SplittableRandom(seed), chunks);
+        IntStream.range(0, chunks).parallel().forEach(i -> {
+            int from = i * CHUNK_SIZE;
+            d.fill(arr, from, Math.min(CHUNK_SIZE, n - from), from, n, rs[i]);
+        });
+        return arr;
+    }
+
+    public long[] longs(int n, Distribution d) {
+        int[] arr = ints(n, d);
+        long[] ret = new long[n];
+        Arrays.parallelSetAll(ret, i -> arr[i]);
+        return ret;
+    }
+
+    public double[] doubles(int n, Distribution d) {
+        int[] arr = ints(n, d);
+        double[] ret = new double[n];
+        Arrays.parallelSetAll(ret, i -> arr[i]);
+        return ret;
+    }
+
+    public Integer[] boxed(int n, Distribution d) { return box(ints(n, d)); }
+
+    public static Integer[] box(int[] arr) {
+        Integer[] ret = new Integer[arr.length];
+        Arrays.parallelSetAll(ret, i -> arr[i]);
+        return ret;
+    }
+
+    // 有序数组中随机交换 numOfSwap 对（不同位置的）元素
+    public int[] nearlyOrdered(int n, int numOfSwap) {
+        int[] arr = ints(n, sorted());
+        SplittableRandom r = new SplittableRandom(seed);
+        for (int i = 0; i < numOfSwap; i++) {
+            int index1 = r.nextInt(n), index2 = index1;
+            while (index1 == index2)
+                index2 = r.nextInt(n);
+            swap(arr, index1, index2);
+        }
+        return arr;
+    }
+
+    // 把 n 个 int 以大端序（与 DataOutputStream.writeInt 相同）写入 file，与 ints(n, d) 生成的数据完全相同
+    public void writeInts(Path file, long n, Distribution d) throws IOException {
+        int[] buf = new int[WRITE_BUFFER_SIZE / 4];
+        ByteBuffer bytes = ByteBuffer.allocateDirect(buf.length * 4);
+        IntBuffer view = bytes.asIntBuffer();
+        SplittableRandom root = new SplittableRandom(seed);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long from = 0; from < n; from += buf.length) {
+                int len = (int) Math.min(buf.length, n - from);
+                generate(buf, len, from, n, d, root);
+                view.clear();
+                view.put(buf, 0, len);
+                bytes.clear().limit(len * 4);
+                while (bytes.hasRemaining())
+                    out.write(bytes);
+            }
+        }
+    }
+
+    /*
+     * 把 n 条定长记录写入 file，第 i 条记录的 key 为分布 d 的第 i 个元素（按 format 的位置、类型和字节序写入）。若 key 之后
+     * 还有至少8个字节，则紧接着 key 写入记录的序号 i（long，用于检查排序是否稳定），其余字节均为0。
+     * */
+    public void writeRecords(Path file, long n, RecordFormat format, Distribution d) throws IOException {
+        int width = format.getRecordWidth();
+        int keyOffset = format.getKeyOffset(), keySize = format.getKeyType().getSize();
+        boolean hasSeq = keyOffset + keySize + 8 <= width;
+        int[] buf = new int[Math.max(1, WRITE_BUFFER_SIZE / width / CHUNK_SIZE) * CHUNK_SIZE];  // 必须是 CHUNK_SIZE 的整数倍
+        ByteBuffer bytes = ByteBuffer.allocateDirect(buf.length * width).order(format.getByteOrder());
+        SplittableRandom root = new SplittableRandom(seed);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long from = 0; from < n; from += buf.length) {
+                int len = (int) Math.min(buf.length, n - from);
+                generate(buf, len, from, n, d, root);
+                for (int i = 0; i < len; i++) {  // 只覆盖 key 和序号，其余字节在分配时即为0，且之后不会被修改
+                    int start = i * width;
+                    if (keySize == 4) bytes.putInt(start + keyOffset, buf[i]);
+                    else bytes.putLong(start + keyOffset, buf[i]);
+                    if (hasSeq) bytes.putLong(start + keyOffset + keySize, from + i);
+                }
+                bytes.clear().limit(len * width);
+                while (bytes.hasRemaining())
+                    out.write(bytes);
+            }
+        }
+    }
+
+    // 并行生成全局下标为 [from, from + len) 的元素到 buf 中。from 是 CHUNK_SIZE 的整数倍，各块的生成器依次从 root 中 split 出来
+    private static void generate(int[] buf, int len, long from, long n, Distribution d, SplittableRandom root) {
+        int chunks = (len + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        SplittableRandom[] rs = split(root, chunks);
+        IntStream.range(0, chunks).parallel().forEach(i -> {
+            int off = i * CHUNK_SIZE;
+            d.fill(buf, off, Math.min(CHUNK_SIZE, len - off), from + off, n, rs[i]);
+        });
+    }
+
+    private static SplittableRandom[] split(SplittableRandom root, int count) {  // 必须顺序进行，保证第 i 块的生成器是确定的
+        SplittableRandom[] rs = new SplittableRandom[count];
+        for (int i = 0; i < count; i++)
+            rs[i] = root.split();
+        return rs;
+    }
+
+    /* -------------------------------- 分布 -------------------------------- */
+
+    public static Distribution uniform(int lo, int hi) {  // [lo, hi)
+        return (buf, off, len, from, n, r) -> {
+            for (int i = 0; i < len; i++)
+                buf[off + i] = r.nextInt(lo, hi);
+        };
+    }
+
+    public static Distribution fewUnique(int distinct) { return uniform(0, distinct); }
+
+    public static Distribution gaussian(double mean, double stddev) {
+        return (buf, off, len, from, n, r) -> {
+            for (int i = 0; i < len; ) {  // Marsaglia polar method，每次得到两个独立的标准正态分布随机数
+                double u, v, s;
+                do {
+                    u = r.nextDouble() * 2 - 1;
+                    v = r.nextDouble() * 2 - 1;
+                    s = u * u + v * v;
+                } while (s >= 1 || s == 0);
+                double m = Math.sqrt(-2 * Math.log(s) / s);
+                buf[off + i++] = toInt(mean + stddev * u * m);
+                if (i < len)
+                    buf[off + i++] = toInt(mean + stddev * v * m);
+            }
+        };
+    }
+
+    private static int toInt(double x) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.round(x)));
+    }
+
+    public static Distribution zipf(int range, double s) {
+        ZipfSampler sampler = new ZipfSampler(range, s);
+        return (buf, off, len, from, n, r) -> {
+            for (int i = 0; i < len; i++)
+                buf[off + i] = sampler.sample(r);
+        };
+    }
+
+    public static Distribution sorted() {
+        return (buf, off, len, from, n, r) -> {
+            for (int i = 0; i < len; i++)
+                buf[off + i] = (int) (from + i);
+        };
+    }
+
+    public static Distribution reversed() {
+        return (buf, off, len, from, n, r) -> {
+            for (int i = 0; i < len; i++)
+                buf[off + i] = (int) (n - 1 - (from + i));
+        };
+    }
+
+    public static Distribution sawtooth(int period) {
+        if (period <= 0)
+            throw new IllegalArgumentException("period must be positive.");
+        return (buf, off, len, from, n, r) -> {
+            for (int i = 0; i < len; i++)
+                buf[off + i] = (int) ((from + i) % period);
+        };
+    }
+
+    public static Distribution organPipe() {
+        return (buf, off, len, from, n, r) -> {
+            for (int i = 0; i < len; i++) {
+                long j = from + i;
+                buf[off + i] = (int) (j < n / 2 ? j : n - 1 - j);
+            }
+        };
+    }
+
+    public static Distribution kSorted(int k) {
+        if (k < 0)
+            throw new IllegalArgumentException("k must be non-negative.");
+        return (buf, off, len, from, n, r) -> {
+            for (int i = 0; i < len; i++)  // 下标相差 > k 的两个元素，下标小的值一定更小，因此每个元素最多偏离 k 个位置
+                buf[off + i] = (int) (from + i) + r.nextInt(k + 1);
+        };
+    }
+
+    /*
+     * Zipf 分布的 rejection-inversion 采样（W. Hörmann, G. Derflinger, "Rejection-inversion to generate variates from monotone
+     * discrete distributions", 1996）：
+     * - 把离散的 P(k) ∝ h(k) = 1/k^s 看作连续函数 h(x) 在 [k-0.5, k+0.5] 上的积分的近似，对 h 的积分 H 求反函数即可用
+     *   inversion 的方法采样出 x，取整得到 k；再以很高的接受概率（> 90%）接受或拒绝，修正连续近似带来的误差。
+     * - 预先计算的只有几个常数，对象是不可变的，可以被多个线程共享。
+     * */
+    private static class ZipfSampler {
+        private final int range;
+        private final double exponent;
+        private final double hIntegralX1, hIntegralRange, s;
+
+        ZipfSampler(int range, double exponent) {
+            if (range <= 0)
+                throw new IllegalArgumentException("range must be positive.");
+            if (exponent <= 0)
+                throw new IllegalArgumentException("exponent must be positive.");
+            this.range = range;
+            this.exponent = exponent;
+            hIntegralX1 = hIntegral(1.5) - 1;
+            hIntegralRange = hIntegral(range + 0.5);
+            s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        int sample(SplittableRandom r) {
+            while (true) {
+                double u = hIntegralRange + r.nextDouble() * (hIntegralX1 - hIntegralRange);
+                double x = hIntegralInverse(u);
+                int k = (int) (x + 0.5);
+                if (k < 1) k = 1;
+                else if (k > range) k = range;
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k))
+                    return k;
+            }
+        }
+
+        private double h(double x) { return Math.exp(-exponent * Math.log(x)); }  // 1/x^s
+
+        private double hIntegral(double x) {  // (x^(1-s) - 1) / (1-s)，s = 1 时为 log(x)
+            double logX = Math.log(x);
+            return helper2((1 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = Math.max(-1, x * (1 - exponent));
+            return Math.exp(helper1(t) * x);
+        }
+
+        private static double helper1(double x) {  // log(1+x)/x，x 接近0时用泰勒展开避免精度损失
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        private static double helper2(double x) {  // (exp(x)-1)/x
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        DataGenerator gen = new DataGenerator(42);
+        log(gen.ints(20, uniform(0, 100)));
+        log(gen.ints(20, gaussian(50, 10)));
+        log(gen.ints(20, zipf(100, 1.2)));
+        log(gen.ints(20, sawtooth(5)));
+        log(gen.ints(20, organPipe()));
+        log(gen.ints(20, kSorted(3)));
+        log(gen.nearlyOrdered(20, 2));
+
+        // 可复现：同一个种子得到的数据相同，写入文件的数据与直接生成的数据也相同
+        int n = 1000000;
+        log(Arrays.equals(gen.ints(n, zipf(1000, 1)), new DataGenerator(42).ints(n, zipf(1000, 1))));
+        Path file = Files.createTempFile("data-generator-", ".bin");
+        gen.writeInts(file, n, zipf(1000, 1));
+        IntBuffer written = ByteBuffer.wrap(Files.readAllBytes(file)).asIntBuffer();
+        int[] fromFile = new int[n];
+        written.get(fromFile);
+        log(Arrays.equals(fromFile, gen.ints(n, zipf(1000, 1))));
+
+        // Zipf 分布的检验：s = 1 时 P(1) / P(2) 应为 2，P(1) / P(10) 应为 10
+        int[] counts = new int[11];
+        for (int x : gen.ints(10000000, zipf(1000, 1)))
+            if (x <= 10) counts[x]++;
+        log(String.format("P(1)/P(2) = %.3f, P(1)/P(10) = %.3f", (double) counts[1] / counts[2], (double) counts[1] / counts[10]));
+
+        // 性能测试：生成5000万个随机数
+        int size = 50000000;
+        timeIt(new int[0], arr -> {
+            Random r = new Random();  // Helpers 原来的做法（java.util.Random，单线程）
+            int[] ret = new int[size];
+            for (int i = 0; i < size; i++)
+                ret[i] = r.nextInt(size);
+        });
+        timeIt(new int[0], arr -> gen.ints(size, uniform(0, size)));  // SplittableRandom 没有 CAS，即使单核也快2倍多；多核上各块还可以并行生成
+
+        long start = System.nanoTime();
+        gen.writeRecords(file, 20000000, new RecordFormat(16, 0, RecordFormat.KeyType.LONG), uniform(0, 1000000));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        log(String.format("Wrote %d MB in %.3fs, %.1f MB/s", Files.size(file) >> 20, seconds, Files.size(file) / 1048576.0 / seconds));
+        Files.delete(file);
+    }
+}
@@ -1,7 +1,6 @@
 package Utils;
 
 import java.util.Arrays;
-import java.util.Random;
 import java.util.function.Consumer;
 
 public class Helpers {
@@ -13,9 +12,14 @@ public class Helpers {
 
     public static void log(int[] arr) { System.out.println(Arrays.toString(arr)); }
 
+    public static void log(long[] arr) { System.out.println(Arrays.toString(arr)); }
+
+    public static void log(double[] arr) { System.out.println(Arrays.toString(arr)); }
+
     public static <E> void swap(E[] arr, int i, int j) {
         if (i < 0 || i >= arr.length || j < 0 || j >= arr.length)
             throw new IllegalArgumentException("swap failed. Index is out of bounds.");
+        SortProbe.swap();
         E temp = arr[i];
         arr[i] = arr[j];
         arr[j] = temp;
@@ -24,24 +28,22 @@ public class Helpers {
     public static void swap(int[] arr, int i, int j) {
         if (i < 0 || i >= arr.length || j < 0 || j >= arr.length)
             throw new IllegalArgumentException("swap failed. Index is out of bounds.");
+        SortProbe.swap();
         int temp = arr[i];
         arr[i] = arr[j];
         arr[j] = temp;
     }
 
+    // generate 系列方法每次都使用随机的种子；需要可复现的数据、基本类型数组或其他分布时直接使用 DataGenerator
     public static Integer[] generateRandomIntArr(int size) {
-        Random r = new Random();
-        Integer[] arr = new Integer[size];
-        for (int i = 0; i < size; i++)
-            arr[i] = r.nextInt(size);
-        return arr;
+        return new DataGenerator().boxed(size, DataGenerator.uniform(0, size));
     }
 
     public static Character[] generateRandomCharArr(int size) {
-        Random r = new Random();
+        int[] letters = new DataGenerator().ints(size, DataGenerator.uniform('a', 'z' + 1));
         Character[] arr = new Character[size];
         for (int i = 0; i < size; i++)
-            arr[i] = (char) (r.nextInt(26) + 'a');
+            arr[i] = (char) letters[i];
         return arr;
     }
 
@@ -52,29 +54,33 @@ public class Helpers {
         log(String.format("Time consumed: %s", (endTime - startTime) / 1000000000.0));
     }
 
-    public static Integer[] generateNearlyOrderedArr(int size, int numOfSwap) {
-        Integer[] arr = new Integer[size];
-        for (int i = 0; i < size; i++)
-            arr[i] = i;
-
-        Random r = new Random();
-        for (int i = 0; i < numOfSwap; i++) {
-            int index1 = r.nextInt(size);
-            int index2 = index1;
-            while (index1 == index2)
-                index2 = r.nextInt(size);
-            swap(arr, index1, index2);
-        }
+    public static void timeIt(int[] arr, Consumer<int[]> fn) {
+        double startTime = System.nanoTime();
+        fn.accept(arr);
+        double endTime = System.nanoTime();
+        log(String.format("Time consumed: %s", (endTime - startTime) / 1000000000.0));
+    }
 
-        return arr;
+    public static void timeIt(long[] arr, Consumer<long[]> fn) {
+        double startTime = System.nanoTime();
+        fn.accept(arr);
+        double endTime = System.nanoTime();
+        log(String.format("Time consumed: %s", (endTime - startTime) / 1000000000.0));
+    }
+
+    public static void timeIt(double[] arr, Consumer<double[]> fn) {
+        double startTime = System.nanoTime();
+        fn.accept(arr);
+        double endTime = System.nanoTime();
+        log(String.format("Time consumed: %s", (endTime - startTime) / 1000000000.0));
+    }
+
+    public static Integer[] generateNearlyOrderedArr(int size, int numOfSwap) {
+        return DataGenerator.box(new DataGenerator().nearlyOrdered(size, numOfSwap));
     }
 
     public static Integer[] generateRandomArrayFromRange(int size, int lowerBound, int upperBound) {
-        Random r = new Random();
-        Integer[] arr = new Integer[size];
-        for (int i = 0; i < arr.length; i++)
-            arr[i] = r.nextInt(upperBound - lowerBound) + lowerBound;
-        return arr;
+        return new DataGenerator().boxed(size, DataGenerator.uniform(lowerBound, upperBound));
     }
 
     public static boolean isSorted(Comparable[] arr) {
@@ -84,4 +90,47 @@ public class Helpers {
         }
         return true;
     }
+
+    public static boolean isSorted(int[] arr) {
+        for (int i = 0; i < arr.length - 1; i++)
+            if (arr[i] > arr[i + 1])
+                return false;
+        return true;
+    }
+
+    public static boolean isSorted(long[] arr) {
+        for (int i = 0; i < arr.length - 1; i++)
+            if (arr[i] > arr[i + 1])
+                return false;
+        return true;
+    }
+
+    public static boolean isSorted(double[] arr) {
+        for (int i = 0; i < arr.length - 1; i++)
+            if (arr[i] > arr[i + 1])
+                return false;
+        return true;
+    }
+
+    // 将 generate 系列方法生成的 Integer[] 拆箱，便于用同一份数据对比泛型排序和基本类型排序
+    public static int[] toIntArr(Integer[] arr) {
+        int[] ret = new int[arr.length];
+        for (int i = 0; i < arr.length; i++)
+            ret[i] = arr[i];
+        return ret;
+    }
+
+    public static long[] toLongArr(Integer[] arr) {
+        long[] ret = new long[arr.length];
+        for (int i = 0; i < arr.length; i++)
+            ret[i] = arr[i];
+        return ret;
+    }
+
+    public static double[] toDoubleArr(Integer[] arr) {
+        double[] ret = new double[arr.length];
+        for (int i = 0; i < arr.length; i++)
+            ret[i] = arr[i];
+        return ret;
+    }
 }
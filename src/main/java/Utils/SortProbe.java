@@ -0,0 +1,183 @@
+package Utils;
+
+import Heap.HeapSort;
+import SortingAdvanced.*;
+import SortingBasic.InsertionSort;
+import SortingBasic.ShellSort;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static Utils.Helpers.*;
+
+/*
+ * 排序的操作计数（instrumentation）：
+ *
+ * - 问题：运行时间只是结果，要根据数据的特点选择排序算法，还需要知道各个排序在这份数据上做了多少次比较、多少次交换、移动了
+ *   多少次元素、递归有多深 —— 比如比较的代价很大（字符串、复杂对象）时应该选比较次数少的归并排序，元素很大（移动的代价大）时
+ *   应该选交换次数少的排序，递归太深则有栈溢出的风险。
+ *
+ * - 统计的内容：
+ *   - 比较次数：用 CountingComparator 包装传给排序的 Comparator（所有排序都有接受 Comparator 的重载，HeapSort 只有 sort3、
+ *     sortRange 有，sort1、sort2 基于 MaxHeap，无法统计）。
+ *   - 交换次数：Helpers.swap 及各排序中私有的 swap 方法中的探针 swap()。
+ *   - 移动次数：除交换以外，元素被写入数组（包括辅助数组）的次数，即插入排序中的元素后移、归并排序中拷贝到辅助数组和归并回原
+ *     数组等。由排序在拷贝处调用探针 move(count)，其中 System.arraycopy 按拷贝的元素个数计算。
+ *   - 最大递归深度：排序在递归调用前后调用探针 enter()、exit()。并行排序中各线程分别计算自己的深度，结果为所有线程中的最大值。
+ *
+ * - 零开销：
+ *   探针是否启用由 JVM 启动参数 -Dsort.probe=true 决定，保存在 static final 的 ENABLED 中。JIT 编译时 ENABLED 是常量，
+ *   未启用时探针方法体 if (ENABLED) {...} 整个被消除，内联后调用处也不剩下任何代码，因此不会影响排序的性能（运行时不能切换，
+ *   这正是零开销的代价）。
+ *
+ * - 使用：
+ *   run(algorithm, arr, c, sort) 清零计数器、用 CountingComparator 包装 c 后运行一次排序，返回这次运行的 Report。
+ *   Report 可以直接打印，也可以用 export 导出为 Prometheus 的文本格式（每个计数器一个 gauge，带 algorithm、n 两个标签），
+ *   写入文件或从 HTTP 接口返回即可被采集。
+ *   注：计数器是全局的，同一时间只能有一个 run 在运行（排序本身可以是并行的）。
+ * */
+
+public class SortProbe {
+    public static final boolean ENABLED = Boolean.getBoolean("sort.probe");
+
+    private static final LongAdder SWAPS = new LongAdder();
+    private static final LongAdder MOVES = new LongAdder();
+    private static final LongAccumulator MAX_DEPTH = new LongAccumulator(Math::max, 0);
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);  // 当前线程的递归深度
+
+    public static void swap() {
+        if (ENABLED) SWAPS.increment();
+    }
+
+    public static void move(int count) {
+        if (ENABLED) MOVES.add(count);
+    }
+
+    public static void enter() {
+        if (ENABLED) MAX_DEPTH.accumulate(++DEPTH.get()[0]);
+    }
+
+    public static void exit() {
+        if (ENABLED) DEPTH.get()[0]--;
+    }
+
+    public static <T> Report run(String algorithm, T[] arr, Comparator<? super T> c, BiConsumer<T[], Comparator<? super T>> sort) {
+        CountingComparator<T> counting = new CountingComparator<>(c);
+        SWAPS.reset();
+        MOVES.reset();
+        MAX_DEPTH.reset();
+        DEPTH.get()[0] = 0;
+
+        long start = System.nanoTime();
+        sort.accept(arr, counting);
+        long nanos = System.nanoTime() - start;
+
+        return ENABLED
+                ? new Report(algorithm, arr.length, counting.getCount(), SWAPS.sum(), MOVES.sum(), MAX_DEPTH.get(), nanos)
+                : new Report(algorithm, arr.length, counting.getCount(), -1, -1, -1, nanos);
+    }
+
+    // 一次排序的计数结果，未启用探针时 swaps、moves、maxDepth 为 -1
+    public static class Report {
+        private final String algorithm;
+        private final int n;
+        private final long comparisons, swaps, moves, maxDepth, nanos;
+
+        Report(String algorithm, int n, long comparisons, long swaps, long moves, long maxDepth, long nanos) {
+            this.algorithm = algorithm;
+            this.n = n;
+            this.comparisons = comparisons;
+            this.swaps = swaps;
+            this.moves = moves;
+            this.maxDepth = maxDepth;
+            this.nanos = nanos;
+        }
+
+        public String getAlgorithm() { return algorithm; }
+
+        public int getN() { return n; }
+
+        public long getComparisons() { return comparisons; }
+
+        public long getSwaps() { return swaps; }
+
+        public long getMoves() { return moves; }
+
+        public long getMaxDepth() { return maxDepth; }
+
+        public long getNanos() { return nanos; }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s n: %d, comparisons: %d, swaps: %s, moves: %s, max depth: %s, time: %.3fms",
+                    algorithm, n, comparisons, orNA(swaps), orNA(moves), orNA(maxDepth), nanos / 1e6);
+        }
+
+        private static String orNA(long value) { return value < 0 ? "n/a" : Long.toString(value); }
+    }
+
+    // 导出为 Prometheus 文本格式，未启用探针时不导出 swaps、moves、max depth
+    public static String export(List<Report> reports) {
+        StringBuilder sb = new StringBuilder();
+        exportMetric(sb, reports, "sort_comparisons", "Number of comparisons made by one sort run.", r -> r.comparisons);
+        if (ENABLED) {
+            exportMetric(sb, reports, "sort_swaps", "Number of swaps made by one sort run.", r -> r.swaps);
+            exportMetric(sb, reports, "sort_moves", "Number of element writes other than swaps made by one sort run.", r -> r.moves);
+            exportMetric(sb, reports, "sort_max_depth", "Maximum recursion depth of one sort run.", r -> r.maxDepth);
+        }
+        exportMetric(sb, reports, "sort_duration_seconds", "Wall time of one sort run.", r -> r.nanos / 1e9);
+        return sb.toString();
+    }
+
+    private static void exportMetric(StringBuilder sb, List<Report> reports, String name, String help, Function<Report, Number> value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" gauge\n");
+        for (Report r : reports)
+            sb.append(name).append("{algorithm=\"").append(escape(r.algorithm)).append("\",n=\"").append(r.n).append("\"} ")
+              .append(value.apply(r)).append('\n');
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public static void main(String[] args) {  // 需要带 -Dsort.probe=true 运行，否则只统计比较次数
+        if (!ENABLED)
+            log("Probes are disabled, run with -Dsort.probe=true to count swaps, moves and recursion depth.");
+
+        Integer[] source = new DataGenerator(42).boxed(100000, DataGenerator.uniform(0, 100000));
+        Comparator<Integer> c = Comparator.naturalOrder();
+        List<Report> reports = new ArrayList<>();
+        reports.add(run("ShellSort", source.clone(), c, ShellSort::sort));
+        reports.add(run("MergeSort", source.clone(), c, MergeSort::sort));
+        reports.add(run("MergeSort2", source.clone(), c, MergeSort2::sort));
+        reports.add(run("MergeSortBottomUp", source.clone(), c, MergeSortBottomUp::sort));
+        reports.add(run("MergeSort3", source.clone(), c, MergeSort3::sort));
+        reports.add(run("NaturalMergeSort", source.clone(), c, NaturalMergeSort::sort));
+        reports.add(run("ParallelMergeSort", source.clone(), c, ParallelMergeSort::sort));
+        reports.add(run("QuickSort2", source.clone(), c, QuickSort2::sort));
+        reports.add(run("QuickSort2Ways", source.clone(), c, QuickSort2Ways::sort));
+        reports.add(run("QuickSort3Ways", source.clone(), c, QuickSort3Ways::sort));
+        reports.add(run("IntroSort", source.clone(), c, IntroSort::sort));
+        reports.add(run("DualPivotQuickSort", source.clone(), c, DualPivotQuickSort::sort));
+        reports.add(run("HeapSort", source.clone(), c, HeapSort::sort3));
+        for (Report r : reports)
+            log(r);
+
+        // 近乎有序的数据：插入排序、自然归并的比较次数接近 n
+        Integer[] nearlyOrdered = DataGenerator.box(new DataGenerator(42).nearlyOrdered(100000, 10));
+        List<Report> reports2 = new ArrayList<>();
+        reports2.add(run("InsertionSort", nearlyOrdered.clone(), c, InsertionSort::sort2));
+        reports2.add(run("NaturalMergeSort", nearlyOrdered.clone(), c, NaturalMergeSort::sort));
+        reports2.add(run("QuickSort3Ways", nearlyOrdered.clone(), c, QuickSort3Ways::sort));
+        for (Report r : reports2)
+            log(r);
+
+        log(export(reports2));
+    }
+}